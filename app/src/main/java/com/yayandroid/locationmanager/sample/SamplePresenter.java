@@ -39,6 +39,10 @@ public class SamplePresenter {
                 sampleView.setText("Couldn't get location, because network is not accessible!");
                 break;
             }
+            case FailType.GPS_NOT_AVAILABLE: {
+                sampleView.setText("Couldn't get location, because GPS is not enabled!");
+                break;
+            }
             case FailType.GOOGLE_PLAY_SERVICES_NOT_AVAILABLE: {
                 sampleView.setText("Couldn't get location, because Google Play Services not available!");
                 break;
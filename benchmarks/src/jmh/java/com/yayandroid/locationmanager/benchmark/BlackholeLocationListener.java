@@ -0,0 +1,37 @@
+package com.yayandroid.locationmanager.benchmark;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.base.SimpleLocationListener;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Consumes every delivered location, so that the dispatch path cannot be optimized away
+ */
+public class BlackholeLocationListener extends SimpleLocationListener implements BatchLocationListener {
+
+    private final Blackhole blackhole;
+
+    public BlackholeLocationListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        blackhole.consume(location);
+    }
+
+    @Override
+    public void onLocationsChanged(List<Location> locations) {
+        blackhole.consume(locations);
+    }
+
+    @Override
+    public void onLocationFailed(int type) {
+        blackhole.consume(type);
+    }
+}
@@ -0,0 +1,60 @@
+package com.yayandroid.locationmanager.benchmark;
+
+import android.location.Location;
+
+/**
+ * Location whose getters return what it is created with, since the ones of the mockable android.jar
+ * only return default values
+ */
+public class FakeLocation extends Location {
+
+    private final String provider;
+    private final long time;
+    private final double latitude;
+    private final double longitude;
+    private final float accuracy;
+
+    public FakeLocation(String provider, long time, double latitude, double longitude, float accuracy) {
+        super(provider);
+        this.provider = provider;
+        this.time = time;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+    }
+
+    @Override
+    public String getProvider() {
+        return provider;
+    }
+
+    @Override
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public long getElapsedRealtimeNanos() {
+        return time * 1000000L;
+    }
+
+    @Override
+    public double getLatitude() {
+        return latitude;
+    }
+
+    @Override
+    public double getLongitude() {
+        return longitude;
+    }
+
+    @Override
+    public boolean hasAccuracy() {
+        return true;
+    }
+
+    @Override
+    public float getAccuracy() {
+        return accuracy;
+    }
+}
@@ -0,0 +1,94 @@
+package com.yayandroid.locationmanager.benchmark;
+
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures per-call cost of {@link LogUtils} with logging both enabled and disabled.
+ * Disabled calls are expected to cost no more than reading the flag, for every overload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LogUtilsBenchmark {
+
+    private static final String TAG = "LogUtilsBenchmark";
+
+    @Param({ "false", "true" })
+    public boolean enabled;
+
+    private long counter;
+    private String statusCode = "RESOLUTION_REQUIRED";
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        LogUtils.setLogger(new BlackholeLogger(blackhole));
+        LogUtils.enable(enabled);
+    }
+
+    @Benchmark
+    public void constantMessage() {
+        LogUtils.logI(TAG, "Requesting location update...");
+    }
+
+    @Benchmark
+    public void formattedObjectArgument() {
+        LogUtils.logE(TAG, "LocationSettings failing, status: %s", statusCode);
+    }
+
+    @Benchmark
+    public void formattedPrimitiveArgument() {
+        LogUtils.logD(TAG, "Waited for %d ms", counter++);
+    }
+
+    @Benchmark
+    public void formattedTwoArguments() {
+        LogUtils.logV(TAG, "%s is %s", TAG, statusCode);
+    }
+
+    private static final class BlackholeLogger implements Logger {
+
+        private final Blackhole blackhole;
+
+        BlackholeLogger(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void logD(String className, String message) {
+            blackhole.consume(message);
+        }
+
+        @Override
+        public void logE(String className, String message) {
+            blackhole.consume(message);
+        }
+
+        @Override
+        public void logI(String className, String message) {
+            blackhole.consume(message);
+        }
+
+        @Override
+        public void logV(String className, String message) {
+            blackhole.consume(message);
+        }
+
+        @Override
+        public void logW(String className, String message) {
+            blackhole.consume(message);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.yayandroid.locationmanager.helper.continuoustask;
+
+import androidx.annotation.NonNull;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a delayed, pause, resume and stop cycle of {@link ContinuousTaskScheduler}, as providers go through
+ * it for their timeouts on every request and lifecycle change. Either only the bookkeeping of the scheduler is
+ * measured, or scheduling on the shared {@link TimerWheel} as well. Delays are long enough never to expire.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContinuousTaskSchedulerBenchmark {
+
+    private static final long DELAY = TimeUnit.MINUTES.toMillis(10);
+
+    @Param({ "false", "true" })
+    public boolean timerWheel;
+
+    private ContinuousTaskScheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        ContinuousTask.ContinuousTaskRunner runner = new ContinuousTask.ContinuousTaskRunner() {
+            @Override
+            public void runScheduledTask(@NonNull String taskId) {
+            }
+        };
+        ContinuousTask task = timerWheel ? new ClockTask(runner) : new UnscheduledTask(runner);
+        scheduler = new ContinuousTaskScheduler(task);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.onStop();
+    }
+
+    @Benchmark
+    public boolean delayedPauseResumeStop() {
+        scheduler.delayed(DELAY);
+        scheduler.onPause();
+        scheduler.onResume();
+        boolean isSet = scheduler.isSet();
+        scheduler.onStop();
+        return isSet;
+    }
+
+    @Benchmark
+    public boolean delayedAndStop() {
+        scheduler.delayed(DELAY);
+        boolean isSet = scheduler.isSet();
+        scheduler.onStop();
+        return isSet;
+    }
+
+    /**
+     * SystemClock of the mockable android.jar always returns 0
+     */
+    private static class ClockTask extends ContinuousTask {
+
+        ClockTask(ContinuousTaskRunner runner) {
+            super("benchmark", runner);
+        }
+
+        @Override
+        long getCurrentTime() {
+            return System.nanoTime() / 1000000L;
+        }
+    }
+
+    private static class UnscheduledTask extends ClockTask {
+
+        UnscheduledTask(ContinuousTaskRunner runner) {
+            super(runner);
+        }
+
+        @Override
+        void schedule(long delay) {
+        }
+
+        @Override
+        void unregister() {
+        }
+    }
+}
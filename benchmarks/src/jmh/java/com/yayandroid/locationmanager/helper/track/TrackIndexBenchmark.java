@@ -0,0 +1,159 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import com.yayandroid.locationmanager.benchmark.FakeLocation;
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures queries over a synthetic history of a random walk, one fix a second, read either by scanning every record
+ * of the {@link TrackRecorder} or through a {@link TrackIndex}: an area query which matches a small part of the
+ * history, the position at a given time, and a count of the whole history on the calling thread or split over the
+ * common fork-join pool. Scans take milliseconds, so the average time of each is reported instead of the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrackIndexBenchmark {
+
+    private static final double START_LATITUDE = 52.52;
+    private static final double START_LONGITUDE = 13.40;
+    private static final double STEP = 0.0001; // About 10 meters
+
+    @Param({ "1000000", "4000000" })
+    public int size;
+
+    private File directory;
+    private TrackRecorder recorder;
+    private TrackIndex index;
+    private TrackQuery areaQuery;
+    private TrackQuery allQuery;
+    private long middleTime;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("track-index").toFile();
+        recorder = TrackRecorder.open(directory, new TrackRecorderConfiguration.Builder()
+              .segmentCapacity(1 << 20)
+              .commitBatchSize(1 << 16)
+              .build());
+
+        Random random = new Random(42);
+        double latitude = START_LATITUDE;
+        double longitude = START_LONGITUDE;
+        for (int i = 0; i < size; i++) {
+            latitude += (random.nextDouble() - 0.5) * STEP;
+            longitude += (random.nextDouble() - 0.5) * STEP;
+            FakeLocation location = new FakeLocation("gps", 1000L * i, latitude, longitude, 5);
+            long droppedCount = recorder.getDroppedCount();
+            recorder.append(location);
+            // Appending is faster than the next segment is prepared, wait for it instead of losing records
+            while (recorder.getDroppedCount() > droppedCount) {
+                droppedCount = recorder.getDroppedCount();
+                Thread.yield();
+                recorder.append(location);
+            }
+        }
+        recorder.commit();
+        index = TrackIndex.build(recorder);
+
+        // Around the start, which the walk returns to now and then
+        areaQuery = new TrackQuery.Builder()
+              .within(START_LATITUDE - 0.001, START_LONGITUDE - 0.001, START_LATITUDE + 0.001, START_LONGITUDE + 0.001)
+              .build();
+        allQuery = new TrackQuery.Builder().build();
+        middleTime = 1000L * (size / 2) + 500;
+    }
+
+    @TearDown
+    public void tearDown() {
+        recorder.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public int areaQueryByScan() throws IOException {
+        return countOf(recorder.cursor(areaQuery));
+    }
+
+    @Benchmark
+    public int areaQueryByIndex() throws IOException {
+        return countOf(index.query(areaQuery));
+    }
+
+    @Benchmark
+    public TrackIndex.Position positionAtByScan() throws IOException {
+        TrackCursor cursor = recorder.cursor(middleTime - 1000, middleTime + 1000);
+        cursor.moveToNext();
+        long previousTime = cursor.getTime();
+        double latitude = cursor.getLatitude();
+        double longitude = cursor.getLongitude();
+        cursor.moveToNext();
+        double ratio = (double) (middleTime - previousTime) / (cursor.getTime() - previousTime);
+        return new TrackIndex.Position(middleTime, latitude + (cursor.getLatitude() - latitude) * ratio,
+              longitude + (cursor.getLongitude() - longitude) * ratio, previousTime, cursor.getTime());
+    }
+
+    @Benchmark
+    public TrackIndex.Position positionAtByIndex() {
+        return index.positionAt(middleTime);
+    }
+
+    @Benchmark
+    public long[] aggregateSequentially() {
+        return index.aggregate(allQuery, new CountAggregation());
+    }
+
+    @Benchmark
+    public long[] aggregateInParallel() {
+        return index.aggregate(allQuery, new CountAggregation(), ForkJoinPool.commonPool());
+    }
+
+    private static int countOf(TrackCursor cursor) throws IOException {
+        int count = 0;
+        while (cursor.moveToNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static class CountAggregation implements TrackIndex.Aggregation<long[]> {
+
+        @Override
+        public long[] create() {
+            return new long[1];
+        }
+
+        @Override
+        public void add(long[] result, TrackCursor cursor) {
+            result[0]++;
+        }
+
+        @Override
+        public long[] merge(long[] first, long[] second) {
+            first[0] += second[0];
+            return first;
+        }
+    }
+}
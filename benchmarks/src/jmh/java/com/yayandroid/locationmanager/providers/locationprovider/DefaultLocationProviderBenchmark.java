@@ -0,0 +1,66 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.app.Application;
+import android.content.ContextWrapper;
+import android.location.Location;
+
+import com.yayandroid.locationmanager.benchmark.BlackholeLocationListener;
+import com.yayandroid.locationmanager.benchmark.FakeLocation;
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.view.ContextProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what {@link DefaultLocationProvider} does for every fix it receives from the framework while keeping
+ * tracking, from {@link DefaultLocationProvider#onLocationChanged(Location)} to the listener.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DefaultLocationProviderBenchmark {
+
+    private static final int LOCATION_COUNT = 64;
+
+    private final Location[] locations = new Location[LOCATION_COUNT];
+
+    private DefaultLocationProvider provider;
+    private BlackholeLocationListener listener;
+    private int index;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        for (int i = 0; i < LOCATION_COUNT; i++) {
+            locations[i] = new FakeLocation("gps", System.currentTimeMillis() + i * 1000L, 52.52 + i * 1e-5,
+                  13.40 + i * 1e-5, 5 + i % 10);
+        }
+
+        LocationConfiguration configuration = new LocationConfiguration.Builder()
+              .keepTracking(true)
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder().build())
+              .build();
+
+        // Listener is held weakly by the provider
+        listener = new BlackholeLocationListener(blackhole);
+        provider = new DefaultLocationProvider();
+        // Context of the mockable android.jar returns no LocationManager, updates are never requested anyway
+        provider.setDefaultLocationSource(
+              new DefaultLocationSource(new ContextWrapper(null), provider, provider, null));
+        provider.configure(new ContextProcessor(new Application()), configuration, listener);
+    }
+
+    @Benchmark
+    public void onLocationChanged() {
+        provider.onLocationChanged(locations[index++ & (LOCATION_COUNT - 1)]);
+    }
+}
@@ -0,0 +1,80 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.app.Application;
+import android.location.Location;
+
+import com.google.android.gms.location.LocationResult;
+import com.yayandroid.locationmanager.benchmark.BlackholeLocationListener;
+import com.yayandroid.locationmanager.benchmark.FakeLocation;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.view.ContextProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what {@link GooglePlayServicesLocationProvider} does for every result it receives from the fused
+ * location provider while keeping tracking, either a single fix or a batch of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GooglePlayServicesLocationProviderBenchmark {
+
+    private static final int RESULT_COUNT = 16;
+
+    @Param({ "1", "10" })
+    public int batchSize;
+
+    @Param({ "false", "true" })
+    public boolean deliverBestOfBatch;
+
+    private final LocationResult[] results = new LocationResult[RESULT_COUNT];
+
+    private GooglePlayServicesLocationProvider provider;
+    private BlackholeLocationListener listener;
+    private int index;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            List<Location> locations = new ArrayList<>(batchSize);
+            for (int j = 0; j < batchSize; j++) {
+                int n = i * batchSize + j;
+                locations.add(new FakeLocation("fused", time + n * 1000L, 52.52 + n * 1e-5, 13.40 + n * 1e-5,
+                      5 + n % 10));
+            }
+            results[i] = LocationResult.create(locations);
+        }
+
+        LocationConfiguration configuration = new LocationConfiguration.Builder()
+              .keepTracking(true)
+              .useGooglePlayServices(new GooglePlayServicesConfiguration.Builder()
+                    .deliverBestOfBatch(deliverBestOfBatch)
+                    .build())
+              .build();
+
+        // Listener is held weakly by the provider
+        listener = new BlackholeLocationListener(blackhole);
+        provider = new GooglePlayServicesLocationProvider(null);
+        provider.configure(new ContextProcessor(new Application()), configuration, listener);
+    }
+
+    @Benchmark
+    public void onLocationResult() {
+        provider.onLocationResult(results[index++ & (RESULT_COUNT - 1)]);
+    }
+}
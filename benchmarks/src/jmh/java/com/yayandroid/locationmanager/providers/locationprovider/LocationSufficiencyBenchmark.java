@@ -0,0 +1,75 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.content.ContextWrapper;
+import android.location.Location;
+import android.location.LocationListener;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.benchmark.FakeLocation;
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultLocationSource#isLocationSufficient(Location, long, float)}, which decides on every
+ * last known location and every shared cache lookup whether a new request is needed at all.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocationSufficiencyBenchmark {
+
+    private static final long ACCEPTABLE_TIME_PERIOD = TimeUnit.MINUTES.toMillis(5);
+    private static final float ACCEPTABLE_ACCURACY = 10;
+
+    @Param({ "false", "true" })
+    public boolean sufficient;
+
+    private DefaultLocationSource source;
+    private Location location;
+
+    @Setup
+    public void setUp() {
+        // Context of the mockable android.jar returns no LocationManager, which is not needed here
+        source = new DefaultLocationSource(new ContextWrapper(null), new ContinuousTask.ContinuousTaskRunner() {
+            @Override
+            public void runScheduledTask(@NonNull String taskId) {
+            }
+        }, new LocationListener() {
+            @Override
+            public void onLocationChanged(Location location) {
+            }
+
+            @Override
+            public void onStatusChanged(String provider, int status, Bundle extras) {
+            }
+
+            @Override
+            public void onProviderEnabled(String provider) {
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {
+            }
+        }, null);
+
+        long time = sufficient ? System.currentTimeMillis() : System.currentTimeMillis() - 2 * ACCEPTABLE_TIME_PERIOD;
+        location = new FakeLocation("gps", time, 52.52, 13.40, 5);
+    }
+
+    @Benchmark
+    public boolean isLocationSufficient() {
+        return source.isLocationSufficient(location, ACCEPTABLE_TIME_PERIOD, ACCEPTABLE_ACCURACY);
+    }
+}
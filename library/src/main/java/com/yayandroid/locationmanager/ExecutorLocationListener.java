@@ -0,0 +1,114 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+import android.os.Bundle;
+
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+import com.yayandroid.locationmanager.listener.LocationListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Dispatches every event to given listener on given executor. Batches are passed on as they are
+ * when the listener is a {@linkplain BatchLocationListener}, otherwise one by one within the same task.
+ */
+class ExecutorLocationListener implements BatchLocationListener {
+
+    private final LocationListener listener;
+    private final Executor executor;
+
+    ExecutorLocationListener(LocationListener listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    @Override
+    public void onProcessTypeChanged(final int processType) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onProcessTypeChanged(processType);
+            }
+        });
+    }
+
+    @Override
+    public void onLocationChanged(final Location location) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onLocationChanged(location);
+            }
+        });
+    }
+
+    @Override
+    public void onLocationsChanged(List<Location> locations) {
+        // Given list may be a view of the provider's own one, which is not ours to keep
+        final List<Location> batch = new ArrayList<>(locations);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (listener instanceof BatchLocationListener) {
+                    ((BatchLocationListener) listener).onLocationsChanged(batch);
+                } else {
+                    for (int i = 0, size = batch.size(); i < size; i++) {
+                        listener.onLocationChanged(batch.get(i));
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onLocationFailed(final int type) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onLocationFailed(type);
+            }
+        });
+    }
+
+    @Override
+    public void onPermissionGranted(final boolean alreadyHadPermission) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onPermissionGranted(alreadyHadPermission);
+            }
+        });
+    }
+
+    @Override
+    public void onStatusChanged(final String provider, final int status, final Bundle extras) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onStatusChanged(provider, status, extras);
+            }
+        });
+    }
+
+    @Override
+    public void onProviderEnabled(final String provider) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onProviderEnabled(provider);
+            }
+        });
+    }
+
+    @Override
+    public void onProviderDisabled(final String provider) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onProviderDisabled(provider);
+            }
+        });
+    }
+}
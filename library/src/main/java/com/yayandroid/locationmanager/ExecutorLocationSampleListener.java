@@ -0,0 +1,93 @@
+package com.yayandroid.locationmanager;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.listener.LocationSampleListener;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Same as {@linkplain ExecutorLocationListener}, which also hands samples over to given executor. Since the
+ * delivered sample is recycled once this listener returns, it is copied into a sample of the pool which is
+ * recycled after the listener is notified on the executor. Tasks are pooled as well, so a sample costs no
+ * allocation once as many tasks as can wait on the executor are created.
+ *
+ * At most {@value #MAX_PENDING_SAMPLES} samples wait on the executor. Once that many are waiting, a new sample
+ * replaces the one which is handed over last instead of being queued, so an executor which falls behind receives
+ * the latest location rather than every stale one. It is dropped only if that one is already being delivered.
+ * No more than {@value #MAX_PENDING_SAMPLES} idle tasks are kept in the pool.
+ */
+class ExecutorLocationSampleListener extends ExecutorLocationListener implements LocationSampleListener {
+
+    static final int MAX_PENDING_SAMPLES = 16;
+
+    private final LocationSampleListener listener;
+    private final Executor executor;
+    private final ArrayDeque<SampleTask> tasks = new ArrayDeque<>();
+    private int pendingCount;
+    private SampleTask lastQueued;
+
+    ExecutorLocationSampleListener(LocationSampleListener listener, Executor executor) {
+        super(listener, executor);
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    @Override
+    public void onLocationSample(@NonNull LocationSample sample) {
+        LocationSample copy = LocationSample.obtain(sample);
+        SampleTask task = null;
+        LocationSample replaced = copy;
+        synchronized (tasks) {
+            if (pendingCount < MAX_PENDING_SAMPLES) {
+                task = tasks.poll();
+                if (task == null) task = new SampleTask();
+                task.sample = copy;
+                lastQueued = task;
+                pendingCount++;
+            } else if (lastQueued != null) {
+                replaced = lastQueued.sample;
+                lastQueued.sample = copy;
+            }
+        }
+
+        if (task != null) {
+            executor.execute(task);
+        } else {
+            replaced.recycle();
+        }
+    }
+
+    private LocationSample take(SampleTask task) {
+        synchronized (tasks) {
+            LocationSample sample = task.sample;
+            task.sample = null;
+            pendingCount--;
+            if (lastQueued == task) lastQueued = null;
+            return sample;
+        }
+    }
+
+    private void release(SampleTask task) {
+        synchronized (tasks) {
+            if (tasks.size() < MAX_PENDING_SAMPLES) tasks.add(task);
+        }
+    }
+
+    private class SampleTask implements Runnable {
+
+        private LocationSample sample;
+
+        @Override
+        public void run() {
+            LocationSample delivered = take(this);
+            try {
+                listener.onLocationSample(delivered);
+            } finally {
+                delivered.recycle();
+                release(this);
+            }
+        }
+    }
+}
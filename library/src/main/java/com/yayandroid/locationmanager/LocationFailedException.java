@@ -0,0 +1,25 @@
+package com.yayandroid.locationmanager;
+
+import com.yayandroid.locationmanager.constants.FailType;
+
+/**
+ * Cause of the {@linkplain java.util.concurrent.ExecutionException} which {@linkplain LocationFuture} throws
+ * when it is not possible to receive location
+ */
+public class LocationFailedException extends Exception {
+
+    @FailType private final int failType;
+
+    public LocationFailedException(@FailType int failType) {
+        super("Failed to retrieve location, FailType: " + failType);
+        this.failType = failType;
+    }
+
+    /**
+     * Returns the {@linkplain FailType} which tells how it did fail to receive location
+     */
+    @FailType
+    public int getFailType() {
+        return failType;
+    }
+}
@@ -0,0 +1,172 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask.ContinuousTaskRunner;
+import com.yayandroid.locationmanager.listener.LocationListener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of {@linkplain LocationManager#getCurrentLocation}, which resolves with the first location that its
+ * manager delivers, or fails with a {@linkplain LocationFailedException} once its manager fails or the deadline
+ * passes. The manager is cancelled and destroyed as soon as the future is done, including when it is cancelled.
+ *
+ * Locations are delivered on the looper of the manager, so never block that looper by waiting on this future.
+ */
+public class LocationFuture implements Future<Location>, LocationListener, ContinuousTaskRunner {
+
+    private static final String TAG = "LocationFuture";
+    static final String DEADLINE_TASK = "deadlineTask";
+
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    private LocationManager locationManager;
+    private ContinuousTask deadlineTask;
+
+    private int state = PENDING;
+    private Location location;
+    @FailType private int failType = FailType.UNKNOWN;
+
+    void start(@NonNull LocationManager locationManager, long timeout, @Nullable Looper looper) {
+        this.locationManager = locationManager;
+        if (deadlineTask == null) {
+            deadlineTask = new ContinuousTask(DEADLINE_TASK, this, looper);
+        }
+
+        deadlineTask.delayed(timeout);
+        locationManager.get();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!finish(CANCELLED)) return false;
+
+        LogUtils.logI(TAG, "Cancelled, stopping the manager...");
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    @Override
+    public Location get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return report();
+    }
+
+    @Override
+    public Location get(long timeout, @NonNull TimeUnit unit)
+          throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return report();
+    }
+
+    private synchronized Location report() throws ExecutionException {
+        switch (state) {
+            case SUCCEEDED:
+                return location;
+            case CANCELLED:
+                throw new CancellationException();
+            default:
+                throw new ExecutionException(new LocationFailedException(failType));
+        }
+    }
+
+    /**
+     * Moves to given state once, and releases everything the request holds
+     *
+     * @return false if it was already done
+     */
+    private boolean finish(int newState) {
+        synchronized (this) {
+            if (state != PENDING) return false;
+            state = newState;
+        }
+
+        deadlineTask.stop();
+        locationManager.cancel();
+        locationManager.onDestroy();
+        latch.countDown();
+        return true;
+    }
+
+    @Override
+    public void runScheduledTask(@NonNull String taskId) {
+        if (taskId.equals(DEADLINE_TASK)) {
+            LogUtils.logI(TAG, "Deadline has passed without a sufficient location.");
+            onLocationFailed(FailType.TIMEOUT);
+        }
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        synchronized (this) {
+            if (state != PENDING) return;
+            this.location = location;
+        }
+        finish(SUCCEEDED);
+    }
+
+    @Override
+    public void onLocationFailed(@FailType int type) {
+        synchronized (this) {
+            if (state != PENDING) return;
+            this.failType = type;
+        }
+        finish(FAILED);
+    }
+
+    @Override
+    public void onProcessTypeChanged(@ProcessType int processType) {
+    }
+
+    @Override
+    public void onPermissionGranted(boolean alreadyHadPermission) {
+    }
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras) {
+    }
+
+    @Override
+    public void onProviderEnabled(String provider) {
+    }
+
+    @Override
+    public void onProviderDisabled(String provider) {
+    }
+
+    // For test purposes
+    void setDeadlineTask(ContinuousTask deadlineTask) {
+        this.deadlineTask = deadlineTask;
+    }
+}
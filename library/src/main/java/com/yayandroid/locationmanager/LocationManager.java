@@ -3,29 +3,57 @@ package com.yayandroid.locationmanager;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
 import com.yayandroid.locationmanager.configuration.LocationConfiguration;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.constants.RecordType;
 import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.TraceUtils;
+import com.yayandroid.locationmanager.helper.cache.LocationCache;
+import com.yayandroid.locationmanager.helper.flightrecorder.FlightRecorder;
 import com.yayandroid.locationmanager.helper.logging.DefaultLogger;
 import com.yayandroid.locationmanager.helper.logging.Logger;
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
+import com.yayandroid.locationmanager.helper.track.TrackRecorder;
+import com.yayandroid.locationmanager.listener.FlightRecorderListener;
 import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.listener.LocationSampleListener;
+import com.yayandroid.locationmanager.listener.MetricsSink;
 import com.yayandroid.locationmanager.listener.PermissionListener;
+import com.yayandroid.locationmanager.processor.AccuracyFilter;
 import com.yayandroid.locationmanager.providers.locationprovider.DispatcherLocationProvider;
 import com.yayandroid.locationmanager.providers.locationprovider.LocationProvider;
 import com.yayandroid.locationmanager.providers.permissionprovider.PermissionProvider;
 import com.yayandroid.locationmanager.view.ContextProcessor;
 
+import java.util.concurrent.Executor;
+
 public class LocationManager implements PermissionListener {
 
+    private static final String TAG = "LocationManager";
+    private static final String TRACE_ASK_FOR_PERMISSION = "LocationManager#askForPermission";
+    private static final String TRACE_REQUEST_PERMISSIONS = "LocationManager#requestPermissions";
+
     private LocationListener listener;
     private LocationConfiguration configuration;
     private LocationProvider activeProvider;
     private PermissionProvider permissionProvider;
+    private Looper looper;
+    private Handler handler;
+    private RequestCoalescer requestCoalescer;
+    private LocationPublisher publisher;
+    private int traceRequestId;
+    private boolean isRequestingPermissions;
 
     /**
      * Library tries to log as much as possible in order to make it transparent to see what is actually going on
@@ -45,6 +73,72 @@ public class LocationManager implements PermissionListener {
         LogUtils.setLogger(logger);
     }
 
+    /**
+     * Library records what happens while retrieving location into a small in-memory buffer, which is cheap
+     * enough to keep on in production. Whenever retrieving location fails, recorded events are passed to given
+     * {@link FlightRecorderListener} so that the failure can be diagnosed without enabling logs.
+     *
+     * No listener is set as default, pass null to remove it.
+     */
+    public static void setFlightRecorderListener(@Nullable FlightRecorderListener flightRecorderListener) {
+        FlightRecorder.setListener(flightRecorderListener);
+    }
+
+    /**
+     * Library can record how long it takes to retrieve location from each provider, how accurate the locations
+     * are, how often it falls back or times out, and how long location updates stay requested. Recording is
+     * cheap, but it is only done while a {@link MetricsSink} is set, and the sink receives the recorded metrics
+     * whenever {@linkplain #publishMetrics()} is called.
+     *
+     * No sink is set as default, pass null to stop recording.
+     */
+    public static void setMetricsSink(@Nullable MetricsSink metricsSink) {
+        Metrics.setSink(metricsSink);
+    }
+
+    /**
+     * Hands the metrics recorded since the previous call to the {@link MetricsSink}, on the calling thread
+     */
+    public static void publishMetrics() {
+        Metrics.publish();
+    }
+
+    /**
+     * Retrieves a single location without any listener to wire up. Manager requests location as the given
+     * configuration tells, except that locations which are not within given accuracy are dropped by an
+     * {@linkplain AccuracyFilter} after its processors. It is cancelled and destroyed once a location is received,
+     * the manager fails or the deadline passes, or as soon as the returned future is cancelled.
+     *
+     * Locations are delivered on the looper of the calling thread, or on the main looper if it doesn't have one.
+     * Do not wait on the future on that looper.
+     *
+     * @param context MUST be an application context
+     * @param timeout overall deadline in milliseconds, the future fails with {@linkplain FailType#TIMEOUT}
+     * once it passes
+     * @param minAccuracy in meters, locations which are less accurate than this are ignored
+     */
+    public static LocationFuture getCurrentLocation(@NonNull Context context,
+          @NonNull LocationConfiguration configuration, long timeout, float minAccuracy) {
+        Looper looper = Looper.myLooper() != null ? Looper.myLooper() : Looper.getMainLooper();
+        LocationFuture future = new LocationFuture();
+        LocationManager locationManager = new Builder(context)
+              .configuration(createCurrentLocationConfiguration(configuration, minAccuracy))
+              .notify(future)
+              .looper(looper)
+              .build();
+
+        future.start(locationManager, timeout, looper);
+        return future;
+    }
+
+    // For test purposes
+    static LocationConfiguration createCurrentLocationConfiguration(LocationConfiguration configuration,
+          float minAccuracy) {
+        return configuration.newBuilder()
+              .addProcessor(new AccuracyFilter(minAccuracy))
+              .build();
+    }
+
     /**
      * To create an instance of this manager you MUST specify a LocationConfiguration
      */
@@ -52,10 +146,15 @@ public class LocationManager implements PermissionListener {
         this.listener = builder.listener;
         this.configuration = builder.configuration;
         this.activeProvider = builder.activeProvider;
+        this.looper = builder.looper;
 
         this.permissionProvider = getConfiguration().permissionConfiguration().permissionProvider();
         this.permissionProvider.setContextProcessor(builder.contextProcessor);
         this.permissionProvider.setPermissionListener(this);
+
+        if (getConfiguration().persistSharedCache()) {
+            LocationCache.getInstance().persist(builder.contextProcessor.getContext());
+        }
     }
 
     public static class Builder {
@@ -64,6 +163,10 @@ public class LocationManager implements PermissionListener {
         private LocationListener listener;
         private LocationConfiguration configuration;
         private LocationProvider activeProvider;
+        private Looper looper;
+        private Executor executor;
+        private boolean publish;
+        private TrackRecorder trackRecorder;
 
         /**
          * Builder object to create LocationManager
@@ -124,13 +227,66 @@ public class LocationManager implements PermissionListener {
 
         /**
          * Specify a LocationListener to receive location when it is available,
-         * or get knowledge of any other steps in process
+         * or get knowledge of any other steps in process. Implement {@linkplain LocationSampleListener} in order to
+         * receive pooled samples instead of locations.
          */
         public Builder notify(LocationListener listener) {
             this.listener = listener;
             return this;
         }
 
+        /**
+         * Location updates of the providers and their timeouts are delivered on given looper, so that retrieving
+         * location doesn't compete with the UI. Calls to this manager are passed on to the provider on that looper
+         * as well, so the provider is only ever accessed from there. Listener is notified on it too, unless
+         * an {@linkplain #executor(Executor)} is set. Keep in mind that the dialogs, which are displayed in order
+         * to enable GPS or to resolve GooglePlayServices issues, need the main looper; consider disabling them
+         * in the configuration when using a background one.
+         *
+         * Default is the looper of the thread which calls {@linkplain LocationManager#get()}.
+         */
+        public Builder looper(@NonNull Looper looper) {
+            this.looper = looper;
+            return this;
+        }
+
+        /**
+         * Listener is notified on given executor, which is expected to run tasks one at a time in the order they
+         * are submitted, such as {@code Executors.newSingleThreadExecutor()}. Use this to keep heavy processing
+         * of the received locations off the looper they are delivered on.
+         *
+         * Default is none, listener is notified on the looper which location updates are delivered on.
+         */
+        public Builder executor(@NonNull Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Locations are delivered to the subscribers of {@linkplain LocationManager#publisher()} as well,
+         * which receive only as many as they request. Listener, if there is any, still receives all of them.
+         * Manager starts retrieving location with the first subscriber, so there is no need to call
+         * {@linkplain LocationManager#get()}, and it is cancelled once the last subscription is cancelled.
+         *
+         * Default is False.
+         */
+        public Builder publish() {
+            this.publish = true;
+            return this;
+        }
+
+        /**
+         * Every location delivered to the listener is appended to given recorder as well, on the thread it is
+         * delivered on, which is meant for keeping the whole track while keeping tracking. Recorder is not closed
+         * along with the manager, so that it can be shared by several of them.
+         *
+         * Default is none.
+         */
+        public Builder record(@NonNull TrackRecorder trackRecorder) {
+            this.trackRecorder = trackRecorder;
+            return this;
+        }
+
         public LocationManager build() {
             if (contextProcessor == null) {
                 throw new IllegalStateException("You must set a context to LocationManager.");
@@ -144,10 +300,55 @@ public class LocationManager implements PermissionListener {
                 locationProvider(new DispatcherLocationProvider());
             }
 
-            this.activeProvider.configure(contextProcessor, configuration, listener);
+            if (executor != null && listener instanceof LocationSampleListener) {
+                listener = new ExecutorLocationSampleListener((LocationSampleListener) listener, executor);
+            } else if (executor != null && listener != null) {
+                listener = new ExecutorLocationListener(listener, executor);
+            }
+
+            LocationManager locationManager = new LocationManager(this);
+
+            if (publish) {
+                locationManager.publisher = new LocationPublisher(locationManager, listener);
+                locationManager.listener = locationManager.publisher;
+                listener = locationManager.publisher;
+            }
 
-            return new LocationManager(this);
+            LocationListener providerListener = listener;
+            if (configuration.coalesceRequests() && !configuration.keepTracking() && listener != null) {
+                locationManager.requestCoalescer = new RequestCoalescer(locationManager, configuration,
+                      activeProvider.getClass(), listener);
+                providerListener = locationManager.requestCoalescer;
+            }
+
+            this.activeProvider.setTrackRecorder(trackRecorder);
+            this.activeProvider.configure(contextProcessor, configuration, providerListener, looper);
+
+            return locationManager;
+        }
+    }
+
+    /**
+     * Marks the phases of retrieving location, such as checking permissions, GooglePlayServices and SettingsApi,
+     * looking up the last location and registering for updates, as trace sections, so that they can be told apart
+     * in systrace or Perfetto. Phases which wait for a callback are recorded as async sections from API 29 on.
+     *
+     * Tracing is disabled as default.
+     */
+    public static void enableTracing(boolean enable) {
+        TraceUtils.enable(enable);
+    }
+
+    /**
+     * Returns the publisher which subscribers can receive locations from, at their own pace
+     *
+     * @throws IllegalStateException if the manager is not built with {@linkplain Builder#publish()}
+     */
+    public LocationPublisher publisher() {
+        if (publisher == null) {
+            throw new IllegalStateException("You must build the manager with publish() to subscribe to it.");
         }
+        return publisher;
     }
 
     /**
@@ -162,28 +363,50 @@ public class LocationManager implements PermissionListener {
      * http://developer.android.com/training/location/receive-location-updates.html#stop-updates
      */
     public void onPause() {
-        activeProvider.onPause();
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                activeProvider.onPause();
+            }
+        });
     }
 
     /**
      * Restart location updates to keep continue getting locations when activity is back
      */
     public void onResume() {
-        activeProvider.onResume();
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                activeProvider.onResume();
+            }
+        });
     }
 
     /**
      * Release whatever you need to when onDestroy is called
      */
     public void onDestroy() {
-        activeProvider.onDestroy();
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                if (requestCoalescer != null) requestCoalescer.cancel();
+                endPermissionRequestSection();
+                activeProvider.onDestroy();
+            }
+        });
     }
 
     /**
      * This is required to check when user handles with Google Play Services error, or enables GPS...
      */
-    public void onActivityResult(int requestCode, int resultCode, Intent data) {
-        activeProvider.onActivityResult(requestCode, resultCode, data);
+    public void onActivityResult(final int requestCode, final int resultCode, final Intent data) {
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                activeProvider.onActivityResult(requestCode, resultCode, data);
+            }
+        });
     }
 
     /**
@@ -197,7 +420,7 @@ public class LocationManager implements PermissionListener {
      * To determine whether LocationManager is currently waiting for location or it did already receive one!
      */
     public boolean isWaitingForLocation() {
-        return activeProvider.isWaiting();
+        return activeProvider.isWaiting() || (requestCoalescer != null && requestCoalescer.isFollowing());
     }
 
     /**
@@ -211,13 +434,39 @@ public class LocationManager implements PermissionListener {
      * Abort the mission and cancel all location update requests
      */
     public void cancel() {
-        activeProvider.cancel();
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                if (requestCoalescer != null) requestCoalescer.cancel();
+                endPermissionRequestSection();
+                activeProvider.cancel();
+            }
+        });
+    }
+
+    /**
+     * Asks the active provider to deliver the locations it has batched so far right away,
+     * rather than waiting for {@linkplain GooglePlayServicesConfiguration.Builder#maxWaitTime(long)} to pass.
+     * Has no effect for the providers which don't batch locations.
+     */
+    public void flush() {
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                activeProvider.flush();
+            }
+        });
     }
 
     /**
      * The only method you need to call to trigger getting location process
      */
     public void get() {
+        if (requestCoalescer != null && requestCoalescer.attachOrRun()) {
+            LogUtils.logI(TAG, "Another manager is already retrieving a sufficient location, waiting for it...");
+            return;
+        }
+
         askForPermission();
     }
 
@@ -228,46 +477,126 @@ public class LocationManager implements PermissionListener {
         return activeProvider;
     }
 
+    /**
+     * Looper which the provider delivers locations on, or null if it is the one of the thread which calls get()
+     */
+    @Nullable
+    Looper getLooper() {
+        return looper;
+    }
+
     void askForPermission() {
+        TraceUtils.beginSection(TRACE_ASK_FOR_PERMISSION);
+        try {
+            checkPermission();
+        } finally {
+            TraceUtils.endSection();
+        }
+    }
+
+    private void checkPermission() {
         if (permissionProvider.hasPermission()) {
             permissionGranted(true);
         } else {
+            FlightRecorder.record(RecordType.PROCESS_TYPE_CHANGED, ProcessType.ASKING_PERMISSIONS);
             if (listener != null) {
                 listener.onProcessTypeChanged(ProcessType.ASKING_PERMISSIONS);
             }
 
+            endPermissionRequestSection();
+            traceRequestId = TraceUtils.nextRequestId();
+            isRequestingPermissions = true;
+            TraceUtils.beginAsyncSection(TRACE_REQUEST_PERMISSIONS, traceRequestId);
             if (permissionProvider.requestPermissions()) {
-                LogUtils.logI("Waiting until we receive any callback from PermissionProvider...");
+                LogUtils.logI(TAG, "Waiting until we receive any callback from PermissionProvider...");
             } else {
-                LogUtils.logI("Couldn't get permission, Abort!");
+                endPermissionRequestSection();
+                LogUtils.logI(TAG, "Couldn't get permission, Abort!");
                 failed(FailType.PERMISSION_DENIED);
             }
         }
     }
 
     private void permissionGranted(boolean alreadyHadPermission) {
-        LogUtils.logI("We got permission!");
+        LogUtils.logI(TAG, "We got permission!");
 
         if (listener != null) {
             listener.onPermissionGranted(alreadyHadPermission);
         }
 
-        activeProvider.get();
+        runOnLooper(new Runnable() {
+            @Override
+            public void run() {
+                // Delivered by the provider, so that it is processed and recorded as any other location
+                Location cachedLocation = getLocationFromSharedCache();
+                if (cachedLocation != null && activeProvider.notifyCachedLocation(cachedLocation)) {
+                    LogUtils.logI(TAG, "Shared cache has a sufficient location, no need to start any provider.");
+                    return;
+                }
+
+                activeProvider.get();
+            }
+        });
+    }
+
+    private void runOnLooper(Runnable runnable) {
+        if (looper == null || looper == Looper.myLooper()) {
+            runnable.run();
+            return;
+        }
+
+        if (handler == null) {
+            handler = new Handler(looper);
+        }
+        handler.post(runnable);
+    }
+
+    @Nullable
+    Location getLocationFromSharedCache() {
+        DefaultProviderConfiguration defaultProviderConfiguration = configuration.defaultProviderConfiguration();
+        if (!configuration.useSharedCache() || configuration.keepTracking() || defaultProviderConfiguration == null) {
+            return null;
+        }
+
+        return LocationCache.getInstance().get(defaultProviderConfiguration.acceptableTimePeriod(),
+              defaultProviderConfiguration.acceptableAccuracy());
     }
 
     private void failed(@FailType int type) {
-        if (listener != null) {
-            listener.onLocationFailed(type);
+        FlightRecorder.recordFailure(type);
+        if (resultListener() != null) {
+            resultListener().onLocationFailed(type);
+        }
+    }
+
+    /**
+     * Results go through {@linkplain RequestCoalescer} when there is one, so that the requests attached to this
+     * one receive them as well
+     */
+    @Nullable
+    private LocationListener resultListener() {
+        return requestCoalescer != null ? requestCoalescer : listener;
+    }
+
+    /**
+     * Permission callbacks may never arrive once the manager is cancelled, so the section is ended here as well
+     */
+    private void endPermissionRequestSection() {
+        if (isRequestingPermissions) {
+            isRequestingPermissions = false;
+            TraceUtils.endAsyncSection(TRACE_REQUEST_PERMISSIONS, traceRequestId);
         }
     }
 
     @Override
     public void onPermissionsGranted() {
+        endPermissionRequestSection();
         permissionGranted(false);
     }
 
     @Override
     public void onPermissionsDenied() {
+        endPermissionRequestSection();
         failed(FailType.PERMISSION_DENIED);
     }
 }
\ No newline at end of file
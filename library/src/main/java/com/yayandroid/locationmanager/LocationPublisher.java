@@ -0,0 +1,328 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.OverflowStrategy;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.listener.LocationSubscriber;
+import com.yayandroid.locationmanager.listener.LocationSubscription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers the locations of a manager to its subscribers, each one only as many as it requests. Manager starts
+ * retrieving location with the first subscriber, and it is cancelled once the last one cancels its subscription.
+ * See {@linkplain LocationManager.Builder#publish()}
+ *
+ * Locations are delivered either on the thread which they are received on, or on the thread which requests
+ * them, whichever finds them pending first.
+ */
+public class LocationPublisher implements BatchLocationListener {
+
+    private static final String TAG = "LocationPublisher";
+
+    private final LocationManager locationManager;
+    private final LocationListener listener;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    // Whether the manager is asked for location on behalf of the current subscriptions
+    private boolean isRetrieving;
+
+    LocationPublisher(@NonNull LocationManager locationManager, @Nullable LocationListener listener) {
+        this.locationManager = locationManager;
+        this.listener = listener;
+    }
+
+    /**
+     * Same as {@linkplain #subscribe(LocationSubscriber, int, int)} with {@linkplain OverflowStrategy#LATEST}
+     */
+    public LocationSubscription subscribe(@NonNull LocationSubscriber subscriber) {
+        return subscribe(subscriber, OverflowStrategy.LATEST, 1);
+    }
+
+    /**
+     * @param capacity maximum number of locations which are kept for the subscriber until it requests them,
+     * only used by {@linkplain OverflowStrategy#BUFFER}
+     */
+    public LocationSubscription subscribe(@NonNull LocationSubscriber subscriber,
+          @OverflowStrategy int overflowStrategy, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0.");
+        }
+
+        Subscription subscription = new Subscription(this, subscriber, overflowStrategy, capacity);
+        synchronized (subscriptions) {
+            subscriptions.add(subscription);
+        }
+
+        subscriber.onSubscribe(subscription);
+
+        // Subscriber may have cancelled already in onSubscribe, and others may have subscribed meanwhile
+        boolean shouldRetrieve;
+        synchronized (subscriptions) {
+            shouldRetrieve = !isRetrieving && subscriptions.contains(subscription);
+            if (shouldRetrieve) isRetrieving = true;
+        }
+
+        if (shouldRetrieve) {
+            LogUtils.logI(TAG, "First subscriber is added, retrieving location...");
+            locationManager.get();
+        }
+        return subscription;
+    }
+
+    /**
+     * Number of the subscriptions which are neither cancelled nor terminated
+     */
+    public int subscriberCount() {
+        synchronized (subscriptions) {
+            return subscriptions.size();
+        }
+    }
+
+    void remove(Subscription subscription) {
+        boolean isLast;
+        synchronized (subscriptions) {
+            isLast = subscriptions.remove(subscription) && subscriptions.isEmpty() && isRetrieving;
+            if (isLast) isRetrieving = false;
+        }
+
+        if (isLast) {
+            LogUtils.logI(TAG, "Last subscriber is cancelled, cancelling the manager...");
+            locationManager.cancel();
+        }
+    }
+
+    private Subscription[] currentSubscriptions() {
+        synchronized (subscriptions) {
+            return subscriptions.toArray(new Subscription[subscriptions.size()]);
+        }
+    }
+
+    /**
+     * Returns the current subscriptions and removes them, as they are terminated
+     */
+    private Subscription[] terminateSubscriptions() {
+        synchronized (subscriptions) {
+            Subscription[] terminated = subscriptions.toArray(new Subscription[subscriptions.size()]);
+            subscriptions.clear();
+            isRetrieving = false;
+            return terminated;
+        }
+    }
+
+    @Override
+    public void onProcessTypeChanged(@ProcessType int processType) {
+        if (listener != null) listener.onProcessTypeChanged(processType);
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        if (listener != null) listener.onLocationChanged(location);
+
+        if (locationManager.getConfiguration().keepTracking()) {
+            for (Subscription subscription : currentSubscriptions()) {
+                subscription.offer(location);
+            }
+        } else {
+            for (Subscription subscription : terminateSubscriptions()) {
+                subscription.offer(location);
+                subscription.complete();
+            }
+        }
+    }
+
+    @Override
+    public void onLocationsChanged(List<Location> locations) {
+        if (listener instanceof BatchLocationListener) {
+            ((BatchLocationListener) listener).onLocationsChanged(locations);
+        } else if (listener != null) {
+            for (int i = 0, size = locations.size(); i < size; i++) {
+                listener.onLocationChanged(locations.get(i));
+            }
+        }
+
+        boolean keepTracking = locationManager.getConfiguration().keepTracking();
+        Subscription[] targets = keepTracking ? currentSubscriptions() : terminateSubscriptions();
+        for (Subscription subscription : targets) {
+            for (int i = 0, size = locations.size(); i < size; i++) {
+                subscription.offer(locations.get(i));
+            }
+            if (!keepTracking) subscription.complete();
+        }
+    }
+
+    @Override
+    public void onLocationFailed(@FailType int type) {
+        if (listener != null) listener.onLocationFailed(type);
+
+        for (Subscription subscription : terminateSubscriptions()) {
+            subscription.fail(type);
+        }
+    }
+
+    @Override
+    public void onPermissionGranted(boolean alreadyHadPermission) {
+        if (listener != null) listener.onPermissionGranted(alreadyHadPermission);
+    }
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras) {
+        if (listener != null) listener.onStatusChanged(provider, status, extras);
+    }
+
+    @Override
+    public void onProviderEnabled(String provider) {
+        if (listener != null) listener.onProviderEnabled(provider);
+    }
+
+    @Override
+    public void onProviderDisabled(String provider) {
+        if (listener != null) listener.onProviderDisabled(provider);
+    }
+
+    /**
+     * Keeps the pending locations of a subscriber, and delivers them as they are requested. Only one thread
+     * delivers at a time; the others just leave what they have changed for it to pick up.
+     */
+    static class Subscription implements LocationSubscription {
+
+        private static final int NO_FAILURE = Integer.MIN_VALUE;
+
+        private final LocationPublisher publisher;
+        private final LocationSubscriber subscriber;
+        @OverflowStrategy private final int overflowStrategy;
+        private final int capacity;
+
+        private final ArrayDeque<Location> pending = new ArrayDeque<>();
+        private long requested;
+        private boolean isEmitting;
+        private boolean isCancelled;
+        private boolean isCompleted;
+        private int failType = NO_FAILURE;
+
+        Subscription(LocationPublisher publisher, LocationSubscriber subscriber,
+              @OverflowStrategy int overflowStrategy, int capacity) {
+            this.publisher = publisher;
+            this.subscriber = subscriber;
+            this.overflowStrategy = overflowStrategy;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void request(long count) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("count must be greater than 0.");
+            }
+
+            synchronized (this) {
+                requested = requested + count < 0 ? Long.MAX_VALUE : requested + count;
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (isCancelled) return;
+                isCancelled = true;
+                pending.clear();
+            }
+            publisher.remove(this);
+        }
+
+        void offer(Location location) {
+            synchronized (this) {
+                if (isCancelled || isTerminated()) return;
+
+                switch (overflowStrategy) {
+                    case OverflowStrategy.LATEST:
+                        pending.clear();
+                        pending.add(location);
+                        break;
+                    case OverflowStrategy.BUFFER:
+                        if (pending.size() == capacity) pending.poll();
+                        pending.add(location);
+                        break;
+                    case OverflowStrategy.DROP:
+                    default:
+                        if (pending.size() < requested) pending.add(location);
+                        break;
+                }
+            }
+            drain();
+        }
+
+        void complete() {
+            synchronized (this) {
+                if (isTerminated()) return;
+                isCompleted = true;
+            }
+            drain();
+        }
+
+        /**
+         * Failure is delivered right away, without waiting for the pending locations to be requested
+         */
+        void fail(@FailType int type) {
+            synchronized (this) {
+                if (isTerminated()) return;
+                failType = type;
+                pending.clear();
+            }
+            drain();
+        }
+
+        private boolean isTerminated() {
+            return isCompleted || failType != NO_FAILURE;
+        }
+
+        private void drain() {
+            synchronized (this) {
+                if (isEmitting) return;
+                isEmitting = true;
+            }
+
+            while (true) {
+                Location next = null;
+                int terminalFailType = NO_FAILURE;
+                boolean terminalComplete = false;
+
+                synchronized (this) {
+                    if (isCancelled) {
+                        isEmitting = false;
+                        return;
+                    } else if (requested > 0 && !pending.isEmpty()) {
+                        next = pending.poll();
+                        if (requested != Long.MAX_VALUE) requested--;
+                    } else if (pending.isEmpty() && isTerminated()) {
+                        // Terminal signal is delivered once, then the subscription behaves as cancelled
+                        terminalFailType = failType;
+                        terminalComplete = isCompleted;
+                        isCancelled = true;
+                    } else {
+                        isEmitting = false;
+                        return;
+                    }
+                }
+
+                if (next != null) {
+                    subscriber.onNext(next);
+                } else if (terminalFailType != NO_FAILURE) {
+                    subscriber.onError(terminalFailType);
+                } else if (terminalComplete) {
+                    subscriber.onComplete();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.listener.LocationSampleListener;
+
+/**
+ * Mutable location made of primitives, which is delivered to {@linkplain LocationSampleListener} instead of
+ * {@linkplain Location}. Samples are pooled as {@linkplain android.os.Message}s are; the library obtains one for
+ * each location, fills it, and recycles it right after the listener returns. So a delivered sample must not be
+ * kept, use {@linkplain #copy()} or {@linkplain #toLocation()} for that.
+ */
+public final class LocationSample {
+
+    private static final int MAX_POOL_SIZE = 16;
+    private static final Object POOL_LOCK = new Object();
+
+    private static LocationSample pool;
+    private static int poolSize = 0;
+
+    private LocationSample next;
+    private boolean isInUse;
+
+    private String provider;
+    private long time;
+    private long elapsedRealtimeNanos;
+    private double latitude;
+    private double longitude;
+    private double altitude;
+    private float accuracy;
+    private float speed;
+    private float bearing;
+    private boolean hasAltitude;
+    private boolean hasAccuracy;
+    private boolean hasSpeed;
+    private boolean hasBearing;
+
+    /**
+     * Creates a sample which doesn't belong to the pool, prefer {@linkplain #obtain()} on hot paths
+     */
+    public LocationSample() {
+    }
+
+    /**
+     * Returns a sample from the pool, or a new one if the pool is empty.
+     * Call {@linkplain #recycle()} once it is no longer used.
+     */
+    @NonNull
+    public static LocationSample obtain() {
+        synchronized (POOL_LOCK) {
+            if (pool != null) {
+                LocationSample sample = pool;
+                pool = sample.next;
+                sample.next = null;
+                sample.isInUse = true;
+                poolSize--;
+                return sample;
+            }
+        }
+
+        LocationSample sample = new LocationSample();
+        sample.isInUse = true;
+        return sample;
+    }
+
+    /**
+     * Same as {@linkplain #obtain()}, filled with given location
+     */
+    @NonNull
+    public static LocationSample obtain(@NonNull Location location) {
+        LocationSample sample = obtain();
+        sample.set(location);
+        return sample;
+    }
+
+    /**
+     * Same as {@linkplain #obtain()}, filled with given sample
+     */
+    @NonNull
+    public static LocationSample obtain(@NonNull LocationSample other) {
+        LocationSample sample = obtain();
+        sample.set(other);
+        return sample;
+    }
+
+    /**
+     * Returns this sample to the pool, it must not be used after this call. Only recycle the samples which are
+     * obtained by you, the ones which are delivered to {@linkplain LocationSampleListener} are recycled by the library.
+     *
+     * @throws IllegalStateException if the sample is already recycled
+     */
+    public void recycle() {
+        synchronized (POOL_LOCK) {
+            if (!isInUse) {
+                throw new IllegalStateException("LocationSample is already recycled.");
+            }
+
+            isInUse = false;
+            provider = null;
+            if (poolSize < MAX_POOL_SIZE) {
+                next = pool;
+                pool = this;
+                poolSize++;
+            }
+        }
+    }
+
+    /**
+     * Copies every value of given location, without keeping any reference to it
+     */
+    public void set(@NonNull Location location) {
+        provider = location.getProvider();
+        time = location.getTime();
+        elapsedRealtimeNanos = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+              ? location.getElapsedRealtimeNanos() : 0L;
+        latitude = location.getLatitude();
+        longitude = location.getLongitude();
+        altitude = location.getAltitude();
+        accuracy = location.getAccuracy();
+        speed = location.getSpeed();
+        bearing = location.getBearing();
+        hasAltitude = location.hasAltitude();
+        hasAccuracy = location.hasAccuracy();
+        hasSpeed = location.hasSpeed();
+        hasBearing = location.hasBearing();
+    }
+
+    public void set(@NonNull LocationSample other) {
+        provider = other.provider;
+        time = other.time;
+        elapsedRealtimeNanos = other.elapsedRealtimeNanos;
+        latitude = other.latitude;
+        longitude = other.longitude;
+        altitude = other.altitude;
+        accuracy = other.accuracy;
+        speed = other.speed;
+        bearing = other.bearing;
+        hasAltitude = other.hasAltitude;
+        hasAccuracy = other.hasAccuracy;
+        hasSpeed = other.hasSpeed;
+        hasBearing = other.hasBearing;
+    }
+
+    /**
+     * Returns a new sample with the same values, which doesn't belong to the pool and can be kept
+     */
+    @NonNull
+    public LocationSample copy() {
+        LocationSample copy = new LocationSample();
+        copy.set(this);
+        return copy;
+    }
+
+    /**
+     * Returns a new location with the same values
+     */
+    @NonNull
+    public Location toLocation() {
+        Location location = new Location(provider);
+        location.setTime(time);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            location.setElapsedRealtimeNanos(elapsedRealtimeNanos);
+        }
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        if (hasAltitude) location.setAltitude(altitude);
+        if (hasAccuracy) location.setAccuracy(accuracy);
+        if (hasSpeed) location.setSpeed(speed);
+        if (hasBearing) location.setBearing(bearing);
+        return location;
+    }
+
+    // region Getters
+    @Nullable
+    public String getProvider() {
+        return provider;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getElapsedRealtimeNanos() {
+        return elapsedRealtimeNanos;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public float getBearing() {
+        return bearing;
+    }
+
+    public boolean hasAltitude() {
+        return hasAltitude;
+    }
+
+    public boolean hasAccuracy() {
+        return hasAccuracy;
+    }
+
+    public boolean hasSpeed() {
+        return hasSpeed;
+    }
+
+    public boolean hasBearing() {
+        return hasBearing;
+    }
+    // endregion
+
+    // For test purposes
+    static void clearPool() {
+        synchronized (POOL_LOCK) {
+            pool = null;
+            poolSize = 0;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.providers.locationprovider.LocationProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sits between the provider and the listener of a manager which coalesces its requests. While the manager is
+ * retrieving location, its request is registered as running, so that the requests of other managers can attach
+ * to it instead of starting on their own, and the result is delivered to all of them at once. Requests attach
+ * only to the ones which retrieve location the same way, with the same provider and the same processors.
+ *
+ * Followers are notified on the looper which they are requested on, rather than on the one of the running request,
+ * just as they would be if they were running on their own.
+ */
+class RequestCoalescer implements BatchLocationListener {
+
+    private static final String TAG = "RequestCoalescer";
+
+    private static final List<RequestCoalescer> RUNNING = new ArrayList<>();
+
+    private final LocationManager locationManager;
+    private final LocationListener listener;
+    private final Class<? extends LocationProvider> providerType;
+    private final boolean keepTracking;
+    private final boolean usesGooglePlayServices;
+    private final int priority;
+    private final boolean usesDefaultProviders;
+    private final List<LocationProcessor> processors;
+    private final float acceptableAccuracy;
+    private final long acceptableTimePeriod;
+
+    private final List<RequestCoalescer> followers = new ArrayList<>();
+    private RequestCoalescer leader;
+    @Nullable private Handler callbackHandler;
+    // Result of the running request is posted to this follower, but not delivered yet
+    private boolean resultPending;
+
+    RequestCoalescer(LocationManager locationManager, LocationConfiguration configuration,
+          Class<? extends LocationProvider> providerType, LocationListener listener) {
+        this.locationManager = locationManager;
+        this.listener = listener;
+        this.providerType = providerType;
+        this.keepTracking = configuration.keepTracking();
+        GooglePlayServicesConfiguration gpConfiguration = configuration.googlePlayServicesConfiguration();
+        this.usesGooglePlayServices = gpConfiguration != null;
+        this.priority = usesGooglePlayServices ? gpConfiguration.locationRequest().getPriority() : 0;
+        this.usesDefaultProviders = configuration.defaultProviderConfiguration() != null;
+        this.processors = new ArrayList<>(configuration.processors());
+
+        DefaultProviderConfiguration defaultProviderConfiguration = configuration.defaultProviderConfiguration();
+        if (defaultProviderConfiguration != null) {
+            this.acceptableAccuracy = defaultProviderConfiguration.acceptableAccuracy();
+            this.acceptableTimePeriod = defaultProviderConfiguration.acceptableTimePeriod();
+        } else {
+            // Without requirements any location is acceptable, so anything satisfies this one and nothing else
+            this.acceptableAccuracy = Float.MAX_VALUE;
+            this.acceptableTimePeriod = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Attaches to a compatible running request if there is any, in which case the manager should not start
+     * its own. Otherwise registers this one as running, so that the others can attach to it.
+     *
+     * @return true if attached to another request
+     */
+    boolean attachOrRun() {
+        synchronized (RUNNING) {
+            if (leader != null || RUNNING.contains(this)) return leader != null;
+
+            for (int i = 0, size = RUNNING.size(); i < size; i++) {
+                RequestCoalescer running = RUNNING.get(i);
+                if (running.satisfies(this)) {
+                    LogUtils.logI(TAG, "Attached to a running request with %d followers.", running.followers.size());
+                    running.followers.add(this);
+                    leader = running;
+                    if (callbackHandler == null) callbackHandler = createCallbackHandler();
+                    return true;
+                }
+            }
+
+            RUNNING.add(this);
+            return false;
+        }
+    }
+
+    /**
+     * Detaches from the running request or stops being one. Followers of a cancelled request don't get
+     * its result any longer, so they start over on their own.
+     */
+    void cancel() {
+        RequestCoalescer[] released;
+        synchronized (RUNNING) {
+            if (leader != null) {
+                leader.followers.remove(this);
+                leader = null;
+            }
+            resultPending = false;
+            released = finish();
+        }
+
+        for (final RequestCoalescer follower : released) {
+            follower.runOnCallbackLooper(new Runnable() {
+                @Override
+                public void run() {
+                    if (follower.takePendingResult()) follower.startOver();
+                }
+            });
+        }
+    }
+
+    boolean isFollowing() {
+        synchronized (RUNNING) {
+            return leader != null || resultPending;
+        }
+    }
+
+    /**
+     * Locations of the manager are delivered on its own looper if it has one, otherwise on the one of the thread
+     * which requests them
+     */
+    // For test purposes
+    @Nullable
+    Handler createCallbackHandler() {
+        Looper looper = locationManager.getLooper() != null ? locationManager.getLooper() : Looper.myLooper();
+        return looper != null ? new Handler(looper) : null;
+    }
+
+    // For test purposes
+    static void clear() {
+        synchronized (RUNNING) {
+            RUNNING.clear();
+        }
+    }
+
+    private boolean satisfies(RequestCoalescer other) {
+        // Smaller priority values of LocationRequest stand for more accurate locations
+        return isSameKindAs(other) && priority <= other.priority
+              && acceptableAccuracy <= other.acceptableAccuracy && acceptableTimePeriod <= other.acceptableTimePeriod;
+    }
+
+    /**
+     * Locations of a request are only what the other one would get, if they are retrieved from the same sources
+     * and go through the very same processors
+     */
+    private boolean isSameKindAs(RequestCoalescer other) {
+        return providerType == other.providerType && keepTracking == other.keepTracking
+              && usesGooglePlayServices == other.usesGooglePlayServices
+              && usesDefaultProviders == other.usesDefaultProviders
+              && processors.equals(other.processors);
+    }
+
+    /**
+     * Removes this one from running requests and returns its followers, detached but waiting for the result
+     */
+    private RequestCoalescer[] finish() {
+        RUNNING.remove(this);
+        RequestCoalescer[] finished = followers.toArray(new RequestCoalescer[followers.size()]);
+        followers.clear();
+        for (RequestCoalescer follower : finished) {
+            follower.leader = null;
+            follower.resultPending = true;
+        }
+        return finished;
+    }
+
+    /**
+     * Returns false if this one is cancelled since the result is posted to it
+     */
+    private boolean takePendingResult() {
+        synchronized (RUNNING) {
+            boolean pending = resultPending;
+            resultPending = false;
+            return pending;
+        }
+    }
+
+    private void runOnCallbackLooper(Runnable runnable) {
+        if (callbackHandler != null) {
+            callbackHandler.post(runnable);
+        } else {
+            runnable.run();
+        }
+    }
+
+    private RequestCoalescer[] finishRequest() {
+        synchronized (RUNNING) {
+            return finish();
+        }
+    }
+
+    private void startOver() {
+        if (!attachOrRun()) {
+            locationManager.askForPermission();
+        }
+    }
+
+    private RequestCoalescer[] currentFollowers() {
+        synchronized (RUNNING) {
+            return followers.toArray(new RequestCoalescer[followers.size()]);
+        }
+    }
+
+    @Override
+    public void onProcessTypeChanged(@ProcessType final int processType) {
+        listener.onProcessTypeChanged(processType);
+        for (final RequestCoalescer follower : currentFollowers()) {
+            follower.runOnCallbackLooper(new Runnable() {
+                @Override
+                public void run() {
+                    follower.listener.onProcessTypeChanged(processType);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onLocationChanged(final Location location) {
+        RequestCoalescer[] finished = finishRequest();
+
+        listener.onLocationChanged(location);
+        for (final RequestCoalescer follower : finished) {
+            follower.runOnCallbackLooper(new Runnable() {
+                @Override
+                public void run() {
+                    if (follower.takePendingResult()) follower.listener.onLocationChanged(location);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onLocationsChanged(List<Location> locations) {
+        RequestCoalescer[] finished = finishRequest();
+
+        deliver(listener, locations);
+        if (finished.length == 0) return;
+
+        // Given list may be reused by the provider once this returns
+        final List<Location> batch = new ArrayList<>(locations);
+        for (final RequestCoalescer follower : finished) {
+            follower.runOnCallbackLooper(new Runnable() {
+                @Override
+                public void run() {
+                    if (follower.takePendingResult()) deliver(follower.listener, batch);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onLocationFailed(@FailType final int type) {
+        RequestCoalescer[] finished = finishRequest();
+
+        listener.onLocationFailed(type);
+        for (final RequestCoalescer follower : finished) {
+            follower.runOnCallbackLooper(new Runnable() {
+                @Override
+                public void run() {
+                    if (follower.takePendingResult()) follower.listener.onLocationFailed(type);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onPermissionGranted(boolean alreadyHadPermission) {
+        listener.onPermissionGranted(alreadyHadPermission);
+    }
+
+    @Override
+    public void onStatusChanged(String provider, int status, Bundle extras) {
+        listener.onStatusChanged(provider, status, extras);
+    }
+
+    @Override
+    public void onProviderEnabled(String provider) {
+        listener.onProviderEnabled(provider);
+    }
+
+    @Override
+    public void onProviderDisabled(String provider) {
+        listener.onProviderDisabled(provider);
+    }
+
+    private static void deliver(LocationListener listener, List<Location> locations) {
+        if (listener instanceof BatchLocationListener) {
+            ((BatchLocationListener) listener).onLocationsChanged(locations);
+        } else {
+            for (int i = 0, size = locations.size(); i < size; i++) {
+                listener.onLocationChanged(locations.get(i));
+            }
+        }
+    }
+}
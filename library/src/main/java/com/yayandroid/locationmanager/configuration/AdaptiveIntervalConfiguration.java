@@ -0,0 +1,125 @@
+package com.yayandroid.locationmanager.configuration;
+
+import com.google.android.gms.location.LocationRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Describes how often locations should be requested depending on the speed of the device, while keeping tracking.
+ * See {@linkplain LocationConfiguration.Builder#adaptInterval(AdaptiveIntervalConfiguration)}
+ */
+public class AdaptiveIntervalConfiguration {
+
+    private final float[] speeds;
+    private final long[] intervals;
+    private final float hysteresis;
+
+    private AdaptiveIntervalConfiguration(Builder builder) {
+        int size = builder.steps.size();
+        this.speeds = new float[size];
+        this.intervals = new long[size];
+        for (int i = 0; i < size; i++) {
+            Step step = builder.steps.get(i);
+            speeds[i] = step.speed;
+            intervals[i] = step.interval;
+        }
+        this.hysteresis = builder.hysteresis;
+    }
+
+    // region Getters
+    public int stepCount() {
+        return speeds.length;
+    }
+
+    /**
+     * Minimum speed in m/s of given step, steps are ordered by their speeds
+     */
+    public float speedOf(int step) {
+        return speeds[step];
+    }
+
+    /**
+     * Interval in milliseconds which is requested while the device is moving at the speed of given step
+     */
+    public long intervalOf(int step) {
+        return intervals[step];
+    }
+
+    public float hysteresis() {
+        return hysteresis;
+    }
+    // endregion
+
+    public static class Builder {
+
+        private final List<Step> steps = new ArrayList<>();
+        private float hysteresis = Defaults.ADAPTIVE_INTERVAL_HYSTERESIS;
+
+        /**
+         * Requests locations at given interval while the estimated speed is at least given speed, and lower than
+         * the speed of the next step. The step with the lowest speed also applies to any speed below it.
+         * This replaces {@linkplain DefaultProviderConfiguration#requiredTimeInterval()} and the interval of
+         * {@linkplain LocationRequest} once the first location is received.
+         *
+         * Default is 1 minute while still, 10 seconds from 1 m/s, 5 seconds from 5 m/s and 2 seconds from 15 m/s.
+         */
+        public Builder addStep(float speed, long interval) {
+            if (speed < 0) {
+                throw new IllegalArgumentException("speed cannot be set to negative value.");
+            }
+
+            if (interval < 0) {
+                throw new IllegalArgumentException("interval cannot be set to negative value.");
+            }
+
+            steps.add(new Step(speed, interval));
+            return this;
+        }
+
+        /**
+         * In order not to switch back and forth while the speed wanders around the speed of a step, the interval
+         * switches to a slower step only when the speed drops below the current step's speed by given ratio.
+         *
+         * Default is 0.25
+         */
+        public Builder hysteresis(float hysteresis) {
+            if (hysteresis < 0 || hysteresis >= 1) {
+                throw new IllegalArgumentException("hysteresis must be at least 0 and less than 1.");
+            }
+
+            this.hysteresis = hysteresis;
+            return this;
+        }
+
+        public AdaptiveIntervalConfiguration build() {
+            if (steps.isEmpty()) {
+                for (int i = 0; i < Defaults.ADAPTIVE_INTERVAL_SPEEDS.length; i++) {
+                    steps.add(new Step(Defaults.ADAPTIVE_INTERVAL_SPEEDS[i], Defaults.ADAPTIVE_INTERVALS[i]));
+                }
+            }
+
+            Collections.sort(steps, new Comparator<Step>() {
+                @Override
+                public int compare(Step first, Step second) {
+                    return Float.compare(first.speed, second.speed);
+                }
+            });
+
+            return new AdaptiveIntervalConfiguration(this);
+        }
+    }
+
+    private static class Step {
+
+        final float speed;
+        final long interval;
+
+        Step(float speed, long interval) {
+            this.speed = speed;
+            this.interval = interval;
+        }
+    }
+}
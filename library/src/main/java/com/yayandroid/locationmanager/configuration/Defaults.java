@@ -1,6 +1,7 @@
 package com.yayandroid.locationmanager.configuration;
 
 import android.Manifest;
+import android.location.LocationManager;
 
 import com.google.android.gms.location.LocationRequest;
 
@@ -18,11 +19,38 @@ public final class Defaults {
     static final float MIN_ACCURACY = 5.0f;
 
     static final boolean KEEP_TRACKING = false;
+    static final boolean USE_SHARED_CACHE = false;
+    static final boolean PERSIST_SHARED_CACHE = false;
+    static final boolean RACE_PROVIDERS = false;
+    static final boolean COALESCE_REQUESTS = false;
     static final boolean FALLBACK_TO_DEFAULT = true;
     static final boolean ASK_FOR_GP_SERVICES = false;
     static final boolean ASK_FOR_SETTINGS_API = true;
     static final boolean FAIL_ON_SETTINGS_API_SUSPENDED = false;
     static final boolean IGNORE_LAST_KNOW_LOCATION = false;
+    static final boolean DELIVER_BEST_OF_BATCH = false;
+    static final long MAX_WAIT_TIME = 0;
+    static final int MAX_BATCH_SIZE = Integer.MAX_VALUE;
+
+    static final float ADAPTIVE_INTERVAL_HYSTERESIS = 0.25f;
+    static final float[] ADAPTIVE_INTERVAL_SPEEDS = new float[] { 0, 1, 5, 15 }; // m/s
+    static final long[] ADAPTIVE_INTERVALS = new long[] { MINUTE, 10 * SECOND, 5 * SECOND, 2 * SECOND };
+
+    static final long MOTION_QUIET_PERIOD = 2 * MINUTE;
+    static final float MOTION_THRESHOLD = 0.6f; // m/s^2
+
+    static final float REPLAY_RATE = 0; // Hz
+    static final float REPLAY_SPEED_UP = 1;
+    static final long REPLAY_JITTER = 0;
+    static final float REPLAY_ACCURACY_NOISE = 0;
+    static final float REPLAY_DROPOUT_PROBABILITY = 0;
+    static final long REPLAY_SEED = 0;
+    static final String REPLAY_PROVIDER = LocationManager.GPS_PROVIDER;
+
+    static final int TRACK_SEGMENT_CAPACITY = 4096; // records, 256 KB
+    static final long TRACK_COMMIT_INTERVAL = SECOND;
+    static final int TRACK_COMMIT_BATCH_SIZE = 256;
+    static final int TRACK_MAX_SEGMENT_COUNT = 0;
 
     static final String EMPTY_STRING = "";
     public static final String[] LOCATION_PERMISSIONS = new String[] { Manifest.permission.ACCESS_COARSE_LOCATION,
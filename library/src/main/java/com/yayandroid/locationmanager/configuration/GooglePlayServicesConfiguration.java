@@ -3,9 +3,13 @@ package com.yayandroid.locationmanager.configuration;
 import androidx.annotation.NonNull;
 
 import com.google.android.gms.location.LocationRequest;
+import com.yayandroid.locationmanager.LocationManager;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
 import com.yayandroid.locationmanager.providers.locationprovider.DefaultLocationProvider;
 import com.yayandroid.locationmanager.providers.locationprovider.GooglePlayServicesLocationProvider;
 
+import java.util.List;
+
 public class GooglePlayServicesConfiguration {
 
     private final LocationRequest locationRequest;
@@ -14,6 +18,9 @@ public class GooglePlayServicesConfiguration {
     private final boolean askForSettingsApi;
     private final boolean failOnSettingsApiSuspended;
     private final boolean ignoreLastKnowLocation;
+    private final boolean deliverBestOfBatch;
+    private final long maxWaitTime;
+    private final int maxBatchSize;
     private final long googlePlayServicesWaitPeriod;
 
     private GooglePlayServicesConfiguration(Builder builder) {
@@ -23,6 +30,9 @@ public class GooglePlayServicesConfiguration {
         this.askForSettingsApi = builder.askForSettingsApi;
         this.failOnSettingsApiSuspended = builder.failOnSettingsApiSuspended;
         this.ignoreLastKnowLocation = builder.ignoreLastKnowLocation;
+        this.deliverBestOfBatch = builder.deliverBestOfBatch;
+        this.maxWaitTime = builder.maxWaitTime;
+        this.maxBatchSize = builder.maxBatchSize;
         this.googlePlayServicesWaitPeriod = builder.googlePlayServicesWaitPeriod;
     }
 
@@ -34,6 +44,9 @@ public class GooglePlayServicesConfiguration {
               .askForSettingsApi(askForSettingsApi)
               .failOnSettingsApiSuspended(failOnSettingsApiSuspended)
               .ignoreLastKnowLocation(ignoreLastKnowLocation)
+              .deliverBestOfBatch(deliverBestOfBatch)
+              .maxWaitTime(maxWaitTime)
+              .maxBatchSize(maxBatchSize)
               .setWaitPeriod(googlePlayServicesWaitPeriod);
     }
 
@@ -62,6 +75,18 @@ public class GooglePlayServicesConfiguration {
         return ignoreLastKnowLocation;
     }
 
+    public boolean deliverBestOfBatch() {
+        return deliverBestOfBatch;
+    }
+
+    public long maxWaitTime() {
+        return maxWaitTime;
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
     public long googlePlayServicesWaitPeriod() {
         return googlePlayServicesWaitPeriod;
     }
@@ -76,6 +101,9 @@ public class GooglePlayServicesConfiguration {
         private boolean askForSettingsApi = Defaults.ASK_FOR_SETTINGS_API;
         private boolean failOnSettingsApiSuspended = Defaults.FAIL_ON_SETTINGS_API_SUSPENDED;
         private boolean ignoreLastKnowLocation = Defaults.IGNORE_LAST_KNOW_LOCATION;
+        private boolean deliverBestOfBatch = Defaults.DELIVER_BEST_OF_BATCH;
+        private long maxWaitTime = Defaults.MAX_WAIT_TIME;
+        private int maxBatchSize = Defaults.MAX_BATCH_SIZE;
         private long googlePlayServicesWaitPeriod = Defaults.WAIT_PERIOD;
 
         /**
@@ -151,6 +179,54 @@ public class GooglePlayServicesConfiguration {
             return this;
         }
 
+        /**
+         * GooglePlayServices Api may deliver more than one location at once, i.e. when it is behind on delivering
+         * them or when it is asked to batch them. By default, all of them are delivered together to
+         * {@linkplain BatchLocationListener#onLocationsChanged(List)} or one by one to any other listener.
+         * Set this to true in order to receive only the most accurate one of each batch instead.
+         *
+         * Default is False.
+         */
+        public Builder deliverBestOfBatch(boolean deliverBestOfBatch) {
+            this.deliverBestOfBatch = deliverBestOfBatch;
+            return this;
+        }
+
+        /**
+         * Allows GooglePlayServices to hold the locations up to given time and deliver them together, which saves
+         * a lot of battery for background tracking since the application is woken up much less often.
+         * It is applied to the {@linkplain #locationRequest(LocationRequest)} and it only takes effect if it is
+         * at least twice as long as its interval. Use {@linkplain LocationManager#flush()} to receive
+         * the locations held so far without waiting.
+         *
+         * Default is 0, which means locations are not batched.
+         */
+        public Builder maxWaitTime(long milliseconds) {
+            if (milliseconds < 0) {
+                throw new IllegalArgumentException("maxWaitTime cannot be set to negative value.");
+            }
+
+            this.maxWaitTime = milliseconds;
+            return this;
+        }
+
+        /**
+         * Limits the number of locations delivered at once. When it is set along with
+         * {@linkplain #maxWaitTime(long)}, wait time is shortened so that no more than this many locations are
+         * collected at the requested interval, and if there is still a larger batch, i.e. after a flush,
+         * it is delivered in parts.
+         *
+         * Default is no limit.
+         */
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize cannot be less than 1.");
+            }
+
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
         /**
          * Indicates waiting time period for GooglePlayServices before switching to next possible provider.
          *
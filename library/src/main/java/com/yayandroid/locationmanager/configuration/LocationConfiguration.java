@@ -1,18 +1,43 @@
 package com.yayandroid.locationmanager.configuration;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.yayandroid.locationmanager.processor.DuplicateFilter;
+import com.yayandroid.locationmanager.processor.KalmanFilter;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.processor.LocationProcessorChain;
+import com.yayandroid.locationmanager.processor.SpeedOutlierFilter;
+import com.yayandroid.locationmanager.processor.ThrottleFilter;
 import com.yayandroid.locationmanager.providers.permissionprovider.StubPermissionProvider;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class LocationConfiguration {
 
     private final boolean keepTracking;
+    private final boolean useSharedCache;
+    private final boolean persistSharedCache;
+    private final boolean raceProviders;
+    private final boolean coalesceRequests;
+    private final AdaptiveIntervalConfiguration adaptiveIntervalConfiguration;
+    private final MotionGateConfiguration motionGateConfiguration;
+    private final List<LocationProcessor> processors;
     private final PermissionConfiguration permissionConfiguration;
     private final GooglePlayServicesConfiguration googlePlayServicesConfiguration;
     private final DefaultProviderConfiguration defaultProviderConfiguration;
 
     private LocationConfiguration(Builder builder) {
         this.keepTracking = builder.keepTracking;
+        this.useSharedCache = builder.useSharedCache;
+        this.persistSharedCache = builder.persistSharedCache;
+        this.raceProviders = builder.raceProviders;
+        this.coalesceRequests = builder.coalesceRequests;
+        this.adaptiveIntervalConfiguration = builder.adaptiveIntervalConfiguration;
+        this.motionGateConfiguration = builder.motionGateConfiguration;
+        this.processors = Collections.unmodifiableList(new ArrayList<>(builder.processors));
         this.permissionConfiguration = builder.permissionConfiguration;
         this.googlePlayServicesConfiguration = builder.googlePlayServicesConfiguration;
         this.defaultProviderConfiguration = builder.defaultProviderConfiguration;
@@ -21,6 +46,13 @@ public class LocationConfiguration {
     public LocationConfiguration.Builder newBuilder() {
         return new LocationConfiguration.Builder()
               .keepTracking(keepTracking)
+              .useSharedCache(useSharedCache)
+              .persistSharedCache(persistSharedCache)
+              .raceProviders(raceProviders)
+              .coalesceRequests(coalesceRequests)
+              .adaptInterval(adaptiveIntervalConfiguration)
+              .gateByMotion(motionGateConfiguration)
+              .processors(processors)
               .askForPermission(permissionConfiguration)
               .useGooglePlayServices(googlePlayServicesConfiguration)
               .useDefaultProviders(defaultProviderConfiguration);
@@ -31,6 +63,45 @@ public class LocationConfiguration {
         return keepTracking;
     }
 
+    public boolean useSharedCache() {
+        return useSharedCache;
+    }
+
+    public boolean persistSharedCache() {
+        return persistSharedCache;
+    }
+
+    public boolean raceProviders() {
+        return raceProviders;
+    }
+
+    public boolean coalesceRequests() {
+        return coalesceRequests;
+    }
+
+    @Nullable public AdaptiveIntervalConfiguration adaptiveIntervalConfiguration() {
+        return adaptiveIntervalConfiguration;
+    }
+
+    @Nullable public MotionGateConfiguration motionGateConfiguration() {
+        return motionGateConfiguration;
+    }
+
+    public List<LocationProcessor> processors() {
+        return processors;
+    }
+
+    /**
+     * Creates a chain of fresh copies of the processors, see {@linkplain LocationProcessor#copy()}
+     */
+    public LocationProcessorChain createProcessorChain() {
+        List<LocationProcessor> copies = new ArrayList<>(processors.size());
+        for (LocationProcessor processor : processors) {
+            copies.add(processor.copy());
+        }
+        return new LocationProcessorChain(copies);
+    }
+
     public PermissionConfiguration permissionConfiguration() {
         return permissionConfiguration;
     }
@@ -48,6 +119,13 @@ public class LocationConfiguration {
     public static class Builder {
 
         private boolean keepTracking = Defaults.KEEP_TRACKING;
+        private boolean useSharedCache = Defaults.USE_SHARED_CACHE;
+        private boolean persistSharedCache = Defaults.PERSIST_SHARED_CACHE;
+        private boolean raceProviders = Defaults.RACE_PROVIDERS;
+        private boolean coalesceRequests = Defaults.COALESCE_REQUESTS;
+        private AdaptiveIntervalConfiguration adaptiveIntervalConfiguration;
+        private MotionGateConfiguration motionGateConfiguration;
+        private final List<LocationProcessor> processors = new ArrayList<>();
         private PermissionConfiguration permissionConfiguration;
         private GooglePlayServicesConfiguration googlePlayServicesConfiguration;
         private DefaultProviderConfiguration defaultProviderConfiguration;
@@ -62,6 +140,103 @@ public class LocationConfiguration {
             return this;
         }
 
+        /**
+         * Locations received by any LocationManager are kept in a process-wide cache. If this is set to true and
+         * {@linkplain #keepTracking(boolean)} is false, manager will first check that cache, and if there is a
+         * location which satisfies {@linkplain DefaultProviderConfiguration#acceptableTimePeriod()} and
+         * {@linkplain DefaultProviderConfiguration#acceptableAccuracy()}, it will be delivered right away
+         * without starting any provider. Since those requirements are defined on DefaultProviderConfiguration,
+         * cache is not checked when it is not set.
+         * Default is False.
+         */
+        public Builder useSharedCache(boolean useSharedCache) {
+            this.useSharedCache = useSharedCache;
+            return this;
+        }
+
+        /**
+         * If this is set to true, the process-wide cache will also be written into a small file in application's
+         * files directory, and it will be restored from there when the process starts again. Combined with
+         * {@linkplain #useSharedCache(boolean)}, this lets the first request after a cold start be answered by a
+         * location received before the process was killed, as long as it is still sufficient.
+         * Default is False.
+         */
+        public Builder persistSharedCache(boolean persistSharedCache) {
+            this.persistSharedCache = persistSharedCache;
+            return this;
+        }
+
+        /**
+         * By default providers are tried one after another: GooglePlayServices first, then GPS and then Network,
+         * each waiting for its own wait period before the next one starts. If this is set to true, all of them
+         * are started at the same time instead, and the first location which satisfies
+         * {@linkplain DefaultProviderConfiguration#acceptableAccuracy()} is delivered while the rest are cancelled.
+         * If none of them delivers such location, the most accurate one is delivered once they are all finished.
+         * No dialog is displayed to resolve GooglePlayServices or to enable GPS in this mode.
+         * Default is False.
+         */
+        public Builder raceProviders(boolean raceProviders) {
+            this.raceProviders = raceProviders;
+            return this;
+        }
+
+        /**
+         * If this is set to true and {@linkplain #keepTracking(boolean)} is false, a request which arrives while
+         * another manager is already retrieving location doesn't start on its own, but attaches to that one and
+         * receives the same location or failure. That is only the case when the running request's
+         * {@linkplain DefaultProviderConfiguration#acceptableAccuracy()} and
+         * {@linkplain DefaultProviderConfiguration#acceptableTimePeriod()} are at least as strict,
+         * and the running request has this set to true as well.
+         * Default is False.
+         */
+        public Builder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * While keeping tracking, the speed of the device is estimated from the received locations and
+         * the interval of location updates is changed according to given configuration, so that it is requested
+         * rarely while the device is still and often while it is moving fast.
+         * Default is null, which means the interval stays as it is configured.
+         */
+        public Builder adaptInterval(@Nullable AdaptiveIntervalConfiguration adaptiveIntervalConfiguration) {
+            this.adaptiveIntervalConfiguration = adaptiveIntervalConfiguration;
+            return this;
+        }
+
+        /**
+         * While keeping tracking, location updates are suspended when the device doesn't move for a while,
+         * which is detected by motion sensors, and resumed at the configured interval as soon as it moves again.
+         * Default is null, which means location updates are never suspended.
+         */
+        public Builder gateByMotion(@Nullable MotionGateConfiguration motionGateConfiguration) {
+            this.motionGateConfiguration = motionGateConfiguration;
+            return this;
+        }
+
+        /**
+         * Adds a stage which every received location passes through, in the order they are added,
+         * before it is delivered to the listener. Any stage can modify or drop the location.
+         * There are {@linkplain DuplicateFilter}, {@linkplain ThrottleFilter}, {@linkplain SpeedOutlierFilter} and
+         * {@linkplain KalmanFilter}, which smooths the track while keeping tracking, available,
+         * or you can implement your own {@linkplain LocationProcessor}.
+         * Default is none.
+         */
+        public Builder addProcessor(@NonNull LocationProcessor processor) {
+            this.processors.add(processor);
+            return this;
+        }
+
+        /**
+         * Replaces the stages added so far with given ones, see {@linkplain #addProcessor(LocationProcessor)}
+         */
+        public Builder processors(@NonNull List<LocationProcessor> processors) {
+            this.processors.clear();
+            this.processors.addAll(processors);
+            return this;
+        }
+
         /**
          * This configuration is required in order to configure Permission Request process.
          * If this is not set, then no permission will be requested from user and
@@ -0,0 +1,95 @@
+package com.yayandroid.locationmanager.configuration;
+
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.helper.motion.DeviceMotionSensor;
+import com.yayandroid.locationmanager.helper.motion.MotionSensor;
+
+/**
+ * Describes when location updates are suspended because the device is still, while keeping tracking.
+ * See {@linkplain LocationConfiguration.Builder#gateByMotion(MotionGateConfiguration)}
+ */
+public class MotionGateConfiguration {
+
+    private final long quietPeriod;
+    private final float motionThreshold;
+    private final MotionSensor motionSensor;
+
+    private MotionGateConfiguration(Builder builder) {
+        this.quietPeriod = builder.quietPeriod;
+        this.motionThreshold = builder.motionThreshold;
+        this.motionSensor = builder.motionSensor;
+    }
+
+    public MotionGateConfiguration.Builder newBuilder() {
+        return new MotionGateConfiguration.Builder()
+              .quietPeriod(quietPeriod)
+              .motionThreshold(motionThreshold)
+              .motionSensor(motionSensor);
+    }
+
+    // region Getters
+    public long quietPeriod() {
+        return quietPeriod;
+    }
+
+    public float motionThreshold() {
+        return motionThreshold;
+    }
+
+    @Nullable public MotionSensor motionSensor() {
+        return motionSensor;
+    }
+    // endregion
+
+    public static class Builder {
+
+        private long quietPeriod = Defaults.MOTION_QUIET_PERIOD;
+        private float motionThreshold = Defaults.MOTION_THRESHOLD;
+        private MotionSensor motionSensor;
+
+        /**
+         * Location updates are suspended once no motion is detected during this period, in milliseconds,
+         * and resumed on the first motion after that.
+         *
+         * Default is 2 minutes
+         */
+        public Builder quietPeriod(long quietPeriod) {
+            if (quietPeriod <= 0) {
+                throw new IllegalArgumentException("quietPeriod must be greater than 0.");
+            }
+
+            this.quietPeriod = quietPeriod;
+            return this;
+        }
+
+        /**
+         * Acceleration in m/s^2, besides gravity, which is considered as motion by {@linkplain DeviceMotionSensor}.
+         * It has no effect when a custom {@linkplain MotionSensor} is set.
+         *
+         * Default is 0.6
+         */
+        public Builder motionThreshold(float motionThreshold) {
+            if (motionThreshold < 0) {
+                throw new IllegalArgumentException("motionThreshold cannot be set to negative value.");
+            }
+
+            this.motionThreshold = motionThreshold;
+            return this;
+        }
+
+        /**
+         * Source of motion, it can be replaced for instance in order to simulate motion in tests.
+         *
+         * Default is null, which means {@linkplain DeviceMotionSensor} is used
+         */
+        public Builder motionSensor(@Nullable MotionSensor motionSensor) {
+            this.motionSensor = motionSensor;
+            return this;
+        }
+
+        public MotionGateConfiguration build() {
+            return new MotionGateConfiguration(this);
+        }
+    }
+}
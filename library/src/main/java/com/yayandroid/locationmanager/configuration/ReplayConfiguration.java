@@ -0,0 +1,181 @@
+package com.yayandroid.locationmanager.configuration;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.helper.replay.Track;
+import com.yayandroid.locationmanager.providers.locationprovider.ReplayLocationProvider;
+
+/**
+ * Describes how a {@linkplain Track} is played back by {@linkplain ReplayLocationProvider}. Every random effect
+ * is drawn from a generator with the given seed, so the same configuration plays the same track the same way.
+ */
+public class ReplayConfiguration {
+
+    private final float rate;
+    private final float speedUp;
+    private final long jitter;
+    private final float accuracyNoise;
+    private final float dropoutProbability;
+    private final long seed;
+    private final String provider;
+
+    private ReplayConfiguration(Builder builder) {
+        this.rate = builder.rate;
+        this.speedUp = builder.speedUp;
+        this.jitter = builder.jitter;
+        this.accuracyNoise = builder.accuracyNoise;
+        this.dropoutProbability = builder.dropoutProbability;
+        this.seed = builder.seed;
+        this.provider = builder.provider;
+    }
+
+    public ReplayConfiguration.Builder newBuilder() {
+        return new ReplayConfiguration.Builder()
+              .rate(rate)
+              .speedUp(speedUp)
+              .jitter(jitter)
+              .accuracyNoise(accuracyNoise)
+              .dropoutProbability(dropoutProbability)
+              .seed(seed)
+              .provider(provider);
+    }
+
+    // region Getters
+    public float rate() {
+        return rate;
+    }
+
+    public float speedUp() {
+        return speedUp;
+    }
+
+    public long jitter() {
+        return jitter;
+    }
+
+    public float accuracyNoise() {
+        return accuracyNoise;
+    }
+
+    public float dropoutProbability() {
+        return dropoutProbability;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public String provider() {
+        return provider;
+    }
+    // endregion
+
+    public static class Builder {
+
+        private float rate = Defaults.REPLAY_RATE;
+        private float speedUp = Defaults.REPLAY_SPEED_UP;
+        private long jitter = Defaults.REPLAY_JITTER;
+        private float accuracyNoise = Defaults.REPLAY_ACCURACY_NOISE;
+        private float dropoutProbability = Defaults.REPLAY_DROPOUT_PROBABILITY;
+        private long seed = Defaults.REPLAY_SEED;
+        private String provider = Defaults.REPLAY_PROVIDER;
+
+        /**
+         * Number of locations delivered per second, in Hz. Track is then sampled at this rate, and the positions
+         * between its points are interpolated. Set 0 to deliver the points of the track at their own times instead.
+         *
+         * Default is 0
+         */
+        public Builder rate(float rate) {
+            if (rate < 0) {
+                throw new IllegalArgumentException("rate cannot be set to negative value.");
+            }
+
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * How many times faster than recorded the track is played. Rate is not affected by this,
+         * so the track is sampled that many times sparser.
+         *
+         * Default is 1
+         */
+        public Builder speedUp(float speedUp) {
+            if (speedUp <= 0) {
+                throw new IllegalArgumentException("speedUp must be greater than 0.");
+            }
+
+            this.speedUp = speedUp;
+            return this;
+        }
+
+        /**
+         * Maximum time in milliseconds that each location is delivered earlier or later than it is due,
+         * locations are still delivered in order.
+         *
+         * Default is 0
+         */
+        public Builder jitter(long jitter) {
+            if (jitter < 0) {
+                throw new IllegalArgumentException("jitter cannot be set to negative value.");
+            }
+
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Standard deviation of the error in meters which is added to each position, the reported accuracy
+         * grows with it as well.
+         *
+         * Default is 0
+         */
+        public Builder accuracyNoise(float accuracyNoise) {
+            if (accuracyNoise < 0) {
+                throw new IllegalArgumentException("accuracyNoise cannot be set to negative value.");
+            }
+
+            this.accuracyNoise = accuracyNoise;
+            return this;
+        }
+
+        /**
+         * Probability of each location to be dropped instead of being delivered, between 0 and 1.
+         *
+         * Default is 0
+         */
+        public Builder dropoutProbability(float dropoutProbability) {
+            if (dropoutProbability < 0 || dropoutProbability > 1) {
+                throw new IllegalArgumentException("dropoutProbability must be between 0 and 1.");
+            }
+
+            this.dropoutProbability = dropoutProbability;
+            return this;
+        }
+
+        /**
+         * Seed of the random effects, jitter, accuracy noise and dropouts.
+         *
+         * Default is 0
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Provider name which delivered locations carry.
+         *
+         * Default is {@linkplain android.location.LocationManager#GPS_PROVIDER}
+         */
+        public Builder provider(@NonNull String provider) {
+            this.provider = provider;
+            return this;
+        }
+
+        public ReplayConfiguration build() {
+            return new ReplayConfiguration(this);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.yayandroid.locationmanager.configuration;
+
+import com.yayandroid.locationmanager.helper.track.TrackRecorder;
+
+/**
+ * Describes how {@linkplain TrackRecorder} lays out its segments and how often it commits them to disk.
+ */
+public class TrackRecorderConfiguration {
+
+    private final int segmentCapacity;
+    private final long commitInterval;
+    private final int commitBatchSize;
+    private final int maxSegmentCount;
+
+    private TrackRecorderConfiguration(Builder builder) {
+        this.segmentCapacity = builder.segmentCapacity;
+        this.commitInterval = builder.commitInterval;
+        this.commitBatchSize = builder.commitBatchSize;
+        this.maxSegmentCount = builder.maxSegmentCount;
+    }
+
+    public TrackRecorderConfiguration.Builder newBuilder() {
+        return new TrackRecorderConfiguration.Builder()
+              .segmentCapacity(segmentCapacity)
+              .commitInterval(commitInterval)
+              .commitBatchSize(commitBatchSize)
+              .maxSegmentCount(maxSegmentCount);
+    }
+
+    // region Getters
+    public int segmentCapacity() {
+        return segmentCapacity;
+    }
+
+    public long commitInterval() {
+        return commitInterval;
+    }
+
+    public int commitBatchSize() {
+        return commitBatchSize;
+    }
+
+    public int maxSegmentCount() {
+        return maxSegmentCount;
+    }
+    // endregion
+
+    public static class Builder {
+
+        private int segmentCapacity = Defaults.TRACK_SEGMENT_CAPACITY;
+        private long commitInterval = Defaults.TRACK_COMMIT_INTERVAL;
+        private int commitBatchSize = Defaults.TRACK_COMMIT_BATCH_SIZE;
+        private int maxSegmentCount = Defaults.TRACK_MAX_SEGMENT_COUNT;
+
+        /**
+         * Number of records each segment file holds, every record takes 64 bytes. Only applies to the segments
+         * which are created from now on, existing ones keep their own capacity.
+         *
+         * Default is 4096
+         */
+        public Builder segmentCapacity(int segmentCapacity) {
+            if (segmentCapacity <= 0) {
+                throw new IllegalArgumentException("segmentCapacity must be greater than 0.");
+            }
+
+            this.segmentCapacity = segmentCapacity;
+            return this;
+        }
+
+        /**
+         * Maximum time in milliseconds that appended records wait before they are forced to disk. Records are
+         * already safe from process death once they are appended; committing protects them from a crash of the
+         * whole device as well.
+         *
+         * Default is 1 second
+         */
+        public Builder commitInterval(long commitInterval) {
+            if (commitInterval <= 0) {
+                throw new IllegalArgumentException("commitInterval must be greater than 0.");
+            }
+
+            this.commitInterval = commitInterval;
+            return this;
+        }
+
+        /**
+         * Number of records appended since the last commit, which triggers the next one without waiting for
+         * {@linkplain #commitInterval(long)}
+         *
+         * Default is 256
+         */
+        public Builder commitBatchSize(int commitBatchSize) {
+            if (commitBatchSize <= 0) {
+                throw new IllegalArgumentException("commitBatchSize must be greater than 0.");
+            }
+
+            this.commitBatchSize = commitBatchSize;
+            return this;
+        }
+
+        /**
+         * Maximum number of segment files kept in the directory, the oldest ones are deleted once there are more.
+         * Set 0 to keep all of them.
+         *
+         * Default is 0
+         */
+        public Builder maxSegmentCount(int maxSegmentCount) {
+            if (maxSegmentCount < 0) {
+                throw new IllegalArgumentException("maxSegmentCount cannot be set to negative value.");
+            }
+
+            this.maxSegmentCount = maxSegmentCount;
+            return this;
+        }
+
+        public TrackRecorderConfiguration build() {
+            return new TrackRecorderConfiguration(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.yayandroid.locationmanager.constants;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@IntDef({CounterType.LOCATION_RECEIVED, CounterType.LOCATION_FAILED, CounterType.TIMEOUT,
+      CounterType.GOOGLE_PLAY_SERVICES_SWITCH_TASK_FIRED, CounterType.FALLBACK_TO_DEFAULT_PROVIDERS,
+      CounterType.SWITCH_TO_NETWORK_PROVIDER})
+@Retention(RetentionPolicy.SOURCE)
+public @interface CounterType {
+
+    /**
+     * Every location which is received by a provider, before it is processed
+     */
+    int LOCATION_RECEIVED = 0;
+
+    /**
+     * Every failure which is notified, regardless of its {@linkplain FailType}
+     */
+    int LOCATION_FAILED = 1;
+
+    /**
+     * Failures with {@linkplain FailType#TIMEOUT}
+     */
+    int TIMEOUT = 2;
+
+    /**
+     * GooglePlayServices didn't deliver location before its wait period elapsed
+     */
+    int GOOGLE_PLAY_SERVICES_SWITCH_TASK_FIRED = 3;
+
+    /**
+     * Dispatcher moved on to the default providers after GooglePlayServices was tried
+     */
+    int FALLBACK_TO_DEFAULT_PROVIDERS = 4;
+
+    /**
+     * GPS didn't deliver location before its wait period elapsed, so network provider is tried instead
+     */
+    int SWITCH_TO_NETWORK_PROVIDER = 5;
+
+}
@@ -0,0 +1,39 @@
+package com.yayandroid.locationmanager.constants;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@IntDef({HistogramType.TIME_TO_FIRST_FIX_GOOGLE_PLAY_SERVICES, HistogramType.TIME_TO_FIRST_FIX_GPS,
+      HistogramType.TIME_TO_FIRST_FIX_NETWORK, HistogramType.ACCURACY, HistogramType.SUBSCRIPTION_DURATION})
+@Retention(RetentionPolicy.SOURCE)
+public @interface HistogramType {
+
+    /**
+     * Milliseconds from the moment a provider starts waiting until its first location,
+     * for the locations of GooglePlayServices
+     */
+    int TIME_TO_FIRST_FIX_GOOGLE_PLAY_SERVICES = 0;
+
+    /**
+     * Same as {@linkplain #TIME_TO_FIRST_FIX_GOOGLE_PLAY_SERVICES}, for the locations of GPS provider
+     */
+    int TIME_TO_FIRST_FIX_GPS = 1;
+
+    /**
+     * Same as {@linkplain #TIME_TO_FIRST_FIX_GOOGLE_PLAY_SERVICES}, for the locations of network provider
+     */
+    int TIME_TO_FIRST_FIX_NETWORK = 2;
+
+    /**
+     * Accuracy of every received location, in meters
+     */
+    int ACCURACY = 3;
+
+    /**
+     * Milliseconds from requesting location updates from the platform until they are removed
+     */
+    int SUBSCRIPTION_DURATION = 4;
+
+}
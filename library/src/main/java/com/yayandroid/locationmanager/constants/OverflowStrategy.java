@@ -0,0 +1,30 @@
+package com.yayandroid.locationmanager.constants;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Decides what happens to the locations which arrive faster than a subscriber requests them
+ */
+@IntDef({OverflowStrategy.LATEST, OverflowStrategy.BUFFER, OverflowStrategy.DROP})
+@Retention(RetentionPolicy.SOURCE)
+public @interface OverflowStrategy {
+
+    /**
+     * Only the latest location is kept until it is requested, previous ones are replaced
+     */
+    int LATEST = 1;
+
+    /**
+     * Locations are kept up to the capacity of the subscription, and the oldest ones are dropped beyond that
+     */
+    int BUFFER = 2;
+
+    /**
+     * Locations are dropped unless they are already requested when they arrive
+     */
+    int DROP = 3;
+
+}
@@ -0,0 +1,58 @@
+package com.yayandroid.locationmanager.constants;
+
+import androidx.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@IntDef({RecordType.PROCESS_TYPE_CHANGED, RecordType.PROVIDER_SWITCHED, RecordType.TASK_FIRED,
+      RecordType.SETTINGS_API_RESULT, RecordType.SETTINGS_API_DIALOG_RESULT, RecordType.LOCATION_RECEIVED,
+      RecordType.LOCATION_FAILED, RecordType.UPDATES_SUSPENDED, RecordType.UPDATES_RESUMED})
+@Retention(RetentionPolicy.SOURCE)
+public @interface RecordType {
+
+    /**
+     * Argument is the new {@linkplain ProcessType}
+     */
+    int PROCESS_TYPE_CHANGED = 1;
+
+    /**
+     * Argument is the {@linkplain ProviderType} which is switched to
+     */
+    int PROVIDER_SWITCHED = 2;
+
+    /**
+     * Argument is the {@linkplain ProviderType} whose wait period is elapsed
+     */
+    int TASK_FIRED = 3;
+
+    /**
+     * Argument is the status code of SettingsApi check, 0 when settings are satisfied
+     */
+    int SETTINGS_API_RESULT = 4;
+
+    /**
+     * Argument is the activity result code of SettingsApi resolution dialog
+     */
+    int SETTINGS_API_DIALOG_RESULT = 5;
+
+    /**
+     * Argument is the {@linkplain ProviderType} of location, value is raw bits of its accuracy
+     */
+    int LOCATION_RECEIVED = 6;
+
+    /**
+     * Argument is the {@linkplain FailType}
+     */
+    int LOCATION_FAILED = 7;
+
+    /**
+     * Location updates are suspended because the device is still, there is no argument
+     */
+    int UPDATES_SUSPENDED = 8;
+
+    /**
+     * Location updates are resumed because the device moves again, there is no argument
+     */
+    int UPDATES_RESUMED = 9;
+}
@@ -0,0 +1,97 @@
+package com.yayandroid.locationmanager.helper;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.configuration.AdaptiveIntervalConfiguration;
+
+/**
+ * Estimates the speed of the device from the received locations and picks the interval of the matching step
+ * of {@linkplain AdaptiveIntervalConfiguration}. Speed is smoothed over recent locations, and a slower step is
+ * only picked once the speed drops below the current step by the configured hysteresis.
+ */
+public class AdaptiveIntervalController {
+
+    public static final long NO_CHANGE = -1;
+
+    // Weight of the latest measurement in the estimated speed
+    private static final float SMOOTHING = 0.3f;
+
+    private final AdaptiveIntervalConfiguration configuration;
+
+    private int step = -1;
+    private float speed = Float.NaN;
+    private boolean hasPrevious;
+    private long previousTime;
+    private double previousLatitude;
+    private double previousLongitude;
+
+    public AdaptiveIntervalController(@NonNull AdaptiveIntervalConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns the interval which should be requested from now on, or {@linkplain #NO_CHANGE}
+     */
+    public long onLocationChanged(@NonNull Location location) {
+        float measured = measureSpeed(location);
+        previousTime = location.getTime();
+        previousLatitude = location.getLatitude();
+        previousLongitude = location.getLongitude();
+        hasPrevious = true;
+
+        if (Float.isNaN(measured)) return NO_CHANGE;
+        speed = Float.isNaN(speed) ? measured : speed + SMOOTHING * (measured - speed);
+
+        int nextStep = pickStep(speed);
+        if (nextStep == step) return NO_CHANGE;
+
+        step = nextStep;
+        return configuration.intervalOf(step);
+    }
+
+    public void reset() {
+        step = -1;
+        speed = Float.NaN;
+        hasPrevious = false;
+    }
+
+    /**
+     * Estimated speed in m/s, or NaN if there aren't enough locations yet
+     */
+    public float estimatedSpeed() {
+        return speed;
+    }
+
+    private float measureSpeed(Location location) {
+        if (location.hasSpeed()) {
+            return location.getSpeed();
+        }
+
+        if (!hasPrevious) return Float.NaN;
+        long elapsed = location.getTime() - previousTime;
+        if (elapsed <= 0) return Float.NaN;
+
+        double distance = LocationUtils.distanceBetween(previousLatitude, previousLongitude,
+              location.getLatitude(), location.getLongitude());
+        return (float) (distance * 1000 / elapsed);
+    }
+
+    private int pickStep(float speed) {
+        int target = 0;
+        for (int i = configuration.stepCount() - 1; i > 0; i--) {
+            if (speed >= configuration.speedOf(i)) {
+                target = i;
+                break;
+            }
+        }
+
+        if (step == -1 || target >= step) return target;
+
+        // Slowing down, stay on the current step until the speed is clearly below it
+        float threshold = configuration.speedOf(step) * (1 - configuration.hysteresis());
+        if (speed >= threshold) return step;
+        return target;
+    }
+}
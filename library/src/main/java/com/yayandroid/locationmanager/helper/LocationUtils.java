@@ -0,0 +1,99 @@
+package com.yayandroid.locationmanager.helper;
+
+import android.location.Location;
+import android.location.LocationManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+
+import java.util.List;
+
+public final class LocationUtils {
+
+    public static final String FUSED_PROVIDER = "fused";
+
+    private static final double EARTH_RADIUS = 6371009; // in meters
+
+    private LocationUtils() {
+        // no instance
+    }
+
+    /**
+     * Returns true if given location is received within acceptableTimePeriod,
+     * and its accuracy is at least as good as acceptableAccuracy
+     */
+    public static boolean isLocationSufficient(@Nullable Location location, long acceptableTimePeriod,
+          float acceptableAccuracy) {
+        if (location == null) return false;
+
+        float givenAccuracy = location.getAccuracy();
+        long givenTime = location.getTime();
+        long minAcceptableTime = System.currentTimeMillis() - acceptableTimePeriod;
+
+        return minAcceptableTime <= givenTime && acceptableAccuracy >= givenAccuracy;
+    }
+
+    /**
+     * Returns the great-circle distance between given coordinates in meters. Unlike
+     * {@linkplain Location#distanceBetween(double, double, double, double, float[])} this doesn't need
+     * an array for the results and it is not as precise, which doesn't make a difference for short distances.
+     */
+    public static double distanceBetween(double startLatitude, double startLongitude,
+          double endLatitude, double endLongitude) {
+        double latitudeDelta = Math.toRadians(endLatitude - startLatitude);
+        double longitudeDelta = Math.toRadians(endLongitude - startLongitude);
+        double sinLatitude = Math.sin(latitudeDelta / 2);
+        double sinLongitude = Math.sin(longitudeDelta / 2);
+        double a = sinLatitude * sinLatitude + Math.cos(Math.toRadians(startLatitude))
+              * Math.cos(Math.toRadians(endLatitude)) * sinLongitude * sinLongitude;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Returns the most accurate one of given locations, the most recent one if there is more than one such location
+     */
+    @Nullable
+    public static Location findMostAccurate(@NonNull List<Location> locations) {
+        Location best = null;
+        for (int i = 0, size = locations.size(); i < size; i++) {
+            Location location = locations.get(i);
+            if (best == null || location.getAccuracy() < best.getAccuracy()
+                  || (location.getAccuracy() == best.getAccuracy() && location.getTime() >= best.getTime())) {
+                best = location;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the ProviderType that produces locations with given provider name,
+     * or {@linkplain ProviderType#NONE} if it is not one of the known ones
+     */
+    @ProviderType
+    public static int providerTypeOf(@Nullable String provider) {
+        if (LocationManager.GPS_PROVIDER.equals(provider)) return ProviderType.GPS;
+        if (LocationManager.NETWORK_PROVIDER.equals(provider)) return ProviderType.NETWORK;
+        if (FUSED_PROVIDER.equals(provider)) return ProviderType.GOOGLE_PLAY_SERVICES;
+        return ProviderType.NONE;
+    }
+
+    /**
+     * Reverse of {@linkplain #providerTypeOf(String)}, returns null for the types which don't have a provider name
+     */
+    @Nullable
+    public static String providerOf(@ProviderType int providerType) {
+        switch (providerType) {
+            case ProviderType.GPS:
+                return LocationManager.GPS_PROVIDER;
+            case ProviderType.NETWORK:
+                return LocationManager.NETWORK_PROVIDER;
+            case ProviderType.GOOGLE_PLAY_SERVICES:
+                return FUSED_PROVIDER;
+            default:
+                return null;
+        }
+    }
+
+}
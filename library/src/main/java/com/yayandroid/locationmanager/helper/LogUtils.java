@@ -1,10 +1,21 @@
 package com.yayandroid.locationmanager.helper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.yayandroid.locationmanager.helper.logging.DefaultLogger;
 import com.yayandroid.locationmanager.helper.logging.Logger;
 
+import java.util.Locale;
+
+/**
+ * Every call takes an explicit tag, which is expected to be a compile-time constant of the calling class,
+ * so there is no need to walk the stack to find out who is logging.
+ *
+ * Messages that require concatenation should be passed as a format with its arguments instead, so that the
+ * message is only built when logging is enabled. Primitive arguments should use the {@code long} overloads
+ * in order not to be boxed. For anything more expensive than that, guard the call with {@link #isEnabled()}.
+ */
 public final class LogUtils {
 
     private static boolean isEnabled = false;
@@ -19,35 +30,105 @@ public final class LogUtils {
         LogUtils.isEnabled = isEnabled;
     }
 
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
     public static void setLogger(@NonNull Logger logger) {
         activeLogger = logger;
     }
 
-    public static void logD(String message) {
-        if (isEnabled) activeLogger.logD(getClassName(), message);
+    // region Debug
+    public static void logD(@NonNull String tag, @NonNull String message) {
+        if (isEnabled) activeLogger.logD(tag, message);
+    }
+
+    public static void logD(@NonNull String tag, @NonNull String format, @Nullable Object arg) {
+        if (isEnabled) activeLogger.logD(tag, format(format, arg));
+    }
+
+    public static void logD(@NonNull String tag, @NonNull String format, long arg) {
+        if (isEnabled) activeLogger.logD(tag, format(format, arg));
+    }
+
+    public static void logD(@NonNull String tag, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+        if (isEnabled) activeLogger.logD(tag, format(format, arg1, arg2));
+    }
+    // endregion
+
+    // region Error
+    public static void logE(@NonNull String tag, @NonNull String message) {
+        if (isEnabled) activeLogger.logE(tag, message);
+    }
+
+    public static void logE(@NonNull String tag, @NonNull String format, @Nullable Object arg) {
+        if (isEnabled) activeLogger.logE(tag, format(format, arg));
+    }
+
+    public static void logE(@NonNull String tag, @NonNull String format, long arg) {
+        if (isEnabled) activeLogger.logE(tag, format(format, arg));
+    }
+
+    public static void logE(@NonNull String tag, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+        if (isEnabled) activeLogger.logE(tag, format(format, arg1, arg2));
+    }
+    // endregion
+
+    // region Info
+    public static void logI(@NonNull String tag, @NonNull String message) {
+        if (isEnabled) activeLogger.logI(tag, message);
+    }
+
+    public static void logI(@NonNull String tag, @NonNull String format, @Nullable Object arg) {
+        if (isEnabled) activeLogger.logI(tag, format(format, arg));
+    }
+
+    public static void logI(@NonNull String tag, @NonNull String format, long arg) {
+        if (isEnabled) activeLogger.logI(tag, format(format, arg));
+    }
+
+    public static void logI(@NonNull String tag, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+        if (isEnabled) activeLogger.logI(tag, format(format, arg1, arg2));
+    }
+    // endregion
+
+    // region Verbose
+    public static void logV(@NonNull String tag, @NonNull String message) {
+        if (isEnabled) activeLogger.logV(tag, message);
+    }
+
+    public static void logV(@NonNull String tag, @NonNull String format, @Nullable Object arg) {
+        if (isEnabled) activeLogger.logV(tag, format(format, arg));
+    }
+
+    public static void logV(@NonNull String tag, @NonNull String format, long arg) {
+        if (isEnabled) activeLogger.logV(tag, format(format, arg));
+    }
+
+    public static void logV(@NonNull String tag, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+        if (isEnabled) activeLogger.logV(tag, format(format, arg1, arg2));
     }
+    // endregion
 
-    public static void logE(String message) {
-        if (isEnabled) activeLogger.logE(getClassName(), message);
+    // region Warning
+    public static void logW(@NonNull String tag, @NonNull String message) {
+        if (isEnabled) activeLogger.logW(tag, message);
     }
 
-    public static void logI(String message) {
-        if (isEnabled) activeLogger.logI(getClassName(), message);
+    public static void logW(@NonNull String tag, @NonNull String format, @Nullable Object arg) {
+        if (isEnabled) activeLogger.logW(tag, format(format, arg));
     }
 
-    public static void logV(String message) {
-        if (isEnabled) activeLogger.logV(getClassName(), message);
+    public static void logW(@NonNull String tag, @NonNull String format, long arg) {
+        if (isEnabled) activeLogger.logW(tag, format(format, arg));
     }
 
-    public static void logW(String message) {
-        if (isEnabled) activeLogger.logW(getClassName(), message);
+    public static void logW(@NonNull String tag, @NonNull String format, @Nullable Object arg1, @Nullable Object arg2) {
+        if (isEnabled) activeLogger.logW(tag, format(format, arg1, arg2));
     }
+    // endregion
 
-    private static String getClassName() {
-        StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-        StackTraceElement relevantTrace = trace[4];
-        String className = relevantTrace.getClassName();
-        int lastIndex = className.lastIndexOf('.');
-        return className.substring(lastIndex + 1);
+    private static String format(String format, Object... args) {
+        return String.format(Locale.US, format, args);
     }
-}
\ No newline at end of file
+}
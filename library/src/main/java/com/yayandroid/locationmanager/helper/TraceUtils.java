@@ -0,0 +1,78 @@
+package com.yayandroid.locationmanager.helper;
+
+import android.os.Build;
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Marks the phases of retrieving location as {@linkplain Trace} sections, so that they show up in systrace and
+ * Perfetto. Phases which start and end on the same call are sections, the ones which wait for a callback are
+ * async sections keyed by the id of the request they belong to.
+ *
+ * Every call checks a single static flag first, so nothing else is evaluated while tracing is disabled.
+ * Section names are expected to be constants, in order not to build strings on the way.
+ */
+public final class TraceUtils {
+
+    private static final AtomicInteger requestIds = new AtomicInteger();
+
+    // Read on every thread which retrieves location, while it is set on the one which builds the managers
+    private static volatile boolean isEnabled = false;
+
+    private TraceUtils() {
+        // No instance
+    }
+
+    /**
+     * Sections are only supported from API 18, and async sections from API 29 on,
+     * enabling has no effect on the previous versions
+     */
+    public static void enable(boolean isEnabled) {
+        TraceUtils.isEnabled = isEnabled;
+    }
+
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Returns a new id to key the async sections of a request with, or 0 while tracing is disabled
+     */
+    public static int nextRequestId() {
+        if (!isEnabled) return 0;
+        return requestIds.incrementAndGet();
+    }
+
+    /**
+     * Must be followed by {@linkplain #endSection()} on the same thread, preferably in a finally block
+     */
+    public static void beginSection(@NonNull String name) {
+        if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+    public static void endSection() {
+        if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Can be ended on any thread, by calling {@linkplain #endAsyncSection(String, int)} with the same arguments
+     */
+    public static void beginAsyncSection(@NonNull String name, int requestId) {
+        if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, requestId);
+        }
+    }
+
+    public static void endAsyncSection(@NonNull String name, int requestId) {
+        if (isEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, requestId);
+        }
+    }
+}
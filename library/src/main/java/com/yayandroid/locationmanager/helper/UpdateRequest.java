@@ -2,19 +2,35 @@ package com.yayandroid.locationmanager.helper;
 
 import android.location.LocationListener;
 import android.location.LocationManager;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.yayandroid.locationmanager.constants.HistogramType;
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
 
 public class UpdateRequest {
 
     private final LocationManager locationManager;
     private final LocationListener locationListener;
+    private final Looper looper;
 
     private String provider;
     private long minTime;
     private float minDistance;
+    private boolean isRunning;
+    private long runningSince;
 
     public UpdateRequest(LocationManager locationManager, LocationListener locationListener) {
+        this(locationManager, locationListener, null);
+    }
+
+    /**
+     * @param looper which updates are delivered on, or null for the looper of the thread which runs the request
+     */
+    public UpdateRequest(LocationManager locationManager, LocationListener locationListener, Looper looper) {
         this.locationManager = locationManager;
         this.locationListener = locationListener;
+        this.looper = looper;
     }
 
     public void run(String provider, long minTime, float minDistance) {
@@ -27,13 +43,32 @@ public class UpdateRequest {
     @SuppressWarnings("ResourceType")
     public void run() {
         if(StringUtils.isNotEmpty(provider)) {
-            locationManager.requestLocationUpdates(provider, minTime, minDistance, locationListener);
+            if (!isRunning) {
+                isRunning = true;
+                runningSince = SystemClock.elapsedRealtime();
+            }
+            if (looper != null) {
+                locationManager.requestLocationUpdates(provider, minTime, minDistance, locationListener, looper);
+            } else {
+                locationManager.requestLocationUpdates(provider, minTime, minDistance, locationListener);
+            }
         }
     }
 
     @SuppressWarnings("ResourceType")
     public void release() {
+        if (isRunning) {
+            isRunning = false;
+            Metrics.record(HistogramType.SUBSCRIPTION_DURATION, SystemClock.elapsedRealtime() - runningSince);
+        }
         if (locationManager != null) locationManager.removeUpdates(locationListener);
     }
 
+    /**
+     * Whether updates are requested and not released since
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
 }
@@ -0,0 +1,206 @@
+package com.yayandroid.locationmanager.helper.cache;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Build;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.helper.LocationUtils;
+import com.yayandroid.locationmanager.helper.LogUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the latest location received from each provider.
+ *
+ * Every location that any LocationManager receives is written here, so that another LocationManager can use it
+ * instead of starting its own providers, as long as it is sufficient for that manager's configuration.
+ * It is safe to use from any thread, and it never hands out the instances it keeps.
+ *
+ * Once {@linkplain #persist(Context)} is called, it is also backed by a {@linkplain LocationSnapshot} so that
+ * locations outlive the process.
+ */
+public class LocationCache {
+
+    private static final String TAG = "LocationCache";
+    private static final String UNKNOWN_PROVIDER = "";
+    private static final String SNAPSHOT_FILE_NAME = "locationmanager.snapshot";
+
+    private static final LocationCache INSTANCE = new LocationCache();
+
+    private final ConcurrentHashMap<String, Location> locations = new ConcurrentHashMap<>();
+    private volatile LocationSnapshot snapshot;
+    private boolean isPersistRequested;
+
+    public static LocationCache getInstance() {
+        return INSTANCE;
+    }
+
+    // For test purposes
+    LocationCache() {
+    }
+
+    public void put(@NonNull Location location) {
+        String provider = location.getProvider() == null ? UNKNOWN_PROVIDER : location.getProvider();
+        Location cached = locations.get(provider);
+        if (cached == null) {
+            locations.put(provider, copy(location, null));
+        } else {
+            // Kept instance is updated in place, so that receiving a location doesn't allocate
+            synchronized (cached) {
+                Location updated = copy(location, cached);
+                if (updated != cached) locations.put(provider, updated);
+            }
+        }
+
+        LocationSnapshot snapshot = this.snapshot;
+        if (snapshot != null) write(snapshot, location);
+    }
+
+    /**
+     * Returns the most accurate location among the ones which are received within acceptableTimePeriod and
+     * are at least as accurate as acceptableAccuracy, or null if there is none.
+     */
+    @Nullable
+    public Location get(long acceptableTimePeriod, float acceptableAccuracy) {
+        Location best = null;
+        float bestAccuracy = 0;
+        long bestTime = 0;
+        for (Location location : locations.values()) {
+            synchronized (location) {
+                if (!LocationUtils.isLocationSufficient(location, acceptableTimePeriod, acceptableAccuracy)) {
+                    continue;
+                }
+
+                float accuracy = location.getAccuracy();
+                long time = location.getTime();
+                if (best == null || accuracy < bestAccuracy || (accuracy == bestAccuracy && time > bestTime)) {
+                    best = location;
+                    bestAccuracy = accuracy;
+                    bestTime = time;
+                }
+            }
+        }
+
+        if (best == null) return null;
+
+        synchronized (best) {
+            return copy(best, null);
+        }
+    }
+
+    public void clear() {
+        locations.clear();
+    }
+
+    /**
+     * Starts writing every location into a file in application's no-backup files directory, and restores the
+     * locations that were written there by the previous process. Only the first call has an effect.
+     * If the file cannot be opened, cache simply stays in memory.
+     *
+     * File is opened on a background thread, so this returns right away and is safe to call on the main thread.
+     * Locations which are received until it is opened are written into it afterwards.
+     */
+    public void persist(@NonNull final Context context) {
+        synchronized (this) {
+            if (isPersistRequested) return;
+            isPersistRequested = true;
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                File directory = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                      ? context.getNoBackupFilesDir() : context.getFilesDir();
+                persist(new File(directory, SNAPSHOT_FILE_NAME));
+            }
+        }, "LocationManager-LocationCache");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void persist(@NonNull File file) {
+        if (snapshot != null) return;
+
+        try {
+            LocationSnapshot opened = LocationSnapshot.open(file);
+            restore(opened);
+            snapshot = opened;
+        } catch (IOException e) {
+            LogUtils.logE(TAG, "Unable to open location snapshot: %s", e.getMessage());
+            return;
+        }
+
+        for (Location location : locations.values()) {
+            synchronized (location) {
+                write(snapshot, location);
+            }
+        }
+    }
+
+    private static void write(LocationSnapshot snapshot, Location location) {
+        int flags = (location.hasAltitude() ? LocationSnapshot.FLAG_HAS_ALTITUDE : 0)
+              | (location.hasSpeed() ? LocationSnapshot.FLAG_HAS_SPEED : 0)
+              | (location.hasBearing() ? LocationSnapshot.FLAG_HAS_BEARING : 0);
+        long elapsedRealtimeNanos = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+              ? location.getElapsedRealtimeNanos() : 0L;
+        snapshot.write(LocationUtils.providerTypeOf(location.getProvider()), location.getTime(),
+              elapsedRealtimeNanos, location.getLatitude(), location.getLongitude(), location.getAltitude(),
+              location.getAccuracy(), location.getSpeed(), location.getBearing(), flags);
+    }
+
+    private void restore(LocationSnapshot snapshot) {
+        Map<String, LocationSnapshot.Record> latest = new HashMap<>();
+        for (int slot = 0; slot < LocationSnapshot.SLOT_COUNT; slot++) {
+            LocationSnapshot.Record record = new LocationSnapshot.Record();
+            if (!snapshot.read(slot, record)) continue;
+
+            String provider = LocationUtils.providerOf(record.providerType);
+            if (provider == null) provider = UNKNOWN_PROVIDER;
+
+            LocationSnapshot.Record existing = latest.get(provider);
+            if (existing == null || existing.sequence < record.sequence) {
+                latest.put(provider, record);
+            }
+        }
+
+        for (Map.Entry<String, LocationSnapshot.Record> entry : latest.entrySet()) {
+            // Locations received in this process are always more recent than the ones restored
+            locations.putIfAbsent(entry.getKey(), toLocation(entry.getKey(), entry.getValue()));
+        }
+        LogUtils.logI(TAG, "Restored %d locations from snapshot", latest.size());
+    }
+
+    private static Location toLocation(String provider, LocationSnapshot.Record record) {
+        Location location = new Location(provider);
+        location.setTime(record.time);
+        location.setLatitude(record.latitude);
+        location.setLongitude(record.longitude);
+        location.setAccuracy(record.accuracy);
+        if ((record.flags & LocationSnapshot.FLAG_HAS_ALTITUDE) != 0) location.setAltitude(record.altitude);
+        if ((record.flags & LocationSnapshot.FLAG_HAS_SPEED) != 0) location.setSpeed(record.speed);
+        if ((record.flags & LocationSnapshot.FLAG_HAS_BEARING) != 0) location.setBearing(record.bearing);
+
+        // Elapsed realtime is only meaningful if the device hasn't been rebooted since
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+              && record.elapsedRealtimeNanos <= SystemClock.elapsedRealtimeNanos()) {
+            location.setElapsedRealtimeNanos(record.elapsedRealtimeNanos);
+        }
+        return location;
+    }
+
+    // For test purposes
+    Location copy(Location location, @Nullable Location reused) {
+        if (reused == null) return new Location(location);
+
+        reused.set(location);
+        return reused;
+    }
+}
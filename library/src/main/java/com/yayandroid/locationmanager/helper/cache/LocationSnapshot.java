@@ -0,0 +1,171 @@
+package com.yayandroid.locationmanager.helper.cache;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fixed layout memory-mapped file which keeps the last {@linkplain #SLOT_COUNT} fixes as primitives.
+ *
+ * Fixes are written to the slots in turn, each with an increasing sequence number and a checksum over the whole
+ * slot. The checksum is written last, so if the process dies in the middle of a write, only that slot is lost
+ * and it is skipped on the next read. Mapped pages belong to the kernel, so they survive the process without
+ * calling {@linkplain MappedByteBuffer#force()}; writing therefore never blocks on disk, and never allocates.
+ */
+class LocationSnapshot {
+
+    static final int MAGIC = 0x4C4D534E; // LMSN
+    static final int VERSION = 1;
+    static final int SLOT_COUNT = 4;
+
+    static final int HEADER_SIZE = 16;
+    static final int SLOT_SIZE = 80;
+    static final int FILE_SIZE = HEADER_SIZE + SLOT_COUNT * SLOT_SIZE;
+
+    // Header offsets
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SLOT_COUNT = 8;
+
+    // Slot offsets, the rest of the slot is reserved
+    private static final int SEQUENCE = 0;
+    private static final int TIME = 8;
+    private static final int ELAPSED_REALTIME_NANOS = 16;
+    private static final int LATITUDE = 24;
+    private static final int LONGITUDE = 32;
+    private static final int ALTITUDE = 40;
+    private static final int ACCURACY = 48;
+    private static final int SPEED = 52;
+    private static final int BEARING = 56;
+    private static final int FLAGS = 60;
+    private static final int CHECKSUM = 64;
+
+    static final int FLAG_HAS_ALTITUDE = 1 << 8;
+    static final int FLAG_HAS_SPEED = 1 << 9;
+    static final int FLAG_HAS_BEARING = 1 << 10;
+    private static final int PROVIDER_TYPE_MASK = 0xFF;
+
+    private final MappedByteBuffer buffer;
+    private long sequence;
+
+    private LocationSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+
+        if (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_VERSION) != VERSION
+              || buffer.getInt(HEADER_SLOT_COUNT) != SLOT_COUNT) {
+            for (int i = 0; i < FILE_SIZE; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putInt(HEADER_VERSION, VERSION);
+            buffer.putInt(HEADER_SLOT_COUNT, SLOT_COUNT);
+        }
+
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (isValid(slot)) {
+                sequence = Math.max(sequence, buffer.getLong(offsetOf(slot) + SEQUENCE));
+            }
+        }
+    }
+
+    /**
+     * Maps given file, creating or resetting it when it doesn't have the expected layout.
+     */
+    static LocationSnapshot open(@NonNull File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            if (randomAccessFile.length() != FILE_SIZE) {
+                randomAccessFile.setLength(FILE_SIZE);
+            }
+            // Mapping stays valid after the channel is closed
+            return new LocationSnapshot(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    synchronized void write(@ProviderType int providerType, long time, long elapsedRealtimeNanos,
+          double latitude, double longitude, double altitude, float accuracy, float speed, float bearing,
+          int flags) {
+        long nextSequence = sequence + 1;
+        int offset = offsetOf((int) (nextSequence % SLOT_COUNT));
+        int packedFlags = (flags & ~PROVIDER_TYPE_MASK) | (providerType & PROVIDER_TYPE_MASK);
+
+        // Invalidate the slot first, so a partially written slot can never pass with its previous checksum
+        buffer.putLong(offset + CHECKSUM, 0L);
+        buffer.putLong(offset + SEQUENCE, nextSequence);
+        buffer.putLong(offset + TIME, time);
+        buffer.putLong(offset + ELAPSED_REALTIME_NANOS, elapsedRealtimeNanos);
+        buffer.putDouble(offset + LATITUDE, latitude);
+        buffer.putDouble(offset + LONGITUDE, longitude);
+        buffer.putDouble(offset + ALTITUDE, altitude);
+        buffer.putFloat(offset + ACCURACY, accuracy);
+        buffer.putFloat(offset + SPEED, speed);
+        buffer.putFloat(offset + BEARING, bearing);
+        buffer.putInt(offset + FLAGS, packedFlags);
+        buffer.putLong(offset + CHECKSUM, checksumOf(offset));
+
+        sequence = nextSequence;
+    }
+
+    /**
+     * Reads given slot into record, and returns false without touching it if the slot is empty or corrupted.
+     */
+    synchronized boolean read(int slot, @NonNull Record record) {
+        if (!isValid(slot)) return false;
+
+        int offset = offsetOf(slot);
+        int flags = buffer.getInt(offset + FLAGS);
+        record.sequence = buffer.getLong(offset + SEQUENCE);
+        record.time = buffer.getLong(offset + TIME);
+        record.elapsedRealtimeNanos = buffer.getLong(offset + ELAPSED_REALTIME_NANOS);
+        record.latitude = buffer.getDouble(offset + LATITUDE);
+        record.longitude = buffer.getDouble(offset + LONGITUDE);
+        record.altitude = buffer.getDouble(offset + ALTITUDE);
+        record.accuracy = buffer.getFloat(offset + ACCURACY);
+        record.speed = buffer.getFloat(offset + SPEED);
+        record.bearing = buffer.getFloat(offset + BEARING);
+        record.providerType = flags & PROVIDER_TYPE_MASK;
+        record.flags = flags & ~PROVIDER_TYPE_MASK;
+        return true;
+    }
+
+    private boolean isValid(int slot) {
+        int offset = offsetOf(slot);
+        return buffer.getLong(offset + SEQUENCE) != 0L && buffer.getLong(offset + CHECKSUM) == checksumOf(offset);
+    }
+
+    private long checksumOf(int offset) {
+        long hash = MAGIC;
+        for (int i = 0; i < CHECKSUM; i += 8) {
+            hash = (hash ^ buffer.getLong(offset + i)) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+        // Zero is reserved for the slots which are being written
+        return hash == 0L ? 1L : hash;
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    static final class Record {
+        long sequence;
+        long time;
+        long elapsedRealtimeNanos;
+        double latitude;
+        double longitude;
+        double altitude;
+        float accuracy;
+        float speed;
+        float bearing;
+        @ProviderType int providerType;
+        int flags;
+    }
+}
@@ -1,14 +1,23 @@
 package com.yayandroid.locationmanager.helper.continuoustask;
 
-import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-public class ContinuousTask extends Handler implements Runnable {
+/**
+ * Task which can be delayed, paused and resumed. All tasks are scheduled on the shared {@linkplain TimerWheel}
+ * and run on the looper which they are created with, or on the timer thread if there isn't any.
+ */
+public class ContinuousTask implements Runnable {
 
     private final String taskId;
     private final ContinuousTaskScheduler continuousTaskScheduler;
     private final ContinuousTaskRunner continuousTaskRunner;
+    private final Looper looper;
+
+    private TimerWheel.Timeout timeout;
 
     public interface ContinuousTaskRunner {
         /**
@@ -20,7 +29,16 @@ public class ContinuousTask extends Handler implements Runnable {
     }
 
     public ContinuousTask(@NonNull String taskId, @NonNull ContinuousTaskRunner continuousTaskRunner) {
+        this(taskId, continuousTaskRunner, null);
+    }
+
+    /**
+     * @param looper which the task runs on, or null for the looper of the creating thread
+     */
+    public ContinuousTask(@NonNull String taskId, @NonNull ContinuousTaskRunner continuousTaskRunner,
+          @Nullable Looper looper) {
         this.taskId = taskId;
+        this.looper = looper != null ? looper : Looper.myLooper();
         continuousTaskScheduler = new ContinuousTaskScheduler(this);
         this.continuousTaskRunner = continuousTaskRunner;
     }
@@ -43,18 +61,25 @@ public class ContinuousTask extends Handler implements Runnable {
 
     @Override
     public void run() {
+        timeout = null;
         continuousTaskRunner.runScheduledTask(taskId);
     }
 
     void schedule(long delay) {
-        postDelayed(this, delay);
+        timeout = TimerWheel.getInstance().schedule(this, delay, looper);
     }
 
     void unregister() {
-        removeCallbacks(this);
+        if (timeout != null) {
+            TimerWheel.getInstance().cancel(timeout);
+            timeout = null;
+        }
     }
 
+    /**
+     * Monotonic, so that pausing and resuming is not affected when the wall clock is changed
+     */
     long getCurrentTime() {
-        return System.currentTimeMillis();
+        return SystemClock.elapsedRealtime();
     }
 }
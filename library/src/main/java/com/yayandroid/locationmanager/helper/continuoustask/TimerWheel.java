@@ -0,0 +1,247 @@
+package com.yayandroid.locationmanager.helper.continuoustask;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel which every timeout of the library goes through, ticking on a single daemon thread.
+ *
+ * Deadlines are measured with the monotonic {@linkplain SystemClock#elapsedRealtime()} and are rounded up to the
+ * next tick, which is the slack of this timer: deadlines within the same tick fire together, never earlier than
+ * they are asked for. The thread doesn't wake up on every tick but only for the first non-empty bucket, and it
+ * sleeps as long as there is nothing scheduled. Expired timeouts are posted to the looper they are scheduled
+ * with, or run on the timer thread when they don't have any.
+ */
+class TimerWheel implements Runnable {
+
+    static final long TICK_DURATION = 100;
+    static final int WHEEL_SIZE = 512;
+
+    private static final long NONE = Long.MAX_VALUE;
+
+    private static TimerWheel instance;
+
+    private final long tickDuration;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Map<Looper, Handler> handlers = new HashMap<>();
+    private final List<Timeout> expired = new ArrayList<>();
+
+    private long lastExpiredTick = -1;
+    private long wakeUpTick = NONE;
+    private int pendingCount;
+    private Thread thread;
+
+    static synchronized TimerWheel getInstance() {
+        if (instance == null) {
+            instance = new TimerWheel(TICK_DURATION, WHEEL_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * @param wheelSize must be a power of two
+     */
+    TimerWheel(long tickDuration, int wheelSize) {
+        this.tickDuration = tickDuration;
+        this.buckets = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+    }
+
+    /**
+     * Schedules given task to run after given delay, on given looper or on the timer thread if it is null.
+     */
+    synchronized Timeout schedule(@NonNull Runnable task, long delay, @Nullable Looper looper) {
+        long now = now();
+        if (pendingCount == 0) {
+            // Thread may have slept for a long while, there is nothing to catch up with
+            lastExpiredTick = Math.max(lastExpiredTick, now / tickDuration - 1);
+        }
+
+        long deadline = now + Math.max(0, delay);
+        long deadlineTick = Math.max((deadline + tickDuration - 1) / tickDuration, lastExpiredTick + 1);
+
+        Timeout timeout = new Timeout(task, looper, deadlineTick);
+        link(timeout);
+        pendingCount++;
+
+        if (thread == null) {
+            startThread();
+        } else if (deadlineTick < wakeUpTick) {
+            notifyAll();
+        }
+        return timeout;
+    }
+
+    synchronized void cancel(@NonNull Timeout timeout) {
+        timeout.cancelled = true;
+        if (timeout.bucket != -1) {
+            unlink(timeout);
+            pendingCount--;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            synchronized (this) {
+                long now = now();
+                expireTimeouts(now);
+
+                if (expired.isEmpty()) {
+                    wakeUpTick = findNextTick();
+                    try {
+                        if (wakeUpTick == NONE) {
+                            wait();
+                        } else {
+                            wait(Math.max(1, wakeUpTick * tickDuration - now));
+                        }
+                    } catch (InterruptedException ignored) {
+                        // Keep ticking, nothing else uses this thread
+                    }
+                    wakeUpTick = NONE;
+                    continue;
+                }
+            }
+
+            // Dispatch outside of the lock, so that tasks can schedule again
+            for (int i = 0, size = expired.size(); i < size; i++) {
+                dispatch(expired.get(i));
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Moves every timeout whose tick is arrived at given time to expired list
+     */
+    void expireTimeouts(long now) {
+        long currentTick = now / tickDuration;
+        if (currentTick <= lastExpiredTick) return;
+
+        // No need to visit a bucket twice when the thread is late more than a whole round
+        long firstTick = Math.max(lastExpiredTick + 1, currentTick - mask);
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            int bucket = (int) (tick & mask);
+            Timeout timeout = buckets[bucket];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= currentTick) {
+                    unlink(timeout);
+                    pendingCount--;
+                    expired.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+        lastExpiredTick = currentTick;
+    }
+
+    /**
+     * Returns the tick of the first non-empty bucket, which may hold only the timeouts of the next rounds
+     * in which case the thread simply wakes up for nothing once in a round
+     */
+    long findNextTick() {
+        if (pendingCount == 0) return NONE;
+
+        for (long tick = lastExpiredTick + 1; tick <= lastExpiredTick + buckets.length; tick++) {
+            if (buckets[(int) (tick & mask)] != null) {
+                return tick;
+            }
+        }
+        return NONE;
+    }
+
+    // For test purposes
+    List<Timeout> expired() {
+        return expired;
+    }
+
+    // For test purposes
+    long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    // For test purposes
+    void startThread() {
+        thread = new Thread(this, "LocationManager-TimerWheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void dispatch(Timeout timeout) {
+        if (timeout.looper == null) {
+            timeout.run();
+            return;
+        }
+
+        Handler handler;
+        synchronized (handlers) {
+            handler = handlers.get(timeout.looper);
+            if (handler == null) {
+                handler = new Handler(timeout.looper);
+                handlers.put(timeout.looper, handler);
+            }
+        }
+        handler.post(timeout);
+    }
+
+    private void link(Timeout timeout) {
+        int bucket = (int) (timeout.deadlineTick & mask);
+        Timeout head = buckets[bucket];
+        timeout.bucket = bucket;
+        timeout.next = head;
+        if (head != null) head.previous = timeout;
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    static final class Timeout implements Runnable {
+
+        private final Runnable task;
+        private final Looper looper;
+        final long deadlineTick;
+
+        private Timeout previous;
+        private Timeout next;
+        private int bucket = -1;
+        private volatile boolean cancelled;
+
+        Timeout(Runnable task, Looper looper, long deadlineTick) {
+            this.task = task;
+            this.looper = looper;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancelling on the looper which the timeout is scheduled with is always in time,
+         * even if the timeout has already expired and is waiting to be run on that looper
+         */
+        @Override
+        public void run() {
+            if (!cancelled) {
+                task.run();
+            }
+        }
+    }
+}
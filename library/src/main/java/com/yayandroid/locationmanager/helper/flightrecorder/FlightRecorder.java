@@ -0,0 +1,158 @@
+package com.yayandroid.locationmanager.helper.flightrecorder;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.RecordType;
+import com.yayandroid.locationmanager.helper.LocationUtils;
+import com.yayandroid.locationmanager.listener.FlightRecorderListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Always-on, fixed-size ring buffer of what happened while retrieving location.
+ *
+ * Every event is packed into two longs, a timestamp and its data, so recording never allocates.
+ * Buffer is only decoded when a failure is reported and there is a {@linkplain FlightRecorderListener} set.
+ */
+public final class FlightRecorder {
+
+    static final int CAPACITY = 128;
+
+    private static final long[] timestamps = new long[CAPACITY];
+    private static final long[] data = new long[CAPACITY];
+
+    private static int position = 0;
+    private static int size = 0;
+
+    private static volatile FlightRecorderListener listener;
+
+    private FlightRecorder() {
+        // No instance
+    }
+
+    public static void setListener(@Nullable FlightRecorderListener flightRecorderListener) {
+        listener = flightRecorderListener;
+    }
+
+    public static void record(@RecordType int type, int argument) {
+        record(type, argument, 0);
+    }
+
+    public static synchronized void record(@RecordType int type, int argument, int value) {
+        timestamps[position] = System.currentTimeMillis();
+        data[position] = ((long) type << 56) | ((long) (argument & 0xFFFFFF) << 32) | (value & 0xFFFFFFFFL);
+
+        position = (position + 1) % CAPACITY;
+        if (size < CAPACITY) size++;
+    }
+
+    public static void recordLocation(@Nullable String provider, float accuracy) {
+        record(RecordType.LOCATION_RECEIVED, LocationUtils.providerTypeOf(provider), Float.floatToIntBits(accuracy));
+    }
+
+    /**
+     * Records the failure and hands over everything recorded so far to {@linkplain FlightRecorderListener}, if any.
+     */
+    public static void recordFailure(@FailType int failType) {
+        record(RecordType.LOCATION_FAILED, failType);
+
+        FlightRecorderListener flightRecorderListener = listener;
+        if (flightRecorderListener != null) {
+            flightRecorderListener.onFlightRecorderDump(failType, snapshot());
+        }
+    }
+
+    /**
+     * Decodes recorded events, from oldest to newest
+     */
+    @NonNull
+    public static synchronized List<Event> snapshot() {
+        List<Event> events = new ArrayList<>(size);
+        int start = (position - size + CAPACITY) % CAPACITY;
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % CAPACITY;
+            events.add(new Event(timestamps[index], data[index]));
+        }
+        return Collections.unmodifiableList(events);
+    }
+
+    public static synchronized void clear() {
+        position = 0;
+        size = 0;
+    }
+
+    public static final class Event {
+
+        private final long timestamp;
+        private final int type;
+        private final int argument;
+        private final int value;
+
+        Event(long timestamp, long data) {
+            this.timestamp = timestamp;
+            this.type = (int) (data >>> 56);
+            this.argument = ((int) (data >>> 32)) << 8 >> 8; // sign extend 24 bits
+            this.value = (int) data;
+        }
+
+        /**
+         * Time of the event in milliseconds since epoch
+         */
+        public long timestamp() {
+            return timestamp;
+        }
+
+        @RecordType
+        public int type() {
+            return type;
+        }
+
+        /**
+         * Meaning of the argument depends on {@linkplain #type()}, see {@linkplain RecordType}
+         */
+        public int argument() {
+            return argument;
+        }
+
+        public int value() {
+            return value;
+        }
+
+        /**
+         * Only meaningful for {@linkplain RecordType#LOCATION_RECEIVED}
+         */
+        public float accuracy() {
+            return Float.intBitsToFloat(value);
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case RecordType.PROCESS_TYPE_CHANGED:
+                    return timestamp + " ProcessTypeChanged: " + argument;
+                case RecordType.PROVIDER_SWITCHED:
+                    return timestamp + " ProviderSwitched: " + argument;
+                case RecordType.TASK_FIRED:
+                    return timestamp + " TaskFired: " + argument;
+                case RecordType.SETTINGS_API_RESULT:
+                    return timestamp + " SettingsApiResult: " + argument;
+                case RecordType.SETTINGS_API_DIALOG_RESULT:
+                    return timestamp + " SettingsApiDialogResult: " + argument;
+                case RecordType.LOCATION_RECEIVED:
+                    return timestamp + " LocationReceived: " + argument + ", accuracy: " + accuracy();
+                case RecordType.LOCATION_FAILED:
+                    return timestamp + " LocationFailed: " + argument;
+                case RecordType.UPDATES_SUSPENDED:
+                    return timestamp + " UpdatesSuspended";
+                case RecordType.UPDATES_RESUMED:
+                    return timestamp + " UpdatesResumed";
+                default:
+                    return timestamp + " Unknown(" + type + "): " + argument + ", " + value;
+            }
+        }
+    }
+}
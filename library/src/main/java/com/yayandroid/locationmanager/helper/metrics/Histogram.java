@@ -0,0 +1,110 @@
+package com.yayandroid.locationmanager.helper.metrics;
+
+/**
+ * Counts values in exponential buckets, bucket {@code i} covers the values less than {@code 2^i} which are not
+ * covered by the previous one, so that the whole range of a long is covered by a few primitives and recording
+ * is a couple of arithmetic operations. Negative values are counted as zero.
+ */
+public final class Histogram {
+
+    public static final int BUCKET_COUNT = 64;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public synchronized void record(long value) {
+        if (value < 0) value = 0;
+
+        buckets[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long sum() {
+        return sum;
+    }
+
+    /**
+     * Returns 0 if nothing is recorded
+     */
+    public synchronized long min() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns 0 if nothing is recorded
+     */
+    public synchronized long max() {
+        return count == 0 ? 0 : max;
+    }
+
+    public synchronized double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public synchronized long countOf(int bucket) {
+        return buckets[bucket];
+    }
+
+    /**
+     * Returns an upper bound of the value below which given fraction of the recorded values fall,
+     * which is exact to within a factor of two, and never exceeds {@linkplain #max()}
+     *
+     * @param fraction between 0 and 1, such as 0.95 for the 95th percentile
+     */
+    public synchronized long percentile(double fraction) {
+        if (count == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target) return Math.min(max, upperBoundOf(i));
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns a copy of this histogram, and resets this one if required, at once
+     */
+    synchronized Histogram copy(boolean reset) {
+        Histogram copy = new Histogram();
+        System.arraycopy(buckets, 0, copy.buckets, 0, BUCKET_COUNT);
+        copy.count = count;
+        copy.sum = sum;
+        copy.min = min;
+        copy.max = max;
+        if (reset) reset();
+        return copy;
+    }
+
+    /**
+     * Largest value which falls into given bucket
+     */
+    public static long upperBoundOf(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    static int bucketOf(long value) {
+        return BUCKET_COUNT - Long.numberOfLeadingZeros(value);
+    }
+}
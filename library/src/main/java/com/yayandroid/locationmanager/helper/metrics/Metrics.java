@@ -0,0 +1,128 @@
+package com.yayandroid.locationmanager.helper.metrics;
+
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.constants.CounterType;
+import com.yayandroid.locationmanager.constants.HistogramType;
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.listener.MetricsSink;
+
+/**
+ * Counters and histograms of how retrieving location performs, which are kept in primitives and only recorded
+ * while there is a {@linkplain MetricsSink} set. Nothing leaves the process unless {@linkplain #publish()}
+ * is called, which hands everything recorded since the previous call to the sink.
+ *
+ * Metrics of all LocationManager instances are recorded together.
+ */
+public final class Metrics {
+
+    static final int COUNTER_COUNT = 6;
+    static final int HISTOGRAM_COUNT = 5;
+
+    private static final long[] counters = new long[COUNTER_COUNT];
+    private static final Histogram[] histograms = new Histogram[HISTOGRAM_COUNT];
+
+    private static volatile MetricsSink sink;
+
+    static {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    private Metrics() {
+        // No instance
+    }
+
+    /**
+     * Pass null to stop recording, which also discards what is recorded so far
+     */
+    public static void setSink(@Nullable MetricsSink metricsSink) {
+        sink = metricsSink;
+        if (metricsSink == null) reset();
+    }
+
+    public static boolean isEnabled() {
+        return sink != null;
+    }
+
+    public static void increment(@CounterType int counter) {
+        if (sink == null) return;
+
+        synchronized (counters) {
+            counters[counter]++;
+        }
+    }
+
+    public static void record(@HistogramType int histogram, long value) {
+        if (sink == null) return;
+
+        histograms[histogram].record(value);
+    }
+
+    /**
+     * Records into the time to first fix histogram of given provider, does nothing for the providers
+     * which don't have one
+     */
+    public static void recordTimeToFirstFix(@ProviderType int providerType, long duration) {
+        switch (providerType) {
+            case ProviderType.GOOGLE_PLAY_SERVICES:
+                record(HistogramType.TIME_TO_FIRST_FIX_GOOGLE_PLAY_SERVICES, duration);
+                break;
+            case ProviderType.GPS:
+                record(HistogramType.TIME_TO_FIRST_FIX_GPS, duration);
+                break;
+            case ProviderType.NETWORK:
+                record(HistogramType.TIME_TO_FIRST_FIX_NETWORK, duration);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Hands everything recorded since the previous call to the sink, and starts over
+     */
+    public static void publish() {
+        MetricsSink metricsSink = sink;
+        if (metricsSink != null) {
+            metricsSink.onMetricsPublished(snapshot(true));
+        }
+    }
+
+    /**
+     * Returns what is recorded so far, without resetting it
+     */
+    public static MetricsSnapshot snapshot() {
+        return snapshot(false);
+    }
+
+    public static void reset() {
+        synchronized (counters) {
+            for (int i = 0; i < COUNTER_COUNT; i++) {
+                counters[i] = 0;
+            }
+        }
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            histograms[i].reset();
+        }
+    }
+
+    private static MetricsSnapshot snapshot(boolean reset) {
+        long[] counterValues = new long[COUNTER_COUNT];
+        synchronized (counters) {
+            System.arraycopy(counters, 0, counterValues, 0, COUNTER_COUNT);
+            if (reset) {
+                for (int i = 0; i < COUNTER_COUNT; i++) {
+                    counters[i] = 0;
+                }
+            }
+        }
+
+        Histogram[] histogramValues = new Histogram[HISTOGRAM_COUNT];
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            histogramValues[i] = histograms[i].copy(reset);
+        }
+        return new MetricsSnapshot(counterValues, histogramValues);
+    }
+}
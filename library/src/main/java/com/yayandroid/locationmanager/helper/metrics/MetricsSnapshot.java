@@ -0,0 +1,29 @@
+package com.yayandroid.locationmanager.helper.metrics;
+
+import com.yayandroid.locationmanager.constants.CounterType;
+import com.yayandroid.locationmanager.constants.HistogramType;
+
+/**
+ * Values of all metrics at the moment it is taken, which don't change afterwards
+ */
+public final class MetricsSnapshot {
+
+    private final long[] counters;
+    private final Histogram[] histograms;
+
+    MetricsSnapshot(long[] counters, Histogram[] histograms) {
+        this.counters = counters;
+        this.histograms = histograms;
+    }
+
+    public long counter(@CounterType int counter) {
+        return counters[counter];
+    }
+
+    /**
+     * Returned histogram belongs to this snapshot, so it shouldn't be recorded into
+     */
+    public Histogram histogram(@HistogramType int histogram) {
+        return histograms[histogram];
+    }
+}
@@ -0,0 +1,152 @@
+package com.yayandroid.locationmanager.helper.motion;
+
+import android.content.Context;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import com.yayandroid.locationmanager.helper.LogUtils;
+
+/**
+ * Monitors the accelerometer at the lowest rate the platform offers, and reports motion whenever the
+ * acceleration without gravity exceeds given threshold. While waiting, it uses the significant motion sensor
+ * instead where available, which is handled in low power hardware and lets the accelerometer go idle.
+ */
+public class DeviceMotionSensor implements MotionSensor, SensorEventListener {
+
+    private static final String TAG = "DeviceMotionSensor";
+
+    // Weight of the previous gravity estimate in the low-pass filter
+    private static final float GRAVITY_SMOOTHING = 0.8f;
+
+    private final SensorManager sensorManager;
+    private final float threshold;
+
+    private final float[] gravity = new float[3];
+    private boolean hasGravity;
+    private MotionListener listener;
+    private Handler handler;
+    private TriggerEventListener triggerEventListener;
+
+    /**
+     * @param threshold acceleration in m/s^2 besides gravity, which is considered as motion
+     */
+    public DeviceMotionSensor(@NonNull Context context, float threshold) {
+        this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void startMonitoring(@NonNull MotionListener listener, @Nullable Looper looper) {
+        stop();
+        this.listener = listener;
+        this.handler = createHandler(looper);
+        registerAccelerometer();
+    }
+
+    @Override
+    public void startWaiting(@NonNull MotionListener listener, @Nullable Looper looper) {
+        stop();
+        this.listener = listener;
+        this.handler = createHandler(looper);
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2 || !requestSignificantMotion()) {
+            registerAccelerometer();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (sensorManager == null) return;
+
+        sensorManager.unregisterListener(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2 && triggerEventListener != null) {
+            cancelSignificantMotion();
+        }
+        listener = null;
+        hasGravity = false;
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        if (listener == null) return;
+
+        if (!hasGravity) {
+            System.arraycopy(event.values, 0, gravity, 0, 3);
+            hasGravity = true;
+            return;
+        }
+
+        float sum = 0;
+        for (int i = 0; i < 3; i++) {
+            gravity[i] = GRAVITY_SMOOTHING * gravity[i] + (1 - GRAVITY_SMOOTHING) * event.values[i];
+            float linear = event.values[i] - gravity[i];
+            sum += linear * linear;
+        }
+
+        if (sum > threshold * threshold) {
+            listener.onMotionDetected();
+        }
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+
+    private void registerAccelerometer() {
+        Sensor accelerometer = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER) : null;
+        if (accelerometer == null) {
+            LogUtils.logE(TAG, "Accelerometer is not available, motion cannot be detected.");
+            return;
+        }
+        sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_NORMAL, handler);
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private boolean requestSignificantMotion() {
+        Sensor significantMotion = sensorManager != null
+              ? sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION) : null;
+        if (significantMotion == null) return false;
+
+        triggerEventListener = new TriggerEventListener() {
+            @Override
+            public void onTrigger(TriggerEvent event) {
+                // Trigger events are always delivered on the main thread
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (listener != null) listener.onMotionDetected();
+                    }
+                });
+            }
+        };
+
+        if (!sensorManager.requestTriggerSensor(triggerEventListener, significantMotion)) {
+            triggerEventListener = null;
+            return false;
+        }
+        return true;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void cancelSignificantMotion() {
+        sensorManager.cancelTriggerSensor(triggerEventListener,
+              sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION));
+        triggerEventListener = null;
+    }
+
+    private static Handler createHandler(@Nullable Looper looper) {
+        if (looper == null) looper = Looper.myLooper();
+        return new Handler(looper != null ? looper : Looper.getMainLooper());
+    }
+}
@@ -0,0 +1,138 @@
+package com.yayandroid.locationmanager.helper.motion;
+
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask.ContinuousTaskRunner;
+
+/**
+ * Decides whether the device is still, in order to suspend location updates while it doesn't move.
+ * Device is considered still once no motion is reported for the quiet period, and moving again on the first
+ * motion after that.
+ *
+ * Motion is only timestamped when it is reported, and the quiet period is checked once per period instead of
+ * being rescheduled on every motion, as monitoring sensors may report many times per second.
+ */
+public class MotionGate implements MotionSensor.MotionListener, ContinuousTaskRunner {
+
+    private static final String TAG = "MotionGate";
+    static final String QUIET_PERIOD_TASK = "quietPeriodTask";
+
+    public interface GateListener {
+        /**
+         * Device didn't move for the quiet period, location updates can be suspended
+         */
+        void onStill();
+
+        /**
+         * Device started to move after {@linkplain #onStill()}, location updates should be resumed
+         */
+        void onMoving();
+    }
+
+    private final MotionSensor motionSensor;
+    private final long quietPeriod;
+    private final GateListener gateListener;
+    private final Looper looper;
+
+    private ContinuousTask quietPeriodTask;
+    private boolean isStarted;
+    private boolean isStill;
+    private long lastMotionTime;
+
+    /**
+     * @param looper which the listener is called on, or null for the looper of the thread which starts the gate
+     */
+    public MotionGate(@NonNull MotionSensor motionSensor, long quietPeriod, @NonNull GateListener gateListener,
+          @Nullable Looper looper) {
+        this.motionSensor = motionSensor;
+        this.quietPeriod = quietPeriod;
+        this.gateListener = gateListener;
+        this.looper = looper;
+    }
+
+    /**
+     * Starts monitoring motion, device is considered as moving until the quiet period passes
+     */
+    public void start() {
+        stop();
+        isStarted = true;
+        lastMotionTime = getCurrentTime();
+        motionSensor.startMonitoring(this, looper);
+        scheduleQuietPeriod(quietPeriod);
+    }
+
+    /**
+     * Stops listening to the sensor, without notifying the listener even if the device is still
+     */
+    public void stop() {
+        isStarted = false;
+        isStill = false;
+        motionSensor.stop();
+        getQuietPeriodTask().stop();
+    }
+
+    public boolean isStill() {
+        return isStill;
+    }
+
+    @Override
+    public void onMotionDetected() {
+        if (!isStarted) return;
+
+        lastMotionTime = getCurrentTime();
+        if (isStill) {
+            LogUtils.logI(TAG, "Device is moving, resuming location updates...");
+            isStill = false;
+            motionSensor.stop();
+            motionSensor.startMonitoring(this, looper);
+            scheduleQuietPeriod(quietPeriod);
+            gateListener.onMoving();
+        }
+    }
+
+    @Override
+    public void runScheduledTask(@NonNull String taskId) {
+        if (!isStarted || isStill || !taskId.equals(QUIET_PERIOD_TASK)) return;
+
+        long remaining = quietPeriod - (getCurrentTime() - lastMotionTime);
+        if (remaining > 0) {
+            scheduleQuietPeriod(remaining);
+            return;
+        }
+
+        LogUtils.logI(TAG, "Device is still, suspending location updates...");
+        isStill = true;
+        motionSensor.stop();
+        motionSensor.startWaiting(this, looper);
+        gateListener.onStill();
+    }
+
+    // For test purposes
+    void setQuietPeriodTask(ContinuousTask quietPeriodTask) {
+        this.quietPeriodTask = quietPeriodTask;
+    }
+
+    // For test purposes
+    long getCurrentTime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    private void scheduleQuietPeriod(long delay) {
+        // Task stays set after it runs, so it needs to be stopped before it can be delayed again
+        getQuietPeriodTask().stop();
+        getQuietPeriodTask().delayed(delay);
+    }
+
+    private ContinuousTask getQuietPeriodTask() {
+        if (quietPeriodTask == null) {
+            quietPeriodTask = new ContinuousTask(QUIET_PERIOD_TASK, this, looper);
+        }
+        return quietPeriodTask;
+    }
+}
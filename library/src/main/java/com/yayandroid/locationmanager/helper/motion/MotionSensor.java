@@ -0,0 +1,40 @@
+package com.yayandroid.locationmanager.helper.motion;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Source of motion events for {@linkplain MotionGate}, implement it to provide motion from anywhere else
+ * than the device sensors, such as a simulation in tests.
+ */
+public interface MotionSensor {
+
+    interface MotionListener {
+        /**
+         * Called whenever the device is moved, may be called very frequently while monitoring
+         */
+        void onMotionDetected();
+    }
+
+    /**
+     * Starts reporting every motion, so that the quiet period can be measured
+     *
+     * @param looper which the listener is called on, or null for the looper of the calling thread
+     */
+    void startMonitoring(@NonNull MotionListener listener, @Nullable Looper looper);
+
+    /**
+     * Starts waiting for the device to move while it is considered still. Only the first motion needs to be
+     * reported, so implementations may use a cheaper sensor than the one used for monitoring.
+     *
+     * @param looper which the listener is called on, or null for the looper of the calling thread
+     */
+    void startWaiting(@NonNull MotionListener listener, @Nullable Looper looper);
+
+    /**
+     * Stops reporting motion, either monitoring or waiting
+     */
+    void stop();
+}
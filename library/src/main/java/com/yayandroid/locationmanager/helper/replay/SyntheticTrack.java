@@ -0,0 +1,146 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a {@linkplain Track} that moves at a constant speed, turning randomly but smoothly
+ * as a walk or a drive does. Same builder generates the same track.
+ */
+public final class SyntheticTrack {
+
+    private SyntheticTrack() {
+        // No instance
+    }
+
+    public static class Builder {
+
+        private double latitude = 52.520008;
+        private double longitude = 13.404954;
+        private float speed = 1.4f;
+        private float turnRate = 10;
+        private float accuracy = 5;
+        private long interval = 1000;
+        private long duration = 10 * 60 * 1000;
+        private long seed = 0;
+
+        /**
+         * Coordinates the track starts from.
+         *
+         * Default is 52.520008, 13.404954
+         */
+        public Builder start(double latitude, double longitude) {
+            if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+                throw new IllegalArgumentException("Start coordinates are out of range.");
+            }
+
+            this.latitude = latitude;
+            this.longitude = longitude;
+            return this;
+        }
+
+        /**
+         * Speed in meters per second, which every point of the track reports.
+         *
+         * Default is 1.4, about a walk
+         */
+        public Builder speed(float speed) {
+            if (speed < 0) {
+                throw new IllegalArgumentException("speed cannot be set to negative value.");
+            }
+
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * Maximum change of bearing in degrees per second.
+         *
+         * Default is 10
+         */
+        public Builder turnRate(float turnRate) {
+            if (turnRate < 0) {
+                throw new IllegalArgumentException("turnRate cannot be set to negative value.");
+            }
+
+            this.turnRate = turnRate;
+            return this;
+        }
+
+        /**
+         * Accuracy in meters, which every point of the track reports.
+         *
+         * Default is 5
+         */
+        public Builder accuracy(float accuracy) {
+            if (accuracy < 0) {
+                throw new IllegalArgumentException("accuracy cannot be set to negative value.");
+            }
+
+            this.accuracy = accuracy;
+            return this;
+        }
+
+        /**
+         * Time between two points in milliseconds.
+         *
+         * Default is 1 second
+         */
+        public Builder interval(long interval) {
+            if (interval <= 0) {
+                throw new IllegalArgumentException("interval must be greater than 0.");
+            }
+
+            this.interval = interval;
+            return this;
+        }
+
+        /**
+         * Time between the first and the last point in milliseconds.
+         *
+         * Default is 10 minutes
+         */
+        public Builder duration(long duration) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("duration cannot be set to negative value.");
+            }
+
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * Seed of the turns.
+         *
+         * Default is 0
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Track build() {
+            Random random = new Random(seed);
+            List<TrackPoint> points = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, duration / interval + 1));
+
+            double currentLatitude = latitude;
+            double currentLongitude = longitude;
+            double bearing = random.nextDouble() * 360;
+            double seconds = interval / 1000d;
+
+            for (long time = 0; time <= duration; time += interval) {
+                points.add(new TrackPoint(time, currentLatitude, currentLongitude, Double.NaN, accuracy, speed,
+                      (float) bearing));
+
+                double distance = speed * seconds;
+                double radians = Math.toRadians(bearing);
+                currentLatitude += distance * Math.cos(radians) / Track.METERS_PER_DEGREE;
+                currentLongitude += distance * Math.sin(radians)
+                      / (Track.METERS_PER_DEGREE * Math.cos(Math.toRadians(currentLatitude)));
+                bearing = (bearing + (random.nextDouble() * 2 - 1) * turnRate * seconds + 360) % 360;
+            }
+            return new Track(points);
+        }
+    }
+}
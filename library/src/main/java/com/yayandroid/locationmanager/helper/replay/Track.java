@@ -0,0 +1,56 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Points of a recorded or a generated route, ordered by time. See {@linkplain TrackReader} and
+ * {@linkplain SyntheticTrack} to create one.
+ */
+public class Track {
+
+    // Length of a degree of latitude, good enough to move points by a few meters
+    static final double METERS_PER_DEGREE = 111320;
+
+    private final List<TrackPoint> points;
+
+    public Track(@NonNull List<TrackPoint> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Track must contain at least one point.");
+        }
+
+        for (int i = 1, size = points.size(); i < size; i++) {
+            if (points.get(i).getTime() < points.get(i - 1).getTime()) {
+                throw new IllegalArgumentException("Track points must be ordered by time, point " + i + " is not.");
+            }
+        }
+
+        this.points = Collections.unmodifiableList(new ArrayList<>(points));
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    public TrackPoint get(int index) {
+        return points.get(index);
+    }
+
+    public List<TrackPoint> points() {
+        return points;
+    }
+
+    public long startTime() {
+        return points.get(0).getTime();
+    }
+
+    /**
+     * Time between the first and the last point, in milliseconds
+     */
+    public long duration() {
+        return points.get(points.size() - 1).getTime() - startTime();
+    }
+}
@@ -0,0 +1,147 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.configuration.ReplayConfiguration;
+
+import java.util.Random;
+
+/**
+ * Decides which points of a {@linkplain Track} are delivered and when, as described by
+ * {@linkplain ReplayConfiguration}. It doesn't wait for anything itself, {@linkplain #next()} simply returns
+ * the next point along with the time it is due, so it can be driven by a thread as well as stepped in a test.
+ *
+ * Due times are in nanoseconds since the beginning of the playback.
+ */
+public class TrackPlayer {
+
+    private static final long NANOS_PER_MILLI = 1000000;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Track track;
+    private final float speedUp;
+    private final long periodNanos;
+    private final long jitterNanos;
+    private final float accuracyNoise;
+    private final float dropoutProbability;
+    private final Random random;
+
+    private int index;
+    private long sampleCount;
+    private long dueNanos;
+    private int droppedCount;
+
+    public TrackPlayer(@NonNull Track track, @NonNull ReplayConfiguration configuration) {
+        this.track = track;
+        this.speedUp = configuration.speedUp();
+        this.periodNanos = configuration.rate() > 0
+              ? Math.max(1, Math.round(NANOS_PER_SECOND / configuration.rate())) : 0;
+        this.jitterNanos = configuration.jitter() * NANOS_PER_MILLI;
+        this.accuracyNoise = configuration.accuracyNoise();
+        this.dropoutProbability = configuration.dropoutProbability();
+        this.random = new Random(configuration.seed());
+    }
+
+    /**
+     * Returns the next point to deliver, or null once the track is finished.
+     * Its time is the time on the track, see {@linkplain #getDueNanos()} for when to deliver it.
+     */
+    @Nullable
+    public TrackPoint next() {
+        while (true) {
+            TrackPoint point;
+            long nominalDueNanos;
+
+            if (periodNanos > 0) {
+                nominalDueNanos = sampleCount * periodNanos;
+                double trackTime = nominalDueNanos * (double) speedUp / NANOS_PER_MILLI;
+                if (trackTime > track.duration()) return null;
+
+                point = interpolate(track.startTime() + trackTime);
+                sampleCount++;
+            } else {
+                if (index >= track.size()) return null;
+
+                point = track.get(index++);
+                nominalDueNanos = Math.round((point.getTime() - track.startTime()) * NANOS_PER_MILLI
+                      / (double) speedUp);
+            }
+
+            if (dropoutProbability > 0 && random.nextFloat() < dropoutProbability) {
+                droppedCount++;
+                continue;
+            }
+
+            long jitter = jitterNanos > 0 ? Math.round((random.nextDouble() * 2 - 1) * jitterNanos) : 0;
+            // Jitter shouldn't reorder locations
+            dueNanos = Math.max(dueNanos, nominalDueNanos + jitter);
+
+            return accuracyNoise > 0 ? addNoise(point) : point;
+        }
+    }
+
+    /**
+     * Time which the point that is returned last is due, in nanoseconds since the beginning of the playback
+     */
+    public long getDueNanos() {
+        return dueNanos;
+    }
+
+    /**
+     * Number of points which are dropped so far
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    private TrackPoint interpolate(double time) {
+        while (index < track.size() - 1 && track.get(index + 1).getTime() <= time) {
+            index++;
+        }
+
+        TrackPoint from = track.get(index);
+        if (index == track.size() - 1 || time <= from.getTime()) return withTime(from, (long) time);
+
+        TrackPoint to = track.get(index + 1);
+        double fraction = (time - from.getTime()) / (to.getTime() - from.getTime());
+        return new TrackPoint((long) time,
+              between(from.getLatitude(), to.getLatitude(), fraction),
+              between(from.getLongitude(), to.getLongitude(), fraction),
+              between(from.getAltitude(), to.getAltitude(), fraction),
+              (float) between(from.getAccuracy(), to.getAccuracy(), fraction),
+              (float) between(from.getSpeed(), to.getSpeed(), fraction),
+              from.getBearing());
+    }
+
+    /**
+     * Moves given point in a random direction, by a distance that is normally distributed with
+     * {@linkplain ReplayConfiguration#accuracyNoise()} as its standard deviation
+     */
+    private TrackPoint addNoise(TrackPoint point) {
+        double north = random.nextGaussian() * accuracyNoise;
+        double east = random.nextGaussian() * accuracyNoise;
+        double latitude = point.getLatitude() + north / Track.METERS_PER_DEGREE;
+        double longitude = point.getLongitude()
+              + east / (Track.METERS_PER_DEGREE * Math.cos(Math.toRadians(point.getLatitude())));
+        float error = (float) Math.sqrt(north * north + east * east);
+        float accuracy = point.hasAccuracy() ? point.getAccuracy() + error : error;
+
+        return new TrackPoint(point.getTime(), latitude, longitude, point.getAltitude(), accuracy, point.getSpeed(),
+              point.getBearing());
+    }
+
+    private static TrackPoint withTime(TrackPoint point, long time) {
+        if (point.getTime() == time) return point;
+
+        return new TrackPoint(time, point.getLatitude(), point.getLongitude(), point.getAltitude(),
+              point.getAccuracy(), point.getSpeed(), point.getBearing());
+    }
+
+    /**
+     * Linear interpolation, which is unknown if either of the values is
+     */
+    private static double between(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+}
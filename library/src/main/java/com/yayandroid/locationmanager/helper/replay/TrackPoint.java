@@ -0,0 +1,88 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+/**
+ * Single fix of a {@linkplain Track}. Values which are not known are {@linkplain Float#NaN} or
+ * {@linkplain Double#NaN}, only time and coordinates are required.
+ */
+public class TrackPoint {
+
+    private final long time;
+    private final double latitude;
+    private final double longitude;
+    private final double altitude;
+    private final float accuracy;
+    private final float speed;
+    private final float bearing;
+
+    public TrackPoint(long time, double latitude, double longitude) {
+        this(time, latitude, longitude, Double.NaN, Float.NaN, Float.NaN, Float.NaN);
+    }
+
+    /**
+     * @param time in milliseconds, only the difference between the points of a track matters
+     * @param altitude in meters
+     * @param accuracy in meters
+     * @param speed in meters per second
+     * @param bearing in degrees
+     */
+    public TrackPoint(long time, double latitude, double longitude, double altitude, float accuracy, float speed,
+          float bearing) {
+        this.time = time;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitude = altitude;
+        this.accuracy = accuracy;
+        this.speed = speed;
+        this.bearing = bearing;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public double getAltitude() {
+        return altitude;
+    }
+
+    public float getAccuracy() {
+        return accuracy;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public float getBearing() {
+        return bearing;
+    }
+
+    public boolean hasAltitude() {
+        return !Double.isNaN(altitude);
+    }
+
+    public boolean hasAccuracy() {
+        return !Float.isNaN(accuracy);
+    }
+
+    public boolean hasSpeed() {
+        return !Float.isNaN(speed);
+    }
+
+    public boolean hasBearing() {
+        return !Float.isNaN(bearing);
+    }
+
+    @Override
+    public String toString() {
+        return "TrackPoint{time=" + time + ", latitude=" + latitude + ", longitude=" + longitude
+              + ", altitude=" + altitude + ", accuracy=" + accuracy + ", speed=" + speed + ", bearing=" + bearing + "}";
+    }
+}
@@ -0,0 +1,267 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.helper.LogUtils;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Reads recorded tracks into a {@linkplain Track}, from either GPX or CSV.
+ *
+ * CSV is expected to have a line per point as <code>time,latitude,longitude,altitude,accuracy,speed,bearing</code>
+ * where time is in milliseconds, and the columns after longitude can be left empty or omitted. Empty lines, lines
+ * starting with '#' and a header line are skipped.
+ *
+ * GPX is read from its track and route points, each of which must have a time. Speed and course are read as
+ * speed and bearing, when they are available as in GPX 1.0. Document type declarations are rejected and external
+ * entities are never resolved, since GPX doesn't need either of them.
+ */
+public final class TrackReader {
+
+    private static final String TAG = "TrackReader";
+
+    private static final int TIME = 0;
+    private static final int LATITUDE = 1;
+    private static final int LONGITUDE = 2;
+    private static final int ALTITUDE = 3;
+    private static final int ACCURACY = 4;
+    private static final int SPEED = 5;
+    private static final int BEARING = 6;
+
+    private TrackReader() {
+        // No instance
+    }
+
+    public static Track readCsv(@NonNull Reader reader) throws IOException {
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        List<TrackPoint> points = new ArrayList<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] columns = line.split(",", -1);
+            if (points.isEmpty() && !isNumber(columns[0])) continue; // Header
+
+            if (columns.length < 3) {
+                throw new IOException("Line " + lineNumber + " must contain at least time, latitude and longitude.");
+            }
+
+            try {
+                points.add(new TrackPoint(Long.parseLong(columns[TIME].trim()),
+                      Double.parseDouble(columns[LATITUDE].trim()),
+                      Double.parseDouble(columns[LONGITUDE].trim()),
+                      parseOptional(columns, ALTITUDE), (float) parseOptional(columns, ACCURACY),
+                      (float) parseOptional(columns, SPEED), (float) parseOptional(columns, BEARING)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNumber + " cannot be read: " + e.getMessage());
+            }
+        }
+
+        if (points.isEmpty()) {
+            throw new IOException("CSV doesn't contain any point.");
+        }
+        return new Track(points);
+    }
+
+    public static Track readGpx(@NonNull Reader reader) throws IOException {
+        GpxHandler handler = new GpxHandler();
+        try {
+            createParserFactory().newSAXParser().parse(new InputSource(reader), handler);
+        } catch (ParserConfigurationException e) {
+            throw new IOException("GPX cannot be read: " + e.getMessage());
+        } catch (SAXException e) {
+            throw new IOException("GPX cannot be read: " + e.getMessage());
+        }
+
+        if (handler.points.isEmpty()) {
+            throw new IOException("GPX doesn't contain any track or route point.");
+        }
+        return new Track(handler.points);
+    }
+
+    /**
+     * Parses ISO 8601 date time as it is used by GPX, such as <code>2020-01-31T10:15:30.500Z</code>
+     * or <code>2020-01-31T10:15:30+01:00</code>, into milliseconds since epoch
+     */
+    static long parseTime(@NonNull String value) {
+        String text = value.trim();
+        if (text.length() < 19 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+              || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            throw new IllegalArgumentException("Time is not in ISO 8601 format: " + value);
+        }
+
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(Integer.parseInt(text.substring(0, 4)), Integer.parseInt(text.substring(5, 7)) - 1,
+              Integer.parseInt(text.substring(8, 10)), Integer.parseInt(text.substring(11, 13)),
+              Integer.parseInt(text.substring(14, 16)), Integer.parseInt(text.substring(17, 19)));
+        long time = calendar.getTimeInMillis();
+
+        int index = 19;
+        if (index < text.length() && text.charAt(index) == '.') {
+            int start = ++index;
+            while (index < text.length() && Character.isDigit(text.charAt(index))) index++;
+            String fraction = (text.substring(start, index) + "000").substring(0, 3);
+            time += Integer.parseInt(fraction);
+        }
+
+        if (index < text.length()) {
+            char sign = text.charAt(index);
+            if (sign == '+' || sign == '-') {
+                String offset = text.substring(index + 1).replace(":", "");
+                if (offset.length() < 4) {
+                    throw new IllegalArgumentException("Time offset is not in ISO 8601 format: " + value);
+                }
+                long offsetMillis = (Integer.parseInt(offset.substring(0, 2)) * 60
+                      + Integer.parseInt(offset.substring(2, 4))) * 60 * 1000L;
+                time += sign == '+' ? -offsetMillis : offsetMillis;
+            } else if (sign != 'Z') {
+                throw new IllegalArgumentException("Time zone is not in ISO 8601 format: " + value);
+            }
+        }
+        return time;
+    }
+
+    private static SAXParserFactory createParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        setFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(factory, "http://apache.org/xml/features/disallow-doctype-decl", true);
+        setFeature(factory, "http://xml.org/sax/features/external-general-entities", false);
+        setFeature(factory, "http://xml.org/sax/features/external-parameter-entities", false);
+        setFeature(factory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        return factory;
+    }
+
+    /**
+     * Not every parser recognizes every feature, such as the one of Android which doesn't resolve external
+     * entities on its own anyway. {@linkplain GpxHandler} resolves them to nothing in any case.
+     */
+    private static void setFeature(SAXParserFactory factory, String name, boolean value) {
+        try {
+            factory.setFeature(name, value);
+        } catch (ParserConfigurationException e) {
+            LogUtils.logW(TAG, "Parser doesn't support %s.", name);
+        } catch (SAXException e) {
+            LogUtils.logW(TAG, "Parser doesn't support %s.", name);
+        }
+    }
+
+    private static double parseOptional(String[] columns, int index) {
+        if (index >= columns.length) return Double.NaN;
+
+        String value = columns[index].trim();
+        return value.isEmpty() ? Double.NaN : Double.parseDouble(value);
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Long.parseLong(value.trim());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static class GpxHandler extends DefaultHandler {
+
+        private final List<TrackPoint> points = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        private boolean isInPoint;
+        private double latitude;
+        private double longitude;
+        private double altitude;
+        private long time;
+        private boolean hasTime;
+        private float speed;
+        private float bearing;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+              throws SAXException {
+            text.setLength(0);
+            if (!isPoint(localName)) return;
+
+            String lat = attributes.getValue("lat");
+            String lon = attributes.getValue("lon");
+            if (lat == null || lon == null) {
+                throw new SAXException("Point " + points.size() + " doesn't have lat and lon attributes.");
+            }
+
+            try {
+                latitude = Double.parseDouble(lat);
+                longitude = Double.parseDouble(lon);
+            } catch (NumberFormatException e) {
+                throw new SAXException("Point " + points.size() + " has invalid coordinates.");
+            }
+
+            isInPoint = true;
+            hasTime = false;
+            altitude = Double.NaN;
+            speed = Float.NaN;
+            bearing = Float.NaN;
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            return new InputSource(new StringReader(""));
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (!isInPoint) return;
+
+            try {
+                if (isPoint(localName)) {
+                    if (!hasTime) {
+                        throw new SAXException("Point " + points.size() + " doesn't have time.");
+                    }
+                    points.add(new TrackPoint(time, latitude, longitude, altitude, Float.NaN, speed, bearing));
+                    isInPoint = false;
+                } else if ("time".equals(localName)) {
+                    time = parseTime(text.toString());
+                    hasTime = true;
+                } else if ("ele".equals(localName)) {
+                    altitude = Double.parseDouble(text.toString().trim());
+                } else if ("speed".equals(localName)) {
+                    speed = Float.parseFloat(text.toString().trim());
+                } else if ("course".equals(localName)) {
+                    bearing = Float.parseFloat(text.toString().trim());
+                }
+            } catch (IllegalArgumentException e) {
+                throw new SAXException("Point " + points.size() + " cannot be read: " + e.getMessage());
+            }
+        }
+
+        private static boolean isPoint(String localName) {
+            return "trkpt".equals(localName) || "rtept".equals(localName);
+        }
+    }
+}
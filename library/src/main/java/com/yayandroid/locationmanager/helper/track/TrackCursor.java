@@ -0,0 +1,173 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import android.location.Location;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.helper.LocationUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the records of a {@linkplain TrackRecorder} one at a time, in the order they are appended, skipping the ones
+ * which don't match its {@linkplain TrackQuery}. Values are read straight from the mapped segments, so moving the
+ * cursor doesn't allocate, apart from mapping each segment once. Records which are appended after the cursor is
+ * created are not included.
+ *
+ * Not thread safe, each thread should read through its own cursor.
+ */
+public final class TrackCursor {
+
+    // Ranges of records to read, from start inclusive to end exclusive, each in a segment
+    private final TrackSegment[] segments;
+    private final ByteBuffer[] buffers;
+    private final int[] starts;
+    private final int[] ends;
+    private final int lastRange;
+    private final TrackQuery query;
+
+    private int range;
+    private int position = -1;
+    private int offset;
+    @Nullable private ByteBuffer buffer;
+
+    /**
+     * Reads given ranges from first inclusive to last exclusive. Buffer of a range is mapped from its segment
+     * if it is null.
+     */
+    TrackCursor(TrackSegment[] segments, ByteBuffer[] buffers, int[] starts, int[] ends, int firstRange,
+          int lastRange, TrackQuery query) {
+        this.segments = segments;
+        this.buffers = buffers;
+        this.starts = starts;
+        this.ends = ends;
+        this.range = firstRange;
+        this.lastRange = lastRange;
+        this.query = query;
+    }
+
+    /**
+     * Moves to the next record which matches the query of the cursor, and returns false once there are no more.
+     *
+     * @throws IOException if a segment cannot be mapped, such as when it is deleted in the meantime
+     * for exceeding {@linkplain TrackRecorderConfiguration#maxSegmentCount()}
+     */
+    public boolean moveToNext() throws IOException {
+        while (range < lastRange) {
+            if (buffer == null) {
+                buffer = buffers[range] != null ? buffers[range] : segments[range].map();
+                position = starts[range] - 1;
+            }
+
+            while (++position < ends[range]) {
+                offset = TrackSegment.offsetOf(position);
+                if (query.contains(buffer.getLong(offset + TrackSegment.TIME),
+                      buffer.getDouble(offset + TrackSegment.LATITUDE),
+                      buffer.getDouble(offset + TrackSegment.LONGITUDE))) {
+                    return true;
+                }
+            }
+
+            // Lets go of the mapping as soon as possible
+            buffers[range] = null;
+            buffer = null;
+            range++;
+        }
+        return false;
+    }
+
+    @NonNull
+    public Location toLocation() {
+        Location location = new Location(getProvider());
+        location.setTime(getTime());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            location.setElapsedRealtimeNanos(getElapsedRealtimeNanos());
+        }
+        location.setLatitude(getLatitude());
+        location.setLongitude(getLongitude());
+        if (hasAltitude()) location.setAltitude(getAltitude());
+        if (hasAccuracy()) location.setAccuracy(getAccuracy());
+        if (hasSpeed()) location.setSpeed(getSpeed());
+        if (hasBearing()) location.setBearing(getBearing());
+        return location;
+    }
+
+    // region Getters
+    /**
+     * Name of the provider which the record is received from, or null if it is not one of the known ones
+     */
+    @Nullable
+    public String getProvider() {
+        return LocationUtils.providerOf(getProviderType());
+    }
+
+    @ProviderType
+    public int getProviderType() {
+        return current().getInt(offset + TrackSegment.FLAGS) & TrackSegment.PROVIDER_TYPE_MASK;
+    }
+
+    public long getTime() {
+        return current().getLong(offset + TrackSegment.TIME);
+    }
+
+    public long getElapsedRealtimeNanos() {
+        return current().getLong(offset + TrackSegment.ELAPSED_REALTIME_NANOS);
+    }
+
+    public double getLatitude() {
+        return current().getDouble(offset + TrackSegment.LATITUDE);
+    }
+
+    public double getLongitude() {
+        return current().getDouble(offset + TrackSegment.LONGITUDE);
+    }
+
+    public double getAltitude() {
+        return current().getDouble(offset + TrackSegment.ALTITUDE);
+    }
+
+    public float getAccuracy() {
+        return current().getFloat(offset + TrackSegment.ACCURACY);
+    }
+
+    public float getSpeed() {
+        return current().getFloat(offset + TrackSegment.SPEED);
+    }
+
+    public float getBearing() {
+        return current().getFloat(offset + TrackSegment.BEARING);
+    }
+
+    public boolean hasAltitude() {
+        return hasFlag(TrackSegment.FLAG_HAS_ALTITUDE);
+    }
+
+    public boolean hasAccuracy() {
+        return hasFlag(TrackSegment.FLAG_HAS_ACCURACY);
+    }
+
+    public boolean hasSpeed() {
+        return hasFlag(TrackSegment.FLAG_HAS_SPEED);
+    }
+
+    public boolean hasBearing() {
+        return hasFlag(TrackSegment.FLAG_HAS_BEARING);
+    }
+    // endregion
+
+    private boolean hasFlag(int flag) {
+        return (current().getInt(offset + TrackSegment.FLAGS) & flag) != 0;
+    }
+
+    private ByteBuffer current() {
+        if (buffer == null) {
+            throw new IllegalStateException("Cursor is not on a record, call moveToNext() first.");
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,121 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the points written by {@linkplain TrackEncoder}, one at a time. Stream is read through a buffer,
+ * so there is no need to wrap it, and moving to the next point doesn't allocate. Not thread safe.
+ */
+public final class TrackDecoder {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int HEADER_SIZE = 4;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private final int precision;
+    private final double scale;
+
+    private long time;
+    private long latitude;
+    private long longitude;
+
+    /**
+     * Reads the header of the stream right away
+     *
+     * @throws IOException if the stream is not written by {@linkplain TrackEncoder}
+     */
+    public TrackDecoder(@NonNull InputStream in) throws IOException {
+        this.in = in;
+
+        if (!fill(HEADER_SIZE)) {
+            throw new IOException("Track is shorter than its header.");
+        }
+        int magic = ((buffer[position++] & 0xFF) << 8) | (buffer[position++] & 0xFF);
+        int version = buffer[position++] & 0xFF;
+        if (magic != TrackEncoder.MAGIC || version != TrackEncoder.VERSION) {
+            throw new IOException("Not an encoded track.");
+        }
+
+        precision = buffer[position++] & 0xFF;
+        if (precision > TrackEncoder.MAX_PRECISION) {
+            throw new IOException("Unsupported precision: " + precision);
+        }
+        scale = Math.pow(10, precision);
+    }
+
+    /**
+     * Moves to the next point, and returns false once the stream ends
+     *
+     * @throws IOException if the stream ends in the middle of a point
+     */
+    public boolean moveToNext() throws IOException {
+        if (position == limit && !fill(1)) return false;
+
+        time += unZigZag(readVarint());
+        latitude += unZigZag(readVarint());
+        longitude += unZigZag(readVarint());
+        return true;
+    }
+
+    /**
+     * Number of decimal digits the coordinates are written with
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public double getLatitude() {
+        return latitude / scale;
+    }
+
+    public double getLongitude() {
+        return longitude / scale;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position == limit && !fill(1)) {
+                throw new IOException("Track ends in the middle of a point.");
+            }
+
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Makes sure that at least given number of bytes are buffered, returns false if the stream ends before
+     */
+    private boolean fill(int required) throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+
+        while (limit < required) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read == -1) return false;
+            limit += read;
+        }
+        return true;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
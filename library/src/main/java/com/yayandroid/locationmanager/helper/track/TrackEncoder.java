@@ -0,0 +1,267 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.LocationSample;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a sequence of points compactly, to be read back by {@linkplain TrackDecoder}. Coordinates are quantized
+ * to given number of decimal digits, then the differences of time, latitude and longitude to the previous point are
+ * written as zig-zag varints, so that a point of a regular track mostly takes 4 to 6 bytes.
+ *
+ * With a tolerance, points which lie within that many meters of the line between their neighbours are dropped
+ * as they are received, so it works on live locations too: points since the last written one are kept in a window,
+ * and the last of them is written once the next point doesn't keep all of them within tolerance, or the window is
+ * full. Dropped points are then within tolerance of the written line, plus the quantization error.
+ *
+ * Points are gathered in a buffer and written to the stream once it is full, appending a point doesn't allocate.
+ * Not thread safe.
+ */
+public final class TrackEncoder {
+
+    static final int MAGIC = 0x4C54; // LT
+    static final int VERSION = 1;
+    static final int DEFAULT_PRECISION = 5; // About a meter
+    static final int MAX_PRECISION = 7;
+    static final int WINDOW_SIZE = 32;
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_POINT_SIZE = 3 * 10; // Three varints of at most 10 bytes each
+
+    private final OutputStream out;
+    private final double scale;
+    private final double toleranceSquared;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+
+    // Last written point, quantized
+    private long lastTime;
+    private long lastLatitude;
+    private long lastLongitude;
+
+    // Last written point as received, and the ones received after it
+    private boolean hasAnchor;
+    private double anchorLatitude;
+    private double anchorLongitude;
+    private double anchorMetersPerLongitude;
+    private final long[] windowTimes = new long[WINDOW_SIZE];
+    private final double[] windowLatitudes = new double[WINDOW_SIZE];
+    private final double[] windowLongitudes = new double[WINDOW_SIZE];
+    private int windowSize;
+
+    private long receivedCount;
+    private long writtenCount;
+
+    /**
+     * Same as {@linkplain #TrackEncoder(OutputStream, int, double)} with precision of 5 digits, which is about
+     * a meter, and without dropping any point
+     */
+    public TrackEncoder(@NonNull OutputStream out) {
+        this(out, DEFAULT_PRECISION, 0);
+    }
+
+    /**
+     * @param precision number of decimal digits coordinates are kept with, between 0 and 7
+     * @param tolerance maximum distance in meters that a dropped point may be away from the written line,
+     * 0 to write every point
+     */
+    public TrackEncoder(@NonNull OutputStream out, int precision, double tolerance) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between 0 and " + MAX_PRECISION + ".");
+        }
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance cannot be set to negative value.");
+        }
+
+        this.out = out;
+        this.scale = Math.pow(10, precision);
+        this.toleranceSquared = tolerance * tolerance;
+
+        buffer[length++] = (byte) (MAGIC >>> 8);
+        buffer[length++] = (byte) MAGIC;
+        buffer[length++] = (byte) VERSION;
+        buffer[length++] = (byte) precision;
+    }
+
+    /**
+     * Reads all the records of given cursor, simplifies them with {@linkplain TrackSimplifier} if a tolerance is
+     * given, and writes them to given stream. Unlike appending them one by one, this sees the whole track, so it
+     * usually keeps fewer points for the same tolerance.
+     *
+     * @return number of points which are written
+     */
+    public static int encode(@NonNull TrackCursor cursor, @NonNull OutputStream out, int precision,
+          double tolerance) throws IOException {
+        int size = 0;
+        long[] times = new long[256];
+        double[] latitudes = new double[256];
+        double[] longitudes = new double[256];
+        while (cursor.moveToNext()) {
+            if (size == times.length) {
+                times = grow(times);
+                latitudes = grow(latitudes);
+                longitudes = grow(longitudes);
+            }
+            times[size] = cursor.getTime();
+            latitudes[size] = cursor.getLatitude();
+            longitudes[size] = cursor.getLongitude();
+            size++;
+        }
+
+        boolean[] keep = new boolean[size];
+        int kept = size;
+        if (tolerance > 0) {
+            kept = TrackSimplifier.simplify(latitudes, longitudes, size, tolerance, keep);
+        } else {
+            for (int i = 0; i < size; i++) {
+                keep[i] = true;
+            }
+        }
+
+        TrackEncoder encoder = new TrackEncoder(out, precision, 0);
+        for (int i = 0; i < size; i++) {
+            if (keep[i]) encoder.append(times[i], latitudes[i], longitudes[i]);
+        }
+        encoder.finish();
+        return kept;
+    }
+
+    public void append(@NonNull Location location) throws IOException {
+        append(location.getTime(), location.getLatitude(), location.getLongitude());
+    }
+
+    public void append(@NonNull LocationSample sample) throws IOException {
+        append(sample.getTime(), sample.getLatitude(), sample.getLongitude());
+    }
+
+    /**
+     * Appends given point, which may be written right away, later, or not at all, depending on the tolerance.
+     * Stream is only written to when the buffer gets full.
+     *
+     * @param time in milliseconds, expected to increase from one point to the next for the best compression
+     */
+    public void append(long time, double latitude, double longitude) throws IOException {
+        receivedCount++;
+
+        if (toleranceSquared == 0 || !hasAnchor) {
+            hasAnchor = true;
+            setAnchor(latitude, longitude);
+            write(time, latitude, longitude);
+            return;
+        }
+
+        if (windowSize == WINDOW_SIZE || (windowSize > 0 && !isWindowWithinTolerance(latitude, longitude))) {
+            int last = windowSize - 1;
+            setAnchor(windowLatitudes[last], windowLongitudes[last]);
+            write(windowTimes[last], anchorLatitude, anchorLongitude);
+            windowSize = 0;
+        }
+
+        windowTimes[windowSize] = time;
+        windowLatitudes[windowSize] = latitude;
+        windowLongitudes[windowSize] = longitude;
+        windowSize++;
+    }
+
+    /**
+     * Writes the buffered points to the stream and flushes it. Points which are still in the simplification window
+     * are kept there, see {@linkplain #finish()}
+     */
+    public void flush() throws IOException {
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the last received point, if it is not written yet, and flushes. The track still can be appended to
+     * afterwards, the point is then the start of the next simplified line.
+     */
+    public void finish() throws IOException {
+        if (windowSize > 0) {
+            int last = windowSize - 1;
+            setAnchor(windowLatitudes[last], windowLongitudes[last]);
+            write(windowTimes[last], anchorLatitude, anchorLongitude);
+            windowSize = 0;
+        }
+        flush();
+    }
+
+    /**
+     * Number of points appended so far
+     */
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * Number of points written so far, the rest are either dropped or still in the simplification window
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+
+    private boolean isWindowWithinTolerance(double latitude, double longitude) {
+        for (int i = 0; i < windowSize; i++) {
+            double distance = TrackSimplifier.distanceSquaredToSegment(windowLatitudes[i], windowLongitudes[i],
+                  anchorLatitude, anchorLongitude, latitude, longitude, anchorMetersPerLongitude);
+            if (distance > toleranceSquared) return false;
+        }
+        return true;
+    }
+
+    private void setAnchor(double latitude, double longitude) {
+        anchorLatitude = latitude;
+        anchorLongitude = longitude;
+        anchorMetersPerLongitude = TrackSimplifier.metersPerLongitudeAt(latitude);
+    }
+
+    private void write(long time, double latitude, double longitude) throws IOException {
+        if (length + MAX_POINT_SIZE > buffer.length) {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+
+        long quantizedLatitude = Math.round(latitude * scale);
+        long quantizedLongitude = Math.round(longitude * scale);
+        writeVarint(zigZag(time - lastTime));
+        writeVarint(zigZag(quantizedLatitude - lastLatitude));
+        writeVarint(zigZag(quantizedLongitude - lastLongitude));
+
+        lastTime = time;
+        lastLatitude = quantizedLatitude;
+        lastLongitude = quantizedLongitude;
+        writtenCount++;
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long[] grow(long[] array) {
+        long[] grown = new long[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static double[] grow(double[] array) {
+        double[] grown = new double[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -0,0 +1,534 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Index over the records of a {@linkplain TrackRecorder}, so that queries skip whole blocks of records instead of
+ * reading all of them.
+ *
+ * Records are grouped into blocks of {@linkplain #BLOCK_SIZE} in the order they are appended, so that each block
+ * covers a short span of time. Every block keeps its time range, its bounding box, and which cells of a grid laid
+ * over that box have any record in them. A block is only read if its time range overlaps the query, and any of its
+ * occupied cells overlaps the query area. Since a block is a piece of a path, the grid rules out most of its
+ * bounding box, which a box alone would not.
+ *
+ * Index is built by reading every record once, then {@linkplain #refresh()} only reads the ones appended since.
+ * It takes less than 100 bytes per block. Thread safe.
+ */
+public final class TrackIndex {
+
+    static final int BLOCK_SIZE = 256;
+    static final int GRID_SIZE = 8; // 64 cells, so that they fit in a long
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int PARALLEL_THRESHOLD = 16; // blocks which are read by a single task
+    private static final long ROW_MASK = (1L << GRID_SIZE) - 1;
+
+    private final TrackRecorder recorder;
+
+    // Summaries of the blocks in the order they are appended, records of a block are from start to end exclusive
+    private int blockCount;
+    private TrackSegment[] blockSegments = new TrackSegment[INITIAL_CAPACITY];
+    private ByteBuffer[] blockBuffers = new ByteBuffer[INITIAL_CAPACITY];
+    private int[] blockStarts = new int[INITIAL_CAPACITY];
+    private int[] blockEnds = new int[INITIAL_CAPACITY];
+    private long[] blockMinTimes = new long[INITIAL_CAPACITY];
+    private long[] blockMaxTimes = new long[INITIAL_CAPACITY];
+    private double[] blockMinLatitudes = new double[INITIAL_CAPACITY];
+    private double[] blockMinLongitudes = new double[INITIAL_CAPACITY];
+    private double[] blockMaxLatitudes = new double[INITIAL_CAPACITY];
+    private double[] blockMaxLongitudes = new double[INITIAL_CAPACITY];
+    private long[] blockCells = new long[INITIAL_CAPACITY];
+
+    // Last segment which is indexed, and how many of its records
+    @Nullable private TrackSegment lastSegment;
+    private int lastSegmentCount;
+
+    private TrackIndex(TrackRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Indexes the records which given recorder has so far. This reads all of them, so it is better not to call it
+     * on the main thread.
+     */
+    public static TrackIndex build(@NonNull TrackRecorder recorder) throws IOException {
+        TrackIndex index = new TrackIndex(recorder);
+        index.refresh();
+        return index;
+    }
+
+    /**
+     * Indexes the records appended since the last time, and forgets the ones whose segments are deleted
+     */
+    public synchronized void refresh() throws IOException {
+        TrackRecorder.Snapshot snapshot = recorder.snapshot(Long.MIN_VALUE, Long.MAX_VALUE);
+        TrackSegment[] segments = snapshot.segments;
+
+        // Segments are deleted from the oldest one on
+        long oldestIndex = segments.length > 0 ? segments[0].index() : Long.MAX_VALUE;
+        int deleted = 0;
+        while (deleted < blockCount && blockSegments[deleted].index() < oldestIndex) {
+            deleted++;
+        }
+        removeBlocks(deleted);
+        if (lastSegment != null && lastSegment.index() < oldestIndex) {
+            lastSegment = null;
+            lastSegmentCount = 0;
+        }
+
+        // Last block of the segment which was being appended to may have grown since
+        int last = blockCount - 1;
+        if (last >= 0 && blockSegments[last] == lastSegment && blockEnds[last] - blockStarts[last] < BLOCK_SIZE) {
+            lastSegmentCount = blockStarts[last];
+            removeLastBlock();
+        }
+
+        for (int i = 0; i < segments.length; i++) {
+            TrackSegment segment = segments[i];
+            if (lastSegment != null && segment.index() < lastSegment.index()) continue;
+
+            int position = segment == lastSegment ? lastSegmentCount : 0;
+            int count = snapshot.counts[i];
+            if (position < count) {
+                ByteBuffer buffer = snapshot.buffers[i] != null ? snapshot.buffers[i] : segment.map();
+                while (position < count) {
+                    int end = Math.min(position + BLOCK_SIZE, count);
+                    addBlock(segment, buffer, position, end);
+                    position = end;
+                }
+            }
+
+            lastSegment = segment;
+            lastSegmentCount = count;
+        }
+    }
+
+    /**
+     * Returns a cursor over the indexed records which match given query, in the order they are appended.
+     * Records appended after the last {@linkplain #refresh()} are not included.
+     */
+    @NonNull
+    public TrackCursor query(@NonNull TrackQuery query) {
+        Selection selection = select(query);
+        return selection.cursor(0, selection.size, query);
+    }
+
+    /**
+     * Returns where the device was at given time, interpolated between the records right before and after it.
+     *
+     * @return null if there is no record before or after given time
+     */
+    @Nullable
+    public synchronized Position positionAt(long time) {
+        // Closest records are either in the blocks whose time range contains the time, or they are
+        // the last record of the block which ends right before it, and the first of the one which starts right after
+        int previousBlock = -1;
+        int nextBlock = -1;
+        Bracket bracket = new Bracket(time);
+        for (int block = 0; block < blockCount; block++) {
+            if (blockMaxTimes[block] < time) {
+                if (previousBlock == -1 || blockMaxTimes[block] > blockMaxTimes[previousBlock]) previousBlock = block;
+            } else if (blockMinTimes[block] > time) {
+                if (nextBlock == -1 || blockMinTimes[block] < blockMinTimes[nextBlock]) nextBlock = block;
+            } else {
+                bracket.include(blockBuffers[block], blockStarts[block], blockEnds[block]);
+            }
+        }
+        if (previousBlock != -1) {
+            bracket.include(blockBuffers[previousBlock], blockStarts[previousBlock], blockEnds[previousBlock]);
+        }
+        if (nextBlock != -1) {
+            bracket.include(blockBuffers[nextBlock], blockStarts[nextBlock], blockEnds[nextBlock]);
+        }
+
+        return bracket.toPosition();
+    }
+
+    /**
+     * Runs given aggregation over the indexed records which match given query, on the calling thread
+     */
+    public <A> A aggregate(@NonNull TrackQuery query, @NonNull Aggregation<A> aggregation) {
+        Selection selection = select(query);
+        return selection.aggregate(0, selection.size, query, aggregation);
+    }
+
+    /**
+     * Same as {@linkplain #aggregate(TrackQuery, Aggregation)}, but the matching blocks are split among the threads
+     * of given pool, and their results are merged in the order of the records
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    public <A> A aggregate(@NonNull TrackQuery query, @NonNull Aggregation<A> aggregation,
+          @NonNull ForkJoinPool pool) {
+        Selection selection = select(query);
+        return pool.invoke(new AggregateTask<>(selection, query, aggregation, 0, selection.size));
+    }
+
+    /**
+     * Number of blocks which are read for given query
+     */
+    // For test purposes
+    int countBlocks(@NonNull TrackQuery query) {
+        return select(query).size;
+    }
+
+    private synchronized Selection select(TrackQuery query) {
+        int size = 0;
+        int[] matching = new int[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            if (matches(block, query)) matching[size++] = block;
+        }
+
+        Selection selection = new Selection(size);
+        for (int i = 0; i < size; i++) {
+            int block = matching[i];
+            selection.segments[i] = blockSegments[block];
+            selection.buffers[i] = blockBuffers[block];
+            selection.starts[i] = blockStarts[block];
+            selection.ends[i] = blockEnds[block];
+        }
+        return selection;
+    }
+
+    private boolean matches(int block, TrackQuery query) {
+        if (blockMaxTimes[block] < query.fromTime() || blockMinTimes[block] > query.toTime()) return false;
+        if (!query.hasArea()) return true;
+
+        double minLatitude = blockMinLatitudes[block];
+        double minLongitude = blockMinLongitudes[block];
+        double maxLatitude = blockMaxLatitudes[block];
+        double maxLongitude = blockMaxLongitudes[block];
+        if (maxLatitude < query.minLatitude() || minLatitude > query.maxLatitude()
+              || maxLongitude < query.minLongitude() || minLongitude > query.maxLongitude()) {
+            return false;
+        }
+
+        // Cells which the part of the query area inside the block box falls into
+        double latitudeSpan = maxLatitude - minLatitude;
+        double longitudeSpan = maxLongitude - minLongitude;
+        int fromX = cellOf(Math.max(query.minLongitude(), minLongitude), minLongitude, longitudeSpan);
+        int toX = cellOf(Math.min(query.maxLongitude(), maxLongitude), minLongitude, longitudeSpan);
+        int fromY = cellOf(Math.max(query.minLatitude(), minLatitude), minLatitude, latitudeSpan);
+        int toY = cellOf(Math.min(query.maxLatitude(), maxLatitude), minLatitude, latitudeSpan);
+
+        long columns = (ROW_MASK >>> (GRID_SIZE - 1 - toX)) & ~((1L << fromX) - 1);
+        long cells = blockCells[block];
+        for (int y = fromY; y <= toY; y++) {
+            if (((cells >>> (y * GRID_SIZE)) & columns) != 0) return true;
+        }
+        return false;
+    }
+
+    private void addBlock(TrackSegment segment, ByteBuffer buffer, int start, int end) {
+        if (blockCount == blockSegments.length) grow();
+
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        for (int position = start; position < end; position++) {
+            int offset = TrackSegment.offsetOf(position);
+            long time = buffer.getLong(offset + TrackSegment.TIME);
+            double latitude = buffer.getDouble(offset + TrackSegment.LATITUDE);
+            double longitude = buffer.getDouble(offset + TrackSegment.LONGITUDE);
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            minLatitude = Math.min(minLatitude, latitude);
+            minLongitude = Math.min(minLongitude, longitude);
+            maxLatitude = Math.max(maxLatitude, latitude);
+            maxLongitude = Math.max(maxLongitude, longitude);
+        }
+
+        double latitudeSpan = maxLatitude - minLatitude;
+        double longitudeSpan = maxLongitude - minLongitude;
+        long cells = 0;
+        for (int position = start; position < end; position++) {
+            int offset = TrackSegment.offsetOf(position);
+            int x = cellOf(buffer.getDouble(offset + TrackSegment.LONGITUDE), minLongitude, longitudeSpan);
+            int y = cellOf(buffer.getDouble(offset + TrackSegment.LATITUDE), minLatitude, latitudeSpan);
+            cells |= 1L << (y * GRID_SIZE + x);
+        }
+
+        int block = blockCount++;
+        blockSegments[block] = segment;
+        blockBuffers[block] = buffer;
+        blockStarts[block] = start;
+        blockEnds[block] = end;
+        blockMinTimes[block] = minTime;
+        blockMaxTimes[block] = maxTime;
+        blockMinLatitudes[block] = minLatitude;
+        blockMinLongitudes[block] = minLongitude;
+        blockMaxLatitudes[block] = maxLatitude;
+        blockMaxLongitudes[block] = maxLongitude;
+        blockCells[block] = cells;
+    }
+
+    private void removeLastBlock() {
+        blockCount--;
+        blockSegments[blockCount] = null;
+        blockBuffers[blockCount] = null;
+    }
+
+    /**
+     * Removes given number of blocks from the beginning
+     */
+    private void removeBlocks(int count) {
+        if (count == 0) return;
+
+        int remaining = blockCount - count;
+        System.arraycopy(blockSegments, count, blockSegments, 0, remaining);
+        System.arraycopy(blockBuffers, count, blockBuffers, 0, remaining);
+        System.arraycopy(blockStarts, count, blockStarts, 0, remaining);
+        System.arraycopy(blockEnds, count, blockEnds, 0, remaining);
+        System.arraycopy(blockMinTimes, count, blockMinTimes, 0, remaining);
+        System.arraycopy(blockMaxTimes, count, blockMaxTimes, 0, remaining);
+        System.arraycopy(blockMinLatitudes, count, blockMinLatitudes, 0, remaining);
+        System.arraycopy(blockMinLongitudes, count, blockMinLongitudes, 0, remaining);
+        System.arraycopy(blockMaxLatitudes, count, blockMaxLatitudes, 0, remaining);
+        System.arraycopy(blockMaxLongitudes, count, blockMaxLongitudes, 0, remaining);
+        System.arraycopy(blockCells, count, blockCells, 0, remaining);
+        while (blockCount > remaining) {
+            removeLastBlock();
+        }
+    }
+
+    private void grow() {
+        int capacity = blockSegments.length * 2;
+        TrackSegment[] segments = new TrackSegment[capacity];
+        System.arraycopy(blockSegments, 0, segments, 0, blockCount);
+        blockSegments = segments;
+        ByteBuffer[] buffers = new ByteBuffer[capacity];
+        System.arraycopy(blockBuffers, 0, buffers, 0, blockCount);
+        blockBuffers = buffers;
+        blockStarts = grow(blockStarts, capacity);
+        blockEnds = grow(blockEnds, capacity);
+        blockMinTimes = grow(blockMinTimes, capacity);
+        blockMaxTimes = grow(blockMaxTimes, capacity);
+        blockMinLatitudes = grow(blockMinLatitudes, capacity);
+        blockMinLongitudes = grow(blockMinLongitudes, capacity);
+        blockMaxLatitudes = grow(blockMaxLatitudes, capacity);
+        blockMaxLongitudes = grow(blockMaxLongitudes, capacity);
+        blockCells = grow(blockCells, capacity);
+    }
+
+    private int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, blockCount);
+        return grown;
+    }
+
+    private long[] grow(long[] array, int capacity) {
+        long[] grown = new long[capacity];
+        System.arraycopy(array, 0, grown, 0, blockCount);
+        return grown;
+    }
+
+    private double[] grow(double[] array, int capacity) {
+        double[] grown = new double[capacity];
+        System.arraycopy(array, 0, grown, 0, blockCount);
+        return grown;
+    }
+
+    private static int cellOf(double value, double min, double span) {
+        if (span == 0) return 0;
+        return Math.min(GRID_SIZE - 1, (int) ((value - min) / span * GRID_SIZE));
+    }
+
+    /**
+     * Computation over the records of a query, such as counting them or measuring the distance they cover.
+     * When it is run in parallel, each task creates its own result and adds its records to it, then the results
+     * are merged; so only the results are required to be separate, not synchronized.
+     */
+    public interface Aggregation<A> {
+
+        @NonNull
+        A create();
+
+        /**
+         * Adds the record which given cursor is on to given result. Cursor must not be moved.
+         */
+        void add(@NonNull A result, @NonNull TrackCursor cursor);
+
+        /**
+         * Merges the results of two consecutive runs, first one's records are appended before the second one's
+         */
+        @NonNull
+        A merge(@NonNull A first, @NonNull A second);
+    }
+
+    public static final class Position {
+
+        private final long time;
+        private final double latitude;
+        private final double longitude;
+        private final long previousTime;
+        private final long nextTime;
+
+        Position(long time, double latitude, double longitude, long previousTime, long nextTime) {
+            this.time = time;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.previousTime = previousTime;
+            this.nextTime = nextTime;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * Time of the record before, which the position is interpolated from; same as {@linkplain #getTime()}
+         * if there is a record at that time
+         */
+        public long getPreviousTime() {
+            return previousTime;
+        }
+
+        /**
+         * Time of the record after, which the position is interpolated to; same as {@linkplain #getTime()}
+         * if there is a record at that time
+         */
+        public long getNextTime() {
+            return nextTime;
+        }
+    }
+
+    /**
+     * Keeps the closest records before and after a time
+     */
+    private static final class Bracket {
+
+        private final long time;
+        private boolean hasPrevious;
+        private long previousTime;
+        private double previousLatitude;
+        private double previousLongitude;
+        private boolean hasNext;
+        private long nextTime;
+        private double nextLatitude;
+        private double nextLongitude;
+
+        Bracket(long time) {
+            this.time = time;
+        }
+
+        void include(ByteBuffer buffer, int start, int end) {
+            for (int position = start; position < end; position++) {
+                int offset = TrackSegment.offsetOf(position);
+                long recordTime = buffer.getLong(offset + TrackSegment.TIME);
+                if (recordTime <= time && (!hasPrevious || recordTime > previousTime)) {
+                    hasPrevious = true;
+                    previousTime = recordTime;
+                    previousLatitude = buffer.getDouble(offset + TrackSegment.LATITUDE);
+                    previousLongitude = buffer.getDouble(offset + TrackSegment.LONGITUDE);
+                }
+                if (recordTime >= time && (!hasNext || recordTime < nextTime)) {
+                    hasNext = true;
+                    nextTime = recordTime;
+                    nextLatitude = buffer.getDouble(offset + TrackSegment.LATITUDE);
+                    nextLongitude = buffer.getDouble(offset + TrackSegment.LONGITUDE);
+                }
+            }
+        }
+
+        @Nullable
+        Position toPosition() {
+            if (!hasPrevious || !hasNext) return null;
+            if (previousTime == nextTime) {
+                return new Position(time, previousLatitude, previousLongitude, previousTime, nextTime);
+            }
+
+            double ratio = (double) (time - previousTime) / (nextTime - previousTime);
+            return new Position(time, previousLatitude + (nextLatitude - previousLatitude) * ratio,
+                  previousLongitude + (nextLongitude - previousLongitude) * ratio, previousTime, nextTime);
+        }
+    }
+
+    /**
+     * Blocks which match a query, copied out of the index so that they can be read without holding its lock
+     */
+    private static final class Selection {
+
+        final int size;
+        final TrackSegment[] segments;
+        final ByteBuffer[] buffers;
+        final int[] starts;
+        final int[] ends;
+
+        Selection(int size) {
+            this.size = size;
+            this.segments = new TrackSegment[size];
+            this.buffers = new ByteBuffer[size];
+            this.starts = new int[size];
+            this.ends = new int[size];
+        }
+
+        TrackCursor cursor(int from, int to, TrackQuery query) {
+            return new TrackCursor(segments, buffers, starts, ends, from, to, query);
+        }
+
+        <A> A aggregate(int from, int to, TrackQuery query, Aggregation<A> aggregation) {
+            A result = aggregation.create();
+            TrackCursor cursor = cursor(from, to, query);
+            try {
+                while (cursor.moveToNext()) {
+                    aggregation.add(result, cursor);
+                }
+            } catch (IOException e) {
+                // Blocks are read through the buffers they are indexed with, segments are never mapped again
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private static final class AggregateTask<A> extends RecursiveTask<A> {
+
+        private final Selection selection;
+        private final TrackQuery query;
+        private final Aggregation<A> aggregation;
+        private final int from;
+        private final int to;
+
+        AggregateTask(Selection selection, TrackQuery query, Aggregation<A> aggregation, int from, int to) {
+            this.selection = selection;
+            this.query = query;
+            this.aggregation = aggregation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return selection.aggregate(from, to, query, aggregation);
+            }
+
+            int middle = (from + to) >>> 1;
+            AggregateTask<A> first = new AggregateTask<>(selection, query, aggregation, from, middle);
+            first.fork();
+            A second = new AggregateTask<>(selection, query, aggregation, middle, to).compute();
+            return aggregation.merge(first.join(), second);
+        }
+    }
+}
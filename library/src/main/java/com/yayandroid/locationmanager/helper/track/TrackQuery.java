@@ -0,0 +1,114 @@
+package com.yayandroid.locationmanager.helper.track;
+
+/**
+ * Time range and area which the records of a {@linkplain TrackCursor} are limited to, see
+ * {@linkplain TrackIndex#query(TrackQuery)}. Both bounds of each are inclusive.
+ */
+public final class TrackQuery {
+
+    private final long fromTime;
+    private final long toTime;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final double maxLatitude;
+    private final double maxLongitude;
+    private final boolean hasArea;
+
+    private TrackQuery(Builder builder) {
+        this.fromTime = builder.fromTime;
+        this.toTime = builder.toTime;
+        this.minLatitude = builder.minLatitude;
+        this.minLongitude = builder.minLongitude;
+        this.maxLatitude = builder.maxLatitude;
+        this.maxLongitude = builder.maxLongitude;
+        this.hasArea = builder.hasArea;
+    }
+
+    // region Getters
+    public long fromTime() {
+        return fromTime;
+    }
+
+    public long toTime() {
+        return toTime;
+    }
+
+    public double minLatitude() {
+        return minLatitude;
+    }
+
+    public double minLongitude() {
+        return minLongitude;
+    }
+
+    public double maxLatitude() {
+        return maxLatitude;
+    }
+
+    public double maxLongitude() {
+        return maxLongitude;
+    }
+
+    /**
+     * Whether the records are limited to an area at all, or only by time
+     */
+    public boolean hasArea() {
+        return hasArea;
+    }
+    // endregion
+
+    boolean contains(long time, double latitude, double longitude) {
+        return time >= fromTime && time <= toTime
+              && (!hasArea || (latitude >= minLatitude && latitude <= maxLatitude
+              && longitude >= minLongitude && longitude <= maxLongitude));
+    }
+
+    public static class Builder {
+
+        private long fromTime = Long.MIN_VALUE;
+        private long toTime = Long.MAX_VALUE;
+        private double minLatitude = -90;
+        private double minLongitude = -180;
+        private double maxLatitude = 90;
+        private double maxLongitude = 180;
+        private boolean hasArea = false;
+
+        /**
+         * Time range of the records in milliseconds.
+         *
+         * Default is all times
+         */
+        public Builder between(long fromTime, long toTime) {
+            if (fromTime > toTime) {
+                throw new IllegalArgumentException("fromTime cannot be after toTime.");
+            }
+
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            return this;
+        }
+
+        /**
+         * Bounding box of the records in degrees. Boxes which cross the antimeridian are not supported,
+         * query both sides of it instead.
+         *
+         * Default is the whole world
+         */
+        public Builder within(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+                throw new IllegalArgumentException("Minimum of the area cannot be greater than its maximum.");
+            }
+
+            this.minLatitude = minLatitude;
+            this.minLongitude = minLongitude;
+            this.maxLatitude = maxLatitude;
+            this.maxLongitude = maxLongitude;
+            this.hasArea = true;
+            return this;
+        }
+
+        public TrackQuery build() {
+            return new TrackQuery(this);
+        }
+    }
+}
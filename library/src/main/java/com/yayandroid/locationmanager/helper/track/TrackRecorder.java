@@ -0,0 +1,430 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.LocationSample;
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
+import com.yayandroid.locationmanager.helper.LocationUtils;
+import com.yayandroid.locationmanager.helper.LogUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only store of the locations received while keeping tracking, see
+ * {@linkplain com.yayandroid.locationmanager.LocationManager.Builder#record(TrackRecorder)}
+ *
+ * Locations are written as fixed-width records into memory-mapped segment files, so appending one is a handful of
+ * memory writes: it never waits for disk, and never allocates. Mapped pages belong to the kernel and survive the
+ * process; a background thread forces them to disk in groups, either every
+ * {@linkplain TrackRecorderConfiguration#commitInterval()} or once
+ * {@linkplain TrackRecorderConfiguration#commitBatchSize()} records are waiting, so that they survive a crash of
+ * the device as well. The same thread creates the next segment ahead of time, so that appending can move on to it
+ * without any I/O once the current one is full.
+ *
+ * Opening a recorder on a directory which is already written continues from its last valid record, see
+ * {@linkplain TrackSegment}.
+ */
+public final class TrackRecorder implements Closeable {
+
+    private static final String TAG = "TrackRecorder";
+    private static final String DIRECTORY_NAME = "locationmanager-track";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".trk";
+
+    private final File directory;
+    private final TrackRecorderConfiguration configuration;
+    private final Object commitLock = new Object();
+    private final Committer committer = new Committer();
+
+    // Guarded by this
+    private final List<TrackSegment> segments = new ArrayList<>();
+    private final List<TrackSegment> retired = new ArrayList<>();
+    private TrackSegment active;
+    private TrackSegment next;
+    private long nextIndex;
+    private long appendedCount;
+    private long committedCount;
+    private long droppedCount;
+    private boolean isCommitRequested;
+    private boolean isClosed;
+
+    private TrackRecorder(File directory, TrackRecorderConfiguration configuration) {
+        this.directory = directory;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Same as {@linkplain #open(File, TrackRecorderConfiguration)} on a directory in application's no-backup
+     * files directory
+     */
+    public static TrackRecorder open(@NonNull Context context, @NonNull TrackRecorderConfiguration configuration)
+          throws IOException {
+        File directory = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+              ? context.getNoBackupFilesDir() : context.getFilesDir();
+        return open(new File(directory, DIRECTORY_NAME), configuration);
+    }
+
+    /**
+     * Opens the segments in given directory, creating it if necessary, and recovers the last one if the process
+     * died while appending to it. Segments which cannot be read are skipped. This does I/O, so it is better
+     * not to call it on the main thread.
+     *
+     * @throws IOException if the directory or the first segment cannot be created
+     */
+    public static TrackRecorder open(@NonNull File directory, @NonNull TrackRecorderConfiguration configuration)
+          throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+
+        TrackRecorder recorder = new TrackRecorder(directory, configuration);
+        recorder.load();
+        recorder.committer.start();
+        return recorder;
+    }
+
+    private void load() throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to list directory " + directory);
+        }
+
+        List<TrackSegment> opened = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) continue;
+
+            try {
+                opened.add(TrackSegment.open(file));
+            } catch (IOException e) {
+                LogUtils.logE(TAG, "Skipping segment %s: %s", name, e.getMessage());
+            }
+        }
+
+        Collections.sort(opened, new Comparator<TrackSegment>() {
+            @Override
+            public int compare(TrackSegment first, TrackSegment second) {
+                return first.index() < second.index() ? -1 : (first.index() == second.index() ? 0 : 1);
+            }
+        });
+
+        for (int i = 0, size = opened.size(); i < size; i++) {
+            TrackSegment segment = opened.get(i);
+            nextIndex = segment.index() + 1;
+
+            if (i == size - 1 && !segment.isSealed() && !segment.isFull()) {
+                active = segment;
+            } else if (segment.count() == 0) {
+                segment.delete();
+                continue;
+            } else if (!segment.isSealed()) {
+                // Process died before the segment could be sealed
+                segment.seal();
+                segment.force();
+                segment.release();
+            }
+            segments.add(segment);
+        }
+
+        if (active == null) {
+            active = createSegment(nextIndex++);
+            segments.add(active);
+        }
+        LogUtils.logI(TAG, "Opened %d segments, appending to segment %d", segments.size(), active.index());
+    }
+
+    /**
+     * Appends given location, on the calling thread and without blocking. If the current segment is full and
+     * the next one is not created yet, location is dropped instead, see {@linkplain #getDroppedCount()}
+     */
+    public void append(@NonNull Location location) {
+        long elapsedRealtimeNanos = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+              ? location.getElapsedRealtimeNanos() : 0L;
+        int flags = TrackSegment.flagsOf(LocationUtils.providerTypeOf(location.getProvider()),
+              location.hasAltitude(), location.hasAccuracy(), location.hasSpeed(), location.hasBearing());
+        append(flags, location.getTime(), elapsedRealtimeNanos, location.getLatitude(), location.getLongitude(),
+              location.getAltitude(), location.getAccuracy(), location.getSpeed(), location.getBearing());
+    }
+
+    /**
+     * Same as {@linkplain #append(Location)}
+     */
+    public void append(@NonNull LocationSample sample) {
+        int flags = TrackSegment.flagsOf(LocationUtils.providerTypeOf(sample.getProvider()),
+              sample.hasAltitude(), sample.hasAccuracy(), sample.hasSpeed(), sample.hasBearing());
+        append(flags, sample.getTime(), sample.getElapsedRealtimeNanos(), sample.getLatitude(),
+              sample.getLongitude(), sample.getAltitude(), sample.getAccuracy(), sample.getSpeed(),
+              sample.getBearing());
+    }
+
+    private synchronized void append(int flags, long time, long elapsedRealtimeNanos, double latitude,
+          double longitude, double altitude, float accuracy, float speed, float bearing) {
+        if (isClosed) return;
+
+        if (active.isFull() && !rollOver()) {
+            droppedCount++;
+            return;
+        }
+
+        active.append(flags, time, elapsedRealtimeNanos, latitude, longitude, altitude, accuracy, speed, bearing);
+        appendedCount++;
+
+        if (!isCommitRequested && appendedCount - committedCount >= configuration.commitBatchSize()) {
+            isCommitRequested = true;
+            LockSupport.unpark(committer);
+        }
+    }
+
+    /**
+     * Moves on to the segment which is created ahead of time, leaving the full one to the committer
+     */
+    private boolean rollOver() {
+        LockSupport.unpark(committer);
+        if (next == null) return false;
+
+        active.seal();
+        retired.add(active);
+        active = next;
+        next = null;
+        segments.add(active);
+        return true;
+    }
+
+    /**
+     * Returns a cursor over all the records appended so far
+     */
+    @NonNull
+    public TrackCursor cursor() {
+        return cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a cursor over the records appended so far, whose time is between given ones, both inclusive.
+     * Segments which don't have any record in that range are skipped without being read.
+     */
+    @NonNull
+    public TrackCursor cursor(long fromTime, long toTime) {
+        return cursor(new TrackQuery.Builder().between(fromTime, toTime).build());
+    }
+
+    /**
+     * Same as {@linkplain #cursor(long, long)} with the time range of given query, records are then filtered by
+     * its area as they are read. See {@linkplain TrackIndex} in order to skip the ones outside of the area as well.
+     */
+    @NonNull
+    public TrackCursor cursor(@NonNull TrackQuery query) {
+        Snapshot snapshot = snapshot(query.fromTime(), query.toTime());
+        int size = snapshot.segments.length;
+        return new TrackCursor(snapshot.segments, snapshot.buffers, new int[size], snapshot.counts, 0, size, query);
+    }
+
+    /**
+     * Returns the segments which have records in given time range, along with their current count
+     */
+    synchronized Snapshot snapshot(long fromTime, long toTime) {
+        List<TrackSegment> matching = new ArrayList<>();
+        for (int i = 0, size = segments.size(); i < size; i++) {
+            TrackSegment segment = segments.get(i);
+            if (segment.count() > 0 && segment.minTime() <= toTime && segment.maxTime() >= fromTime) {
+                matching.add(segment);
+            }
+        }
+
+        int size = matching.size();
+        Snapshot snapshot = new Snapshot(size);
+        for (int i = 0; i < size; i++) {
+            TrackSegment segment = matching.get(i);
+            ByteBuffer buffer = segment.buffer();
+            snapshot.segments[i] = segment;
+            // Segment may still be appended to, so it is read through its own view up to the current count
+            snapshot.buffers[i] = buffer == null ? null : buffer.duplicate();
+            snapshot.counts[i] = segment.count();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Forces the records appended so far to disk, and blocks until they are written. This is already done in the
+     * background, call it only when the records must be durable right away, such as when tracking is stopped.
+     */
+    public void commit() {
+        synchronized (commitLock) {
+            TrackSegment[] full;
+            TrackSegment current;
+            long appended;
+            synchronized (this) {
+                isCommitRequested = false;
+                if (appendedCount == committedCount && retired.isEmpty()) return;
+
+                appended = appendedCount;
+                full = retired.toArray(new TrackSegment[retired.size()]);
+                retired.clear();
+                current = active;
+            }
+
+            for (TrackSegment segment : full) {
+                segment.force();
+                segment.release();
+            }
+            current.force();
+
+            synchronized (this) {
+                committedCount = appended;
+            }
+        }
+    }
+
+    /**
+     * Commits and stops appending, further locations are ignored. Cursors which are already created can still
+     * be read.
+     */
+    @Override
+    public void close() {
+        TrackSegment unused;
+        synchronized (this) {
+            if (isClosed) return;
+            isClosed = true;
+            unused = next;
+            next = null;
+        }
+
+        committer.interrupt();
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        commit();
+        deleteExpiredSegments();
+        if (unused != null) unused.delete();
+        LogUtils.logI(TAG, "Closed after appending %d records", getAppendedCount());
+    }
+
+    /**
+     * Number of records appended since the recorder is opened
+     */
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+
+    /**
+     * Number of records which are forced to disk since the recorder is opened
+     */
+    public synchronized long getCommittedCount() {
+        return committedCount;
+    }
+
+    /**
+     * Number of locations which are dropped, because the next segment could not be created in time
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private TrackSegment createSegment(long index) throws IOException {
+        return TrackSegment.create(new File(directory, SEGMENT_PREFIX + index + SEGMENT_SUFFIX), index,
+              configuration.segmentCapacity());
+    }
+
+    // For test purposes
+    void prepareNextSegment() {
+        long index;
+        synchronized (this) {
+            if (next != null || isClosed) return;
+            index = nextIndex++;
+        }
+
+        TrackSegment created;
+        try {
+            created = createSegment(index);
+        } catch (IOException e) {
+            LogUtils.logE(TAG, "Unable to create segment %d: %s", index, e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            // Another caller may have created one in the meantime
+            if (isClosed || next != null) {
+                created.delete();
+            } else {
+                next = created;
+            }
+        }
+    }
+
+    private void deleteExpiredSegments() {
+        int maxSegmentCount = configuration.maxSegmentCount();
+        if (maxSegmentCount == 0) return;
+
+        List<TrackSegment> expired = null;
+        synchronized (this) {
+            while (segments.size() > maxSegmentCount) {
+                TrackSegment oldest = segments.get(0);
+                // Full segments are only deleted once they are committed
+                if (oldest == active || retired.contains(oldest)) break;
+
+                if (expired == null) expired = new ArrayList<>();
+                expired.add(segments.remove(0));
+            }
+        }
+
+        if (expired == null) return;
+        for (int i = 0, size = expired.size(); i < size; i++) {
+            TrackSegment segment = expired.get(i);
+            if (!segment.delete()) {
+                LogUtils.logE(TAG, "Unable to delete segment %d", segment.index());
+            }
+        }
+    }
+
+    static final class Snapshot {
+
+        final TrackSegment[] segments;
+        // Null for the segments which are not mapped anymore
+        final ByteBuffer[] buffers;
+        final int[] counts;
+
+        Snapshot(int size) {
+            segments = new TrackSegment[size];
+            buffers = new ByteBuffer[size];
+            counts = new int[size];
+        }
+    }
+
+    /**
+     * Commits, creates the next segment and deletes the expired ones; whenever it is woken up by appending,
+     * or at least once per commit interval
+     */
+    private class Committer extends Thread {
+
+        Committer() {
+            super("LocationManager-TrackRecorder");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(configuration.commitInterval());
+            while (!isInterrupted()) {
+                commit();
+                prepareNextSegment();
+                deleteExpiredSegments();
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+        }
+    }
+}
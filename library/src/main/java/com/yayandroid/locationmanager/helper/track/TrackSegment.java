@@ -0,0 +1,312 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.helper.LogUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped file of fixed-width records, which {@linkplain TrackRecorder} appends to until it is full.
+ *
+ * Every record ends with a checksum over the rest of it, which is written last. A record that was being written
+ * when the process died fails its checksum, so it is cut off together with anything after it the next time the
+ * segment is opened. Once the segment is full, it is sealed: its count and time range are written to the header
+ * along with a checksum of their own, so that it doesn't need to be scanned again.
+ *
+ * Not thread safe, {@linkplain TrackRecorder} guards it.
+ */
+class TrackSegment {
+
+    private static final String TAG = "TrackSegment";
+
+    static final int MAGIC = 0x4C4D5452; // LMTR
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+
+    // Header offsets, the rest of the header is reserved
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_RECORD_SIZE = 8;
+    private static final int HEADER_CAPACITY = 12;
+    private static final int HEADER_INDEX = 16;
+    private static final int HEADER_COUNT = 24;
+    private static final int HEADER_MIN_TIME = 32;
+    private static final int HEADER_MAX_TIME = 40;
+    private static final int HEADER_CHECKSUM = 48;
+
+    // Record offsets
+    static final int TIME = 0;
+    static final int ELAPSED_REALTIME_NANOS = 8;
+    static final int LATITUDE = 16;
+    static final int LONGITUDE = 24;
+    static final int ALTITUDE = 32;
+    static final int ACCURACY = 40;
+    static final int SPEED = 44;
+    static final int BEARING = 48;
+    static final int FLAGS = 52;
+    static final int CHECKSUM = 56;
+
+    static final int FLAG_HAS_ALTITUDE = 1 << 8;
+    static final int FLAG_HAS_SPEED = 1 << 9;
+    static final int FLAG_HAS_BEARING = 1 << 10;
+    static final int FLAG_HAS_ACCURACY = 1 << 11;
+    static final int PROVIDER_TYPE_MASK = 0xFF;
+
+    private final File file;
+    private final long index;
+    private final int capacity;
+
+    // Only kept while the segment is appended to, sealed segments are mapped again when they are read
+    @Nullable private volatile MappedByteBuffer buffer;
+    private int count;
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    private boolean isSealed;
+
+    private TrackSegment(File file, long index, int capacity, MappedByteBuffer buffer) {
+        this.file = file;
+        this.index = index;
+        this.capacity = capacity;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates an empty segment in given file, replacing anything that is already there
+     */
+    static TrackSegment create(@NonNull File file, long index, int capacity) throws IOException {
+        long length = lengthOf(capacity);
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            // Truncating first makes sure that the whole file reads as zeros
+            randomAccessFile.setLength(0);
+            randomAccessFile.setLength(length);
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putInt(HEADER_VERSION, VERSION);
+            buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+            buffer.putInt(HEADER_CAPACITY, capacity);
+            buffer.putLong(HEADER_INDEX, index);
+            return new TrackSegment(file, index, capacity, buffer);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Opens an existing segment. If it is not sealed, it is scanned and whatever follows its last valid record
+     * is cleared, so that it can be appended to again.
+     *
+     * @throws IOException if the file cannot be mapped or it is not a segment
+     */
+    static TrackSegment open(@NonNull File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            long length = randomAccessFile.length();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Segment is shorter than its header: " + file.getName());
+            }
+
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            if (buffer.getInt(HEADER_MAGIC) != MAGIC || buffer.getInt(HEADER_VERSION) != VERSION
+                  || buffer.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+                throw new IOException("Not a track segment: " + file.getName());
+            }
+
+            int capacity = buffer.getInt(HEADER_CAPACITY);
+            if (capacity <= 0 || length != lengthOf(capacity)) {
+                throw new IOException("Segment doesn't match its capacity: " + file.getName());
+            }
+
+            TrackSegment segment = new TrackSegment(file, buffer.getLong(HEADER_INDEX), capacity, buffer);
+            if (buffer.getLong(HEADER_CHECKSUM) == checksumOf(buffer, 0, HEADER_CHECKSUM)) {
+                segment.count = buffer.getInt(HEADER_COUNT);
+                segment.minTime = buffer.getLong(HEADER_MIN_TIME);
+                segment.maxTime = buffer.getLong(HEADER_MAX_TIME);
+                segment.isSealed = true;
+                segment.buffer = null;
+            } else {
+                segment.recover(buffer);
+            }
+            return segment;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void recover(MappedByteBuffer buffer) {
+        int valid = 0;
+        while (valid < capacity && isValid(buffer, valid)) {
+            includeTime(buffer.getLong(offsetOf(valid) + TIME));
+            valid++;
+        }
+        count = valid;
+
+        int discarded = 0;
+        for (int position = valid; position < capacity; position++) {
+            int offset = offsetOf(position);
+            if (isEmpty(buffer, offset)) continue;
+
+            for (int i = 0; i < RECORD_SIZE; i += 8) {
+                buffer.putLong(offset + i, 0L);
+            }
+            discarded++;
+        }
+
+        if (discarded > 0) {
+            LogUtils.logW(TAG, "Discarded %d torn records of segment %d", discarded, index);
+        }
+    }
+
+    /**
+     * Must not be called on a sealed or full segment
+     */
+    void append(int flags, long time, long elapsedRealtimeNanos, double latitude, double longitude,
+          double altitude, float accuracy, float speed, float bearing) {
+        MappedByteBuffer buffer = this.buffer;
+        int offset = offsetOf(count);
+
+        buffer.putLong(offset + TIME, time);
+        buffer.putLong(offset + ELAPSED_REALTIME_NANOS, elapsedRealtimeNanos);
+        buffer.putDouble(offset + LATITUDE, latitude);
+        buffer.putDouble(offset + LONGITUDE, longitude);
+        buffer.putDouble(offset + ALTITUDE, altitude);
+        buffer.putFloat(offset + ACCURACY, accuracy);
+        buffer.putFloat(offset + SPEED, speed);
+        buffer.putFloat(offset + BEARING, bearing);
+        buffer.putInt(offset + FLAGS, flags);
+        buffer.putLong(offset + CHECKSUM, checksumOf(buffer, offset, CHECKSUM));
+
+        includeTime(time);
+        count++;
+    }
+
+    /**
+     * Writes count and time range to the header, segment is not appended to anymore
+     */
+    void seal() {
+        MappedByteBuffer buffer = this.buffer;
+        buffer.putInt(HEADER_COUNT, count);
+        buffer.putLong(HEADER_MIN_TIME, minTime);
+        buffer.putLong(HEADER_MAX_TIME, maxTime);
+        buffer.putLong(HEADER_CHECKSUM, checksumOf(buffer, 0, HEADER_CHECKSUM));
+        isSealed = true;
+    }
+
+    /**
+     * Blocks until the mapped pages are written to disk, does nothing once the segment is released
+     */
+    void force() {
+        MappedByteBuffer buffer = this.buffer;
+        if (buffer != null) buffer.force();
+    }
+
+    /**
+     * Lets go of the mapping, segment can only be read by {@linkplain #map()} from then on
+     */
+    void release() {
+        buffer = null;
+    }
+
+    /**
+     * Maps the file again to read it, only to be used once the segment is released
+     */
+    ByteBuffer map() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, lengthOf(capacity));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    boolean delete() {
+        buffer = null;
+        return file.delete();
+    }
+
+    // region Getters
+    @Nullable
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    long index() {
+        return index;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long minTime() {
+        return minTime;
+    }
+
+    long maxTime() {
+        return maxTime;
+    }
+
+    boolean isSealed() {
+        return isSealed;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+    // endregion
+
+    static int flagsOf(@ProviderType int providerType, boolean hasAltitude, boolean hasAccuracy, boolean hasSpeed,
+          boolean hasBearing) {
+        int flags = providerType & PROVIDER_TYPE_MASK;
+        if (hasAltitude) flags |= FLAG_HAS_ALTITUDE;
+        if (hasAccuracy) flags |= FLAG_HAS_ACCURACY;
+        if (hasSpeed) flags |= FLAG_HAS_SPEED;
+        if (hasBearing) flags |= FLAG_HAS_BEARING;
+        return flags;
+    }
+
+    static int offsetOf(int position) {
+        return HEADER_SIZE + position * RECORD_SIZE;
+    }
+
+    private void includeTime(long time) {
+        if (time < minTime) minTime = time;
+        if (time > maxTime) maxTime = time;
+    }
+
+    private static long lengthOf(int capacity) {
+        return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int position) {
+        int offset = offsetOf(position);
+        return buffer.getLong(offset + CHECKSUM) == checksumOf(buffer, offset, CHECKSUM);
+    }
+
+    private static boolean isEmpty(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < RECORD_SIZE; i += 8) {
+            if (buffer.getLong(offset + i) != 0L) return false;
+        }
+        return true;
+    }
+
+    private static long checksumOf(ByteBuffer buffer, int offset, int length) {
+        long hash = MAGIC;
+        for (int i = 0; i < length; i += 8) {
+            hash = (hash ^ buffer.getLong(offset + i)) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+        // Zero is reserved for the records and headers which are not written yet
+        return hash == 0L ? 1L : hash;
+    }
+}
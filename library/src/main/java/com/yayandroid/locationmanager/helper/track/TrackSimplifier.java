@@ -0,0 +1,115 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Douglas-Peucker simplification of stored tracks: only the points which are needed to keep every dropped one
+ * within given tolerance of the simplified line are kept. It needs the whole track at once; live locations are
+ * simplified by {@linkplain TrackEncoder} instead, which keeps the same bound with a window of recent points.
+ *
+ * Distances are measured on a local flat projection around each segment, which is accurate enough for the
+ * tolerances that make sense for a track, a few to a few hundred meters.
+ */
+public final class TrackSimplifier {
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private TrackSimplifier() {
+        // No instance
+    }
+
+    /**
+     * Marks the points to keep in given array. First and last points are always kept.
+     *
+     * @param tolerance maximum distance in meters between a dropped point and the simplified line
+     * @param keep is filled with whether each point is kept, must hold at least size elements
+     * @return number of points which are kept
+     */
+    public static int simplify(@NonNull double[] latitudes, @NonNull double[] longitudes, int size, double tolerance,
+          @NonNull boolean[] keep) {
+        if (size <= 2) {
+            for (int i = 0; i < size; i++) {
+                keep[i] = true;
+            }
+            return size;
+        }
+
+        for (int i = 0; i < size; i++) {
+            keep[i] = false;
+        }
+        keep[0] = true;
+        keep[size - 1] = true;
+        int kept = 2;
+
+        double toleranceSquared = tolerance * tolerance;
+        // Ranges still to be split, as pairs of start and end indexes, instead of recursing
+        int[] stack = new int[32];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+
+            int farthest = -1;
+            double farthestDistance = toleranceSquared;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distanceSquaredToSegment(latitudes[i], longitudes[i],
+                      latitudes[start], longitudes[start], latitudes[end], longitudes[end]);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest == -1) continue;
+
+            keep[farthest] = true;
+            kept++;
+            if (top + 4 > stack.length) {
+                int[] grown = new int[stack.length * 2];
+                System.arraycopy(stack, 0, grown, 0, top);
+                stack = grown;
+            }
+            stack[top++] = start;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = end;
+        }
+        return kept;
+    }
+
+    /**
+     * Square of the distance in meters between given point and the segment from start to end
+     */
+    static double distanceSquaredToSegment(double latitude, double longitude, double startLatitude,
+          double startLongitude, double endLatitude, double endLongitude) {
+        return distanceSquaredToSegment(latitude, longitude, startLatitude, startLongitude, endLatitude,
+              endLongitude, metersPerLongitudeAt(startLatitude));
+    }
+
+    /**
+     * Same as {@linkplain #distanceSquaredToSegment(double, double, double, double, double, double)}, with the
+     * length of a degree of longitude at the start already known, see {@linkplain #metersPerLongitudeAt(double)}
+     */
+    static double distanceSquaredToSegment(double latitude, double longitude, double startLatitude,
+          double startLongitude, double endLatitude, double endLongitude, double metersPerLongitude) {
+        double x = (longitude - startLongitude) * metersPerLongitude;
+        double y = (latitude - startLatitude) * METERS_PER_DEGREE;
+        double segmentX = (endLongitude - startLongitude) * metersPerLongitude;
+        double segmentY = (endLatitude - startLatitude) * METERS_PER_DEGREE;
+
+        double lengthSquared = segmentX * segmentX + segmentY * segmentY;
+        double ratio = lengthSquared == 0 ? 0 : (x * segmentX + y * segmentY) / lengthSquared;
+        if (ratio < 0) ratio = 0;
+        else if (ratio > 1) ratio = 1;
+
+        double dx = x - ratio * segmentX;
+        double dy = y - ratio * segmentY;
+        return dx * dx + dy * dy;
+    }
+
+    static double metersPerLongitudeAt(double latitude) {
+        return METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+    }
+}
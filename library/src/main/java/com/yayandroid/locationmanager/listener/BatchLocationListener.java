@@ -0,0 +1,22 @@
+package com.yayandroid.locationmanager.listener;
+
+import android.location.Location;
+
+import java.util.List;
+
+/**
+ * Implement this instead of {@linkplain LocationListener} in order to receive locations which are delivered
+ * together, such as the batched results of GooglePlayServices, in a single call.
+ * Locations which are received on their own are still delivered to {@linkplain #onLocationChanged(Location)}.
+ */
+public interface BatchLocationListener extends LocationListener {
+
+    /**
+     * This method will be invoked whenever more than one location is received at once
+     *
+     * @param locations received locations, ordered from the oldest to the newest.
+     *                  List is reused once this method returns, copy it in order to keep the locations.
+     */
+    void onLocationsChanged(List<Location> locations);
+
+}
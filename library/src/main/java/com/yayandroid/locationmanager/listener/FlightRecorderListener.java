@@ -0,0 +1,18 @@
+package com.yayandroid.locationmanager.listener;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.helper.flightrecorder.FlightRecorder;
+
+import java.util.List;
+
+public interface FlightRecorderListener {
+
+    /**
+     * This method will be invoked whenever library fails to retrieve location,
+     * with the latest recorded events from oldest to newest.
+     * Last event is always the failure itself.
+     *
+     * Events of all LocationManager instances are recorded into the same buffer.
+     */
+    void onFlightRecorderDump(@FailType int failType, List<FlightRecorder.Event> events);
+}
@@ -0,0 +1,28 @@
+package com.yayandroid.locationmanager.listener;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.LocationSample;
+
+/**
+ * Implement this instead of {@linkplain LocationListener} in order to receive every location as a pooled
+ * {@linkplain LocationSample}, so that delivering locations doesn't allocate once updates are running. Locations
+ * which are received together are delivered one by one, from the oldest to the newest.
+ *
+ * Samples are only delivered when this is the listener which the provider notifies directly, or through
+ * {@linkplain com.yayandroid.locationmanager.LocationManager.Builder#executor(java.util.concurrent.Executor)}.
+ * Publisher and coalesced requests deliver {@linkplain Location}s instead, to
+ * {@linkplain #onLocationChanged(Location)}.
+ */
+public interface LocationSampleListener extends LocationListener {
+
+    /**
+     * This method will be invoked instead of {@linkplain #onLocationChanged(Location)} whenever a location is
+     * received. Given sample is recycled as soon as this method returns, so it must not be kept;
+     * see {@linkplain LocationSample#copy()}
+     */
+    void onLocationSample(@NonNull LocationSample sample);
+
+}
@@ -0,0 +1,37 @@
+package com.yayandroid.locationmanager.listener;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.OverflowStrategy;
+
+/**
+ * Receives locations only as many as it requests from its {@linkplain LocationSubscription}, the ones which
+ * arrive in between are handled according to the {@linkplain OverflowStrategy} it is subscribed with.
+ * Methods are called one at a time, but not necessarily on the same thread.
+ */
+public interface LocationSubscriber {
+
+    /**
+     * Called once it is subscribed, nothing is delivered until a location is requested from given subscription
+     */
+    void onSubscribe(LocationSubscription subscription);
+
+    /**
+     * Called for each requested location
+     */
+    void onNext(Location location);
+
+    /**
+     * Called when it is not possible to receive location, it will pass an integer value from
+     * {@linkplain FailType}. Nothing is delivered after this one.
+     */
+    void onError(@FailType int type);
+
+    /**
+     * Called once the location is delivered when the manager doesn't keep tracking. Nothing is delivered
+     * after this one.
+     */
+    void onComplete();
+
+}
@@ -0,0 +1,19 @@
+package com.yayandroid.locationmanager.listener;
+
+/**
+ * Link between a {@linkplain LocationSubscriber} and the manager which it is subscribed to
+ */
+public interface LocationSubscription {
+
+    /**
+     * Allows given number of locations more to be delivered, pass {@linkplain Long#MAX_VALUE} for no limit
+     */
+    void request(long count);
+
+    /**
+     * Stops delivering locations to the subscriber, once there is no other subscriber left the manager
+     * is cancelled as well
+     */
+    void cancel();
+
+}
@@ -0,0 +1,13 @@
+package com.yayandroid.locationmanager.listener;
+
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
+import com.yayandroid.locationmanager.helper.metrics.MetricsSnapshot;
+
+public interface MetricsSink {
+
+    /**
+     * This method will be invoked whenever {@linkplain Metrics#publish()} is called, with everything recorded
+     * since the previous call, on the thread which calls it.
+     */
+    void onMetricsPublished(MetricsSnapshot snapshot);
+}
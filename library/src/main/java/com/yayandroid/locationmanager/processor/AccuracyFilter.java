@@ -0,0 +1,54 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Passes a location only if it is accurate within given meters, so that a request which is not kept tracking
+ * keeps waiting for a better one.
+ *
+ * It keeps no state, so filters with the same accuracy are equal, and requests which use them can be coalesced.
+ */
+public class AccuracyFilter implements LocationProcessor {
+
+    private final float maxAccuracy;
+
+    public AccuracyFilter(float maxAccuracy) {
+        if (maxAccuracy < 0) {
+            throw new IllegalArgumentException("maxAccuracy cannot be set to negative value.");
+        }
+
+        this.maxAccuracy = maxAccuracy;
+    }
+
+    @Nullable
+    @Override
+    public Location process(@NonNull Location location) {
+        return location.getAccuracy() <= maxAccuracy ? location : null;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @NonNull
+    @Override
+    public LocationProcessor copy() {
+        return new AccuracyFilter(maxAccuracy);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AccuracyFilter)) return false;
+
+        return Float.compare(maxAccuracy, ((AccuracyFilter) o).maxAccuracy) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Float.floatToIntBits(maxAccuracy);
+    }
+}
@@ -0,0 +1,46 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Drops the locations which are not newer than the last passed one, such as a last known location that is
+ * delivered again, and the ones at the very same coordinates which are not more accurate than the last one.
+ */
+public class DuplicateFilter implements LocationProcessor {
+
+    private boolean hasLast;
+    private long lastTime;
+    private double lastLatitude;
+    private double lastLongitude;
+    private float lastAccuracy;
+
+    @Nullable
+    @Override
+    public Location process(@NonNull Location location) {
+        if (hasLast && (location.getTime() <= lastTime || (location.getLatitude() == lastLatitude
+              && location.getLongitude() == lastLongitude && location.getAccuracy() >= lastAccuracy))) {
+            return null;
+        }
+
+        hasLast = true;
+        lastTime = location.getTime();
+        lastLatitude = location.getLatitude();
+        lastLongitude = location.getLongitude();
+        lastAccuracy = location.getAccuracy();
+        return location;
+    }
+
+    @Override
+    public void reset() {
+        hasLast = false;
+    }
+
+    @NonNull
+    @Override
+    public LocationProcessor copy() {
+        return new DuplicateFilter();
+    }
+}
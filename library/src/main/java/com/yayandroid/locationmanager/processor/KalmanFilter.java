@@ -0,0 +1,183 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Smooths the track with a constant velocity Kalman filter, which is mostly useful while keeping tracking.
+ *
+ * Latitude and longitude are filtered as two independent axes in meters, relative to the first location,
+ * and accuracy of each location is used as its measurement noise, so that accurate locations pull the track
+ * much more than inaccurate ones. Received locations are emitted themselves, updated in place with the filtered
+ * coordinates, speed and bearing, and with the estimated accuracy of the filter.
+ */
+public class KalmanFilter implements LocationProcessor {
+
+    static final float DEFAULT_PROCESS_NOISE = 3; // m/s^2
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+    private static final float MIN_ACCURACY = 1;
+
+    private final double processNoise;
+
+    private boolean initialized;
+    private double originLatitude;
+    private double originLongitude;
+    private double metersPerLongitude;
+    private long lastTime;
+    private long lastElapsedRealtimeNanos;
+
+    // State and covariance of each axis: position, velocity and the upper triangle of the covariance matrix
+    private double north, northVelocity, northP00, northP01, northP11;
+    private double east, eastVelocity, eastP00, eastP01, eastP11;
+
+    public KalmanFilter() {
+        this(DEFAULT_PROCESS_NOISE);
+    }
+
+    /**
+     * @param processNoise how much the velocity is expected to change, in m/s^2. Higher values follow
+     *                     the locations more closely, lower values result in a smoother track.
+     */
+    public KalmanFilter(float processNoise) {
+        if (processNoise <= 0) {
+            throw new IllegalArgumentException("processNoise must be greater than 0.");
+        }
+
+        this.processNoise = (double) processNoise * processNoise;
+    }
+
+    private KalmanFilter(KalmanFilter filter) {
+        this.processNoise = filter.processNoise;
+    }
+
+    @Nullable
+    @Override
+    public Location process(@NonNull Location location) {
+        double accuracy = Math.max(MIN_ACCURACY, location.getAccuracy());
+        double variance = accuracy * accuracy;
+
+        if (!initialized) {
+            initialize(location, variance);
+        } else {
+            double elapsedSeconds = elapsedSecondsSince(location);
+            if (elapsedSeconds > 0) {
+                predict(elapsedSeconds);
+            }
+
+            double measuredNorth = (location.getLatitude() - originLatitude) * METERS_PER_DEGREE;
+            double measuredEast = (location.getLongitude() - originLongitude) * metersPerLongitude;
+            updateNorth(measuredNorth, variance);
+            updateEast(measuredEast, variance);
+        }
+
+        lastTime = location.getTime();
+        lastElapsedRealtimeNanos = elapsedRealtimeNanosOf(location);
+
+        double speed = Math.sqrt(northVelocity * northVelocity + eastVelocity * eastVelocity);
+        double bearing = (Math.toDegrees(Math.atan2(eastVelocity, northVelocity)) + 360) % 360;
+        return smooth(location,
+              originLatitude + north / METERS_PER_DEGREE,
+              originLongitude + east / metersPerLongitude,
+              (float) Math.sqrt(Math.max(northP00, eastP00)), (float) speed, (float) bearing);
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+    }
+
+    @NonNull
+    @Override
+    public LocationProcessor copy() {
+        return new KalmanFilter(this);
+    }
+
+    // For test purposes
+    Location smooth(Location location, double latitude, double longitude, float accuracy, float speed,
+          float bearing) {
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setAccuracy(accuracy);
+        location.setSpeed(speed);
+        location.setBearing(bearing);
+        return location;
+    }
+
+    private void initialize(Location location, double variance) {
+        initialized = true;
+        originLatitude = location.getLatitude();
+        originLongitude = location.getLongitude();
+        metersPerLongitude = Math.max(1, METERS_PER_DEGREE * Math.cos(Math.toRadians(originLatitude)));
+
+        north = 0;
+        east = 0;
+        northVelocity = 0;
+        eastVelocity = 0;
+        northP00 = variance;
+        eastP00 = variance;
+        northP01 = 0;
+        eastP01 = 0;
+        // Nothing is known about the velocity yet
+        northP11 = variance;
+        eastP11 = variance;
+    }
+
+    private double elapsedSecondsSince(Location location) {
+        long elapsedRealtimeNanos = elapsedRealtimeNanosOf(location);
+        if (elapsedRealtimeNanos > 0 && lastElapsedRealtimeNanos > 0) {
+            return (elapsedRealtimeNanos - lastElapsedRealtimeNanos) / 1e9;
+        }
+        return (location.getTime() - lastTime) / 1e3;
+    }
+
+    private static long elapsedRealtimeNanosOf(Location location) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 ? location.getElapsedRealtimeNanos() : 0;
+    }
+
+    private void predict(double dt) {
+        double dt2 = dt * dt;
+        double q00 = processNoise * dt2 * dt2 / 4;
+        double q01 = processNoise * dt2 * dt / 2;
+        double q11 = processNoise * dt2;
+
+        north += northVelocity * dt;
+        northP00 += dt * (2 * northP01 + dt * northP11) + q00;
+        northP01 += dt * northP11 + q01;
+        northP11 += q11;
+
+        east += eastVelocity * dt;
+        eastP00 += dt * (2 * eastP01 + dt * eastP11) + q00;
+        eastP01 += dt * eastP11 + q01;
+        eastP11 += q11;
+    }
+
+    private void updateNorth(double measurement, double variance) {
+        double s = northP00 + variance;
+        double k0 = northP00 / s;
+        double k1 = northP01 / s;
+        double residual = measurement - north;
+
+        north += k0 * residual;
+        northVelocity += k1 * residual;
+        northP11 -= k1 * northP01;
+        northP01 *= 1 - k0;
+        northP00 *= 1 - k0;
+    }
+
+    private void updateEast(double measurement, double variance) {
+        double s = eastP00 + variance;
+        double k0 = eastP00 / s;
+        double k1 = eastP01 / s;
+        double residual = measurement - east;
+
+        east += k0 * residual;
+        eastVelocity += k1 * residual;
+        eastP11 -= k1 * eastP01;
+        eastP01 *= 1 - k0;
+        eastP00 *= 1 - k0;
+    }
+}
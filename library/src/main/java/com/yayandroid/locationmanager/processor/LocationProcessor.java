@@ -0,0 +1,37 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A stage of {@linkplain LocationProcessorChain}, which every received location passes through
+ * before it is delivered to the listener.
+ *
+ * Stages are called for every single location, so they should not allocate while processing.
+ * They are allowed to keep state, since the configured instances are never run themselves;
+ * every provider processes its locations through its own copies, see {@linkplain #copy()}.
+ */
+public interface LocationProcessor {
+
+    /**
+     * Returns the location which should be passed on to the next stage, that can be the given location itself,
+     * possibly modified in place, or null in order to drop it. Received locations are never shared,
+     * so stages can modify them instead of allocating copies.
+     */
+    @Nullable
+    Location process(@NonNull Location location);
+
+    /**
+     * This is called whenever a new location request begins, so that state of the previous one can be forgotten
+     */
+    void reset();
+
+    /**
+     * Returns a new instance with the same settings and without any state
+     */
+    @NonNull
+    LocationProcessor copy();
+
+}
@@ -0,0 +1,43 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Runs the given {@linkplain LocationProcessor}s in order, until one of them drops the location.
+ */
+public class LocationProcessorChain {
+
+    private final LocationProcessor[] processors;
+
+    public LocationProcessorChain(@NonNull List<LocationProcessor> processors) {
+        this.processors = processors.toArray(new LocationProcessor[processors.size()]);
+    }
+
+    public boolean isEmpty() {
+        return processors.length == 0;
+    }
+
+    /**
+     * Returns the location produced by the last stage, or null if any of the stages dropped it
+     */
+    @Nullable
+    public Location process(@NonNull Location location) {
+        Location processed = location;
+        for (LocationProcessor processor : processors) {
+            processed = processor.process(processed);
+            if (processed == null) return null;
+        }
+        return processed;
+    }
+
+    public void reset() {
+        for (LocationProcessor processor : processors) {
+            processor.reset();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.helper.LocationUtils;
+
+/**
+ * Drops the locations which could only be reached from the last passed one by moving faster than maxSpeed
+ * meters per second. Accuracy of both locations is taken into account, so that only the jumps that can't be
+ * explained by their error are dropped.
+ *
+ * If the device really did move that fast, i.e. it was a train journey while the app was in background,
+ * the last location is the one which is wrong; so after {@linkplain #MAX_CONSECUTIVE_DROPS} locations in a row
+ * are dropped, the next one is accepted as the new reference.
+ */
+public class SpeedOutlierFilter implements LocationProcessor {
+
+    static final int MAX_CONSECUTIVE_DROPS = 3;
+
+    private final float maxSpeed;
+
+    private boolean hasLast;
+    private long lastTime;
+    private double lastLatitude;
+    private double lastLongitude;
+    private float lastAccuracy;
+    private int consecutiveDrops;
+
+    public SpeedOutlierFilter(float maxSpeed) {
+        if (maxSpeed <= 0) {
+            throw new IllegalArgumentException("maxSpeed must be greater than 0.");
+        }
+
+        this.maxSpeed = maxSpeed;
+    }
+
+    @Nullable
+    @Override
+    public Location process(@NonNull Location location) {
+        if (hasLast && consecutiveDrops < MAX_CONSECUTIVE_DROPS) {
+            long elapsedTime = location.getTime() - lastTime;
+            double distance = LocationUtils.distanceBetween(lastLatitude, lastLongitude,
+                  location.getLatitude(), location.getLongitude()) - lastAccuracy - location.getAccuracy();
+
+            if (distance > 0 && (elapsedTime <= 0 || distance * 1000 / elapsedTime > maxSpeed)) {
+                consecutiveDrops++;
+                return null;
+            }
+        }
+
+        hasLast = true;
+        consecutiveDrops = 0;
+        lastTime = location.getTime();
+        lastLatitude = location.getLatitude();
+        lastLongitude = location.getLongitude();
+        lastAccuracy = location.getAccuracy();
+        return location;
+    }
+
+    @Override
+    public void reset() {
+        hasLast = false;
+        consecutiveDrops = 0;
+    }
+
+    @NonNull
+    @Override
+    public LocationProcessor copy() {
+        return new SpeedOutlierFilter(maxSpeed);
+    }
+}
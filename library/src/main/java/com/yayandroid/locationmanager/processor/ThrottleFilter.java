@@ -0,0 +1,65 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.helper.LocationUtils;
+
+/**
+ * Passes a location only if both at least minTime milliseconds have passed and the device has moved
+ * at least minDistance meters since the last passed location. Either of them can be 0 to throttle by the other only.
+ */
+public class ThrottleFilter implements LocationProcessor {
+
+    private final long minTime;
+    private final float minDistance;
+
+    private boolean hasLast;
+    private long lastTime;
+    private double lastLatitude;
+    private double lastLongitude;
+
+    public ThrottleFilter(long minTime, float minDistance) {
+        if (minTime < 0) {
+            throw new IllegalArgumentException("minTime cannot be set to negative value.");
+        }
+        if (minDistance < 0) {
+            throw new IllegalArgumentException("minDistance cannot be set to negative value.");
+        }
+
+        this.minTime = minTime;
+        this.minDistance = minDistance;
+    }
+
+    @Nullable
+    @Override
+    public Location process(@NonNull Location location) {
+        if (hasLast) {
+            if (location.getTime() - lastTime < minTime) return null;
+
+            if (minDistance > 0 && LocationUtils.distanceBetween(lastLatitude, lastLongitude,
+                  location.getLatitude(), location.getLongitude()) < minDistance) {
+                return null;
+            }
+        }
+
+        hasLast = true;
+        lastTime = location.getTime();
+        lastLatitude = location.getLatitude();
+        lastLongitude = location.getLongitude();
+        return location;
+    }
+
+    @Override
+    public void reset() {
+        hasLast = false;
+    }
+
+    @NonNull
+    @Override
+    public LocationProcessor copy() {
+        return new ThrottleFilter(minTime, minDistance);
+    }
+}
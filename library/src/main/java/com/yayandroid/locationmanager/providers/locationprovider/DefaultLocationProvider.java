@@ -10,11 +10,17 @@ import android.provider.Settings;
 
 import androidx.annotation.NonNull;
 
+import com.yayandroid.locationmanager.constants.CounterType;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.constants.RecordType;
 import com.yayandroid.locationmanager.constants.RequestCode;
 import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.TraceUtils;
 import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask.ContinuousTaskRunner;
+import com.yayandroid.locationmanager.helper.flightrecorder.FlightRecorder;
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
 import com.yayandroid.locationmanager.listener.DialogListener;
 import com.yayandroid.locationmanager.providers.dialogprovider.DialogProvider;
 
@@ -22,9 +28,17 @@ import com.yayandroid.locationmanager.providers.dialogprovider.DialogProvider;
 public class DefaultLocationProvider extends LocationProvider
       implements ContinuousTaskRunner, LocationListener, DialogListener {
 
+    private static final String TAG = "DefaultLocationProvider";
+    private static final long NONE = -1;
+    private static final String TRACE_ASK_FOR_LOCATION = "DefaultLocationProvider#askForLocation";
+    private static final String TRACE_LAST_KNOWN_LOCATION = "DefaultLocationProvider#lastKnownLocation";
+    private static final String TRACE_REQUEST_UPDATES = "DefaultLocationProvider#requestLocationUpdates";
+
     private DefaultLocationSource defaultLocationSource;
 
     private String provider;
+    private String fixedProvider;
+    private long adaptedTimeInterval = NONE;
     private Dialog gpsDialog;
 
     @Override
@@ -40,8 +54,11 @@ public class DefaultLocationProvider extends LocationProvider
 
     @Override
     public void cancel() {
+        stopMotionGate();
+        resetInterval();
         getSourceProvider().getUpdateRequest().release();
         getSourceProvider().getProviderSwitchTask().stop();
+        setWaiting(false);
     }
 
     @Override
@@ -82,7 +99,7 @@ public class DefaultLocationProvider extends LocationProvider
             if (isGPSProviderEnabled()) {
                 onGPSActivated();
             } else {
-                LogUtils.logI("User didn't activate GPS, so continue with Network Provider");
+                LogUtils.logI(TAG, "User didn't activate GPS, so continue with Network Provider");
                 getLocationByNetwork();
             }
         }
@@ -91,18 +108,31 @@ public class DefaultLocationProvider extends LocationProvider
     @Override
     public void get() {
         setWaiting(true);
+        resetInterval();
+
+        if (fixedProvider != null) {
+            if (getSourceProvider().isProviderEnabled(fixedProvider)) {
+                LogUtils.logI(TAG, "%s is enabled, getting location...", fixedProvider);
+                askForLocation(fixedProvider);
+            } else {
+                LogUtils.logI(TAG, "%s is not enabled, calling fail...", fixedProvider);
+                onLocationFailed(LocationManager.GPS_PROVIDER.equals(fixedProvider)
+                      ? FailType.GPS_NOT_AVAILABLE : FailType.NETWORK_NOT_AVAILABLE);
+            }
+            return;
+        }
 
         // First check for GPS
         if (isGPSProviderEnabled()) {
-            LogUtils.logI("GPS is already enabled, getting location...");
+            LogUtils.logI(TAG, "GPS is already enabled, getting location...");
             askForLocation(LocationManager.GPS_PROVIDER);
         } else {
             // GPS is not enabled,
             if (getConfiguration().defaultProviderConfiguration().askForEnableGPS() && getActivity() != null) {
-                LogUtils.logI("GPS is not enabled, asking user to enable it...");
+                LogUtils.logI(TAG, "GPS is not enabled, asking user to enable it...");
                 askForEnableGPS();
             } else {
-                LogUtils.logI("GPS is not enabled, moving on with Network...");
+                LogUtils.logI(TAG, "GPS is not enabled, moving on with Network...");
                 getLocationByNetwork();
             }
         }
@@ -117,37 +147,57 @@ public class DefaultLocationProvider extends LocationProvider
     }
 
     void onGPSActivated() {
-        LogUtils.logI("User activated GPS, listen for location");
+        LogUtils.logI(TAG, "User activated GPS, listen for location");
         askForLocation(LocationManager.GPS_PROVIDER);
     }
 
     void getLocationByNetwork() {
         if (isNetworkProviderEnabled()) {
-            LogUtils.logI("Network is enabled, getting location...");
+            LogUtils.logI(TAG, "Network is enabled, getting location...");
             askForLocation(LocationManager.NETWORK_PROVIDER);
         } else {
-            LogUtils.logI("Network is not enabled, calling fail...");
+            LogUtils.logI(TAG, "Network is not enabled, calling fail...");
             onLocationFailed(FailType.NETWORK_NOT_AVAILABLE);
         }
     }
 
     void askForLocation(String provider) {
+        TraceUtils.beginSection(TRACE_ASK_FOR_LOCATION);
+        try {
+            startAskingForLocation(provider);
+        } finally {
+            TraceUtils.endSection();
+        }
+    }
+
+    private void startAskingForLocation(String provider) {
         getSourceProvider().getProviderSwitchTask().stop();
         setCurrentProvider(provider);
 
-        boolean locationIsAlreadyAvailable = checkForLastKnowLocation();
+        boolean locationIsAlreadyAvailable;
+        TraceUtils.beginSection(TRACE_LAST_KNOWN_LOCATION);
+        try {
+            locationIsAlreadyAvailable = checkForLastKnowLocation();
+        } finally {
+            TraceUtils.endSection();
+        }
 
         if (getConfiguration().keepTracking() || !locationIsAlreadyAvailable) {
-            LogUtils.logI("Ask for location update...");
+            LogUtils.logI(TAG, "Ask for location update...");
             notifyProcessChange();
 
             if (!locationIsAlreadyAvailable) {
                 getSourceProvider().getProviderSwitchTask().delayed(getWaitPeriod());
             }
 
-            requestUpdateLocation();
+            TraceUtils.beginSection(TRACE_REQUEST_UPDATES);
+            try {
+                requestUpdateLocation();
+            } finally {
+                TraceUtils.endSection();
+            }
         } else {
-            LogUtils.logI("We got location, no need to ask for location updates.");
+            LogUtils.logI(TAG, "We got location, no need to ask for location updates.");
         }
     }
 
@@ -157,11 +207,12 @@ public class DefaultLocationProvider extends LocationProvider
         if (getSourceProvider().isLocationSufficient(lastKnownLocation,
               getConfiguration().defaultProviderConfiguration().acceptableTimePeriod(),
               getConfiguration().defaultProviderConfiguration().acceptableAccuracy())) {
-            LogUtils.logI("LastKnowLocation is usable.");
-            onLocationReceived(lastKnownLocation);
-            return true;
+            LogUtils.logI(TAG, "LastKnowLocation is usable.");
+            if (onLocationReceived(lastKnownLocation)) return true;
+
+            LogUtils.logI(TAG, "LastKnowLocation is dropped by processors.");
         } else {
-            LogUtils.logI("LastKnowLocation is not usable.");
+            LogUtils.logI(TAG, "LastKnowLocation is not usable.");
         }
 
         return false;
@@ -171,16 +222,50 @@ public class DefaultLocationProvider extends LocationProvider
         this.provider = provider;
     }
 
+    /**
+     * Restricts this provider to given one, so that it neither asks for enabling GPS nor switches to Network,
+     * and it fails when the provider doesn't deliver a location within its wait period.
+     */
+    void setFixedProvider(String fixedProvider) {
+        this.fixedProvider = fixedProvider;
+    }
+
     void notifyProcessChange() {
-        if (getListener() != null) {
-            getListener().onProcessTypeChanged(LocationManager.GPS_PROVIDER.equals(provider)
-                  ? ProcessType.GETTING_LOCATION_FROM_GPS_PROVIDER
-                  : ProcessType.GETTING_LOCATION_FROM_NETWORK_PROVIDER);
+        notifyProcessTypeChanged(LocationManager.GPS_PROVIDER.equals(provider)
+              ? ProcessType.GETTING_LOCATION_FROM_GPS_PROVIDER
+              : ProcessType.GETTING_LOCATION_FROM_NETWORK_PROVIDER);
+    }
+
+    @Override
+    protected void onIntervalChanged(long interval) {
+        adaptedTimeInterval = interval;
+
+        // Otherwise it is applied whenever updates are requested
+        if (!getSourceProvider().updateRequestIsRemoved() && getSourceProvider().getUpdateRequest().isRunning()) {
+            requestUpdateLocation();
         }
     }
 
+    @Override
+    protected void suspendUpdates() {
+        getSourceProvider().getUpdateRequest().release();
+    }
+
+    @Override
+    protected void resumeUpdates() {
+        // Re-acquire at the configured interval, rather than the one adapted while the device was slowing down
+        adaptedTimeInterval = NONE;
+        requestUpdateLocation();
+    }
+
+    private void resetInterval() {
+        resetAdaptiveInterval();
+        adaptedTimeInterval = NONE;
+    }
+
     void requestUpdateLocation() {
-        long timeInterval = getConfiguration().defaultProviderConfiguration().requiredTimeInterval();
+        long timeInterval = adaptedTimeInterval != NONE ? adaptedTimeInterval
+              : getConfiguration().defaultProviderConfiguration().requiredTimeInterval();
         long distanceInterval = getConfiguration().defaultProviderConfiguration().requiredDistanceInterval();
         getSourceProvider().getUpdateRequest().run(provider, timeInterval, distanceInterval);
     }
@@ -199,17 +284,18 @@ public class DefaultLocationProvider extends LocationProvider
         return getSourceProvider().isProviderEnabled(LocationManager.GPS_PROVIDER);
     }
 
-    void onLocationReceived(Location location) {
-        if (getListener() != null) {
-            getListener().onLocationChanged(location);
-        }
+    /**
+     * Returns false if the location is dropped by processors, in which case it keeps waiting for another one
+     */
+    boolean onLocationReceived(Location location) {
+        if (!notifyLocationChanged(location)) return false;
+
         setWaiting(false);
+        return true;
     }
 
     void onLocationFailed(@FailType int type) {
-        if (getListener() != null) {
-            getListener().onLocationFailed(type);
-        }
+        notifyLocationFailed(type);
         setWaiting(false);
     }
 
@@ -219,7 +305,10 @@ public class DefaultLocationProvider extends LocationProvider
             return;
         }
 
-        onLocationReceived(location);
+        if (!onLocationReceived(location)) {
+            // Keep updates and the switch task running until a location reaches the listener
+            return;
+        }
 
         // Remove cancelLocationTask because we have already find location,
         // no need to switch or call fail
@@ -227,7 +316,9 @@ public class DefaultLocationProvider extends LocationProvider
             getSourceProvider().getProviderSwitchTask().stop();
         }
 
-        if (!getConfiguration().keepTracking()) {
+        if (getConfiguration().keepTracking()) {
+            startMotionGate();
+        } else {
             getSourceProvider().getUpdateRequest().release();
             getSourceProvider().removeLocationUpdates(this);
         }
@@ -263,13 +354,20 @@ public class DefaultLocationProvider extends LocationProvider
     @Override
     public void runScheduledTask(@NonNull String taskId) {
         if (taskId.equals(DefaultLocationSource.PROVIDER_SWITCH_TASK)) {
+            FlightRecorder.record(RecordType.TASK_FIRED, LocationManager.GPS_PROVIDER.equals(provider)
+                  ? ProviderType.GPS : ProviderType.NETWORK);
             getSourceProvider().getUpdateRequest().release();
 
-            if (LocationManager.GPS_PROVIDER.equals(provider)) {
-                LogUtils.logI("We waited enough for GPS, switching to Network provider...");
+            if (fixedProvider != null) {
+                LogUtils.logI(TAG, "%s provider didn't provide location in required period, calling fail...",
+                      provider);
+                onLocationFailed(FailType.TIMEOUT);
+            } else if (LocationManager.GPS_PROVIDER.equals(provider)) {
+                LogUtils.logI(TAG, "We waited enough for GPS, switching to Network provider...");
+                Metrics.increment(CounterType.SWITCH_TO_NETWORK_PROVIDER);
                 getLocationByNetwork();
             } else {
-                LogUtils.logI("Network Provider is not provide location in required period, calling fail...");
+                LogUtils.logI(TAG, "Network Provider is not provide location in required period, calling fail...");
                 onLocationFailed(FailType.TIMEOUT);
             }
         }
@@ -286,7 +384,7 @@ public class DefaultLocationProvider extends LocationProvider
 
     @Override
     public void onNegativeButtonClick() {
-        LogUtils.logI("User didn't want to enable GPS, so continue with Network Provider");
+        LogUtils.logI(TAG, "User didn't want to enable GPS, so continue with Network Provider");
         getLocationByNetwork();
     }
 
@@ -297,7 +395,7 @@ public class DefaultLocationProvider extends LocationProvider
 
     private DefaultLocationSource getSourceProvider() {
         if (defaultLocationSource == null) {
-            defaultLocationSource = new DefaultLocationSource(getContext(), this, this);
+            defaultLocationSource = new DefaultLocationSource(getContext(), this, this, getLooper());
         }
         return defaultLocationSource;
     }
@@ -4,13 +4,13 @@ import android.content.Context;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
+import android.os.Looper;
 
+import com.yayandroid.locationmanager.helper.LocationUtils;
 import com.yayandroid.locationmanager.helper.UpdateRequest;
 import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
 import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask.ContinuousTaskRunner;
 
-import java.util.Date;
-
 class DefaultLocationSource {
 
     static final String PROVIDER_SWITCH_TASK = "providerSwitchTask";
@@ -22,10 +22,11 @@ class DefaultLocationSource {
     DefaultLocationSource(
             Context context,
             ContinuousTaskRunner continuousTaskRunner,
-            LocationListener locationListener) {
+            LocationListener locationListener,
+            Looper looper) {
         locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
-        updateRequest = new UpdateRequest(locationManager, locationListener);
-        cancelTask = new ContinuousTask(PROVIDER_SWITCH_TASK, continuousTaskRunner);
+        updateRequest = new UpdateRequest(locationManager, locationListener, looper);
+        cancelTask = new ContinuousTask(PROVIDER_SWITCH_TASK, continuousTaskRunner, looper);
     }
 
     boolean isProviderEnabled(String provider) {
@@ -69,12 +70,6 @@ class DefaultLocationSource {
     }
 
     boolean isLocationSufficient(Location location, long acceptableTimePeriod, float acceptableAccuracy) {
-        if (location == null) return false;
-
-        float givenAccuracy = location.getAccuracy();
-        long givenTime = location.getTime();
-        long minAcceptableTime = new Date().getTime() - acceptableTimePeriod;
-
-        return minAcceptableTime <= givenTime && acceptableAccuracy >= givenAccuracy;
+        return LocationUtils.isLocationSufficient(location, acceptableTimePeriod, acceptableAccuracy);
     }
 }
@@ -3,22 +3,46 @@ package com.yayandroid.locationmanager.providers.locationprovider;
 import android.app.Dialog;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Bundle;
 
 import androidx.annotation.NonNull;
 
 import com.google.android.gms.common.ConnectionResult;
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.constants.CounterType;
 import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.constants.RecordType;
 import com.yayandroid.locationmanager.constants.RequestCode;
+import com.yayandroid.locationmanager.helper.LocationUtils;
 import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.TraceUtils;
 import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask.ContinuousTaskRunner;
+import com.yayandroid.locationmanager.helper.flightrecorder.FlightRecorder;
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
 import com.yayandroid.locationmanager.listener.FallbackListener;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class DispatcherLocationProvider extends LocationProvider implements ContinuousTaskRunner, FallbackListener {
 
+    private static final String TAG = "DispatcherLocationProvider";
+    private static final String TRACE_GET = "DispatcherLocationProvider#get";
+    private static final String TRACE_GOOGLE_PLAY_SERVICES_AVAILABILITY = "DispatcherLocationProvider#isGoogleApiAvailable";
+
     private Dialog gpServicesDialog;
     private LocationProvider activeProvider;
     private DispatcherLocationSource dispatcherLocationSource;
 
+    private final List<Racer> racers = new ArrayList<>();
+    private Racer winner;
+    @FailType private int lastRacerFailType = FailType.UNKNOWN;
+
     @Override
     public void onPause() {
         super.onPause();
@@ -27,6 +51,10 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
             activeProvider.onPause();
         }
 
+        for (Racer racer : racers) {
+            racer.provider.onPause();
+        }
+
         getSourceProvider().gpServicesSwitchTask().pause();
     }
 
@@ -38,6 +66,10 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
             activeProvider.onResume();
         }
 
+        for (Racer racer : racers) {
+            racer.provider.onResume();
+        }
+
         getSourceProvider().gpServicesSwitchTask().resume();
     }
 
@@ -49,6 +81,12 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
             activeProvider.onDestroy();
         }
 
+        for (Racer racer : racers) {
+            racer.provider.onDestroy();
+        }
+        racers.clear();
+        winner = null;
+
         getSourceProvider().gpServicesSwitchTask().stop();
 
         dispatcherLocationSource = null;
@@ -61,11 +99,26 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
             activeProvider.cancel();
         }
 
+        resetRace();
         getSourceProvider().gpServicesSwitchTask().stop();
     }
 
+    @Override
+    public void flush() {
+        if (activeProvider != null) {
+            activeProvider.flush();
+        }
+
+        for (Racer racer : racers) {
+            racer.provider.flush();
+        }
+    }
+
     @Override
     public boolean isWaiting() {
+        for (Racer racer : racers) {
+            if (racer.provider.isWaiting()) return true;
+        }
         return activeProvider != null && activeProvider.isWaiting();
     }
 
@@ -73,14 +126,28 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
     public boolean isDialogShowing() {
         boolean gpServicesDialogShown = gpServicesDialog != null && gpServicesDialog.isShowing();
         boolean anyProviderDialogShown = activeProvider != null && activeProvider.isDialogShowing();
+        for (Racer racer : racers) {
+            anyProviderDialogShown |= racer.provider.isDialogShowing();
+        }
         return gpServicesDialogShown || anyProviderDialogShown;
     }
 
     @Override
     public void runScheduledTask(@NonNull String taskId) {
         if (taskId.equals(DispatcherLocationSource.GOOGLE_PLAY_SERVICE_SWITCH_TASK)) {
-            if (activeProvider instanceof GooglePlayServicesLocationProvider && activeProvider.isWaiting()) {
-                LogUtils.logI("We couldn't receive location from GooglePlayServices, so switching default providers...");
+            FlightRecorder.record(RecordType.TASK_FIRED, ProviderType.GOOGLE_PLAY_SERVICES);
+            Metrics.increment(CounterType.GOOGLE_PLAY_SERVICES_SWITCH_TASK_FIRED);
+            Racer googlePlayServicesRacer = findGooglePlayServicesRacer();
+            if (googlePlayServicesRacer != null) {
+                if (googlePlayServicesRacer.candidate == null) {
+                    LogUtils.logI(TAG, "GooglePlayServices couldn't deliver location in time, leaving the race...");
+                    googlePlayServicesRacer.provider.cancel();
+                    onRacerFailed(googlePlayServicesRacer, FailType.TIMEOUT);
+                }
+            } else if (activeProvider instanceof GooglePlayServicesLocationProvider && activeProvider.isWaiting()) {
+                LogUtils.logI(TAG, "We couldn't receive location from GooglePlayServices, "
+                      + "so switching default providers...");
+                Metrics.increment(CounterType.FALLBACK_TO_DEFAULT_PROVIDERS);
                 cancel();
                 continueWithDefaultProviders();
             }
@@ -98,15 +165,30 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
             if (activeProvider != null) {
                 activeProvider.onActivityResult(requestCode, resultCode, data);
             }
+
+            for (Racer racer : new ArrayList<>(racers)) {
+                racer.provider.onActivityResult(requestCode, resultCode, data);
+            }
         }
     }
 
     @Override
     public void get() {
-        if (getConfiguration().googlePlayServicesConfiguration() != null) {
+        TraceUtils.beginSection(TRACE_GET);
+        try {
+            dispatch();
+        } finally {
+            TraceUtils.endSection();
+        }
+    }
+
+    private void dispatch() {
+        if (getConfiguration().raceProviders()) {
+            race();
+        } else if (getConfiguration().googlePlayServicesConfiguration() != null) {
             checkGooglePlayServicesAvailability(true);
         } else {
-            LogUtils.logI("Configuration requires not to use Google Play Services, "
+            LogUtils.logI(TAG, "Configuration requires not to use Google Play Services, "
                   + "so skipping that step to Default Location Providers");
             continueWithDefaultProviders();
         }
@@ -115,22 +197,29 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
     @Override
     public void onFallback() {
         // This is called from GooglePlayServicesLocationProvider when it fails to before its scheduled time
+        Metrics.increment(CounterType.FALLBACK_TO_DEFAULT_PROVIDERS);
         cancel();
         continueWithDefaultProviders();
     }
 
     void checkGooglePlayServicesAvailability(boolean askForGooglePlayServices) {
-        int gpServicesAvailability = getSourceProvider().isGoogleApiAvailable(getContext());
+        int gpServicesAvailability;
+        TraceUtils.beginSection(TRACE_GOOGLE_PLAY_SERVICES_AVAILABILITY);
+        try {
+            gpServicesAvailability = getSourceProvider().isGoogleApiAvailable(getContext());
+        } finally {
+            TraceUtils.endSection();
+        }
 
         if (gpServicesAvailability == ConnectionResult.SUCCESS) {
-            LogUtils.logI("GooglePlayServices is available on device.");
+            LogUtils.logI(TAG, "GooglePlayServices is available on device.");
             getLocationFromGooglePlayServices();
         } else {
-            LogUtils.logI("GooglePlayServices is NOT available on device.");
+            LogUtils.logI(TAG, "GooglePlayServices is NOT available on device.");
             if (askForGooglePlayServices) {
                 askForGooglePlayServices(gpServicesAvailability);
             } else {
-                LogUtils.logI("GooglePlayServices is NOT available and even though we ask user to handle error, "
+                LogUtils.logI(TAG, "GooglePlayServices is NOT available and even though we ask user to handle error, "
                       + "it is still NOT available.");
 
                 // This means get method is called by onActivityResult
@@ -146,7 +235,7 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
 
             resolveGooglePlayServices(gpServicesAvailability);
         } else {
-            LogUtils.logI("Either GooglePlayServices error is not resolvable "
+            LogUtils.logI(TAG, "Either GooglePlayServices error is not resolvable "
                   + "or the configuration doesn't wants us to bother user.");
             continueWithDefaultProviders();
         }
@@ -162,12 +251,12 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
      * See https://developers.google.com/android/reference/com/google/android/gms/common/GoogleApiAvailability#public-int-isgoogleplayservicesavailable-context-context
      */
     void resolveGooglePlayServices(int gpServicesAvailability) {
-        LogUtils.logI("Asking user to handle GooglePlayServices error...");
+        LogUtils.logI(TAG, "Asking user to handle GooglePlayServices error...");
         gpServicesDialog = getSourceProvider().getGoogleApiErrorDialog(getActivity(), gpServicesAvailability,
               RequestCode.GOOGLE_PLAY_SERVICES, new DialogInterface.OnCancelListener() {
                   @Override
                   public void onCancel(DialogInterface dialog) {
-                      LogUtils.logI("GooglePlayServices error could've been resolved, "
+                      LogUtils.logI(TAG, "GooglePlayServices error could've been resolved, "
                             + "but user canceled it.");
                       continueWithDefaultProviders();
                   }
@@ -188,7 +277,7 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
                     gpServicesDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
                         @Override
                         public void onDismiss(DialogInterface dialog) {
-                            LogUtils.logI("GooglePlayServices error could not have been resolved");
+                            LogUtils.logI(TAG, "GooglePlayServices error could not have been resolved");
                             continueWithDefaultProviders();
                         }
                     });
@@ -198,14 +287,14 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
 
             gpServicesDialog.show();
         } else {
-            LogUtils.logI("GooglePlayServices error could've been resolved, but since LocationManager "
+            LogUtils.logI(TAG, "GooglePlayServices error could've been resolved, but since LocationManager "
                   + "is not running on an Activity, dialog cannot be displayed.");
             continueWithDefaultProviders();
         }
     }
 
     void getLocationFromGooglePlayServices() {
-        LogUtils.logI("Attempting to get location from Google Play Services providers...");
+        LogUtils.logI(TAG, "Attempting to get location from Google Play Services providers...");
         setLocationProvider(getSourceProvider().createGooglePlayServicesLocationProvider(this));
         getSourceProvider().gpServicesSwitchTask().delayed(getConfiguration()
               .googlePlayServicesConfiguration().googlePlayServicesWaitPeriod());
@@ -218,22 +307,277 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
      */
     void continueWithDefaultProviders() {
         if (getConfiguration().defaultProviderConfiguration() == null) {
-            LogUtils.logI("Configuration requires not to use default providers, abort!");
-            if (getListener() != null) {
-                getListener().onLocationFailed(FailType.GOOGLE_PLAY_SERVICES_NOT_AVAILABLE);
-            }
+            LogUtils.logI(TAG, "Configuration requires not to use default providers, abort!");
+            notifyLocationFailed(FailType.GOOGLE_PLAY_SERVICES_NOT_AVAILABLE);
         } else {
-            LogUtils.logI("Attempting to get location from default providers...");
+            LogUtils.logI(TAG, "Attempting to get location from default providers...");
             setLocationProvider(getSourceProvider().createDefaultLocationProvider());
             activeProvider.get();
         }
     }
 
+    /**
+     * Starts GooglePlayServices, GPS and Network providers at the same time, whichever of them are available
+     * and configured. First location which satisfies {@linkplain DefaultProviderConfiguration#acceptableAccuracy()}
+     * wins the race and the rest of the providers are cancelled right away. If none of them delivers such location,
+     * the most accurate one among the ones delivered wins, once all racers are finished.
+     */
+    void race() {
+        LogUtils.logI(TAG, "Racing all available providers...");
+
+        // Winner of the previous race is created for that race only, it has no place in this one
+        if (activeProvider != null) {
+            activeProvider.cancel();
+            activeProvider.onDestroy();
+            activeProvider = null;
+        }
+        resetRace();
+
+        if (getConfiguration().googlePlayServicesConfiguration() != null
+              && getSourceProvider().isGoogleApiAvailable(getContext()) == ConnectionResult.SUCCESS) {
+            Racer racer = new Racer();
+            racer.provider = getSourceProvider().createGooglePlayServicesLocationProvider(racer);
+            racers.add(racer);
+        }
+
+        if (getConfiguration().defaultProviderConfiguration() != null) {
+            racers.add(createDefaultRacer(LocationManager.GPS_PROVIDER));
+            racers.add(createDefaultRacer(LocationManager.NETWORK_PROVIDER));
+        }
+
+        if (racers.isEmpty()) {
+            LogUtils.logI(TAG, "GooglePlayServices is NOT available and configuration requires not to use "
+                  + "default providers, abort!");
+            notifyLocationFailed(FailType.GOOGLE_PLAY_SERVICES_NOT_AVAILABLE);
+            return;
+        }
+
+        Racer[] startingRacers = racers.toArray(new Racer[racers.size()]);
+        for (Racer racer : startingRacers) {
+            racer.provider.configure(this, racer);
+        }
+
+        if (findGooglePlayServicesRacer() != null) {
+            getSourceProvider().gpServicesSwitchTask().delayed(getConfiguration()
+                  .googlePlayServicesConfiguration().googlePlayServicesWaitPeriod());
+        }
+
+        for (Racer racer : startingRacers) {
+            // A racer may already have won synchronously, i.e. from a last known location
+            if (winner != null) break;
+            racer.provider.get();
+        }
+    }
+
+    /**
+     * Cancels the racers which are still running, and forgets the outcome of the previous race
+     */
+    private void resetRace() {
+        for (Racer racer : racers) {
+            racer.provider.cancel();
+            racer.provider.onDestroy();
+        }
+        racers.clear();
+        winner = null;
+        lastRacerFailType = FailType.UNKNOWN;
+    }
+
+    private Racer createDefaultRacer(String provider) {
+        Racer racer = new Racer();
+        DefaultLocationProvider defaultLocationProvider = getSourceProvider().createDefaultLocationProvider();
+        defaultLocationProvider.setFixedProvider(provider);
+        racer.provider = defaultLocationProvider;
+        return racer;
+    }
+
+    private void onRacerLocationChanged(Racer racer, Location location) {
+        if (winner != null) {
+            if (winner == racer) {
+                deliverLocation(location);
+            }
+            return;
+        }
+
+        if (!isRacing(racer)) return;
+
+        if (isAcceptable(location)) {
+            finishRace(racer, location);
+            return;
+        }
+
+        if (racer.candidate == null || location.getAccuracy() < racer.candidate.getAccuracy()) {
+            racer.candidate = location;
+        }
+        finishRaceIfEveryoneSettled();
+    }
+
+    private void onRacerFailed(Racer racer, @FailType int failType) {
+        if (winner != null) {
+            if (winner == racer && getListener() != null) {
+                getListener().onLocationFailed(failType);
+            }
+            return;
+        }
+
+        if (!isRacing(racer)) return;
+
+        racer.failed = true;
+        lastRacerFailType = failType;
+        finishRaceIfEveryoneSettled();
+    }
+
+    /**
+     * Whether given racer is still in the current race, events of the ones from a previous race are ignored
+     */
+    private boolean isRacing(Racer racer) {
+        return !racer.failed && racers.contains(racer);
+    }
+
+    private boolean isAcceptable(Location location) {
+        DefaultProviderConfiguration defaultProviderConfiguration = getConfiguration().defaultProviderConfiguration();
+        return defaultProviderConfiguration == null
+              || location.getAccuracy() <= defaultProviderConfiguration.acceptableAccuracy();
+    }
+
+    private void finishRaceIfEveryoneSettled() {
+        Racer best = null;
+        for (Racer racer : racers) {
+            if (!racer.failed && racer.candidate == null) return;
+
+            if (!racer.failed && (best == null || racer.candidate.getAccuracy() < best.candidate.getAccuracy())) {
+                best = racer;
+            }
+        }
+
+        if (best != null) {
+            LogUtils.logI(TAG, "No provider delivered an acceptable location, going with the most accurate one.");
+            finishRace(best, best.candidate);
+        } else {
+            LogUtils.logI(TAG, "All racers failed, calling fail...");
+            for (Racer racer : racers) {
+                racer.provider.cancel();
+                racer.provider.onDestroy();
+            }
+            racers.clear();
+            getSourceProvider().gpServicesSwitchTask().stop();
+
+            // Racer has already recorded its own failure
+            if (getListener() != null) {
+                getListener().onLocationFailed(lastRacerFailType);
+            }
+        }
+    }
+
+    private void finishRace(Racer racer, Location location) {
+        winner = racer;
+        for (Racer other : racers) {
+            if (other != racer) {
+                other.provider.cancel();
+                other.provider.onDestroy();
+            }
+        }
+        racers.clear();
+        getSourceProvider().gpServicesSwitchTask().stop();
+
+        FlightRecorder.record(RecordType.PROVIDER_SWITCHED, providerTypeOf(racer.provider));
+        activeProvider = racer.provider;
+
+        // Racer has already recorded and cached this location
+        deliverLocation(location);
+    }
+
+    private Racer findGooglePlayServicesRacer() {
+        for (Racer racer : racers) {
+            if (racer.provider instanceof GooglePlayServicesLocationProvider) return racer;
+        }
+        return null;
+    }
+
     void setLocationProvider(LocationProvider provider) {
+        FlightRecorder.record(RecordType.PROVIDER_SWITCHED, providerTypeOf(provider));
         this.activeProvider = provider;
         activeProvider.configure(this);
     }
 
+    @ProviderType
+    private static int providerTypeOf(LocationProvider provider) {
+        if (provider instanceof GooglePlayServicesLocationProvider) return ProviderType.GOOGLE_PLAY_SERVICES;
+        if (provider instanceof DefaultLocationProvider) return ProviderType.DEFAULT_PROVIDERS;
+        return ProviderType.NONE;
+    }
+
+    /**
+     * Stands between a racing provider and the actual listener, and only lets events through
+     * while the race is on or if its provider has won the race.
+     */
+    private class Racer implements BatchLocationListener, FallbackListener {
+
+        LocationProvider provider;
+        Location candidate;
+        boolean failed;
+
+        private boolean isRelevant() {
+            return winner == null ? isRacing(this) : winner == this;
+        }
+
+        @Override
+        public void onProcessTypeChanged(@ProcessType int processType) {
+            if (isRelevant() && getListener() != null) {
+                getListener().onProcessTypeChanged(processType);
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Location location) {
+            onRacerLocationChanged(this, location);
+        }
+
+        @Override
+        public void onLocationsChanged(List<Location> locations) {
+            if (winner == this) {
+                deliverLocations(locations);
+            } else {
+                onRacerLocationChanged(this, LocationUtils.findMostAccurate(locations));
+            }
+        }
+
+        @Override
+        public void onLocationFailed(@FailType int type) {
+            onRacerFailed(this, type);
+        }
+
+        @Override
+        public void onFallback() {
+            onRacerFailed(this, FailType.GOOGLE_PLAY_SERVICES_NOT_AVAILABLE);
+        }
+
+        @Override
+        public void onPermissionGranted(boolean alreadyHadPermission) {
+            // Permission is handled by LocationManager, not by the providers
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+            if (isRelevant() && getListener() != null) {
+                getListener().onStatusChanged(provider, status, extras);
+            }
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+            if (isRelevant() && getListener() != null) {
+                getListener().onProviderEnabled(provider);
+            }
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+            if (isRelevant() && getListener() != null) {
+                getListener().onProviderDisabled(provider);
+            }
+        }
+    }
+
     // For test purposes
     void setDispatcherLocationSource(DispatcherLocationSource dispatcherLocationSource) {
         this.dispatcherLocationSource = dispatcherLocationSource;
@@ -241,7 +585,7 @@ public class DispatcherLocationProvider extends LocationProvider implements Cont
 
     private DispatcherLocationSource getSourceProvider() {
         if (dispatcherLocationSource == null) {
-            dispatcherLocationSource = new DispatcherLocationSource(this);
+            dispatcherLocationSource = new DispatcherLocationSource(this, getLooper());
         }
         return dispatcherLocationSource;
     }
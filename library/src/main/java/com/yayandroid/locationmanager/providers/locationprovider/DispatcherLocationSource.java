@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface.OnCancelListener;
+import android.os.Looper;
 
 import androidx.annotation.Nullable;
 
@@ -18,8 +19,8 @@ class DispatcherLocationSource {
 
     private ContinuousTask gpServicesSwitchTask;
 
-    DispatcherLocationSource(ContinuousTaskRunner continuousTaskRunner) {
-        this.gpServicesSwitchTask = new ContinuousTask(GOOGLE_PLAY_SERVICE_SWITCH_TASK, continuousTaskRunner);
+    DispatcherLocationSource(ContinuousTaskRunner continuousTaskRunner, @Nullable Looper looper) {
+        this.gpServicesSwitchTask = new ContinuousTask(GOOGLE_PLAY_SERVICE_SWITCH_TASK, continuousTaskRunner, looper);
     }
 
     DefaultLocationProvider createDefaultLocationProvider() {
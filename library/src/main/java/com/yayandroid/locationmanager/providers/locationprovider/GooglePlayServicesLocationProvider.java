@@ -11,21 +11,34 @@ import androidx.annotation.Nullable;
 import com.google.android.gms.common.api.ApiException;
 import com.google.android.gms.common.api.CommonStatusCodes;
 import com.google.android.gms.common.api.ResolvableApiException;
+import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationSettingsResponse;
 import com.google.android.gms.location.LocationSettingsStatusCodes;
 import com.google.android.gms.tasks.Task;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.constants.RecordType;
 import com.yayandroid.locationmanager.constants.RequestCode;
+import com.yayandroid.locationmanager.helper.LocationUtils;
 import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.TraceUtils;
+import com.yayandroid.locationmanager.helper.flightrecorder.FlightRecorder;
 import com.yayandroid.locationmanager.listener.FallbackListener;
 import com.yayandroid.locationmanager.providers.locationprovider.GooglePlayServicesLocationSource.SourceListener;
 
 import java.lang.ref.WeakReference;
+import java.util.List;
 
 public class GooglePlayServicesLocationProvider extends LocationProvider implements SourceListener {
 
+    private static final String TAG = "GooglePlayServicesLocationProvider";
+    private static final String TRACE_GET = "GooglePlayServicesLocationProvider#get";
+    private static final String TRACE_LAST_LOCATION = "GooglePlayServicesLocationProvider#lastLocation";
+    private static final String TRACE_SETTINGS_API = "GooglePlayServicesLocationProvider#settingsApi";
+    private static final String TRACE_REQUEST_UPDATES = "GooglePlayServicesLocationProvider#requestLocationUpdates";
+
     private final WeakReference<FallbackListener> fallbackListener;
 
     private boolean settingsDialogIsOn = false;
@@ -38,6 +51,8 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
 
     @Override
     public void onResume() {
+        super.onResume();
+
         if (!settingsDialogIsOn && (isWaiting() || getConfiguration().keepTracking())) {
             requestLocationUpdate();
         }
@@ -45,6 +60,8 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
 
     @Override
     public void onPause() {
+        super.onPause();
+
         // not getSourceProvider, because we don't want to create if it doesn't already exist
         if (!settingsDialogIsOn && googlePlayServicesLocationSource != null) {
             removeLocationUpdates();
@@ -66,18 +83,29 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
 
     @Override
     public void get() {
+        TraceUtils.beginSection(TRACE_GET);
+        try {
+            start();
+        } finally {
+            TraceUtils.endSection();
+        }
+    }
+
+    private void start() {
         setWaiting(true);
+        resetInterval();
 
         if (getContext() != null) {
-            LogUtils.logI("Start request location updates.");
+            LogUtils.logI(TAG, "Start request location updates.");
 
             if (getConfiguration().googlePlayServicesConfiguration().ignoreLastKnowLocation()) {
-                LogUtils.logI("Configuration requires to ignore last know location from GooglePlayServices Api.");
+                LogUtils.logI(TAG, "Configuration requires to ignore last know location from GooglePlayServices Api.");
 
                 // Request fresh location
                 locationRequired();
             } else {
                 // Try to get last location, if failed then request fresh location
+                beginAsyncSection(TRACE_LAST_LOCATION);
                 getSourceProvider().requestLastLocation();
             }
         } else {
@@ -87,25 +115,39 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
 
     @Override
     public void cancel() {
-        LogUtils.logI("Canceling GooglePlayServiceLocationProvider...");
+        LogUtils.logI(TAG, "Canceling GooglePlayServiceLocationProvider...");
+        stopMotionGate();
+        resetInterval();
+        // Callbacks of the cancelled request may never arrive, so its trace sections are ended here
+        setWaiting(false);
         // not getSourceProvider, because we don't want to create if it doesn't already exist
         if (googlePlayServicesLocationSource != null) {
             removeLocationUpdates();
         }
     }
 
+    @Override
+    public void flush() {
+        // not getSourceProvider, because there is nothing to flush if it doesn't already exist
+        if (googlePlayServicesLocationSource != null) {
+            LogUtils.logI(TAG, "Flushing batched locations...");
+            googlePlayServicesLocationSource.flushLocations();
+        }
+    }
+
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == RequestCode.SETTINGS_API) {
             settingsDialogIsOn = false;
+            FlightRecorder.record(RecordType.SETTINGS_API_DIALOG_RESULT, resultCode);
 
             if (resultCode == Activity.RESULT_OK) {
-                LogUtils.logI("We got settings changed, requesting location update...");
+                LogUtils.logI(TAG, "We got settings changed, requesting location update...");
                 requestLocationUpdate();
             } else {
-                LogUtils.logI("User denied settingsApi dialog, GooglePlayServices SettingsApi failing...");
+                LogUtils.logI(TAG, "User denied settingsApi dialog, GooglePlayServices SettingsApi failing...");
                 settingsApiFail(FailType.GOOGLE_PLAY_SERVICES_SETTINGS_DENIED);
             }
         }
@@ -113,16 +155,50 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
     }
 
     public void onLocationChanged(@NonNull Location location) {
-        if (getListener() != null) {
-            getListener().onLocationChanged(location);
+        if (!notifyLocationChanged(location)) {
+            LogUtils.logI(TAG, "Location is dropped by processors, keep waiting for another one.");
+            return;
         }
 
         // Set waiting as false because we got at least one, even though we keep tracking user's location
         setWaiting(false);
 
-        if (!getConfiguration().keepTracking()) {
+        if (getConfiguration().keepTracking()) {
+            startMotionGate();
+        } else {
             // If need to update location once, clear the listener to prevent multiple call
-            LogUtils.logI("We got location and no need to keep tracking, so location update is removed.");
+            LogUtils.logI(TAG, "We got location and no need to keep tracking, so location update is removed.");
+
+            removeLocationUpdates();
+        }
+    }
+
+    /**
+     * Delivers the whole batch at once, so that update removal and waiting state are handled once per batch.
+     * Batches larger than {@linkplain GooglePlayServicesConfiguration#maxBatchSize()} are split.
+     */
+    public void onLocationsChanged(@NonNull List<Location> locations) {
+        int size = locations.size();
+        int maxBatchSize = getConfiguration().googlePlayServicesConfiguration().maxBatchSize();
+        boolean delivered = false;
+        for (int start = 0; start < size; start += maxBatchSize) {
+            List<Location> batch = locations.subList(start, Math.min(size, start + maxBatchSize));
+            if (batch.size() == 1) {
+                delivered |= notifyLocationChanged(batch.get(0));
+            } else {
+                delivered |= notifyLocationsChanged(batch);
+            }
+        }
+        if (!delivered) {
+            LogUtils.logI(TAG, "Locations are dropped by processors, keep waiting for another one.");
+            return;
+        }
+        setWaiting(false);
+
+        if (getConfiguration().keepTracking()) {
+            startMotionGate();
+        } else {
+            LogUtils.logI(TAG, "We got locations and no need to keep tracking, so location update is removed.");
 
             removeLocationUpdates();
         }
@@ -135,29 +211,40 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
             return;
         }
 
-        for (Location location : locationResult.getLocations()) {
-            onLocationChanged(location);
+        List<Location> locations = locationResult.getLocations();
+        if (locations.isEmpty()) {
+            return;
+        }
+
+        if (locations.size() == 1 || getConfiguration().googlePlayServicesConfiguration().deliverBestOfBatch()) {
+            onLocationChanged(LocationUtils.findMostAccurate(locations));
+        } else {
+            onLocationsChanged(locations);
         }
     }
 
     @Override
     public void onSuccess(LocationSettingsResponse locationSettingsResponse) {
+        endAsyncSection();
         // All location settings are satisfied. The client can initialize location
         // requests here.
-        LogUtils.logI("We got GPS, Wifi and/or Cell network providers enabled enough "
+        FlightRecorder.record(RecordType.SETTINGS_API_RESULT, LocationSettingsStatusCodes.SUCCESS);
+        LogUtils.logI(TAG, "We got GPS, Wifi and/or Cell network providers enabled enough "
                 + "to receive location as we needed. Requesting location update...");
         requestLocationUpdate();
     }
 
     @Override
     public void onFailure(@NonNull Exception exception) {
+        endAsyncSection();
         int statusCode = ((ApiException) exception).getStatusCode();
+        FlightRecorder.record(RecordType.SETTINGS_API_RESULT, statusCode);
 
         switch (statusCode) {
             case LocationSettingsStatusCodes.SETTINGS_CHANGE_UNAVAILABLE:
                 // Location settings are not satisfied.
                 // However, we have no way to fix the settings so we won't show the dialog.
-                LogUtils.logE("Settings change is not available, SettingsApi failing...");
+                LogUtils.logE(TAG, "Settings change is not available, SettingsApi failing...");
                 settingsApiFail(FailType.GOOGLE_PLAY_SERVICES_SETTINGS_DIALOG);
 
                 break;
@@ -170,7 +257,10 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
                 break;
             default:
                 // for other CommonStatusCodes values
-                LogUtils.logE("LocationSettings failing, status: " + CommonStatusCodes.getStatusCodeString(statusCode));
+                if (LogUtils.isEnabled()) {
+                    LogUtils.logE(TAG, "LocationSettings failing, status: %s",
+                          CommonStatusCodes.getStatusCodeString(statusCode));
+                }
                 settingsApiFail(FailType.GOOGLE_PLAY_SERVICES_SETTINGS_DENIED);
 
                 break;
@@ -181,17 +271,17 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
         try {
             // Show the dialog by calling startResolutionForResult(),
             // and check the result in onActivityResult().
-            LogUtils.logI("We need settingsApi dialog to switch required settings on.");
+            LogUtils.logI(TAG, "We need settingsApi dialog to switch required settings on.");
             if (getActivity() != null) {
-                LogUtils.logI("Displaying the dialog...");
+                LogUtils.logI(TAG, "Displaying the dialog...");
                 getSourceProvider().startSettingsApiResolutionForResult(resolvable, getActivity());
                 settingsDialogIsOn = true;
             } else {
-                LogUtils.logI("Settings Api cannot show dialog if LocationManager is not running on an activity!");
+                LogUtils.logI(TAG, "Settings Api cannot show dialog if LocationManager is not running on an activity!");
                 settingsApiFail(FailType.VIEW_NOT_REQUIRED_TYPE);
             }
         } catch (IntentSender.SendIntentException e) {
-            LogUtils.logE("Error on displaying SettingsApi dialog, SettingsApi failing...");
+            LogUtils.logE(TAG, "Error on displaying SettingsApi dialog, SettingsApi failing...");
             settingsApiFail(FailType.GOOGLE_PLAY_SERVICES_SETTINGS_DIALOG);
         }
     }
@@ -202,47 +292,70 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
      */
     @Override
     public void onLastKnowLocationTaskReceived(@NonNull Task<Location> task) {
+        endAsyncSection();
         if (task.isSuccessful() && task.getResult() != null) {
             Location lastKnownLocation = task.getResult();
 
-            LogUtils.logI("LastKnowLocation is available.");
+            LogUtils.logI(TAG, "LastKnowLocation is available.");
             onLocationChanged(lastKnownLocation);
 
-            if (getConfiguration().keepTracking()) {
-                LogUtils.logI("Configuration requires keepTracking.");
+            // Still waiting if it is dropped by processors
+            if (getConfiguration().keepTracking() || isWaiting()) {
+                LogUtils.logI(TAG, "Configuration requires keepTracking.");
                 locationRequired();
             }
         } else {
-            LogUtils.logI("LastKnowLocation is not available.");
+            LogUtils.logI(TAG, "LastKnowLocation is not available.");
             locationRequired();
         }
     }
 
     void locationRequired() {
-        LogUtils.logI("Ask for location update...");
+        LogUtils.logI(TAG, "Ask for location update...");
         if (getConfiguration().googlePlayServicesConfiguration().askForSettingsApi()) {
-            LogUtils.logI("Asking for SettingsApi...");
+            LogUtils.logI(TAG, "Asking for SettingsApi...");
+            beginAsyncSection(TRACE_SETTINGS_API);
             getSourceProvider().checkLocationSettings();
         } else {
-            LogUtils.logI("SettingsApi is not enabled, requesting for location update...");
+            LogUtils.logI(TAG, "SettingsApi is not enabled, requesting for location update...");
             requestLocationUpdate();
         }
     }
 
+    @Override
+    protected void onIntervalChanged(long interval) {
+        getSourceProvider().updateInterval(interval);
+    }
+
+    @Override
+    protected void suspendUpdates() {
+        removeLocationUpdates();
+    }
+
+    @Override
+    protected void resumeUpdates() {
+        // Re-acquire at the configured interval, rather than the one adapted while the device was slowing down
+        getSourceProvider().resetInterval();
+        requestLocationUpdate();
+    }
+
     void requestLocationUpdate() {
-        if (getListener() != null) {
-            getListener().onProcessTypeChanged(ProcessType.GETTING_LOCATION_FROM_GOOGLE_PLAY_SERVICES);
-        }
+        notifyProcessTypeChanged(ProcessType.GETTING_LOCATION_FROM_GOOGLE_PLAY_SERVICES);
 
-        LogUtils.logI("Requesting location update...");
-        getSourceProvider().requestLocationUpdate();
+        LogUtils.logI(TAG, "Requesting location update...");
+        TraceUtils.beginSection(TRACE_REQUEST_UPDATES);
+        try {
+            getSourceProvider().requestLocationUpdate();
+        } finally {
+            TraceUtils.endSection();
+        }
     }
 
     void settingsApiFail(@FailType int failType) {
         if (getConfiguration().googlePlayServicesConfiguration().failOnSettingsApiSuspended()) {
             failed(failType);
         } else {
-            LogUtils.logE("Even though settingsApi failed, configuration requires moving on. "
+            LogUtils.logE(TAG, "Even though settingsApi failed, configuration requires moving on. "
                   + "So requesting location update...");
 
             requestLocationUpdate();
@@ -253,13 +366,37 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
         if (getConfiguration().googlePlayServicesConfiguration().fallbackToDefault() && fallbackListener.get() != null) {
             fallbackListener.get().onFallback();
         } else {
-            if (getListener() != null) {
-                getListener().onLocationFailed(type);
-            }
+            notifyLocationFailed(type);
         }
         setWaiting(false);
     }
 
+    /**
+     * Copies the request of the configuration, so that this provider can change it without affecting the others
+     * which are created from the same configuration
+     */
+    LocationRequest createLocationRequest() {
+        GooglePlayServicesConfiguration configuration = getConfiguration().googlePlayServicesConfiguration();
+        LocationRequest locationRequest = copyOf(configuration.locationRequest());
+        if (configuration.maxWaitTime() > 0) {
+            // Don't let the hardware hold more than maxBatchSize locations, given they arrive at the requested interval
+            locationRequest.setMaxWaitTime(Math.min(configuration.maxWaitTime(),
+                  locationRequest.getInterval() * configuration.maxBatchSize()));
+        }
+        return locationRequest;
+    }
+
+    private static LocationRequest copyOf(LocationRequest locationRequest) {
+        return LocationRequest.create()
+              .setPriority(locationRequest.getPriority())
+              .setInterval(locationRequest.getInterval())
+              .setFastestInterval(locationRequest.getFastestInterval())
+              .setMaxWaitTime(locationRequest.getMaxWaitTime())
+              .setNumUpdates(locationRequest.getNumUpdates())
+              .setExpirationTime(locationRequest.getExpirationTime())
+              .setSmallestDisplacement(locationRequest.getSmallestDisplacement());
+    }
+
     // For test purposes
     void setDispatcherLocationSource(GooglePlayServicesLocationSource googlePlayServicesLocationSource) {
         this.googlePlayServicesLocationSource = googlePlayServicesLocationSource;
@@ -268,13 +405,19 @@ public class GooglePlayServicesLocationProvider extends LocationProvider impleme
     private GooglePlayServicesLocationSource getSourceProvider() {
         if (googlePlayServicesLocationSource == null) {
             googlePlayServicesLocationSource = new GooglePlayServicesLocationSource(getContext(),
-                  getConfiguration().googlePlayServicesConfiguration().locationRequest(), this);
+                  createLocationRequest(), this, getLooper());
         }
         return googlePlayServicesLocationSource;
     }
 
+    private void resetInterval() {
+        resetAdaptiveInterval();
+        // not getSourceProvider, because its request is created with the configured interval anyway
+        if (googlePlayServicesLocationSource != null) googlePlayServicesLocationSource.resetInterval();
+    }
+
     private void removeLocationUpdates() {
-        LogUtils.logI("Stop location updates...");
+        LogUtils.logI(TAG, "Stop location updates...");
 
         // not getSourceProvider, because we don't want to create if it doesn't already exist
         if (googlePlayServicesLocationSource != null) {
@@ -5,6 +5,7 @@ import android.content.Context;
 import android.content.IntentSender.SendIntentException;
 import android.location.Location;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -21,13 +22,20 @@ import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.yayandroid.locationmanager.constants.HistogramType;
 import com.yayandroid.locationmanager.constants.RequestCode;
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
 
 class GooglePlayServicesLocationSource extends LocationCallback {
 
     private final FusedLocationProviderClient fusedLocationProviderClient;
     private final LocationRequest locationRequest;
     private final SourceListener sourceListener;
+    private final Looper looper;
+    private final long initialInterval;
+    private final long initialFastestInterval;
+    private boolean isRequestingUpdates;
+    private long requestingSince;
 
     interface SourceListener extends OnSuccessListener<LocationSettingsResponse>, OnFailureListener {
         void onSuccess(LocationSettingsResponse locationSettingsResponse);
@@ -39,8 +47,12 @@ class GooglePlayServicesLocationSource extends LocationCallback {
         void onLastKnowLocationTaskReceived(@NonNull Task<Location> task);
     }
 
-    GooglePlayServicesLocationSource(Context context, LocationRequest locationRequest, SourceListener sourceListener) {
+    GooglePlayServicesLocationSource(Context context, LocationRequest locationRequest, SourceListener sourceListener,
+          @Nullable Looper looper) {
         this.sourceListener = sourceListener;
+        this.looper = looper;
+        this.initialInterval = locationRequest.getInterval();
+        this.initialFastestInterval = locationRequest.getFastestInterval();
         this.locationRequest = locationRequest;
         this.fusedLocationProviderClient = LocationServices.getFusedLocationProviderClient(context);
     }
@@ -73,12 +85,43 @@ class GooglePlayServicesLocationSource extends LocationCallback {
 
     @SuppressWarnings("ResourceType")
     void requestLocationUpdate() {
+        if (!isRequestingUpdates) {
+            isRequestingUpdates = true;
+            requestingSince = SystemClock.elapsedRealtime();
+        }
         // This method is suited for the foreground use cases
-        fusedLocationProviderClient.requestLocationUpdates(locationRequest, this, Looper.myLooper());
+        fusedLocationProviderClient.requestLocationUpdates(locationRequest, this,
+              looper != null ? looper : Looper.myLooper());
+    }
+
+    @NonNull
+    Task<Void> flushLocations() {
+        return fusedLocationProviderClient.flushLocations();
+    }
+
+    /**
+     * Changes the interval of the request, and re-issues it if updates are already requested
+     */
+    void updateInterval(long interval) {
+        locationRequest.setInterval(interval).setFastestInterval(Math.min(initialFastestInterval, interval));
+        if (isRequestingUpdates) {
+            requestLocationUpdate();
+        }
+    }
+
+    /**
+     * Restores the interval which the request is created with, applied once updates are requested again
+     */
+    void resetInterval() {
+        locationRequest.setInterval(initialInterval).setFastestInterval(initialFastestInterval);
     }
 
     @NonNull
     Task<Void> removeLocationUpdates() {
+        if (isRequestingUpdates) {
+            isRequestingUpdates = false;
+            Metrics.record(HistogramType.SUBSCRIPTION_DURATION, SystemClock.elapsedRealtime() - requestingSince);
+        }
         return fusedLocationProviderClient.removeLocationUpdates(this);
     }
 
@@ -0,0 +1,182 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.content.Intent;
+import android.location.Location;
+
+import com.google.android.gms.location.LocationRequest;
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.LocationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instead of opening its own subscription, this provider subscribes to a location hub which is shared by every
+ * {@linkplain HubLocationProvider} in the process, so that many managers cost as much as a single one.
+ * Set it to each manager which should share, via
+ * {@linkplain com.yayandroid.locationmanager.LocationManager.Builder#locationProvider(LocationProvider)}.
+ *
+ * Hub requests locations as fast and as accurate as the most demanding subscriber requires, and every subscriber
+ * receives them at the interval and the distance of its own configuration. Dialogs are displayed and activity
+ * results are expected on the subscriber which joined first.
+ */
+public class HubLocationProvider extends LocationProvider {
+
+    // Locations may arrive slightly earlier than the interval, they shouldn't be skipped for that
+    private static final float INTERVAL_TOLERANCE = 0.1f;
+
+    private boolean resubscribeOnResume;
+    private boolean hasDelivered;
+    private long lastDeliveredTime;
+    private double lastDeliveredLatitude;
+    private double lastDeliveredLongitude;
+
+    @Override
+    public boolean isDialogShowing() {
+        return getHub().isDialogShowing();
+    }
+
+    @Override
+    public void get() {
+        setWaiting(true);
+        hasDelivered = false;
+        getHub().subscribe(this);
+    }
+
+    @Override
+    public void cancel() {
+        resubscribeOnResume = false;
+        getHub().unsubscribe(this);
+        setWaiting(false);
+    }
+
+    @Override
+    public void flush() {
+        getHub().flush();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+
+        if (getHub().isSubscribed(this)) {
+            resubscribeOnResume = true;
+            getHub().unsubscribe(this);
+        }
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        if (resubscribeOnResume) {
+            resubscribeOnResume = false;
+            getHub().subscribe(this);
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        resubscribeOnResume = false;
+        getHub().unsubscribe(this);
+        super.onDestroy();
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        getHub().onActivityResult(this, requestCode, resultCode, data);
+    }
+
+    void onHubProcessTypeChanged(@ProcessType int processType) {
+        notifyProcessTypeChanged(processType);
+    }
+
+    void onHubLocationChanged(Location location) {
+        if (!isDue(location) || !notifyLocationChanged(location)) return;
+
+        markDelivered(location);
+        onDelivered();
+    }
+
+    void onHubLocationsChanged(List<Location> locations) {
+        List<Location> due = null;
+        for (int i = 0, size = locations.size(); i < size; i++) {
+            Location location = locations.get(i);
+            if (isDue(location)) {
+                if (due == null) due = new ArrayList<>(size - i);
+                due.add(location);
+                markDelivered(location);
+            }
+        }
+
+        // Keep subscribed for another one if processors drop all of them
+        if (due != null && notifyLocationsChanged(due)) {
+            onDelivered();
+        }
+    }
+
+    void onHubLocationFailed(@FailType int failType) {
+        resubscribeOnResume = false;
+        setWaiting(false);
+        notifyLocationFailed(failType);
+    }
+
+    /**
+     * Interval in milliseconds which this subscriber wants to receive locations at
+     */
+    long interval() {
+        GooglePlayServicesConfiguration gpConfiguration = getConfiguration().googlePlayServicesConfiguration();
+        if (gpConfiguration != null) {
+            return gpConfiguration.locationRequest().getInterval();
+        }
+        DefaultProviderConfiguration defaultConfiguration = getConfiguration().defaultProviderConfiguration();
+        return defaultConfiguration != null ? defaultConfiguration.requiredTimeInterval() : 0;
+    }
+
+    /**
+     * Distance in meters which this subscriber wants to receive locations at
+     */
+    float smallestDistance() {
+        GooglePlayServicesConfiguration gpConfiguration = getConfiguration().googlePlayServicesConfiguration();
+        if (gpConfiguration != null) {
+            LocationRequest locationRequest = gpConfiguration.locationRequest();
+            return locationRequest.getSmallestDisplacement();
+        }
+        DefaultProviderConfiguration defaultConfiguration = getConfiguration().defaultProviderConfiguration();
+        return defaultConfiguration != null ? defaultConfiguration.requiredDistanceInterval() : 0;
+    }
+
+    // For test purposes
+    LocationHub getHub() {
+        return LocationHub.getInstance();
+    }
+
+    private boolean isDue(Location location) {
+        if (!hasDelivered) return true;
+
+        long minTime = (long) (interval() * (1 - INTERVAL_TOLERANCE));
+        if (location.getTime() - lastDeliveredTime < minTime) return false;
+
+        float minDistance = smallestDistance();
+        return minDistance <= 0 || LocationUtils.distanceBetween(lastDeliveredLatitude, lastDeliveredLongitude,
+              location.getLatitude(), location.getLongitude()) >= minDistance;
+    }
+
+    private void markDelivered(Location location) {
+        hasDelivered = true;
+        lastDeliveredTime = location.getTime();
+        lastDeliveredLatitude = location.getLatitude();
+        lastDeliveredLongitude = location.getLongitude();
+    }
+
+    private void onDelivered() {
+        setWaiting(false);
+        if (!getConfiguration().keepTracking()) {
+            getHub().unsubscribe(this);
+        }
+    }
+}
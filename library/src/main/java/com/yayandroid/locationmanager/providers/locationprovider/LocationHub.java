@@ -0,0 +1,362 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.content.Intent;
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.location.LocationRequest;
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a single underlying {@linkplain DispatcherLocationProvider} for all {@linkplain HubLocationProvider}s
+ * in the process. Requirements of the subscribers are merged into one request, with the fastest interval,
+ * the strictest priority and the smallest distance among them, and the request is re-planned whenever
+ * they change. Every subscriber then receives the locations at its own rate.
+ *
+ * Subscribers may belong to managers which run on different loopers, so the state of the hub is guarded by
+ * the list of subscribers. Subscribers are notified outside of it, on the looper of the underlying provider.
+ * That provider is also started and stopped on its looper, so that it cannot notify subscribers while the lock
+ * is held, nor be stopped by a subscriber which leaves from within its own call.
+ */
+class LocationHub {
+
+    private static final String TAG = "LocationHub";
+
+    private static final LocationHub INSTANCE = new LocationHub();
+
+    private final List<HubLocationProvider> subscribers = new ArrayList<>();
+    private final HubListener hubListener = new HubListener();
+
+    private LocationProvider provider;
+    private Looper providerLooper;
+    private HubLocationProvider owner;
+    private Requirements plannedRequirements;
+
+    static LocationHub getInstance() {
+        return INSTANCE;
+    }
+
+    void subscribe(@NonNull HubLocationProvider subscriber) {
+        synchronized (subscribers) {
+            if (subscribers.contains(subscriber)) return;
+
+            LogUtils.logI(TAG, "Subscriber joined, there are %d subscribers.", subscribers.size() + 1);
+            subscribers.add(subscriber);
+            plan();
+        }
+    }
+
+    void unsubscribe(@NonNull HubLocationProvider subscriber) {
+        synchronized (subscribers) {
+            if (!subscribers.remove(subscriber)) return;
+
+            LogUtils.logI(TAG, "Subscriber left, there are %d subscribers.", subscribers.size());
+            plan();
+        }
+    }
+
+    boolean isSubscribed(@NonNull HubLocationProvider subscriber) {
+        synchronized (subscribers) {
+            return subscribers.contains(subscriber);
+        }
+    }
+
+    boolean isDialogShowing() {
+        LocationProvider current = currentProvider();
+        return current != null && current.isDialogShowing();
+    }
+
+    void flush() {
+        LocationProvider current = currentProvider();
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    void onActivityResult(@NonNull HubLocationProvider subscriber, int requestCode, int resultCode,
+          Intent data) {
+        LocationProvider current;
+        synchronized (subscribers) {
+            // Only the owner's host could have started an activity on behalf of the provider
+            current = subscriber == owner ? provider : null;
+        }
+
+        if (current != null) {
+            current.onActivityResult(requestCode, resultCode, data);
+        }
+    }
+
+    /**
+     * Restarts the underlying provider only if the merged requirements are changed,
+     * or the subscriber whose context it runs with is gone. Call this while holding the lock,
+     * the provider is started later on its looper.
+     */
+    private void plan() {
+        if (subscribers.isEmpty()) {
+            LogUtils.logI(TAG, "No subscribers left, stopping provider.");
+            stop();
+            return;
+        }
+
+        Requirements requirements = Requirements.merge(subscribers);
+        if (provider != null && subscribers.contains(owner) && requirements.equals(plannedRequirements)) {
+            return;
+        }
+
+        stop();
+
+        owner = subscribers.get(0);
+        plannedRequirements = requirements;
+        LogUtils.logI(TAG, "Planned new request, interval: %d", requirements.interval);
+
+        // Looper of the owner's manager, or the one it would be requesting on without a looper of its own
+        providerLooper = owner.getLooper();
+        if (providerLooper == null) providerLooper = Looper.myLooper();
+        if (providerLooper == null) providerLooper = Looper.getMainLooper();
+        provider = createProvider();
+        provider.configure(owner.getContextProcessor(), createConfiguration(requirements), hubListener,
+              providerLooper);
+        start(provider);
+    }
+
+    private void start(final LocationProvider started) {
+        post(providerLooper, new Runnable() {
+            @Override
+            public void run() {
+                synchronized (subscribers) {
+                    // Replaced before it got the chance to start, it is already stopped
+                    if (provider != started) return;
+                }
+                started.get();
+            }
+        });
+    }
+
+    @Nullable
+    private LocationProvider currentProvider() {
+        synchronized (subscribers) {
+            return provider;
+        }
+    }
+
+    // For test purposes
+    void post(@NonNull Looper looper, @NonNull Runnable runnable) {
+        new Handler(looper).post(runnable);
+    }
+
+    // For test purposes
+    LocationProvider createProvider() {
+        return new DispatcherLocationProvider();
+    }
+
+    // For test purposes
+    List<HubLocationProvider> subscribers() {
+        return subscribers;
+    }
+
+    /**
+     * Call this while holding the lock, the provider is stopped later on its looper,
+     * where it is not started anymore if that is still pending
+     */
+    private void stop() {
+        if (provider != null) {
+            final LocationProvider stopped = provider;
+            post(providerLooper, new Runnable() {
+                @Override
+                public void run() {
+                    stopped.cancel();
+                    stopped.onDestroy();
+                }
+            });
+            provider = null;
+            providerLooper = null;
+        }
+        owner = null;
+        plannedRequirements = null;
+    }
+
+    /**
+     * Creates the configuration of the underlying provider, which keeps tracking with merged requirements and
+     * nothing else. Everything else of the subscribers, such as processors, the adaptive interval or the motion
+     * gate, is left to each of them, as they apply their own.
+     */
+    static LocationConfiguration createConfiguration(Requirements requirements) {
+        LocationConfiguration.Builder builder = new LocationConfiguration.Builder()
+              .keepTracking(true);
+
+        if (requirements.googlePlayServicesConfiguration != null) {
+            LocationRequest locationRequest = LocationRequest.create()
+                  .setPriority(requirements.priority)
+                  .setInterval(requirements.interval)
+                  .setFastestInterval(requirements.fastestInterval)
+                  .setSmallestDisplacement(requirements.distance);
+            builder.useGooglePlayServices(requirements.googlePlayServicesConfiguration.newBuilder()
+                  .locationRequest(locationRequest)
+                  .build());
+        }
+
+        if (requirements.defaultProviderConfiguration != null) {
+            builder.useDefaultProviders(requirements.defaultProviderConfiguration.newBuilder()
+                  .requiredTimeInterval(requirements.interval)
+                  .requiredDistanceInterval((long) requirements.distance)
+                  .build());
+        }
+
+        return builder.build();
+    }
+
+    static final class Requirements {
+
+        long interval = Long.MAX_VALUE;
+        long fastestInterval = Long.MAX_VALUE;
+        float distance = Float.MAX_VALUE;
+        int priority = LocationRequest.PRIORITY_NO_POWER;
+        GooglePlayServicesConfiguration googlePlayServicesConfiguration;
+        DefaultProviderConfiguration defaultProviderConfiguration;
+
+        /**
+         * Interval of a subscriber is the one of GooglePlayServices when it is configured,
+         * since that is what it would be using on its own, otherwise the one of the default providers
+         */
+        static Requirements merge(List<HubLocationProvider> subscribers) {
+            Requirements requirements = new Requirements();
+            for (int i = 0, size = subscribers.size(); i < size; i++) {
+                HubLocationProvider subscriber = subscribers.get(i);
+                requirements.interval = Math.min(requirements.interval, subscriber.interval());
+                requirements.distance = Math.min(requirements.distance, subscriber.smallestDistance());
+
+                LocationConfiguration configuration = subscriber.getConfiguration();
+                GooglePlayServicesConfiguration gpConfiguration = configuration.googlePlayServicesConfiguration();
+                if (gpConfiguration != null) {
+                    LocationRequest locationRequest = gpConfiguration.locationRequest();
+                    requirements.priority = Math.min(requirements.priority, locationRequest.getPriority());
+                    requirements.fastestInterval = Math.min(requirements.fastestInterval,
+                          locationRequest.getFastestInterval());
+                    if (requirements.googlePlayServicesConfiguration == null) {
+                        requirements.googlePlayServicesConfiguration = gpConfiguration;
+                    }
+                }
+                if (requirements.defaultProviderConfiguration == null) {
+                    requirements.defaultProviderConfiguration = configuration.defaultProviderConfiguration();
+                }
+            }
+            requirements.fastestInterval = Math.min(requirements.fastestInterval, requirements.interval);
+            return requirements;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Requirements)) return false;
+
+            Requirements that = (Requirements) o;
+            return interval == that.interval && fastestInterval == that.fastestInterval
+                  && Float.compare(distance, that.distance) == 0 && priority == that.priority
+                  && googlePlayServicesConfiguration == that.googlePlayServicesConfiguration
+                  && defaultProviderConfiguration == that.defaultProviderConfiguration;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (interval ^ (interval >>> 32));
+            result = 31 * result + (int) (fastestInterval ^ (fastestInterval >>> 32));
+            result = 31 * result + Float.floatToIntBits(distance);
+            result = 31 * result + priority;
+            return result;
+        }
+    }
+
+    /**
+     * Subscribers may leave while they are being notified, so they are always iterated over a copy
+     */
+    private class HubListener implements BatchLocationListener {
+
+        private HubLocationProvider[] snapshot() {
+            synchronized (subscribers) {
+                return subscribers.toArray(new HubLocationProvider[subscribers.size()]);
+            }
+        }
+
+        @Override
+        public void onProcessTypeChanged(@ProcessType int processType) {
+            for (HubLocationProvider subscriber : snapshot()) {
+                subscriber.onHubProcessTypeChanged(processType);
+            }
+        }
+
+        @Override
+        public void onLocationChanged(Location location) {
+            for (HubLocationProvider subscriber : snapshot()) {
+                subscriber.onHubLocationChanged(location);
+            }
+        }
+
+        @Override
+        public void onLocationsChanged(List<Location> locations) {
+            for (HubLocationProvider subscriber : snapshot()) {
+                subscriber.onHubLocationsChanged(locations);
+            }
+        }
+
+        @Override
+        public void onLocationFailed(@FailType int type) {
+            LogUtils.logI(TAG, "Provider failed, every subscriber is dropped.");
+            HubLocationProvider[] failed;
+            synchronized (subscribers) {
+                failed = subscribers.toArray(new HubLocationProvider[subscribers.size()]);
+                subscribers.clear();
+                stop();
+            }
+
+            for (HubLocationProvider subscriber : failed) {
+                subscriber.onHubLocationFailed(type);
+            }
+        }
+
+        @Override
+        public void onPermissionGranted(boolean alreadyHadPermission) {
+            // Subscribers ask for permission on their own
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+            for (HubLocationProvider subscriber : snapshot()) {
+                if (subscriber.getListener() != null) {
+                    subscriber.getListener().onStatusChanged(provider, status, extras);
+                }
+            }
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+            for (HubLocationProvider subscriber : snapshot()) {
+                if (subscriber.getListener() != null) {
+                    subscriber.getListener().onProviderEnabled(provider);
+                }
+            }
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+            for (HubLocationProvider subscriber : snapshot()) {
+                if (subscriber.getListener() != null) {
+                    subscriber.getListener().onProviderDisabled(provider);
+                }
+            }
+        }
+    }
+}
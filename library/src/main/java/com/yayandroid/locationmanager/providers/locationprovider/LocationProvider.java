@@ -3,24 +3,66 @@ package com.yayandroid.locationmanager.providers.locationprovider;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.location.Location;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.CallSuper;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.yayandroid.locationmanager.LocationManager;
+import com.yayandroid.locationmanager.LocationSample;
+import com.yayandroid.locationmanager.configuration.AdaptiveIntervalConfiguration;
 import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.configuration.MotionGateConfiguration;
+import com.yayandroid.locationmanager.constants.CounterType;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.HistogramType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.constants.RecordType;
+import com.yayandroid.locationmanager.helper.AdaptiveIntervalController;
+import com.yayandroid.locationmanager.helper.LocationUtils;
 import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.TraceUtils;
+import com.yayandroid.locationmanager.helper.cache.LocationCache;
+import com.yayandroid.locationmanager.helper.flightrecorder.FlightRecorder;
+import com.yayandroid.locationmanager.helper.metrics.Metrics;
+import com.yayandroid.locationmanager.helper.motion.DeviceMotionSensor;
+import com.yayandroid.locationmanager.helper.motion.MotionGate;
+import com.yayandroid.locationmanager.helper.motion.MotionSensor;
+import com.yayandroid.locationmanager.helper.track.TrackRecorder;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
 import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.listener.LocationSampleListener;
+import com.yayandroid.locationmanager.processor.LocationProcessorChain;
 import com.yayandroid.locationmanager.view.ContextProcessor;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 
 public abstract class LocationProvider {
 
+    private static final String TAG = "LocationProvider";
+    private static final long NONE = -1;
+    private static final String TRACE_WAITING = "LocationProvider#waiting";
+
     private boolean isWaiting = false;
+    private long waitingSince = NONE;
+    private int traceRequestId;
+    private String asyncSection;
     private LocationConfiguration configuration;
     private ContextProcessor contextProcessor;
+    private Looper looper;
+    private AdaptiveIntervalController adaptiveIntervalController;
+    private MotionGate motionGate;
+    private LocationProcessorChain processorChain;
+    // Reused for every batch, since processors may drop some of the locations of the given list
+    private final List<Location> processedLocations = new ArrayList<>();
+    @Nullable private TrackRecorder trackRecorder;
+    private LocationCache locationCache = LocationCache.getInstance();
     private WeakReference<LocationListener> weakLocationListener;
 
     /**
@@ -31,10 +73,21 @@ public abstract class LocationProvider {
           LocationListener listener) {
         this.contextProcessor = contextProcessor;
         this.configuration = configuration;
+        this.processorChain = null;
         this.weakLocationListener = new WeakReference<>(listener);
         initialize();
     }
 
+    /**
+     * Same as {@linkplain #configure(ContextProcessor, LocationConfiguration, LocationListener)}, but location
+     * updates and timeouts are to be delivered on given looper, see {@linkplain #getLooper()}
+     */
+    public void configure(ContextProcessor contextProcessor, LocationConfiguration configuration,
+          LocationListener listener, @Nullable Looper looper) {
+        this.looper = looper;
+        configure(contextProcessor, configuration, listener);
+    }
+
     /**
      * This is used for passing object between LocationProviders
      */
@@ -42,10 +95,36 @@ public abstract class LocationProvider {
     public void configure(LocationProvider locationProvider) {
         this.contextProcessor = locationProvider.contextProcessor;
         this.configuration = locationProvider.configuration;
+        this.processorChain = null;
+        this.looper = locationProvider.looper;
+        this.trackRecorder = locationProvider.trackRecorder;
         this.weakLocationListener = locationProvider.weakLocationListener;
         initialize();
     }
 
+    /**
+     * Same as {@linkplain #configure(LocationProvider)}, but events are delivered to given listener instead,
+     * so that the parent provider can decide which ones to pass on. Listener is held weakly.
+     * {@linkplain TrackRecorder} is not passed on either, parent records the ones it delivers.
+     */
+    @CallSuper
+    void configure(LocationProvider locationProvider, LocationListener listener) {
+        this.contextProcessor = locationProvider.contextProcessor;
+        this.configuration = locationProvider.configuration;
+        this.processorChain = null;
+        this.looper = locationProvider.looper;
+        this.weakLocationListener = new WeakReference<>(listener);
+        initialize();
+    }
+
+    /**
+     * Every location delivered to the listener is appended to given recorder as well,
+     * see {@linkplain LocationManager.Builder#record(TrackRecorder)}
+     */
+    public void setTrackRecorder(@Nullable TrackRecorder trackRecorder) {
+        this.trackRecorder = trackRecorder;
+    }
+
     /**
      * This method will be used to determine whether any LocationProvider
      * is currently displaying dialog or something.
@@ -63,11 +142,58 @@ public abstract class LocationProvider {
      */
     public abstract void cancel();
 
+    /**
+     * Override when your provider batches locations, in order to deliver the ones collected so far right away
+     */
+    public void flush() {
+    }
+
+    /**
+     * Override when your provider can change how often it requests locations, in order to apply
+     * the interval picked by {@linkplain AdaptiveIntervalConfiguration} while keeping tracking
+     */
+    protected void onIntervalChanged(long interval) {
+    }
+
+    /**
+     * Forgets the speed estimated so far, call this whenever a request begins or ends,
+     * so that the interval adapted for the previous one is not carried over
+     */
+    protected void resetAdaptiveInterval() {
+        if (adaptiveIntervalController != null) adaptiveIntervalController.reset();
+    }
+
+    /**
+     * Override when your provider keeps tracking, in order to stop location updates while the device is still,
+     * see {@linkplain MotionGateConfiguration}. {@linkplain #resumeUpdates()} is called once it moves again.
+     * Motion is only watched after {@linkplain #startMotionGate()} is called.
+     */
+    protected void suspendUpdates() {
+    }
+
+    /**
+     * Override along with {@linkplain #suspendUpdates()}, in order to request location updates again
+     * at the configured interval
+     */
+    protected void resumeUpdates() {
+    }
+
     /**
      * Call this method while you begin to process getting location
      * and call it when at least one location is received
      */
     public void setWaiting(boolean waiting) {
+        if (waiting && !isWaiting) {
+            // A new request begins, state of the previous one shouldn't affect it
+            if (processorChain != null) processorChain.reset();
+            // Clock is only read if time to first fix is going to be recorded
+            waitingSince = Metrics.isEnabled() ? SystemClock.elapsedRealtime() : NONE;
+            traceRequestId = TraceUtils.nextRequestId();
+            TraceUtils.beginAsyncSection(TRACE_WAITING, traceRequestId);
+        } else if (!waiting && isWaiting) {
+            endAsyncSection();
+            TraceUtils.endAsyncSection(TRACE_WAITING, traceRequestId);
+        }
         this.isWaiting = waiting;
     }
 
@@ -96,12 +222,18 @@ public abstract class LocationProvider {
     @CallSuper
     public void onDestroy() {
         weakLocationListener.clear();
+        stopMotionGate();
+        setWaiting(false);
     }
 
+    @CallSuper
     public void onPause() {
+        if (motionGate != null) motionGate.stop();
     }
 
+    @CallSuper
     public void onResume() {
+        if (motionGate != null) motionGate.start();
     }
 
     protected LocationConfiguration getConfiguration() {
@@ -113,6 +245,56 @@ public abstract class LocationProvider {
         return weakLocationListener.get();
     }
 
+    /**
+     * Looper which location updates and timeouts should be delivered on,
+     * or null to deliver them on the looper of the thread which requests them
+     */
+    @Nullable
+    protected Looper getLooper() {
+        return looper;
+    }
+
+    /**
+     * Begins an async trace section of the current request, which waits for a callback, see {@linkplain TraceUtils}.
+     * Only one is kept open at a time, and it is ended along with the request if the callback never arrives.
+     */
+    protected void beginAsyncSection(@NonNull String name) {
+        endAsyncSection();
+        asyncSection = name;
+        TraceUtils.beginAsyncSection(name, traceRequestId);
+    }
+
+    /**
+     * Ends the async trace section which is begun last, if it isn't ended yet
+     */
+    protected void endAsyncSection() {
+        if (asyncSection != null) {
+            TraceUtils.endAsyncSection(asyncSection, traceRequestId);
+            asyncSection = null;
+        }
+    }
+
+    // For test purposes
+    @Nullable
+    String openAsyncSection() {
+        return asyncSection;
+    }
+
+    /**
+     * Chain which locations of this provider pass through, every provider runs its own copies of the configured
+     * processors so that they keep the state of its locations only
+     */
+    protected LocationProcessorChain getProcessorChain() {
+        if (processorChain == null) {
+            processorChain = getConfiguration().createProcessorChain();
+        }
+        return processorChain;
+    }
+
+    ContextProcessor getContextProcessor() {
+        return contextProcessor;
+    }
+
     @Nullable
     protected Context getContext() {
         return contextProcessor.getContext();
@@ -128,13 +310,263 @@ public abstract class LocationProvider {
         return contextProcessor.getFragment();
     }
 
+    /**
+     * Notifies listener about the new process, prefer this over calling the listener directly
+     * so that the change is also recorded by {@linkplain FlightRecorder}
+     */
+    protected void notifyProcessTypeChanged(@ProcessType int processType) {
+        FlightRecorder.record(RecordType.PROCESS_TYPE_CHANGED, processType);
+
+        if (getListener() != null) {
+            getListener().onProcessTypeChanged(processType);
+        }
+    }
+
+    /**
+     * Notifies listener about the received location, prefer this over calling the listener directly
+     * so that the location is also recorded by {@linkplain FlightRecorder}, passed through the
+     * {@linkplain LocationProcessorChain} and shared via {@linkplain LocationCache}.
+     * {@linkplain LocationSampleListener} receives it as a {@linkplain LocationSample}.
+     *
+     * @return false if the location is dropped by processors, so that the request should be kept waiting
+     */
+    protected boolean notifyLocationChanged(Location location) {
+        FlightRecorder.recordLocation(location.getProvider(), location.getAccuracy());
+        recordMetrics(location);
+
+        Location processed = getProcessorChain().process(location);
+        if (processed == null) {
+            LogUtils.logD(TAG, "Location is dropped by processors.");
+            return false;
+        }
+
+        locationCache.put(processed);
+        deliverLocation(processed);
+
+        adaptInterval(processed);
+        return true;
+    }
+
+    /**
+     * Notifies listener about a location of the {@linkplain LocationCache} which is sufficient for the request,
+     * instead of retrieving a new one. It is passed through the {@linkplain LocationProcessorChain} and the
+     * {@linkplain TrackRecorder} as any received location would be, but it is already in the cache.
+     *
+     * @return false if the location is dropped by processors, so that a new one should be retrieved instead
+     */
+    public boolean notifyCachedLocation(Location location) {
+        FlightRecorder.recordLocation(location.getProvider(), location.getAccuracy());
+
+        // A new request begins, state of the previous one shouldn't affect it
+        LocationProcessorChain processorChain = getProcessorChain();
+        processorChain.reset();
+        Location processed = processorChain.process(location);
+        if (processed == null) {
+            LogUtils.logD(TAG, "Cached location is dropped by processors.");
+            return false;
+        }
+
+        deliverLocation(processed);
+        return true;
+    }
+
+    /**
+     * Notifies listener about the locations received at once, ordered from the oldest to the newest.
+     * {@linkplain BatchLocationListener} receives them in a single call, unless it is a
+     * {@linkplain LocationSampleListener}; any other listener one by one.
+     *
+     * @return false if all of them are dropped by processors, so that the request should be kept waiting
+     */
+    protected boolean notifyLocationsChanged(List<Location> locations) {
+        int size = locations.size();
+        for (int i = 0; i < size; i++) {
+            Location location = locations.get(i);
+            FlightRecorder.recordLocation(location.getProvider(), location.getAccuracy());
+            recordMetrics(location);
+        }
+
+        LocationProcessorChain processorChain = getProcessorChain();
+        if (!processorChain.isEmpty()) {
+            processedLocations.clear();
+            for (int i = 0; i < size; i++) {
+                Location location = processorChain.process(locations.get(i));
+                if (location != null) processedLocations.add(location);
+            }
+            locations = processedLocations;
+            size = processedLocations.size();
+            if (size == 0) {
+                LogUtils.logD(TAG, "All locations are dropped by processors.");
+                return false;
+            }
+        }
+
+        // Cache only keeps the latest one anyway
+        locationCache.put(locations.get(size - 1));
+        deliverLocations(locations);
+
+        for (int i = 0; i < size; i++) {
+            adaptInterval(locations.get(i));
+        }
+        // Not to hold on to them until the next batch
+        processedLocations.clear();
+        return true;
+    }
+
+    /**
+     * Delivers given location to listener as it is, without recording or processing it again. Use this only for
+     * the locations which are already notified by another provider, otherwise see
+     * {@linkplain #notifyLocationChanged(Location)}. Location is appended to the {@linkplain TrackRecorder}
+     * here though, so that only the ones which reach the listener are kept in the track.
+     */
+    protected void deliverLocation(Location location) {
+        if (trackRecorder != null) trackRecorder.append(location);
+
+        LocationListener listener = getListener();
+        if (listener instanceof LocationSampleListener) {
+            notifySample((LocationSampleListener) listener, location);
+        } else if (listener != null) {
+            listener.onLocationChanged(location);
+        }
+    }
+
+    /**
+     * Same as {@linkplain #deliverLocation(Location)}, for the locations which are received at once
+     */
+    protected void deliverLocations(List<Location> locations) {
+        int size = locations.size();
+        if (trackRecorder != null) {
+            for (int i = 0; i < size; i++) {
+                trackRecorder.append(locations.get(i));
+            }
+        }
+
+        LocationListener listener = getListener();
+        if (listener instanceof LocationSampleListener) {
+            for (int i = 0; i < size; i++) {
+                notifySample((LocationSampleListener) listener, locations.get(i));
+            }
+        } else if (listener instanceof BatchLocationListener) {
+            ((BatchLocationListener) listener).onLocationsChanged(locations);
+        } else if (listener != null) {
+            for (int i = 0; i < size; i++) {
+                listener.onLocationChanged(locations.get(i));
+            }
+        }
+    }
+
+    private static void notifySample(LocationSampleListener listener, Location location) {
+        LocationSample sample = LocationSample.obtain(location);
+        try {
+            listener.onLocationSample(sample);
+        } finally {
+            sample.recycle();
+        }
+    }
+
+    private void recordMetrics(Location location) {
+        if (!Metrics.isEnabled()) return;
+
+        Metrics.increment(CounterType.LOCATION_RECEIVED);
+        Metrics.record(HistogramType.ACCURACY, Math.round(location.getAccuracy()));
+        if (waitingSince != NONE) {
+            Metrics.recordTimeToFirstFix(LocationUtils.providerTypeOf(location.getProvider()),
+                  SystemClock.elapsedRealtime() - waitingSince);
+            waitingSince = NONE;
+        }
+    }
+
+    private void adaptInterval(Location location) {
+        AdaptiveIntervalConfiguration adaptiveIntervalConfiguration =
+              getConfiguration().adaptiveIntervalConfiguration();
+        if (adaptiveIntervalConfiguration == null || !getConfiguration().keepTracking()) return;
+
+        if (adaptiveIntervalController == null) {
+            adaptiveIntervalController = new AdaptiveIntervalController(adaptiveIntervalConfiguration);
+        }
+
+        long interval = adaptiveIntervalController.onLocationChanged(location);
+        if (interval != AdaptiveIntervalController.NO_CHANGE) {
+            LogUtils.logI(TAG, "Estimated speed is changed, switching interval to %d ms", interval);
+            onIntervalChanged(interval);
+        }
+    }
+
+    /**
+     * Stops watching motion, call this when location updates are removed for good,
+     * so that they are not resumed once the device moves
+     */
+    protected void stopMotionGate() {
+        if (motionGate != null) {
+            motionGate.stop();
+            motionGate = null;
+        }
+    }
+
+    /**
+     * Starts watching motion if it is configured, call this once location updates are received while
+     * keeping tracking. Calling it again while it is already watching has no effect.
+     */
+    protected void startMotionGate() {
+        MotionGateConfiguration motionGateConfiguration = getConfiguration().motionGateConfiguration();
+        if (motionGate != null || motionGateConfiguration == null || !getConfiguration().keepTracking()) return;
+
+        MotionSensor motionSensor = motionGateConfiguration.motionSensor();
+        if (motionSensor == null) {
+            if (getContext() == null) return;
+            motionSensor = new DeviceMotionSensor(getContext(), motionGateConfiguration.motionThreshold());
+        }
+
+        long quietPeriod = motionGateConfiguration.quietPeriod();
+        motionGate = createMotionGate(motionSensor, quietPeriod, new MotionGate.GateListener() {
+            @Override
+            public void onStill() {
+                FlightRecorder.record(RecordType.UPDATES_SUSPENDED, 0);
+                suspendUpdates();
+            }
+
+            @Override
+            public void onMoving() {
+                FlightRecorder.record(RecordType.UPDATES_RESUMED, 0);
+                // Speed estimated before the device stopped is no longer meaningful
+                resetAdaptiveInterval();
+                resumeUpdates();
+            }
+        });
+        motionGate.start();
+    }
+
+    // For test purposes
+    MotionGate createMotionGate(MotionSensor motionSensor, long quietPeriod, MotionGate.GateListener gateListener) {
+        return new MotionGate(motionSensor, quietPeriod, gateListener, looper);
+    }
+
+    // For test purposes
+    void setLocationCache(LocationCache locationCache) {
+        this.locationCache = locationCache;
+    }
+
+    /**
+     * Notifies listener about the failure, prefer this over calling the listener directly
+     * so that {@linkplain FlightRecorder} can dump what has happened until the failure
+     */
+    protected void notifyLocationFailed(@FailType int failType) {
+        FlightRecorder.recordFailure(failType);
+        Metrics.increment(CounterType.LOCATION_FAILED);
+        if (failType == FailType.TIMEOUT) Metrics.increment(CounterType.TIMEOUT);
+        waitingSince = NONE;
+
+        if (getListener() != null) {
+            getListener().onLocationFailed(failType);
+        }
+    }
+
     protected boolean startActivityForResult(Intent intent, int requestCode) {
         if (getFragment() != null) {
             getFragment().startActivityForResult(intent, requestCode);
         } else if (getActivity() != null) {
             getActivity().startActivityForResult(intent, requestCode);
         } else {
-            LogUtils.logE("Cannot startActivityForResult because host is neither Activity nor Fragment.");
+            LogUtils.logE(TAG, "Cannot startActivityForResult because host is neither Activity nor Fragment.");
             return false;
         }
         return true;
@@ -0,0 +1,252 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.yayandroid.locationmanager.configuration.ReplayConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.LogUtils;
+import com.yayandroid.locationmanager.helper.replay.SyntheticTrack;
+import com.yayandroid.locationmanager.helper.replay.Track;
+import com.yayandroid.locationmanager.helper.replay.TrackPlayer;
+import com.yayandroid.locationmanager.helper.replay.TrackPoint;
+import com.yayandroid.locationmanager.helper.replay.TrackReader;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays back a recorded or a generated {@linkplain Track} as if it was received from a real provider, without
+ * needing a device, permissions or Google Play Services. Meant for load and latency tests of listeners and
+ * processors, set it via
+ * {@linkplain com.yayandroid.locationmanager.LocationManager.Builder#locationProvider(LocationProvider)}.
+ * See {@linkplain TrackReader} and {@linkplain SyntheticTrack} to create a track.
+ *
+ * Track is played on a thread of its own, and locations are delivered on the looper of the manager if it has one,
+ * otherwise on that thread. Playback continues where it is left on resume, and once the track is finished
+ * nothing else is delivered. It fails with {@linkplain FailType#TIMEOUT} if the track is finished without
+ * delivering any location, which only happens when every location is dropped.
+ *
+ * Times of the locations are the ones on the track, shifted to the moment the replay is started, so that they are
+ * the same however fast the track is played and however long it is paused.
+ */
+public class ReplayLocationProvider extends LocationProvider {
+
+    private static final String TAG = "ReplayLocationProvider";
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private final Track track;
+    private final ReplayConfiguration replayConfiguration;
+
+    private volatile Replay replay;
+    private TrackPlayer pausedPlayer;
+    private long pausedElapsedNanos;
+    private Handler handler;
+    private long replayStartTime;
+    private long replayStartElapsedNanos;
+
+    public ReplayLocationProvider(@NonNull Track track) {
+        this(track, new ReplayConfiguration.Builder().build());
+    }
+
+    public ReplayLocationProvider(@NonNull Track track, @NonNull ReplayConfiguration replayConfiguration) {
+        this.track = track;
+        this.replayConfiguration = replayConfiguration;
+    }
+
+    @Override
+    public boolean isDialogShowing() {
+        return false;
+    }
+
+    @Override
+    public void get() {
+        stopReplay();
+        pausedPlayer = null;
+
+        setWaiting(true);
+        notifyProcessTypeChanged(ProcessType.GETTING_LOCATION_FROM_CUSTOM_PROVIDER);
+        handler = getLooper() != null ? new Handler(getLooper()) : null;
+        replayStartTime = System.currentTimeMillis();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            replayStartElapsedNanos = SystemClock.elapsedRealtimeNanos();
+        }
+
+        LogUtils.logI(TAG, "Replaying track of %d points...", track.size());
+        startReplay(new TrackPlayer(track, replayConfiguration), System.nanoTime());
+    }
+
+    @Override
+    public void cancel() {
+        pausedPlayer = null;
+        stopReplay();
+        setWaiting(false);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+
+        Replay current = replay;
+        if (current != null) {
+            stopReplay();
+            pausedPlayer = current.player;
+            pausedElapsedNanos = System.nanoTime() - current.startNanos;
+        }
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        if (pausedPlayer != null) {
+            startReplay(pausedPlayer, System.nanoTime() - pausedElapsedNanos);
+            pausedPlayer = null;
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        cancel();
+    }
+
+    void onPointReplayed(Replay source, TrackPoint point) {
+        if (source.isCancelled) return;
+
+        // Keep replaying until a location reaches the listener
+        if (!notifyLocationChanged(createLocation(point))) return;
+        setWaiting(false);
+
+        if (!getConfiguration().keepTracking()) {
+            stopReplay();
+        }
+    }
+
+    void onReplayFinished(Replay source) {
+        if (source.isCancelled) return;
+
+        LogUtils.logI(TAG, "Track is finished, %d locations are dropped.", source.player.getDroppedCount());
+        replay = null;
+
+        if (isWaiting()) {
+            setWaiting(false);
+            notifyLocationFailed(FailType.TIMEOUT);
+        }
+    }
+
+    private void startReplay(TrackPlayer player, long startNanos) {
+        Replay newReplay = new Replay(player, startNanos);
+        replay = newReplay;
+        newReplay.start();
+    }
+
+    /**
+     * Waits for the thread to leave the player, so that it can be resumed by another one
+     */
+    private void stopReplay() {
+        Replay current = replay;
+        replay = null;
+        if (current == null) return;
+
+        current.isCancelled = true;
+        current.interrupt();
+        if (Thread.currentThread() == current) return;
+
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // For test purposes
+    Location createLocation(TrackPoint point) {
+        Location location = new Location(replayConfiguration.provider());
+        location.setLatitude(point.getLatitude());
+        location.setLongitude(point.getLongitude());
+        if (point.hasAltitude()) location.setAltitude(point.getAltitude());
+        if (point.hasAccuracy()) location.setAccuracy(point.getAccuracy());
+        if (point.hasSpeed()) location.setSpeed(point.getSpeed());
+        if (point.hasBearing()) location.setBearing(point.getBearing());
+        location.setTime(timeOf(point));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            location.setElapsedRealtimeNanos(elapsedRealtimeNanosOf(point));
+        }
+        return location;
+    }
+
+    /**
+     * Wall clock time of the point, in milliseconds
+     */
+    long timeOf(TrackPoint point) {
+        return replayStartTime + point.getTime() - track.startTime();
+    }
+
+    /**
+     * Time of the point since boot, in nanoseconds
+     */
+    long elapsedRealtimeNanosOf(TrackPoint point) {
+        return replayStartElapsedNanos + (point.getTime() - track.startTime()) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * Sleeps until each point is due and delivers it, parking rather than going through a timer
+     * so that rates of hundreds of Hz are kept
+     */
+    class Replay extends Thread {
+
+        final TrackPlayer player;
+        final long startNanos;
+        volatile boolean isCancelled;
+
+        Replay(TrackPlayer player, long startNanos) {
+            super("LocationManager-Replay");
+            setDaemon(true);
+            this.player = player;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void run() {
+            while (!isCancelled) {
+                final TrackPoint point = player.next();
+                if (point == null) {
+                    deliver(new Runnable() {
+                        @Override
+                        public void run() {
+                            onReplayFinished(Replay.this);
+                        }
+                    });
+                    return;
+                }
+
+                long deadline = startNanos + player.getDueNanos();
+                long remaining;
+                while (!isCancelled && (remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (isCancelled) return;
+
+                deliver(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPointReplayed(Replay.this, point);
+                    }
+                });
+            }
+        }
+
+        private void deliver(Runnable runnable) {
+            if (handler != null) {
+                handler.post(runnable);
+            } else {
+                runnable.run();
+            }
+        }
+    }
+}
@@ -12,6 +12,8 @@ import com.yayandroid.locationmanager.providers.dialogprovider.DialogProvider;
 
 public class DefaultPermissionProvider extends PermissionProvider implements DialogListener {
 
+    private static final String TAG = "DefaultPermissionProvider";
+
     private PermissionCompatSource permissionCompatSource;
 
     public DefaultPermissionProvider(String[] requiredPermissions, @Nullable DialogProvider dialogProvider) {
@@ -21,7 +23,7 @@ public class DefaultPermissionProvider extends PermissionProvider implements Dia
     @Override
     public boolean requestPermissions() {
         if (getActivity() == null) {
-            LogUtils.logI("Cannot ask for permissions, "
+            LogUtils.logI(TAG, "Cannot ask for permissions, "
                   + "because DefaultPermissionProvider doesn't contain an Activity instance.");
             return false;
         }
@@ -49,10 +51,10 @@ public class DefaultPermissionProvider extends PermissionProvider implements Dia
             }
 
             if (isDenied) {
-                LogUtils.logI("User denied some of required permissions, task will be aborted!");
+                LogUtils.logI(TAG, "User denied some of required permissions, task will be aborted!");
                 if (getPermissionListener() != null) getPermissionListener().onPermissionsDenied();
             } else {
-                LogUtils.logI("We got all required permission!");
+                LogUtils.logI(TAG, "We got all required permission!");
                 if (getPermissionListener() != null) getPermissionListener().onPermissionsGranted();
             }
         }
@@ -65,7 +67,7 @@ public class DefaultPermissionProvider extends PermissionProvider implements Dia
 
     @Override
     public void onNegativeButtonClick() {
-        LogUtils.logI("User didn't even let us to ask for permission!");
+        LogUtils.logI(TAG, "User didn't even let us to ask for permission!");
         if (getPermissionListener() != null) getPermissionListener().onPermissionsDenied();
     }
 
@@ -75,7 +77,7 @@ public class DefaultPermissionProvider extends PermissionProvider implements Dia
             shouldShowRationale = shouldShowRationale || checkRationaleForPermission(permission);
         }
 
-        LogUtils.logI("Should show rationale dialog for required permissions: " + shouldShowRationale);
+        LogUtils.logI(TAG, "Should show rationale dialog for required permissions: %s", shouldShowRationale);
 
         return shouldShowRationale && getActivity() != null && getDialogProvider() != null;
     }
@@ -91,7 +93,7 @@ public class DefaultPermissionProvider extends PermissionProvider implements Dia
     }
 
     void executePermissionsRequest() {
-        LogUtils.logI("Asking for Runtime Permissions...");
+        LogUtils.logI(TAG, "Asking for Runtime Permissions...");
         if (getFragment() != null) {
             getPermissionCompatSource().requestPermissions(getFragment(),
                   getRequiredPermissions(), RequestCode.RUNTIME_PERMISSION);
@@ -99,7 +101,7 @@ public class DefaultPermissionProvider extends PermissionProvider implements Dia
             getPermissionCompatSource().requestPermissions(getActivity(),
                   getRequiredPermissions(), RequestCode.RUNTIME_PERMISSION);
         } else {
-            LogUtils.logE("Something went wrong requesting for permissions.");
+            LogUtils.logE(TAG, "Something went wrong requesting for permissions.");
             if (getPermissionListener() != null) getPermissionListener().onPermissionsDenied();
         }
     }
@@ -0,0 +1,94 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+import com.yayandroid.locationmanager.listener.LocationListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class ExecutorLocationListenerTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private Executor executor;
+
+    @Before
+    public void setUp() {
+        executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+    }
+
+    @Test
+    public void eventsShouldOnlyBeDeliveredWhenExecutorRunsThem() {
+        LocationListener listener = mock(LocationListener.class);
+        ExecutorLocationListener executorLocationListener = new ExecutorLocationListener(listener, executor);
+        Location location = mock(Location.class);
+
+        executorLocationListener.onLocationChanged(location);
+        executorLocationListener.onLocationFailed(FailType.TIMEOUT);
+
+        verifyZeroInteractions(listener);
+        assertThat(tasks).hasSize(2);
+
+        runTasks();
+
+        verify(listener).onLocationChanged(location);
+        verify(listener).onLocationFailed(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void batchShouldBeDeliveredAtOnceToBatchLocationListener() {
+        BatchLocationListener listener = mock(BatchLocationListener.class);
+        ExecutorLocationListener executorLocationListener = new ExecutorLocationListener(listener, executor);
+        List<Location> locations = Arrays.asList(mock(Location.class), mock(Location.class));
+
+        executorLocationListener.onLocationsChanged(locations);
+        runTasks();
+
+        verify(listener).onLocationsChanged(locations);
+        verify(listener, never()).onLocationChanged(locations.get(0));
+    }
+
+    @Test
+    public void batchShouldBeDeliveredOneByOneToLocationListener() {
+        LocationListener listener = mock(LocationListener.class);
+        ExecutorLocationListener executorLocationListener = new ExecutorLocationListener(listener, executor);
+        Location first = mock(Location.class);
+        Location second = mock(Location.class);
+
+        executorLocationListener.onLocationsChanged(Arrays.asList(first, second));
+
+        assertThat(tasks).hasSize(1);
+        runTasks();
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onLocationChanged(first);
+        inOrder.verify(listener).onLocationChanged(second);
+    }
+
+    private void runTasks() {
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        tasks.clear();
+    }
+}
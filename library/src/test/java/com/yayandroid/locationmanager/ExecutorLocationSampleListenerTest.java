@@ -0,0 +1,123 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.listener.LocationSampleListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class ExecutorLocationSampleListenerTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final List<Double> deliveredLatitudes = new ArrayList<>();
+    private LocationSampleListener listener;
+    private ExecutorLocationSampleListener executorListener;
+
+    @Before
+    public void setUp() {
+        LocationSample.clearPool();
+        listener = mock(LocationSampleListener.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                deliveredLatitudes.add(((LocationSample) invocation.getArgument(0)).getLatitude());
+                return null;
+            }
+        }).when(listener).onLocationSample(any(LocationSample.class));
+
+        executorListener = new ExecutorLocationSampleListener(listener, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+    }
+
+    @Test
+    public void sampleShouldBeCopiedSinceDeliveredOneIsRecycled() {
+        LocationSample sample = sample(52.5);
+        executorListener.onLocationSample(sample);
+        sample.recycle();
+        sample(10).recycle();
+
+        verifyZeroInteractions(listener);
+
+        runTasks();
+
+        assertThat(deliveredLatitudes).containsExactly(52.5);
+    }
+
+    @Test
+    public void tasksShouldBeReusedOnceTheyRun() {
+        executorListener.onLocationSample(sample(1));
+        runTasks();
+        executorListener.onLocationSample(sample(2));
+        executorListener.onLocationSample(sample(3));
+
+        Runnable reused = tasks.get(0);
+        runTasks();
+        executorListener.onLocationSample(sample(4));
+
+        assertThat(tasks.get(0)).isSameAs(reused);
+        runTasks();
+        assertThat(deliveredLatitudes).containsExactly(1.0, 2.0, 3.0, 4.0);
+    }
+
+    @Test
+    public void samplesBeyondLimitShouldReplaceLatestPendingOne() {
+        int limit = ExecutorLocationSampleListener.MAX_PENDING_SAMPLES;
+        for (int i = 1; i <= limit + 3; i++) {
+            executorListener.onLocationSample(sample(i));
+        }
+
+        assertThat(tasks).hasSize(limit);
+
+        runTasks();
+
+        assertThat(deliveredLatitudes).hasSize(limit);
+        assertThat(deliveredLatitudes.get(limit - 2)).isEqualTo(limit - 1);
+        assertThat(deliveredLatitudes.get(limit - 1)).isEqualTo(limit + 3);
+    }
+
+    @Test
+    public void samplesShouldBeQueuedAgainOnceThePendingOnesRun() {
+        int limit = ExecutorLocationSampleListener.MAX_PENDING_SAMPLES;
+        for (int i = 0; i < limit; i++) {
+            executorListener.onLocationSample(sample(i));
+        }
+        runTasks();
+
+        executorListener.onLocationSample(sample(100));
+        executorListener.onLocationSample(sample(200));
+
+        assertThat(tasks).hasSize(2);
+    }
+
+    private static LocationSample sample(double latitude) {
+        Location location = mock(Location.class);
+        when(location.getLatitude()).thenReturn(latitude);
+        return LocationSample.obtain(location);
+    }
+
+    private void runTasks() {
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : pending) {
+            task.run();
+        }
+    }
+}
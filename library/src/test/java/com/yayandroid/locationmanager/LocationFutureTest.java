@@ -0,0 +1,101 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationWithAccuracy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.verify;
+
+public class LocationFutureTest {
+
+    private static final long TIMEOUT = 30000L;
+
+    @Mock LocationManager locationManager;
+    @Mock ContinuousTask deadlineTask;
+
+    private LocationFuture locationFuture;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        locationFuture = new LocationFuture();
+        locationFuture.setDeadlineTask(deadlineTask);
+        locationFuture.start(locationManager, TIMEOUT, null);
+    }
+
+    @Test
+    public void startShouldScheduleDeadlineAndStartManager() {
+        verify(deadlineTask).delayed(TIMEOUT);
+        verify(locationManager).get();
+        assertThat(locationFuture.isDone()).isFalse();
+    }
+
+    @Test
+    public void sufficientLocationShouldResolveAndReleaseManager() throws Exception {
+        Location location = createLocationWithAccuracy(10);
+
+        locationFuture.onLocationChanged(location);
+
+        assertThat(locationFuture.isDone()).isTrue();
+        assertThat(locationFuture.get()).isSameAs(location);
+        verify(deadlineTask).stop();
+        verify(locationManager).cancel();
+        verify(locationManager).onDestroy();
+    }
+
+    @Test
+    public void failureShouldBeReportedWithItsType() throws Exception {
+        locationFuture.onLocationFailed(FailType.PERMISSION_DENIED);
+
+        assertThat(getFailType()).isEqualTo(FailType.PERMISSION_DENIED);
+        verify(locationManager).onDestroy();
+    }
+
+    @Test
+    public void deadlineShouldFailWithTimeout() throws Exception {
+        locationFuture.runScheduledTask(LocationFuture.DEADLINE_TASK);
+
+        assertThat(getFailType()).isEqualTo(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void cancelShouldStopEverythingAndIgnoreLaterResults() throws Exception {
+        assertThat(locationFuture.cancel(true)).isTrue();
+        locationFuture.onLocationChanged(createLocationWithAccuracy(10));
+
+        assertThat(locationFuture.isCancelled()).isTrue();
+        assertThat(locationFuture.cancel(true)).isFalse();
+        verify(deadlineTask).stop();
+        verify(locationManager).cancel();
+        verify(locationManager).onDestroy();
+        try {
+            locationFuture.get();
+            fail("Cancelled future should throw");
+        } catch (CancellationException expected) {
+            // expected
+        }
+    }
+
+    private int getFailType() throws InterruptedException {
+        try {
+            locationFuture.get();
+            fail("Failed future should throw");
+            return FailType.UNKNOWN;
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(LocationFailedException.class);
+            return ((LocationFailedException) e.getCause()).getFailType();
+        }
+    }
+}
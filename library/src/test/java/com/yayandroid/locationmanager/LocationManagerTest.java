@@ -1,27 +1,41 @@
 package com.yayandroid.locationmanager;
 
 import android.content.Intent;
+import android.location.Location;
+import android.os.Looper;
 
 import com.yayandroid.locationmanager.LocationManager.Builder;
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
 import com.yayandroid.locationmanager.configuration.LocationConfiguration;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.ProcessType;
 import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.processor.AccuracyFilter;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
 import com.yayandroid.locationmanager.providers.locationprovider.DispatcherLocationProvider;
 import com.yayandroid.locationmanager.providers.locationprovider.LocationProvider;
 import com.yayandroid.locationmanager.providers.permissionprovider.PermissionProvider;
 import com.yayandroid.locationmanager.view.ContextProcessor;
 
+import java.util.concurrent.Executor;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -77,7 +91,48 @@ public class LocationManagerTest {
     @Test public void buildingShouldCallConfigureAndSetListenerOnProvider() {
         buildLocationManager();
 
-        verify(locationProvider).configure(contextProcessor, locationConfiguration, locationListener);
+        verify(locationProvider).configure(contextProcessor, locationConfiguration, locationListener, null);
+    }
+
+    @Test public void buildingWithExecutorShouldNotifyListenerOnIt() {
+        Executor executor = mock(Executor.class);
+        new Builder(contextProcessor)
+              .locationProvider(locationProvider)
+              .configuration(locationConfiguration)
+              .notify(locationListener)
+              .executor(executor)
+              .build();
+
+        ArgumentCaptor<LocationListener> listenerCaptor = ArgumentCaptor.forClass(LocationListener.class);
+        verify(locationProvider).configure(eq(contextProcessor), eq(locationConfiguration), listenerCaptor.capture(),
+              isNull(Looper.class));
+        assertThat(listenerCaptor.getValue()).isExactlyInstanceOf(ExecutorLocationListener.class);
+
+        listenerCaptor.getValue().onLocationChanged(mock(Location.class));
+
+        verify(executor).execute(any(Runnable.class));
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test public void buildingWithPublishShouldSetPublisherOnProvider() {
+        LocationManager locationManager = new Builder(contextProcessor)
+              .locationProvider(locationProvider)
+              .configuration(locationConfiguration)
+              .notify(locationListener)
+              .publish()
+              .build();
+
+        verify(locationProvider).configure(contextProcessor, locationConfiguration, locationManager.publisher(), null);
+
+        Location location = mock(Location.class);
+        locationManager.publisher().onLocationChanged(location);
+        verify(locationListener).onLocationChanged(location);
+    }
+
+    @Test public void publisherWithoutPublishShouldThrowException() {
+        expectedException.expect(IllegalStateException.class);
+
+        buildLocationManager().publisher();
     }
 
     @Test public void buildingShouldSetContextProcessorAndListenerToPermissionListener() {
@@ -121,6 +176,14 @@ public class LocationManagerTest {
         verify(locationProvider).cancel();
     }
 
+    @Test public void whenFlushShouldRedirectToLocationProvider() {
+        LocationManager locationManager = buildLocationManager();
+
+        locationManager.flush();
+
+        verify(locationProvider).flush();
+    }
+
     @Test public void whenOnActivityResultShouldRedirectToLocationProvider() {
         LocationManager locationManager = buildLocationManager();
         int requestCode = 1;
@@ -227,6 +290,61 @@ public class LocationManagerTest {
         verify(locationListener).onLocationFailed(eq(FailType.PERMISSION_DENIED));
     }
 
+    @Test public void whenSharedCacheHasSufficientLocationShouldNotifyWithoutStartingProvider() {
+        Location location = mock(Location.class);
+        when(permissionProvider.hasPermission()).thenReturn(true);
+        LocationManager locationManager = spy(buildLocationManager());
+        doReturn(location).when(locationManager).getLocationFromSharedCache();
+        when(locationProvider.notifyCachedLocation(location)).thenReturn(true);
+
+        locationManager.askForPermission();
+
+        verify(locationProvider).notifyCachedLocation(location);
+        verify(locationProvider, never()).get();
+    }
+
+    @Test public void whenProcessorsDropLocationOfSharedCacheShouldStartProvider() {
+        Location location = mock(Location.class);
+        when(permissionProvider.hasPermission()).thenReturn(true);
+        LocationManager locationManager = spy(buildLocationManager());
+        doReturn(location).when(locationManager).getLocationFromSharedCache();
+        when(locationProvider.notifyCachedLocation(location)).thenReturn(false);
+
+        locationManager.askForPermission();
+
+        verify(locationProvider).get();
+    }
+
+    @Test public void currentLocationShouldBeRetrievedAsConfiguredWithAccuracyFilterAfterProcessors() {
+        LocationProcessor processor = mock(LocationProcessor.class);
+        LocationConfiguration configuration = new LocationConfiguration.Builder()
+              .addProcessor(processor)
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder().build())
+              .build();
+
+        LocationConfiguration currentLocationConfiguration =
+              LocationManager.createCurrentLocationConfiguration(configuration, 50);
+
+        assertThat(currentLocationConfiguration.keepTracking()).isFalse();
+        assertThat(currentLocationConfiguration.useSharedCache()).isEqualTo(configuration.useSharedCache());
+        assertThat(currentLocationConfiguration.processors()).containsExactly(processor, new AccuracyFilter(50));
+    }
+
+    @Test public void whenSharedCacheIsNotEnabledShouldNotCheckIt() {
+        when(locationConfiguration.useSharedCache()).thenReturn(false);
+        LocationManager locationManager = buildLocationManager();
+
+        assertThat(locationManager.getLocationFromSharedCache()).isNull();
+    }
+
+    @Test public void whenKeepTrackingSharedCacheShouldNotBeChecked() {
+        when(locationConfiguration.useSharedCache()).thenReturn(true);
+        when(locationConfiguration.keepTracking()).thenReturn(true);
+        LocationManager locationManager = buildLocationManager();
+
+        assertThat(locationManager.getLocationFromSharedCache()).isNull();
+    }
+
     private LocationManager buildLocationManager() {
         return new Builder(contextProcessor)
               .locationProvider(locationProvider)
@@ -0,0 +1,259 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.OverflowStrategy;
+import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.listener.LocationSubscriber;
+import com.yayandroid.locationmanager.listener.LocationSubscription;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LocationPublisherTest {
+
+    @Mock LocationManager locationManager;
+    @Mock LocationListener listener;
+
+    private LocationPublisher publisher;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        setKeepTracking(true);
+        publisher = new LocationPublisher(locationManager, listener);
+    }
+
+    @Test
+    public void firstSubscriberShouldStartManager() {
+        publisher.subscribe(new TestSubscriber());
+        publisher.subscribe(new TestSubscriber());
+
+        verify(locationManager, times(1)).get();
+        assertThat(publisher.subscriberCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void lastCancelledSubscriptionShouldCancelManager() {
+        LocationSubscription first = publisher.subscribe(new TestSubscriber());
+        LocationSubscription second = publisher.subscribe(new TestSubscriber());
+
+        first.cancel();
+        verify(locationManager, never()).cancel();
+
+        second.cancel();
+        verify(locationManager).cancel();
+    }
+
+    @Test
+    public void subscriptionCancelledOnSubscribeShouldNotStartManager() {
+        publisher.subscribe(new TestSubscriber() {
+            @Override
+            public void onSubscribe(LocationSubscription subscription) {
+                subscription.cancel();
+            }
+        });
+
+        verify(locationManager, never()).get();
+        verify(locationManager, never()).cancel();
+        assertThat(publisher.subscriberCount()).isZero();
+    }
+
+    @Test
+    public void subscriberJoiningWhileFirstOneCancelsOnSubscribeShouldStartManager() {
+        final TestSubscriber second = new TestSubscriber();
+        publisher.subscribe(new TestSubscriber() {
+            @Override
+            public void onSubscribe(LocationSubscription subscription) {
+                publisher.subscribe(second);
+                subscription.cancel();
+            }
+        });
+
+        verify(locationManager, times(1)).get();
+        verify(locationManager, never()).cancel();
+        assertThat(publisher.subscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void subscriberAfterCompletionShouldStartManagerAgain() {
+        setKeepTracking(false);
+        publisher.subscribe(new TestSubscriber());
+        publisher.onLocationChanged(mock(Location.class));
+
+        publisher.subscribe(new TestSubscriber());
+
+        verify(locationManager, times(2)).get();
+    }
+
+    @Test
+    public void locationsShouldOnlyBeDeliveredAsRequested() {
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber, OverflowStrategy.BUFFER, 10);
+        Location first = mock(Location.class);
+        Location second = mock(Location.class);
+
+        publisher.onLocationChanged(first);
+        publisher.onLocationChanged(second);
+        assertThat(subscriber.received).isEmpty();
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.received).containsExactly(first);
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.received).containsExactly(first, second);
+    }
+
+    @Test
+    public void listenerShouldReceiveEveryLocation() {
+        publisher.subscribe(new TestSubscriber());
+        Location location = mock(Location.class);
+
+        publisher.onLocationChanged(location);
+
+        verify(listener).onLocationChanged(location);
+    }
+
+    @Test
+    public void latestStrategyShouldOnlyKeepLastLocation() {
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber, OverflowStrategy.LATEST, 1);
+        Location last = mock(Location.class);
+
+        publisher.onLocationChanged(mock(Location.class));
+        publisher.onLocationChanged(last);
+        subscriber.subscription.request(5);
+
+        assertThat(subscriber.received).containsExactly(last);
+    }
+
+    @Test
+    public void bufferStrategyShouldDropOldestBeyondCapacity() {
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber, OverflowStrategy.BUFFER, 2);
+        Location second = mock(Location.class);
+        Location third = mock(Location.class);
+
+        publisher.onLocationsChanged(Arrays.asList(mock(Location.class), second, third));
+        subscriber.subscription.request(5);
+
+        assertThat(subscriber.received).containsExactly(second, third);
+    }
+
+    @Test
+    public void dropStrategyShouldDropLocationsWhichAreNotRequested() {
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber, OverflowStrategy.DROP, 1);
+        Location requested = mock(Location.class);
+
+        publisher.onLocationChanged(mock(Location.class));
+        subscriber.subscription.request(1);
+        publisher.onLocationChanged(requested);
+        publisher.onLocationChanged(mock(Location.class));
+
+        assertThat(subscriber.received).containsExactly(requested);
+    }
+
+    @Test
+    public void whenNotKeepTrackingShouldCompleteAfterLocationIsRequested() {
+        setKeepTracking(false);
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber);
+        Location location = mock(Location.class);
+
+        publisher.onLocationChanged(location);
+        assertThat(subscriber.isCompleted).isFalse();
+        assertThat(publisher.subscriberCount()).isZero();
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.received).containsExactly(location);
+        assertThat(subscriber.isCompleted).isTrue();
+    }
+
+    @Test
+    public void failureShouldBeDeliveredWithoutRequest() {
+        TestSubscriber subscriber = new TestSubscriber();
+        publisher.subscribe(subscriber);
+
+        publisher.onLocationChanged(mock(Location.class));
+        publisher.onLocationFailed(FailType.TIMEOUT);
+
+        assertThat(subscriber.received).isEmpty();
+        assertThat(subscriber.failType).isEqualTo(FailType.TIMEOUT);
+        assertThat(publisher.subscriberCount()).isZero();
+        verify(listener).onLocationFailed(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void requestingFromOnNextShouldNotRecurse() {
+        final List<Integer> depths = new ArrayList<>();
+        TestSubscriber subscriber = new TestSubscriber() {
+            int depth;
+
+            @Override
+            public void onNext(Location location) {
+                depth++;
+                depths.add(depth);
+                subscription.request(1);
+                depth--;
+            }
+        };
+        publisher.subscribe(subscriber, OverflowStrategy.BUFFER, 10);
+        publisher.onLocationsChanged(Arrays.asList(mock(Location.class), mock(Location.class), mock(Location.class)));
+
+        subscriber.subscription.request(1);
+
+        assertThat(depths).containsExactly(1, 1, 1);
+    }
+
+    private void setKeepTracking(boolean keepTracking) {
+        when(locationManager.getConfiguration()).thenReturn(new LocationConfiguration.Builder()
+              .keepTracking(keepTracking)
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder().build())
+              .build());
+    }
+
+    private static class TestSubscriber implements LocationSubscriber {
+
+        final List<Location> received = new ArrayList<>();
+        LocationSubscription subscription;
+        boolean isCompleted;
+        int failType;
+
+        @Override
+        public void onSubscribe(LocationSubscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Location location) {
+            received.add(location);
+        }
+
+        @Override
+        public void onError(int type) {
+            failType = type;
+        }
+
+        @Override
+        public void onComplete() {
+            isCompleted = true;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocationSampleTest {
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    @Before
+    public void setUp() {
+        LocationSample.clearPool();
+    }
+
+    @Test
+    public void obtainShouldCopyEveryValueOfLocation() {
+        Location location = mock(Location.class);
+        when(location.getProvider()).thenReturn("gps");
+        when(location.getTime()).thenReturn(1000L);
+        when(location.getLatitude()).thenReturn(52.5);
+        when(location.getLongitude()).thenReturn(13.4);
+        when(location.getAltitude()).thenReturn(34.0);
+        when(location.getAccuracy()).thenReturn(5f);
+        when(location.getSpeed()).thenReturn(1.5f);
+        when(location.getBearing()).thenReturn(90f);
+        when(location.hasAccuracy()).thenReturn(true);
+        when(location.hasSpeed()).thenReturn(true);
+
+        LocationSample sample = LocationSample.obtain(location);
+
+        assertThat(sample.getProvider()).isEqualTo("gps");
+        assertThat(sample.getTime()).isEqualTo(1000L);
+        assertThat(sample.getLatitude()).isEqualTo(52.5);
+        assertThat(sample.getLongitude()).isEqualTo(13.4);
+        assertThat(sample.getAltitude()).isEqualTo(34.0);
+        assertThat(sample.getAccuracy()).isEqualTo(5f);
+        assertThat(sample.getSpeed()).isEqualTo(1.5f);
+        assertThat(sample.getBearing()).isEqualTo(90f);
+        assertThat(sample.hasAccuracy()).isTrue();
+        assertThat(sample.hasSpeed()).isTrue();
+        assertThat(sample.hasAltitude()).isFalse();
+        assertThat(sample.hasBearing()).isFalse();
+    }
+
+    @Test
+    public void recycledSampleShouldBeObtainedAgain() {
+        LocationSample sample = LocationSample.obtain();
+        sample.recycle();
+
+        assertThat(LocationSample.obtain()).isSameAs(sample);
+        assertThat(LocationSample.obtain()).isNotSameAs(sample);
+    }
+
+    @Test
+    public void recyclingTwiceShouldThrowException() {
+        expectedException.expect(IllegalStateException.class);
+
+        LocationSample sample = LocationSample.obtain();
+        sample.recycle();
+        sample.recycle();
+    }
+
+    @Test
+    public void copyShouldKeepValuesAfterRecycling() {
+        LocationSample sample = LocationSample.obtain(mockLocation(52.5));
+
+        LocationSample copy = sample.copy();
+        sample.recycle();
+        LocationSample.obtain(mockLocation(10));
+
+        assertThat(copy).isNotSameAs(sample);
+        assertThat(copy.getLatitude()).isEqualTo(52.5);
+    }
+
+    private static Location mockLocation(double latitude) {
+        Location location = mock(Location.class);
+        when(location.getLatitude()).thenReturn(latitude);
+        return location;
+    }
+}
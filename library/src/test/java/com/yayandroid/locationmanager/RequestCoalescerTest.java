@@ -0,0 +1,305 @@
+package com.yayandroid.locationmanager;
+
+import android.location.Location;
+import android.os.Handler;
+
+import com.google.android.gms.location.LocationRequest;
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.fakes.FakeDroppingProcessor;
+import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.providers.locationprovider.DefaultLocationProvider;
+import com.yayandroid.locationmanager.providers.locationprovider.DispatcherLocationProvider;
+import com.yayandroid.locationmanager.providers.locationprovider.LocationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RequestCoalescerTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    @Mock LocationManager firstManager;
+    @Mock LocationManager secondManager;
+    @Mock LocationListener firstListener;
+    @Mock LocationListener secondListener;
+    @Mock Handler secondHandler;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @After
+    public void tearDown() {
+        RequestCoalescer.clear();
+    }
+
+    @Test
+    public void firstRequestShouldRunOnItsOwn() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+
+        assertThat(first.attachOrRun()).isFalse();
+        assertThat(first.isFollowing()).isFalse();
+    }
+
+    @Test
+    public void compatibleRequestShouldAttachAndReceiveSameLocation() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 50, 5 * MINUTE);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isTrue();
+        assertThat(second.isFollowing()).isTrue();
+
+        Location location = mock(Location.class);
+        first.onLocationChanged(location);
+
+        verify(firstListener).onLocationChanged(location);
+        verify(secondListener).onLocationChanged(location);
+        assertThat(second.isFollowing()).isFalse();
+    }
+
+    @Test
+    public void compatibleRequestShouldReceiveSameFailure() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE);
+        first.attachOrRun();
+        second.attachOrRun();
+
+        first.onLocationFailed(FailType.TIMEOUT);
+
+        verify(firstListener).onLocationFailed(FailType.TIMEOUT);
+        verify(secondListener).onLocationFailed(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void stricterRequestShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 50, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestWithShorterTimePeriodShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, 5 * MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestWithDifferentKeepTrackingShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener,
+              newConfiguration(10, MINUTE).keepTracking(true).build(), DispatcherLocationProvider.class, null);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestWithDifferentProviderShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener,
+              newConfiguration(10, MINUTE).build(), DefaultLocationProvider.class, null);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestWithDifferentSourcesShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, newConfiguration(10, MINUTE)
+              .useGooglePlayServices(new GooglePlayServicesConfiguration.Builder().build())
+              .build(), DispatcherLocationProvider.class, null);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestWithDifferentProcessorsShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener,
+              newConfiguration(10, MINUTE).addProcessor(new FakeDroppingProcessor()).build(),
+              DispatcherLocationProvider.class, null);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestWithSameProcessorsShouldAttach() {
+        LocationProcessor processor = new FakeDroppingProcessor();
+        RequestCoalescer first = createCoalescer(firstManager, firstListener,
+              newConfiguration(10, MINUTE).addProcessor(processor).build(), DispatcherLocationProvider.class, null);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener,
+              newConfiguration(10, MINUTE).addProcessor(processor).build(), DispatcherLocationProvider.class, null);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isTrue();
+    }
+
+    @Test
+    public void requestWithMoreAccuratePriorityShouldNotAttach() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, newConfiguration(10, MINUTE)
+              .useGooglePlayServices(createGooglePlayServicesConfiguration(LocationRequest.PRIORITY_LOW_POWER))
+              .build(), DispatcherLocationProvider.class, null);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, newConfiguration(10, MINUTE)
+              .useGooglePlayServices(createGooglePlayServicesConfiguration(LocationRequest.PRIORITY_HIGH_ACCURACY))
+              .build(), DispatcherLocationProvider.class, null);
+        first.attachOrRun();
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void requestShouldNotAttachToFinishedOne() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE);
+        first.attachOrRun();
+        first.onLocationChanged(mock(Location.class));
+
+        assertThat(second.attachOrRun()).isFalse();
+    }
+
+    @Test
+    public void followersOfCancelledRequestShouldStartOver() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE);
+        first.attachOrRun();
+        second.attachOrRun();
+
+        first.cancel();
+
+        verify(secondManager).askForPermission();
+        verify(firstManager, never()).askForPermission();
+        assertThat(second.isFollowing()).isFalse();
+    }
+
+    @Test
+    public void cancelledFollowerShouldNotReceiveLocation() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE);
+        first.attachOrRun();
+        second.attachOrRun();
+
+        second.cancel();
+        first.onLocationChanged(mock(Location.class));
+
+        verify(secondListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void followerShouldReceiveLocationOnItsOwnLooper() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE, secondHandler);
+        first.attachOrRun();
+        second.attachOrRun();
+
+        Location location = mock(Location.class);
+        first.onLocationChanged(location);
+
+        verify(firstListener).onLocationChanged(location);
+        verify(secondListener, never()).onLocationChanged(any(Location.class));
+        assertThat(second.isFollowing()).isTrue();
+
+        capturePosted(secondHandler).run();
+
+        verify(secondListener).onLocationChanged(location);
+        assertThat(second.isFollowing()).isFalse();
+    }
+
+    @Test
+    public void followerShouldStartOverOnItsOwnLooper() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE, secondHandler);
+        first.attachOrRun();
+        second.attachOrRun();
+
+        first.cancel();
+
+        verify(secondManager, never()).askForPermission();
+
+        capturePosted(secondHandler).run();
+
+        verify(secondManager).askForPermission();
+    }
+
+    @Test
+    public void followerCancelledBeforePostedResultRunsShouldNotReceiveIt() {
+        RequestCoalescer first = createCoalescer(firstManager, firstListener, 10, MINUTE);
+        RequestCoalescer second = createCoalescer(secondManager, secondListener, 10, MINUTE, secondHandler);
+        first.attachOrRun();
+        second.attachOrRun();
+        first.onLocationFailed(FailType.TIMEOUT);
+
+        second.cancel();
+        capturePosted(secondHandler).run();
+
+        verify(secondListener, never()).onLocationFailed(FailType.TIMEOUT);
+        assertThat(second.isFollowing()).isFalse();
+    }
+
+    private static GooglePlayServicesConfiguration createGooglePlayServicesConfiguration(int priority) {
+        return new GooglePlayServicesConfiguration.Builder()
+              .locationRequest(LocationRequest.create().setPriority(priority))
+              .build();
+    }
+
+    private static Runnable capturePosted(Handler handler) {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(handler).post(captor.capture());
+        return captor.getValue();
+    }
+
+    private static RequestCoalescer createCoalescer(LocationManager locationManager, LocationListener listener,
+          float acceptableAccuracy, long acceptableTimePeriod, Handler callbackHandler) {
+        return createCoalescer(locationManager, listener, newConfiguration(acceptableAccuracy, acceptableTimePeriod)
+              .build(), DispatcherLocationProvider.class, callbackHandler);
+    }
+
+    private static RequestCoalescer createCoalescer(LocationManager locationManager, LocationListener listener,
+          float acceptableAccuracy, long acceptableTimePeriod) {
+        return createCoalescer(locationManager, listener, acceptableAccuracy, acceptableTimePeriod, null);
+    }
+
+    private static RequestCoalescer createCoalescer(LocationManager locationManager, LocationListener listener,
+          LocationConfiguration configuration, Class<? extends LocationProvider> providerType,
+          final Handler callbackHandler) {
+        return new RequestCoalescer(locationManager, configuration, providerType, listener) {
+            @Override
+            Handler createCallbackHandler() {
+                return callbackHandler;
+            }
+        };
+    }
+
+    private static LocationConfiguration.Builder newConfiguration(float acceptableAccuracy,
+          long acceptableTimePeriod) {
+        return new LocationConfiguration.Builder()
+              .coalesceRequests(true)
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder()
+                    .acceptableAccuracy(acceptableAccuracy)
+                    .acceptableTimePeriod(acceptableTimePeriod)
+                    .build());
+    }
+}
@@ -0,0 +1,54 @@
+package com.yayandroid.locationmanager.configuration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveIntervalConfigurationTest {
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    @Test public void checkDefaultValues() {
+        AdaptiveIntervalConfiguration configuration = new AdaptiveIntervalConfiguration.Builder().build();
+        assertThat(configuration.stepCount()).isEqualTo(Defaults.ADAPTIVE_INTERVAL_SPEEDS.length);
+        assertThat(configuration.speedOf(0)).isEqualTo(0f);
+        assertThat(configuration.intervalOf(0)).isEqualTo(Defaults.ADAPTIVE_INTERVALS[0]);
+        assertThat(configuration.hysteresis()).isEqualTo(Defaults.ADAPTIVE_INTERVAL_HYSTERESIS);
+    }
+
+    @Test public void stepsShouldBeOrderedBySpeed() {
+        AdaptiveIntervalConfiguration configuration = new AdaptiveIntervalConfiguration.Builder()
+              .addStep(10, 1000)
+              .addStep(0, 30000)
+              .build();
+
+        assertThat(configuration.stepCount()).isEqualTo(2);
+        assertThat(configuration.speedOf(0)).isEqualTo(0f);
+        assertThat(configuration.intervalOf(0)).isEqualTo(30000);
+        assertThat(configuration.speedOf(1)).isEqualTo(10f);
+        assertThat(configuration.intervalOf(1)).isEqualTo(1000);
+    }
+
+    @Test public void whenSpeedIsNegativeShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("speed");
+
+        new AdaptiveIntervalConfiguration.Builder().addStep(-1, 1000);
+    }
+
+    @Test public void whenIntervalIsNegativeShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("interval");
+
+        new AdaptiveIntervalConfiguration.Builder().addStep(1, -1);
+    }
+
+    @Test public void whenHysteresisIsOutOfRangeShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("hysteresis");
+
+        new AdaptiveIntervalConfiguration.Builder().hysteresis(1);
+    }
+}
@@ -25,6 +25,9 @@ public class GooglePlayServicesConfigurationTest {
         assertThat(configuration.askForSettingsApi()).isTrue();
         assertThat(configuration.failOnSettingsApiSuspended()).isFalse();
         assertThat(configuration.ignoreLastKnowLocation()).isFalse();
+        assertThat(configuration.deliverBestOfBatch()).isFalse();
+        assertThat(configuration.maxWaitTime()).isEqualTo(0);
+        assertThat(configuration.maxBatchSize()).isEqualTo(Integer.MAX_VALUE);
         assertThat(configuration.googlePlayServicesWaitPeriod()).isEqualTo(20 * SECOND);
     }
 
@@ -35,6 +38,20 @@ public class GooglePlayServicesConfigurationTest {
         new GooglePlayServicesConfiguration.Builder().setWaitPeriod(-1);
     }
 
+    @Test public void maxWaitTimeShouldThrowExceptionWhenNegative() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage(CoreMatchers.startsWith("maxWaitTime"));
+
+        new GooglePlayServicesConfiguration.Builder().maxWaitTime(-1);
+    }
+
+    @Test public void maxBatchSizeShouldThrowExceptionWhenLessThanOne() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage(CoreMatchers.startsWith("maxBatchSize"));
+
+        new GooglePlayServicesConfiguration.Builder().maxBatchSize(0);
+    }
+
     @Test public void clonesShouldShareSameInstances() {
         GooglePlayServicesConfiguration configuration = new Builder().build();
 
@@ -56,6 +73,9 @@ public class GooglePlayServicesConfigurationTest {
         assertThat(firstClone.ignoreLastKnowLocation())
               .isEqualTo(secondClone.ignoreLastKnowLocation())
               .isFalse();
+        assertThat(firstClone.deliverBestOfBatch())
+              .isEqualTo(secondClone.deliverBestOfBatch())
+              .isFalse();
         assertThat(firstClone.googlePlayServicesWaitPeriod())
               .isEqualTo(secondClone.googlePlayServicesWaitPeriod())
               .isEqualTo(20 * SECOND);
@@ -1,5 +1,11 @@
 package com.yayandroid.locationmanager.configuration;
 
+import android.location.Location;
+
+import com.yayandroid.locationmanager.processor.DuplicateFilter;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.processor.LocationProcessorChain;
+import com.yayandroid.locationmanager.processor.ThrottleFilter;
 import com.yayandroid.locationmanager.providers.permissionprovider.DefaultPermissionProvider;
 import com.yayandroid.locationmanager.providers.permissionprovider.StubPermissionProvider;
 
@@ -9,6 +15,8 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class LocationConfigurationTest {
 
@@ -25,6 +33,14 @@ public class LocationConfigurationTest {
     @Test public void checkDefaultValues() {
         LocationConfiguration configuration = getConfiguration();
         assertThat(configuration.keepTracking()).isFalse();
+        assertThat(configuration.useSharedCache()).isFalse();
+        assertThat(configuration.persistSharedCache()).isFalse();
+        assertThat(configuration.raceProviders()).isFalse();
+        assertThat(configuration.coalesceRequests()).isFalse();
+        assertThat(configuration.adaptiveIntervalConfiguration()).isNull();
+        assertThat(configuration.motionGateConfiguration()).isNull();
+        assertThat(configuration.processors()).isEmpty();
+        assertThat(configuration.createProcessorChain().isEmpty()).isTrue();
     }
 
     @Test public void whenNoPermissionConfigurationIsSetDefaultConfigurationShouldContainStubProvider() {
@@ -54,6 +70,36 @@ public class LocationConfigurationTest {
         assertThat(firstClone.googlePlayServicesConfiguration())
               .isEqualTo(secondClone.googlePlayServicesConfiguration())
               .isNotNull();
+        assertThat(firstClone.processors())
+              .isEqualTo(secondClone.processors());
+    }
+
+    @Test public void processorsShouldBeKeptInOrderAndSharedByClones() {
+        LocationProcessor first = new DuplicateFilter();
+        LocationProcessor second = new ThrottleFilter(1000, 10);
+        LocationConfiguration configuration = new LocationConfiguration.Builder()
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder().build())
+              .addProcessor(first)
+              .addProcessor(second)
+              .build();
+
+        assertThat(configuration.processors()).containsExactly(first, second);
+        assertThat(configuration.newBuilder().build().processors()).containsExactly(first, second);
+    }
+
+    @Test public void createdProcessorChainsShouldNotShareState() {
+        LocationConfiguration configuration = new LocationConfiguration.Builder()
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder().build())
+              .addProcessor(new DuplicateFilter())
+              .build();
+        LocationProcessorChain first = configuration.createProcessorChain();
+        LocationProcessorChain second = configuration.createProcessorChain();
+        Location location = mock(Location.class);
+        when(location.getTime()).thenReturn(1000L);
+
+        assertThat(first.process(location)).isSameAs(location);
+        // Would be dropped as a duplicate if the filter was shared
+        assertThat(second.process(location)).isSameAs(location);
     }
 
     @Test public void clonedConfigurationIsIndependent() {
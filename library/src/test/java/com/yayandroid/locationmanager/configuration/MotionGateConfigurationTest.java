@@ -0,0 +1,33 @@
+package com.yayandroid.locationmanager.configuration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MotionGateConfigurationTest {
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    @Test public void checkDefaultValues() {
+        MotionGateConfiguration configuration = new MotionGateConfiguration.Builder().build();
+        assertThat(configuration.quietPeriod()).isEqualTo(Defaults.MOTION_QUIET_PERIOD);
+        assertThat(configuration.motionThreshold()).isEqualTo(Defaults.MOTION_THRESHOLD);
+        assertThat(configuration.motionSensor()).isNull();
+    }
+
+    @Test public void whenQuietPeriodIsNotPositiveShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("quietPeriod");
+
+        new MotionGateConfiguration.Builder().quietPeriod(0);
+    }
+
+    @Test public void whenMotionThresholdIsNegativeShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("motionThreshold");
+
+        new MotionGateConfiguration.Builder().motionThreshold(-1);
+    }
+}
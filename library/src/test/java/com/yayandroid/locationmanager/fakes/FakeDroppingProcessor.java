@@ -0,0 +1,30 @@
+package com.yayandroid.locationmanager.fakes;
+
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+
+/**
+ * Drops every location it receives
+ */
+public class FakeDroppingProcessor implements LocationProcessor {
+
+    @Nullable
+    @Override
+    public Location process(@NonNull Location location) {
+        return null;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @NonNull
+    @Override
+    public LocationProcessor copy() {
+        return new FakeDroppingProcessor();
+    }
+}
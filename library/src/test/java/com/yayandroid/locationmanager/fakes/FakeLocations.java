@@ -0,0 +1,60 @@
+package com.yayandroid.locationmanager.fakes;
+
+import android.location.Location;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Creates mocked locations for tests, any value which is not given stays as the mock default.
+ */
+public final class FakeLocations {
+
+    private FakeLocations() {
+        // No instance
+    }
+
+    public static Location createLocationAt(long time) {
+        Location location = mock(Location.class);
+        when(location.getTime()).thenReturn(time);
+        return location;
+    }
+
+    public static Location createLocationWithAccuracy(float accuracy) {
+        Location location = mock(Location.class);
+        when(location.getAccuracy()).thenReturn(accuracy);
+        return location;
+    }
+
+    public static Location createLocationWithAccuracy(float accuracy, long time) {
+        Location location = createLocationAt(time);
+        when(location.getAccuracy()).thenReturn(accuracy);
+        return location;
+    }
+
+    public static Location createLocationWithSpeed(float speed) {
+        Location location = mock(Location.class);
+        when(location.hasSpeed()).thenReturn(true);
+        when(location.getSpeed()).thenReturn(speed);
+        return location;
+    }
+
+    public static Location createLocation(long time, double latitude, double longitude) {
+        Location location = createLocationAt(time);
+        when(location.getLatitude()).thenReturn(latitude);
+        when(location.getLongitude()).thenReturn(longitude);
+        return location;
+    }
+
+    public static Location createLocation(long time, double latitude, double longitude, float accuracy) {
+        Location location = createLocation(time, latitude, longitude);
+        when(location.getAccuracy()).thenReturn(accuracy);
+        return location;
+    }
+
+    public static Location createLocation(String provider, float accuracy, long time) {
+        Location location = createLocationWithAccuracy(accuracy, time);
+        when(location.getProvider()).thenReturn(provider);
+        return location;
+    }
+}
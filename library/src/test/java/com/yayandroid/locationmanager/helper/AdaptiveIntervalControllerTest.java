@@ -0,0 +1,76 @@
+package com.yayandroid.locationmanager.helper;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.configuration.AdaptiveIntervalConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationWithSpeed;
+import static com.yayandroid.locationmanager.helper.AdaptiveIntervalController.NO_CHANGE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class AdaptiveIntervalControllerTest {
+
+    private static final long SLOW = 60000;
+    private static final long FAST = 5000;
+
+    private AdaptiveIntervalController controller;
+
+    @Before
+    public void setUp() {
+        controller = new AdaptiveIntervalController(new AdaptiveIntervalConfiguration.Builder()
+              .addStep(0, SLOW)
+              .addStep(10, FAST)
+              .hysteresis(0.5f)
+              .build());
+    }
+
+    @Test
+    public void firstLocationWithoutSpeedShouldNotChangeInterval() {
+        assertThat(controller.onLocationChanged(mock(Location.class))).isEqualTo(NO_CHANGE);
+        assertThat(controller.estimatedSpeed()).isNaN();
+    }
+
+    @Test
+    public void firstLocationWithSpeedShouldPickMatchingStep() {
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(20))).isEqualTo(FAST);
+    }
+
+    @Test
+    public void sameStepShouldNotChangeInterval() {
+        controller.onLocationChanged(createLocationWithSpeed(1));
+
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(2))).isEqualTo(NO_CHANGE);
+    }
+
+    @Test
+    public void slowingDownWithinHysteresisShouldKeepInterval() {
+        controller.onLocationChanged(createLocationWithSpeed(12));
+
+        // Estimated speed is 12 + 0.3 * (6 - 12) = 10.2, and then 10.2 + 0.3 * (6 - 10.2) = 8.94
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(6))).isEqualTo(NO_CHANGE);
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(6))).isEqualTo(NO_CHANGE);
+    }
+
+    @Test
+    public void slowingDownBeyondHysteresisShouldSwitchToSlowerStep() {
+        controller.onLocationChanged(createLocationWithSpeed(12));
+
+        // Estimated speed drops to 8.4, 5.88 and then 4.116 which is below 10 * (1 - 0.5)
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(0))).isEqualTo(NO_CHANGE);
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(0))).isEqualTo(NO_CHANGE);
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(0))).isEqualTo(SLOW);
+    }
+
+    @Test
+    public void resetShouldForgetEstimatedSpeed() {
+        controller.onLocationChanged(createLocationWithSpeed(12));
+        controller.reset();
+
+        assertThat(controller.estimatedSpeed()).isNaN();
+        assertThat(controller.onLocationChanged(createLocationWithSpeed(12))).isEqualTo(FAST);
+    }
+}
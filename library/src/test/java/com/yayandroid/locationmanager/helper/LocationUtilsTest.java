@@ -0,0 +1,56 @@
+package com.yayandroid.locationmanager.helper;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationWithAccuracy;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LocationUtilsTest {
+
+    @Test
+    public void providerTypeOfShouldMapKnownProviders() {
+        assertThat(LocationUtils.providerTypeOf("gps")).isEqualTo(ProviderType.GPS);
+        assertThat(LocationUtils.providerTypeOf("network")).isEqualTo(ProviderType.NETWORK);
+        assertThat(LocationUtils.providerTypeOf("fused")).isEqualTo(ProviderType.GOOGLE_PLAY_SERVICES);
+        assertThat(LocationUtils.providerTypeOf("passive")).isEqualTo(ProviderType.NONE);
+        assertThat(LocationUtils.providerTypeOf(null)).isEqualTo(ProviderType.NONE);
+    }
+
+    @Test
+    public void providerOfShouldReverseProviderTypeOf() {
+        assertThat(LocationUtils.providerOf(ProviderType.GPS)).isEqualTo("gps");
+        assertThat(LocationUtils.providerOf(ProviderType.NETWORK)).isEqualTo("network");
+        assertThat(LocationUtils.providerOf(ProviderType.GOOGLE_PLAY_SERVICES)).isEqualTo("fused");
+        assertThat(LocationUtils.providerOf(ProviderType.NONE)).isNull();
+        assertThat(LocationUtils.providerOf(ProviderType.DEFAULT_PROVIDERS)).isNull();
+    }
+
+    @Test
+    public void distanceBetweenShouldReturnGreatCircleDistanceInMeters() {
+        assertThat(LocationUtils.distanceBetween(41, 29, 41, 29)).isZero();
+        assertThat(LocationUtils.distanceBetween(41, 29, 42, 29)).isCloseTo(111195, within(1.0));
+        assertThat(LocationUtils.distanceBetween(0, 0, 0, 1)).isCloseTo(111195, within(1.0));
+    }
+
+    @Test
+    public void findMostAccurateShouldReturnNullForEmptyList() {
+        assertThat(LocationUtils.findMostAccurate(Collections.<Location>emptyList())).isNull();
+    }
+
+    @Test
+    public void findMostAccurateShouldPreferMoreRecentOneOnTie() {
+        Location older = createLocationWithAccuracy(10, 1);
+        Location inaccurate = createLocationWithAccuracy(30, 3);
+        Location newer = createLocationWithAccuracy(10, 2);
+
+        assertThat(LocationUtils.findMostAccurate(Arrays.asList(older, inaccurate, newer))).isSameAs(newer);
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -16,6 +17,8 @@ import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 public class LogUtilsTest {
 
+    private static final String TAG = "LogUtilsTest";
+
     @Mock
     private Logger mockLogger;
 
@@ -29,11 +32,11 @@ public class LogUtilsTest {
     public void whenLoggingIsDisabledItShouldNotForwardToLogger() {
         LogUtils.enable(false);
 
-        LogUtils.logD("Dmessage");
-        LogUtils.logE("Emessage");
-        LogUtils.logI("Imessage");
-        LogUtils.logV("Vmessage");
-        LogUtils.logW("Wmessage");
+        LogUtils.logD(TAG, "Dmessage");
+        LogUtils.logE(TAG, "Emessage");
+        LogUtils.logI(TAG, "Imessage");
+        LogUtils.logV(TAG, "Vmessage");
+        LogUtils.logW(TAG, "Wmessage");
 
         verifyZeroInteractions(mockLogger);
     }
@@ -42,17 +45,17 @@ public class LogUtilsTest {
     public void whenLoggingIsEnabledItShouldForwardToLogger() {
         LogUtils.enable(true);
 
-        LogUtils.logD("Dmessage");
-        LogUtils.logE("Emessage");
-        LogUtils.logI("Imessage");
-        LogUtils.logV("Vmessage");
-        LogUtils.logW("Wmessage");
-
-        verify(mockLogger, times(1)).logD(anyString(), eq("Dmessage"));
-        verify(mockLogger, times(1)).logE(anyString(), eq("Emessage"));
-        verify(mockLogger, times(1)).logI(anyString(), eq("Imessage"));
-        verify(mockLogger, times(1)).logV(anyString(), eq("Vmessage"));
-        verify(mockLogger, times(1)).logW(anyString(), eq("Wmessage"));
+        LogUtils.logD(TAG, "Dmessage");
+        LogUtils.logE(TAG, "Emessage");
+        LogUtils.logI(TAG, "Imessage");
+        LogUtils.logV(TAG, "Vmessage");
+        LogUtils.logW(TAG, "Wmessage");
+
+        verify(mockLogger, times(1)).logD(eq(TAG), eq("Dmessage"));
+        verify(mockLogger, times(1)).logE(eq(TAG), eq("Emessage"));
+        verify(mockLogger, times(1)).logI(eq(TAG), eq("Imessage"));
+        verify(mockLogger, times(1)).logV(eq(TAG), eq("Vmessage"));
+        verify(mockLogger, times(1)).logW(eq(TAG), eq("Wmessage"));
     }
 
     @Test
@@ -61,9 +64,46 @@ public class LogUtilsTest {
 
         Logger newLogger = mock(Logger.class);
         LogUtils.setLogger(newLogger);
-        LogUtils.logD("Dmessage");
+        LogUtils.logD(TAG, "Dmessage");
 
         verify(newLogger, times(1)).logD(anyString(), eq("Dmessage"));
         verify(mockLogger, times(0)).logD(anyString(), anyString());
     }
+
+    @Test
+    public void whenLoggingIsEnabledItShouldFormatArguments() {
+        LogUtils.enable(true);
+
+        LogUtils.logI(TAG, "status: %s", "OK");
+        LogUtils.logI(TAG, "count: %d", 42);
+        LogUtils.logI(TAG, "%s took %d ms", "task", 15L);
+
+        verify(mockLogger).logI(TAG, "status: OK");
+        verify(mockLogger).logI(TAG, "count: 42");
+        verify(mockLogger).logI(TAG, "task took 15 ms");
+    }
+
+    @Test
+    public void whenLoggingIsDisabledItShouldNotFormatArguments() {
+        LogUtils.enable(false);
+        CountingArgument argument = new CountingArgument();
+
+        LogUtils.logD(TAG, "%s", argument);
+        LogUtils.logE(TAG, "%s %s", argument, argument);
+        LogUtils.logW(TAG, "%d", 1000L);
+
+        assertThat(argument.toStringCount).isZero();
+        assertThat(LogUtils.isEnabled()).isFalse();
+        verifyZeroInteractions(mockLogger);
+    }
+
+    private static class CountingArgument {
+        int toStringCount = 0;
+
+        @Override
+        public String toString() {
+            toStringCount++;
+            return "argument";
+        }
+    }
 }
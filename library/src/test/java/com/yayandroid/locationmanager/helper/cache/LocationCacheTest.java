@@ -0,0 +1,117 @@
+package com.yayandroid.locationmanager.helper.cache;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class LocationCacheTest {
+
+    private static final long ONE_MINUTE = 60 * 1000;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private LocationCache locationCache;
+
+    @Before
+    public void setUp() {
+        locationCache = new LocationCache() {
+            @Override
+            Location copy(Location location, Location reused) {
+                return location;
+            }
+        };
+    }
+
+    @Test
+    public void getShouldReturnNullWhenCacheIsEmpty() {
+        assertThat(locationCache.get(ONE_MINUTE, 100)).isNull();
+    }
+
+    @Test
+    public void getShouldReturnNullWhenLocationIsTooOld() {
+        locationCache.put(createLocation("gps", 5, System.currentTimeMillis() - 2 * ONE_MINUTE));
+
+        assertThat(locationCache.get(ONE_MINUTE, 100)).isNull();
+    }
+
+    @Test
+    public void getShouldReturnNullWhenLocationIsNotAccurateEnough() {
+        locationCache.put(createLocation("network", 500, System.currentTimeMillis()));
+
+        assertThat(locationCache.get(ONE_MINUTE, 100)).isNull();
+    }
+
+    @Test
+    public void getShouldReturnMostAccurateSufficientLocation() {
+        Location network = createLocation("network", 50, System.currentTimeMillis());
+        Location gps = createLocation("gps", 10, System.currentTimeMillis());
+        Location fused = createLocation("fused", 20, System.currentTimeMillis());
+        locationCache.put(network);
+        locationCache.put(gps);
+        locationCache.put(fused);
+
+        assertThat(locationCache.get(ONE_MINUTE, 100)).isSameAs(gps);
+    }
+
+    @Test
+    public void putShouldReplacePreviousLocationOfSameProvider() {
+        Location first = createLocation("gps", 10, System.currentTimeMillis());
+        Location second = createLocation("gps", 30, System.currentTimeMillis());
+        locationCache.put(first);
+        locationCache.put(second);
+
+        assertThat(locationCache.get(ONE_MINUTE, 100)).isSameAs(second);
+    }
+
+    @Test
+    public void clearShouldRemoveAllLocations() {
+        locationCache.put(createLocation("gps", 10, System.currentTimeMillis()));
+        locationCache.clear();
+
+        assertThat(locationCache.get(ONE_MINUTE, 100)).isNull();
+    }
+
+    @Test
+    public void putShouldWriteThroughToSnapshotWhenPersisted() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "snapshot");
+        locationCache.persist(file);
+
+        Location location = createLocation("gps", 10, 1234L);
+        when(location.getLatitude()).thenReturn(41.0);
+        when(location.getLongitude()).thenReturn(29.0);
+        locationCache.put(location);
+
+        LocationSnapshot.Record record = new LocationSnapshot.Record();
+        assertThat(LocationSnapshot.open(file).read(1, record)).isTrue();
+        assertThat(record.providerType).isEqualTo(ProviderType.GPS);
+        assertThat(record.accuracy).isEqualTo(10f);
+        assertThat(record.time).isEqualTo(1234L);
+        assertThat(record.latitude).isEqualTo(41.0);
+        assertThat(record.longitude).isEqualTo(29.0);
+    }
+
+    @Test
+    public void locationsReceivedBeforePersistingShouldBeWrittenToSnapshot() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "snapshot");
+        locationCache.put(createLocation("gps", 10, 1234L));
+
+        locationCache.persist(file);
+
+        LocationSnapshot.Record record = new LocationSnapshot.Record();
+        assertThat(LocationSnapshot.open(file).read(1, record)).isTrue();
+        assertThat(record.providerType).isEqualTo(ProviderType.GPS);
+        assertThat(record.time).isEqualTo(1234L);
+    }
+}
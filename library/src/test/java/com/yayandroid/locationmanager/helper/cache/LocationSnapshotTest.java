@@ -0,0 +1,121 @@
+package com.yayandroid.locationmanager.helper.cache;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocationSnapshotTest {
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(temporaryFolder.getRoot(), "snapshot");
+    }
+
+    @Test
+    public void openShouldCreateFileWithFixedSize() throws IOException {
+        LocationSnapshot.open(file);
+
+        assertThat(file.length()).isEqualTo(LocationSnapshot.FILE_SIZE);
+    }
+
+    @Test
+    public void readShouldReturnFalseForEmptySlots() throws IOException {
+        LocationSnapshot snapshot = LocationSnapshot.open(file);
+
+        for (int slot = 0; slot < LocationSnapshot.SLOT_COUNT; slot++) {
+            assertThat(snapshot.read(slot, new LocationSnapshot.Record())).isFalse();
+        }
+    }
+
+    @Test
+    public void writtenRecordShouldSurviveReopening() throws IOException {
+        LocationSnapshot.open(file).write(ProviderType.GPS, 1000L, 2000L, 41.5, 29.25, 120.0, 5f, 1.5f, 90f,
+              LocationSnapshot.FLAG_HAS_ALTITUDE | LocationSnapshot.FLAG_HAS_SPEED);
+
+        LocationSnapshot.Record record = findLatest(LocationSnapshot.open(file));
+
+        assertThat(record).isNotNull();
+        assertThat(record.providerType).isEqualTo(ProviderType.GPS);
+        assertThat(record.time).isEqualTo(1000L);
+        assertThat(record.elapsedRealtimeNanos).isEqualTo(2000L);
+        assertThat(record.latitude).isEqualTo(41.5);
+        assertThat(record.longitude).isEqualTo(29.25);
+        assertThat(record.altitude).isEqualTo(120.0);
+        assertThat(record.accuracy).isEqualTo(5f);
+        assertThat(record.speed).isEqualTo(1.5f);
+        assertThat(record.bearing).isEqualTo(90f);
+        assertThat(record.flags).isEqualTo(LocationSnapshot.FLAG_HAS_ALTITUDE | LocationSnapshot.FLAG_HAS_SPEED);
+    }
+
+    @Test
+    public void writeShouldOverwriteOldestSlotAndContinueSequenceAfterReopening() throws IOException {
+        LocationSnapshot snapshot = LocationSnapshot.open(file);
+        for (int i = 1; i <= LocationSnapshot.SLOT_COUNT; i++) {
+            snapshot.write(ProviderType.NETWORK, i, 0L, 0, 0, 0, 10f, 0f, 0f, 0);
+        }
+
+        LocationSnapshot reopened = LocationSnapshot.open(file);
+        reopened.write(ProviderType.NETWORK, LocationSnapshot.SLOT_COUNT + 1, 0L, 0, 0, 0, 10f, 0f, 0f, 0);
+
+        long oldest = Long.MAX_VALUE;
+        for (int slot = 0; slot < LocationSnapshot.SLOT_COUNT; slot++) {
+            LocationSnapshot.Record record = new LocationSnapshot.Record();
+            assertThat(reopened.read(slot, record)).isTrue();
+            oldest = Math.min(oldest, record.time);
+        }
+        assertThat(oldest).isEqualTo(2L);
+        assertThat(findLatest(reopened).time).isEqualTo(LocationSnapshot.SLOT_COUNT + 1);
+    }
+
+    @Test
+    public void corruptedSlotShouldBeSkipped() throws IOException {
+        LocationSnapshot snapshot = LocationSnapshot.open(file);
+        snapshot.write(ProviderType.GPS, 1L, 0L, 0, 0, 0, 5f, 0f, 0f, 0);
+        snapshot.write(ProviderType.GPS, 2L, 0L, 0, 0, 0, 5f, 0f, 0f, 0);
+
+        // Latest write went into slot 2, flip a byte of its latitude as if the process died while writing
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(LocationSnapshot.HEADER_SIZE + 2 * LocationSnapshot.SLOT_SIZE + 24);
+        randomAccessFile.write(0x7F);
+        randomAccessFile.close();
+
+        LocationSnapshot.Record record = findLatest(LocationSnapshot.open(file));
+        assertThat(record).isNotNull();
+        assertThat(record.time).isEqualTo(1L);
+    }
+
+    @Test
+    public void openShouldResetFileWithUnknownHeader() throws IOException {
+        LocationSnapshot.open(file).write(ProviderType.GPS, 1L, 0L, 0, 0, 0, 5f, 0f, 0f, 0);
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.writeInt(0);
+        randomAccessFile.close();
+
+        assertThat(findLatest(LocationSnapshot.open(file))).isNull();
+    }
+
+    private static LocationSnapshot.Record findLatest(LocationSnapshot snapshot) {
+        LocationSnapshot.Record latest = null;
+        for (int slot = 0; slot < LocationSnapshot.SLOT_COUNT; slot++) {
+            LocationSnapshot.Record record = new LocationSnapshot.Record();
+            if (snapshot.read(slot, record) && (latest == null || latest.sequence < record.sequence)) {
+                latest = record;
+            }
+        }
+        return latest;
+    }
+}
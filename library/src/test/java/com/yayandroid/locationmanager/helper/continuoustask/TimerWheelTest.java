@@ -0,0 +1,111 @@
+package com.yayandroid.locationmanager.helper.continuoustask;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class TimerWheelTest {
+
+    private static final long TICK = 100L;
+    private static final int SIZE = 16;
+    private static final long INITIAL_TIME = 10000L;
+
+    private long now;
+    private TimerWheel timerWheel;
+
+    @Before
+    public void setUp() {
+        now = INITIAL_TIME;
+        timerWheel = new TimerWheel(TICK, SIZE) {
+            @Override
+            long now() {
+                return now;
+            }
+
+            @Override
+            void startThread() {
+                // Ticks are driven by the test
+            }
+        };
+    }
+
+    @Test
+    public void timeoutShouldNotExpireBeforeItsDeadline() {
+        TimerWheel.Timeout timeout = timerWheel.schedule(mock(Runnable.class), 250, null);
+
+        timerWheel.expireTimeouts(INITIAL_TIME + 249);
+        assertThat(timerWheel.expired()).isEmpty();
+
+        timerWheel.expireTimeouts(INITIAL_TIME + 300);
+        assertThat(timerWheel.expired()).containsExactly(timeout);
+    }
+
+    @Test
+    public void deadlinesWithinSameTickShouldExpireTogether() {
+        TimerWheel.Timeout first = timerWheel.schedule(mock(Runnable.class), 210, null);
+        TimerWheel.Timeout second = timerWheel.schedule(mock(Runnable.class), 290, null);
+
+        assertThat(first.deadlineTick).isEqualTo(second.deadlineTick);
+        assertThat(timerWheel.findNextTick()).isEqualTo(first.deadlineTick);
+
+        timerWheel.expireTimeouts(INITIAL_TIME + 300);
+        assertThat(timerWheel.expired()).containsOnly(first, second);
+    }
+
+    @Test
+    public void timeoutOfNextRoundShouldNotExpireWithCurrentOne() {
+        long round = TICK * SIZE;
+        TimerWheel.Timeout nextRound = timerWheel.schedule(mock(Runnable.class), round + 100, null);
+
+        timerWheel.expireTimeouts(INITIAL_TIME + 100);
+        assertThat(timerWheel.expired()).isEmpty();
+
+        timerWheel.expireTimeouts(INITIAL_TIME + round + 100);
+        assertThat(timerWheel.expired()).containsExactly(nextRound);
+    }
+
+    @Test
+    public void lateTickShouldExpireEverythingDueSoFar() {
+        TimerWheel.Timeout first = timerWheel.schedule(mock(Runnable.class), 100, null);
+        TimerWheel.Timeout second = timerWheel.schedule(mock(Runnable.class), 5 * TICK * SIZE, null);
+
+        timerWheel.expireTimeouts(INITIAL_TIME + 10 * TICK * SIZE);
+        assertThat(timerWheel.expired()).containsOnly(first, second);
+    }
+
+    @Test
+    public void cancelledTimeoutShouldNotExpire() {
+        TimerWheel.Timeout timeout = timerWheel.schedule(mock(Runnable.class), 100, null);
+        timerWheel.cancel(timeout);
+
+        timerWheel.expireTimeouts(INITIAL_TIME + 1000);
+        assertThat(timerWheel.expired()).isEmpty();
+        assertThat(timerWheel.findNextTick()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void timeoutCancelledAfterExpiringShouldNotRunItsTask() {
+        Runnable task = mock(Runnable.class);
+        TimerWheel.Timeout timeout = timerWheel.schedule(task, 100, null);
+        timerWheel.expireTimeouts(INITIAL_TIME + 100);
+
+        timerWheel.cancel(timeout);
+        timeout.run();
+
+        verify(task, never()).run();
+    }
+
+    @Test
+    public void expiredTimeoutShouldRunItsTask() {
+        Runnable task = mock(Runnable.class);
+        TimerWheel.Timeout timeout = timerWheel.schedule(task, 0, null);
+
+        timeout.run();
+
+        verify(task).run();
+    }
+}
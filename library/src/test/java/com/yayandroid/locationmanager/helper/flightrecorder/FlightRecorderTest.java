@@ -0,0 +1,100 @@
+package com.yayandroid.locationmanager.helper.flightrecorder;
+
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.constants.RecordType;
+import com.yayandroid.locationmanager.listener.FlightRecorderListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class FlightRecorderTest {
+
+    @Mock FlightRecorderListener flightRecorderListener;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        FlightRecorder.clear();
+    }
+
+    @After
+    public void tearDown() {
+        FlightRecorder.setListener(null);
+        FlightRecorder.clear();
+    }
+
+    @Test
+    public void snapshotShouldBeEmptyWhenNothingIsRecorded() {
+        assertThat(FlightRecorder.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void snapshotShouldDecodeEventsInOrder() {
+        FlightRecorder.record(RecordType.PROCESS_TYPE_CHANGED, ProcessType.GETTING_LOCATION_FROM_GPS_PROVIDER);
+        FlightRecorder.record(RecordType.SETTINGS_API_DIALOG_RESULT, -1);
+        FlightRecorder.recordLocation("gps", 12.5f);
+
+        List<FlightRecorder.Event> events = FlightRecorder.snapshot();
+
+        assertThat(events).hasSize(3);
+        assertThat(events.get(0).type()).isEqualTo(RecordType.PROCESS_TYPE_CHANGED);
+        assertThat(events.get(0).argument()).isEqualTo(ProcessType.GETTING_LOCATION_FROM_GPS_PROVIDER);
+        assertThat(events.get(1).type()).isEqualTo(RecordType.SETTINGS_API_DIALOG_RESULT);
+        assertThat(events.get(1).argument()).isEqualTo(-1);
+        assertThat(events.get(2).type()).isEqualTo(RecordType.LOCATION_RECEIVED);
+        assertThat(events.get(2).argument()).isEqualTo(ProviderType.GPS);
+        assertThat(events.get(2).accuracy()).isEqualTo(12.5f);
+    }
+
+    @Test
+    public void bufferShouldKeepOnlyLatestEventsWhenItWrapsAround() {
+        int total = FlightRecorder.CAPACITY + 10;
+        for (int i = 0; i < total; i++) {
+            FlightRecorder.record(RecordType.TASK_FIRED, ProviderType.GPS, i);
+        }
+
+        List<FlightRecorder.Event> events = FlightRecorder.snapshot();
+
+        assertThat(events).hasSize(FlightRecorder.CAPACITY);
+        assertThat(events.get(0).value()).isEqualTo(10);
+        assertThat(events.get(FlightRecorder.CAPACITY - 1).value()).isEqualTo(total - 1);
+    }
+
+    @Test
+    public void recordFailureShouldDumpEventsToListener() {
+        FlightRecorder.setListener(flightRecorderListener);
+        FlightRecorder.record(RecordType.PROVIDER_SWITCHED, ProviderType.DEFAULT_PROVIDERS);
+
+        FlightRecorder.recordFailure(FailType.TIMEOUT);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FlightRecorder.Event>> captor = ArgumentCaptor.forClass(List.class);
+        verify(flightRecorderListener).onFlightRecorderDump(eq(FailType.TIMEOUT), captor.capture());
+        assertThat(captor.getValue()).hasSize(2);
+        assertThat(captor.getValue().get(1).type()).isEqualTo(RecordType.LOCATION_FAILED);
+        assertThat(captor.getValue().get(1).argument()).isEqualTo(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void recordFailureShouldStillRecordWhenThereIsNoListener() {
+        FlightRecorder.recordFailure(FailType.PERMISSION_DENIED);
+
+        assertThat(FlightRecorder.snapshot()).hasSize(1);
+        verify(flightRecorderListener, never()).onFlightRecorderDump(anyInt(), anyList());
+    }
+}
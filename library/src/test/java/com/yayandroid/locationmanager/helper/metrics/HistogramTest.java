@@ -0,0 +1,73 @@
+package com.yayandroid.locationmanager.helper.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistogramTest {
+
+    private Histogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new Histogram();
+    }
+
+    @Test
+    public void emptyHistogramShouldReturnZeros() {
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.min()).isZero();
+        assertThat(histogram.max()).isZero();
+        assertThat(histogram.mean()).isZero();
+        assertThat(histogram.percentile(0.5)).isZero();
+    }
+
+    @Test
+    public void valuesShouldFallIntoPowerOfTwoBuckets() {
+        assertThat(Histogram.bucketOf(0)).isEqualTo(0);
+        assertThat(Histogram.bucketOf(1)).isEqualTo(1);
+        assertThat(Histogram.bucketOf(2)).isEqualTo(2);
+        assertThat(Histogram.bucketOf(3)).isEqualTo(2);
+        assertThat(Histogram.bucketOf(1000)).isEqualTo(10);
+        assertThat(Histogram.bucketOf(Long.MAX_VALUE)).isEqualTo(Histogram.BUCKET_COUNT - 1);
+        assertThat(Histogram.upperBoundOf(10)).isEqualTo(1023);
+    }
+
+    @Test
+    public void recordShouldTrackSummary() {
+        histogram.record(10);
+        histogram.record(30);
+        histogram.record(-5);
+
+        assertThat(histogram.count()).isEqualTo(3);
+        assertThat(histogram.sum()).isEqualTo(40);
+        assertThat(histogram.min()).isEqualTo(0);
+        assertThat(histogram.max()).isEqualTo(30);
+        assertThat(histogram.countOf(Histogram.bucketOf(10))).isEqualTo(1);
+    }
+
+    @Test
+    public void percentileShouldReturnUpperBoundOfBucket() {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+
+        assertThat(histogram.percentile(0.5)).isEqualTo(127);
+        assertThat(histogram.percentile(0.99)).isEqualTo(5000);
+    }
+
+    @Test
+    public void copyWithResetShouldKeepValuesInCopyOnly() {
+        histogram.record(10);
+
+        Histogram copy = histogram.copy(true);
+
+        assertThat(copy.count()).isEqualTo(1);
+        assertThat(copy.max()).isEqualTo(10);
+        assertThat(histogram.count()).isZero();
+    }
+}
@@ -0,0 +1,71 @@
+package com.yayandroid.locationmanager.helper.metrics;
+
+import com.yayandroid.locationmanager.constants.CounterType;
+import com.yayandroid.locationmanager.constants.HistogramType;
+import com.yayandroid.locationmanager.constants.ProviderType;
+import com.yayandroid.locationmanager.listener.MetricsSink;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+public class MetricsTest {
+
+    @Mock MetricsSink metricsSink;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setSink(null);
+    }
+
+    @Test
+    public void withoutSinkNothingShouldBeRecorded() {
+        Metrics.increment(CounterType.TIMEOUT);
+        Metrics.record(HistogramType.ACCURACY, 10);
+
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        assertThat(snapshot.counter(CounterType.TIMEOUT)).isZero();
+        assertThat(snapshot.histogram(HistogramType.ACCURACY).count()).isZero();
+    }
+
+    @Test
+    public void publishShouldHandRecordedMetricsToSinkAndReset() {
+        Metrics.setSink(metricsSink);
+        Metrics.increment(CounterType.TIMEOUT);
+        Metrics.increment(CounterType.TIMEOUT);
+        Metrics.record(HistogramType.ACCURACY, 10);
+
+        Metrics.publish();
+
+        ArgumentCaptor<MetricsSnapshot> captor = ArgumentCaptor.forClass(MetricsSnapshot.class);
+        verify(metricsSink).onMetricsPublished(captor.capture());
+        assertThat(captor.getValue().counter(CounterType.TIMEOUT)).isEqualTo(2);
+        assertThat(captor.getValue().histogram(HistogramType.ACCURACY).max()).isEqualTo(10);
+
+        assertThat(Metrics.snapshot().counter(CounterType.TIMEOUT)).isZero();
+    }
+
+    @Test
+    public void timeToFirstFixShouldBeRecordedPerProvider() {
+        Metrics.setSink(metricsSink);
+
+        Metrics.recordTimeToFirstFix(ProviderType.GPS, 1500);
+        Metrics.recordTimeToFirstFix(ProviderType.NONE, 10);
+
+        MetricsSnapshot snapshot = Metrics.snapshot();
+        assertThat(snapshot.histogram(HistogramType.TIME_TO_FIRST_FIX_GPS).count()).isEqualTo(1);
+        assertThat(snapshot.histogram(HistogramType.TIME_TO_FIRST_FIX_NETWORK).count()).isZero();
+        assertThat(snapshot.histogram(HistogramType.TIME_TO_FIRST_FIX_GOOGLE_PLAY_SERVICES).count()).isZero();
+    }
+}
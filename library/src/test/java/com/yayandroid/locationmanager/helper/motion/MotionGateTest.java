@@ -0,0 +1,135 @@
+package com.yayandroid.locationmanager.helper.motion;
+
+import android.os.Looper;
+
+import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class MotionGateTest {
+
+    private static final long QUIET_PERIOD = 60000L;
+
+    @Mock ContinuousTask quietPeriodTask;
+    @Mock MotionGate.GateListener gateListener;
+
+    private FakeMotionSensor motionSensor;
+    private long currentTime;
+    private MotionGate motionGate;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        motionSensor = new FakeMotionSensor();
+        motionGate = new MotionGate(motionSensor, QUIET_PERIOD, gateListener, null) {
+            @Override
+            long getCurrentTime() {
+                return currentTime;
+            }
+        };
+        motionGate.setQuietPeriodTask(quietPeriodTask);
+    }
+
+    @Test
+    public void startShouldMonitorAndScheduleQuietPeriod() {
+        motionGate.start();
+
+        assertThat(motionSensor.isMonitoring).isTrue();
+        verify(quietPeriodTask).delayed(QUIET_PERIOD);
+        assertThat(motionGate.isStill()).isFalse();
+    }
+
+    @Test
+    public void whenNoMotionDuringQuietPeriodShouldBeStill() {
+        motionGate.start();
+
+        currentTime += QUIET_PERIOD;
+        motionGate.runScheduledTask(MotionGate.QUIET_PERIOD_TASK);
+
+        assertThat(motionGate.isStill()).isTrue();
+        assertThat(motionSensor.isWaiting).isTrue();
+        assertThat(motionSensor.isMonitoring).isFalse();
+        verify(gateListener).onStill();
+    }
+
+    @Test
+    public void whenMotionDuringQuietPeriodShouldWaitForRemainingPeriod() {
+        motionGate.start();
+
+        currentTime += 40000L;
+        motionSensor.move();
+        currentTime += 20000L;
+        motionGate.runScheduledTask(MotionGate.QUIET_PERIOD_TASK);
+
+        assertThat(motionGate.isStill()).isFalse();
+        verify(quietPeriodTask).delayed(40000L);
+        verify(gateListener, never()).onStill();
+    }
+
+    @Test
+    public void whenMovingAfterStillShouldResume() {
+        motionGate.start();
+        currentTime += QUIET_PERIOD;
+        motionGate.runScheduledTask(MotionGate.QUIET_PERIOD_TASK);
+
+        motionSensor.move();
+
+        assertThat(motionGate.isStill()).isFalse();
+        assertThat(motionSensor.isMonitoring).isTrue();
+        verify(gateListener).onMoving();
+    }
+
+    @Test
+    public void stopShouldReleaseSensorAndIgnoreMotion() {
+        motionGate.start();
+        currentTime += QUIET_PERIOD;
+        motionGate.runScheduledTask(MotionGate.QUIET_PERIOD_TASK);
+
+        motionGate.stop();
+        motionSensor.move();
+        motionGate.runScheduledTask(MotionGate.QUIET_PERIOD_TASK);
+
+        assertThat(motionSensor.isMonitoring).isFalse();
+        assertThat(motionSensor.isWaiting).isFalse();
+        verify(gateListener).onStill();
+        verify(gateListener, never()).onMoving();
+    }
+
+    private static class FakeMotionSensor implements MotionSensor {
+
+        private MotionListener listener;
+        boolean isMonitoring;
+        boolean isWaiting;
+
+        @Override
+        public void startMonitoring(MotionListener listener, Looper looper) {
+            this.listener = listener;
+            isMonitoring = true;
+        }
+
+        @Override
+        public void startWaiting(MotionListener listener, Looper looper) {
+            this.listener = listener;
+            isWaiting = true;
+        }
+
+        @Override
+        public void stop() {
+            isMonitoring = false;
+            isWaiting = false;
+        }
+
+        void move() {
+            // Sensor may still report a motion which is already on its way when it is stopped
+            if (listener != null) listener.onMotionDetected();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+import com.yayandroid.locationmanager.configuration.ReplayConfiguration;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TrackPlayerTest {
+
+    private static final Track TRACK = new Track(Arrays.asList(
+          new TrackPoint(1000, 10, 20, 100, 4, 2, 90),
+          new TrackPoint(2000, 11, 21, 200, 8, 4, 90),
+          new TrackPoint(4000, 12, 22, 300, 12, 6, 90)));
+
+    @Test
+    public void pointsShouldBeDueAtTheirOwnTimesScaledBySpeedUp() {
+        TrackPlayer player = new TrackPlayer(TRACK, new ReplayConfiguration.Builder().speedUp(2).build());
+
+        assertThat(player.next()).isSameAs(TRACK.get(0));
+        assertThat(player.getDueNanos()).isEqualTo(0);
+        assertThat(player.next()).isSameAs(TRACK.get(1));
+        assertThat(player.getDueNanos()).isEqualTo(500000000L);
+        assertThat(player.next()).isSameAs(TRACK.get(2));
+        assertThat(player.getDueNanos()).isEqualTo(1500000000L);
+        assertThat(player.next()).isNull();
+    }
+
+    @Test
+    public void rateShouldInterpolateBetweenPoints() {
+        TrackPlayer player = new TrackPlayer(TRACK, new ReplayConfiguration.Builder().rate(4).build());
+
+        player.next();
+        player.next();
+        TrackPoint point = player.next();
+
+        assertThat(player.getDueNanos()).isEqualTo(500000000L);
+        assertThat(point.getTime()).isEqualTo(1500);
+        assertThat(point.getLatitude()).isCloseTo(10.5, within(1e-9));
+        assertThat(point.getLongitude()).isCloseTo(20.5, within(1e-9));
+        assertThat(point.getAltitude()).isCloseTo(150, within(1e-9));
+        assertThat(point.getAccuracy()).isCloseTo(6f, within(1e-6f));
+        assertThat(point.getSpeed()).isCloseTo(3f, within(1e-6f));
+    }
+
+    @Test
+    public void rateShouldDeliverUntilTheEndOfTrack() {
+        TrackPlayer player = new TrackPlayer(TRACK, new ReplayConfiguration.Builder().rate(200).build());
+
+        int count = 0;
+        TrackPoint last = null;
+        TrackPoint point;
+        while ((point = player.next()) != null) {
+            last = point;
+            count++;
+        }
+
+        assertThat(count).isEqualTo(601);
+        assertThat(last.getTime()).isEqualTo(4000);
+        assertThat(last.getLatitude()).isEqualTo(12);
+    }
+
+    @Test
+    public void jitterShouldNotReorderPoints() {
+        TrackPlayer player = new TrackPlayer(new SyntheticTrack.Builder().duration(60 * 1000).interval(100).build(),
+              new ReplayConfiguration.Builder().jitter(500).build());
+
+        long previousDue = 0;
+        while (player.next() != null) {
+            assertThat(player.getDueNanos()).isGreaterThanOrEqualTo(previousDue);
+            previousDue = player.getDueNanos();
+        }
+    }
+
+    @Test
+    public void sameSeedShouldPlayTheSameWay() {
+        Track track = new SyntheticTrack.Builder().duration(60 * 1000).build();
+        ReplayConfiguration configuration = new ReplayConfiguration.Builder()
+              .jitter(200)
+              .accuracyNoise(5)
+              .dropoutProbability(0.3f)
+              .seed(42)
+              .build();
+        TrackPlayer first = new TrackPlayer(track, configuration);
+        TrackPlayer second = new TrackPlayer(track, configuration);
+
+        TrackPoint point;
+        while ((point = first.next()) != null) {
+            TrackPoint other = second.next();
+            assertThat(other.getTime()).isEqualTo(point.getTime());
+            assertThat(other.getLatitude()).isEqualTo(point.getLatitude());
+            assertThat(other.getAccuracy()).isEqualTo(point.getAccuracy());
+            assertThat(second.getDueNanos()).isEqualTo(first.getDueNanos());
+        }
+        assertThat(second.next()).isNull();
+        assertThat(first.getDroppedCount()).isEqualTo(second.getDroppedCount()).isPositive();
+    }
+
+    @Test
+    public void accuracyNoiseShouldMovePointsAndWorsenAccuracy() {
+        TrackPlayer player = new TrackPlayer(TRACK, new ReplayConfiguration.Builder().accuracyNoise(10).build());
+
+        TrackPoint point = player.next();
+
+        assertThat(point.getLatitude()).isNotEqualTo(10);
+        assertThat(point.getAccuracy()).isGreaterThan(4);
+        assertThat(point.getSpeed()).isEqualTo(2);
+    }
+
+    @Test
+    public void everyPointShouldBeDroppedWithProbabilityOne() {
+        TrackPlayer player = new TrackPlayer(TRACK, new ReplayConfiguration.Builder().dropoutProbability(1).build());
+
+        assertThat(player.next()).isNull();
+        assertThat(player.getDroppedCount()).isEqualTo(3);
+    }
+}
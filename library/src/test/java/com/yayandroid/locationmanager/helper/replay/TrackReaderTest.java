@@ -0,0 +1,96 @@
+package com.yayandroid.locationmanager.helper.replay;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrackReaderTest {
+
+    private static final String GPX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+          + "<gpx version=\"1.1\" xmlns=\"http://www.topografix.com/GPX/1/1\"><trk><trkseg>"
+          + "<trkpt lat=\"52.5\" lon=\"13.4\"><ele>34.5</ele><time>2020-01-31T10:15:30Z</time></trkpt>"
+          + "<trkpt lat=\"52.6\" lon=\"13.5\"><time>2020-01-31T11:15:31.250+01:00</time></trkpt>"
+          + "</trkseg></trk></gpx>";
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void csvShouldBeReadWithOptionalColumns() throws IOException {
+        Track track = TrackReader.readCsv(new StringReader("time,latitude,longitude,altitude,accuracy\n"
+              + "# comment\n"
+              + "0,52.5,13.4\n"
+              + "\n"
+              + "1000,52.6,13.5,40,,3.5,180\n"));
+
+        assertThat(track.size()).isEqualTo(2);
+        assertThat(track.get(0).hasAltitude()).isFalse();
+        assertThat(track.get(0).hasAccuracy()).isFalse();
+        assertThat(track.get(1).getTime()).isEqualTo(1000);
+        assertThat(track.get(1).getLatitude()).isEqualTo(52.6);
+        assertThat(track.get(1).getAltitude()).isEqualTo(40);
+        assertThat(track.get(1).hasAccuracy()).isFalse();
+        assertThat(track.get(1).getSpeed()).isEqualTo(3.5f);
+        assertThat(track.get(1).getBearing()).isEqualTo(180);
+    }
+
+    @Test
+    public void csvWithInvalidLineShouldThrowException() throws IOException {
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("Line 2");
+
+        TrackReader.readCsv(new StringReader("0,52.5,13.4\n1000,north,13.5\n"));
+    }
+
+    @Test
+    public void gpxShouldBeReadFromTrackPoints() throws IOException {
+        Track track = TrackReader.readGpx(new StringReader(GPX));
+
+        assertThat(track.size()).isEqualTo(2);
+        assertThat(track.get(0).getLatitude()).isEqualTo(52.5);
+        assertThat(track.get(0).getLongitude()).isEqualTo(13.4);
+        assertThat(track.get(0).getAltitude()).isEqualTo(34.5);
+        assertThat(track.get(1).hasAltitude()).isFalse();
+        assertThat(track.duration()).isEqualTo(1250);
+    }
+
+    @Test
+    public void gpxPointWithoutTimeShouldThrowException() throws IOException {
+        expectedException.expect(IOException.class);
+
+        TrackReader.readGpx(new StringReader("<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"/></trkseg></trk></gpx>"));
+    }
+
+    @Test
+    public void gpxWithExternalEntityShouldNotBeResolved() throws IOException {
+        File secret = temporaryFolder.newFile("secret.txt");
+        Writer writer = new FileWriter(secret);
+        try {
+            writer.write("52.5");
+        } finally {
+            writer.close();
+        }
+        expectedException.expect(IOException.class);
+
+        TrackReader.readGpx(new StringReader("<?xml version=\"1.0\"?>"
+              + "<!DOCTYPE gpx [<!ENTITY secret SYSTEM \"" + secret.toURI() + "\">]>"
+              + "<gpx><trk><trkseg><trkpt lat=\"1\" lon=\"2\"><time>2020-01-31T10:15:30Z</time>"
+              + "<ele>&secret;</ele></trkpt></trkseg></trk></gpx>"));
+    }
+
+    @Test
+    public void timeShouldBeParsedInUtc() {
+        assertThat(TrackReader.parseTime("1970-01-01T00:00:01Z")).isEqualTo(1000);
+        assertThat(TrackReader.parseTime("1970-01-01T01:00:01.5+01:00")).isEqualTo(1500);
+        assertThat(TrackReader.parseTime("1970-01-01T00:00:00-0030")).isEqualTo(30 * 60 * 1000);
+    }
+}
@@ -0,0 +1,133 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TrackEncoderTest {
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    public void decoderShouldReadPointsBackWithinPrecision() throws IOException {
+        TrackEncoder encoder = new TrackEncoder(out);
+        encoder.append(1000L, 41.123456, 29.654321);
+        encoder.append(2000L, 41.122, -29.5);
+        encoder.append(1500L, -33.9, 151.2);
+        encoder.finish();
+
+        TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(decoder.getPrecision()).isEqualTo(TrackEncoder.DEFAULT_PRECISION);
+        assertThat(decoder.moveToNext()).isTrue();
+        assertThat(decoder.getTime()).isEqualTo(1000L);
+        assertThat(decoder.getLatitude()).isCloseTo(41.12346, within(1e-9));
+        assertThat(decoder.getLongitude()).isCloseTo(29.65432, within(1e-9));
+        assertThat(decoder.moveToNext()).isTrue();
+        assertThat(decoder.getTime()).isEqualTo(2000L);
+        assertThat(decoder.getLongitude()).isCloseTo(-29.5, within(1e-9));
+        assertThat(decoder.moveToNext()).isTrue();
+        assertThat(decoder.getTime()).isEqualTo(1500L);
+        assertThat(decoder.getLatitude()).isCloseTo(-33.9, within(1e-9));
+        assertThat(decoder.moveToNext()).isFalse();
+    }
+
+    @Test
+    public void regularTrackShouldTakeFewBytesPerPoint() throws IOException {
+        TrackEncoder encoder = new TrackEncoder(out);
+        for (int i = 0; i < 1000; i++) {
+            // About 10 m/s north-east, once a second
+            encoder.append(1000L * i, 41.0 + i * 0.00007, 29.0 + i * 0.00009);
+        }
+        encoder.finish();
+
+        // Header is 4 bytes, time delta takes 2 bytes and coordinate deltas a byte or two
+        assertThat(out.size()).isLessThanOrEqualTo(4 + 1000 * 6);
+        assertThat(encoder.getWrittenCount()).isEqualTo(1000);
+    }
+
+    @Test
+    public void pointsOnStraightLineShouldBeDroppedWithTolerance() throws IOException {
+        TrackEncoder encoder = new TrackEncoder(out, TrackEncoder.DEFAULT_PRECISION, 5);
+        for (int i = 0; i <= 10; i++) {
+            encoder.append(1000L * i, 41.0 + i * 0.0001, 29.0);
+        }
+        encoder.finish();
+
+        long[] times = decodeTimes();
+        assertThat(times).containsExactly(0L, 10000L);
+        assertThat(encoder.getReceivedCount()).isEqualTo(11);
+    }
+
+    @Test
+    public void pointsAwayFromLineShouldBeKeptWithTolerance() throws IOException {
+        TrackEncoder encoder = new TrackEncoder(out, TrackEncoder.DEFAULT_PRECISION, 5);
+        encoder.append(0L, 41.0, 29.0);
+        encoder.append(1000L, 41.001, 29.0);
+        // 20 meters to the east of the line
+        encoder.append(2000L, 41.002, 29.0 + 20 / (METERS_PER_DEGREE * Math.cos(Math.toRadians(41.002))));
+        encoder.append(3000L, 41.003, 29.0);
+        encoder.finish();
+
+        assertThat(decodeTimes()).containsExactly(0L, 1000L, 2000L, 3000L);
+    }
+
+    @Test
+    public void windowShouldBeWrittenOnceItIsFull() throws IOException {
+        TrackEncoder encoder = new TrackEncoder(out, TrackEncoder.DEFAULT_PRECISION, 5);
+        for (int i = 0; i <= TrackEncoder.WINDOW_SIZE + 1; i++) {
+            encoder.append(1000L * i, 41.0 + i * 0.0001, 29.0);
+        }
+
+        assertThat(encoder.getWrittenCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidPrecisionShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new TrackEncoder(out, TrackEncoder.MAX_PRECISION + 1, 0);
+    }
+
+    @Test
+    public void decoderShouldThrowExceptionForOtherStreams() throws IOException {
+        expectedException.expect(IOException.class);
+
+        new TrackDecoder(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 }));
+    }
+
+    @Test
+    public void decoderShouldThrowExceptionWhenPointIsCutOff() throws IOException {
+        TrackEncoder encoder = new TrackEncoder(out);
+        encoder.append(1000L, 41.0, 29.0);
+        encoder.finish();
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+
+        TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(truncated));
+
+        expectedException.expect(IOException.class);
+        decoder.moveToNext();
+    }
+
+    private long[] decodeTimes() throws IOException {
+        TrackDecoder decoder = new TrackDecoder(new ByteArrayInputStream(out.toByteArray()));
+        long[] times = new long[0];
+        while (decoder.moveToNext()) {
+            times = Arrays.copyOf(times, times.length + 1);
+            times[times.length - 1] = decoder.getTime();
+        }
+        return times;
+    }
+}
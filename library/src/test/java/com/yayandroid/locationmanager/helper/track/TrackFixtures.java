@@ -0,0 +1,48 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import android.location.Location;
+
+import java.io.IOException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+
+/**
+ * Fills and reads recorders for tests, along a diagonal path with one location per second
+ */
+final class TrackFixtures {
+
+    private TrackFixtures() {
+        // No instance
+    }
+
+    /**
+     * Appends given number of locations, creating the next segment right away instead of waiting for the
+     * committer so that none of them is dropped
+     */
+    static void appendLocations(TrackRecorder trackRecorder, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            trackRecorder.prepareNextSegment();
+            trackRecorder.append(locationOf(i));
+        }
+    }
+
+    static int countOf(TrackCursor cursor) throws IOException {
+        int count = 0;
+        while (cursor.moveToNext()) {
+            count++;
+        }
+        return count;
+    }
+
+    static Location locationOf(int i) {
+        return createLocation(1000L * i, latitudeOf(i), longitudeOf(i));
+    }
+
+    static double latitudeOf(double i) {
+        return i * 0.0001;
+    }
+
+    static double longitudeOf(double i) {
+        return 0.1 - i * 0.0001;
+    }
+}
@@ -0,0 +1,159 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.yayandroid.locationmanager.helper.track.TrackFixtures.appendLocations;
+import static com.yayandroid.locationmanager.helper.track.TrackFixtures.countOf;
+import static com.yayandroid.locationmanager.helper.track.TrackFixtures.latitudeOf;
+import static com.yayandroid.locationmanager.helper.track.TrackFixtures.longitudeOf;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TrackIndexTest {
+
+    private static final int SEGMENT_CAPACITY = TrackIndex.BLOCK_SIZE * 2;
+    private static final TrackQuery ALL = new TrackQuery.Builder().build();
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private TrackRecorder trackRecorder;
+
+    @Before
+    public void setUp() throws IOException {
+        TrackRecorderConfiguration configuration = new TrackRecorderConfiguration.Builder()
+              .segmentCapacity(SEGMENT_CAPACITY)
+              .commitInterval(10)
+              .build();
+        trackRecorder = TrackRecorder.open(new File(temporaryFolder.getRoot(), "track"), configuration);
+    }
+
+    @After
+    public void tearDown() {
+        trackRecorder.close();
+    }
+
+    @Test
+    public void queryShouldReadSameRecordsAsRecorder() throws IOException {
+        appendLocations(trackRecorder, 0, SEGMENT_CAPACITY * 3);
+        TrackIndex trackIndex = TrackIndex.build(trackRecorder);
+        TrackQuery query = new TrackQuery.Builder()
+              .between(1000L * 100, 1000L * 1200)
+              .within(0.01, 0.02, 0.05, 0.06)
+              .build();
+
+        TrackCursor expected = trackRecorder.cursor(query);
+        TrackCursor actual = trackIndex.query(query);
+
+        int count = 0;
+        while (expected.moveToNext()) {
+            assertThat(actual.moveToNext()).isTrue();
+            assertThat(actual.getTime()).isEqualTo(expected.getTime());
+            count++;
+        }
+        assertThat(actual.moveToNext()).isFalse();
+        assertThat(count).isGreaterThan(0);
+    }
+
+    @Test
+    public void queryShouldOnlyReadBlocksWhichMayMatch() throws IOException {
+        appendLocations(trackRecorder, 0, TrackIndex.BLOCK_SIZE * 4);
+        TrackIndex trackIndex = TrackIndex.build(trackRecorder);
+
+        assertThat(trackIndex.countBlocks(ALL)).isEqualTo(4);
+        assertThat(trackIndex.countBlocks(new TrackQuery.Builder().between(0, 1000L).build())).isEqualTo(1);
+        // Inside the bounding box of the first block, but away from its path
+        assertThat(trackIndex.countBlocks(new TrackQuery.Builder().within(0.0, 0.075, 0.002, 0.076).build()))
+              .isZero();
+    }
+
+    @Test
+    public void positionAtShouldInterpolateBetweenClosestRecords() throws IOException {
+        appendLocations(trackRecorder, 0, TrackIndex.BLOCK_SIZE + 10);
+        TrackIndex trackIndex = TrackIndex.build(trackRecorder);
+
+        TrackIndex.Position position = trackIndex.positionAt(1000L * TrackIndex.BLOCK_SIZE - 250);
+
+        assertThat(position).isNotNull();
+        assertThat(position.getPreviousTime()).isEqualTo(1000L * (TrackIndex.BLOCK_SIZE - 1));
+        assertThat(position.getNextTime()).isEqualTo(1000L * TrackIndex.BLOCK_SIZE);
+        assertThat(position.getLatitude()).isCloseTo(latitudeOf(TrackIndex.BLOCK_SIZE - 0.25), within(1e-9));
+        assertThat(position.getLongitude()).isCloseTo(longitudeOf(TrackIndex.BLOCK_SIZE - 0.25), within(1e-9));
+    }
+
+    @Test
+    public void positionAtShouldReturnNullOutsideOfRecords() throws IOException {
+        appendLocations(trackRecorder, 1, 10);
+        TrackIndex trackIndex = TrackIndex.build(trackRecorder);
+
+        assertThat(trackIndex.positionAt(0)).isNull();
+        assertThat(trackIndex.positionAt(1000L * 11)).isNull();
+        assertThat(trackIndex.positionAt(1000L * 10)).isNotNull();
+    }
+
+    @Test
+    public void parallelAggregateShouldMatchSequentialOne() throws IOException {
+        appendLocations(trackRecorder, 0, SEGMENT_CAPACITY * 20);
+        TrackIndex trackIndex = TrackIndex.build(trackRecorder);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        long[] sequential = trackIndex.aggregate(ALL, new TimeAggregation());
+        long[] parallel = trackIndex.aggregate(ALL, new TimeAggregation(), pool);
+        pool.shutdown();
+
+        assertThat(parallel).containsExactly(sequential);
+        assertThat(sequential[0]).isEqualTo(SEGMENT_CAPACITY * 20);
+    }
+
+    @Test
+    public void refreshShouldIndexAppendedRecords() throws IOException {
+        appendLocations(trackRecorder, 0, 10);
+        TrackIndex trackIndex = TrackIndex.build(trackRecorder);
+        appendLocations(trackRecorder, 10, SEGMENT_CAPACITY);
+
+        assertThat(countOf(trackIndex.query(ALL))).isEqualTo(10);
+
+        trackIndex.refresh();
+
+        assertThat(countOf(trackIndex.query(ALL))).isEqualTo(10 + SEGMENT_CAPACITY);
+    }
+
+    /**
+     * Counts the records and sums the gaps between their times, so that merging out of order would be noticed
+     */
+    private static class TimeAggregation implements TrackIndex.Aggregation<long[]> {
+
+        @Override
+        public long[] create() {
+            return new long[] {0, 0, -1, -1}; // count, gaps, first time, last time
+        }
+
+        @Override
+        public void add(long[] result, TrackCursor cursor) {
+            if (result[0] == 0) {
+                result[2] = cursor.getTime();
+            } else {
+                result[1] += cursor.getTime() - result[3];
+            }
+            result[0]++;
+            result[3] = cursor.getTime();
+        }
+
+        @Override
+        public long[] merge(long[] first, long[] second) {
+            if (first[0] == 0) return second;
+            if (second[0] == 0) return first;
+            long gap = second[2] - first[3];
+            return new long[] {first[0] + second[0], first[1] + second[1] + gap, first[2], second[3]};
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+import static com.yayandroid.locationmanager.helper.track.TrackFixtures.appendLocations;
+import static com.yayandroid.locationmanager.helper.track.TrackFixtures.countOf;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TrackRecorderTest {
+
+    private static final int SEGMENT_CAPACITY = 4;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    private File directory;
+    private TrackRecorderConfiguration configuration;
+    private TrackRecorder trackRecorder;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new File(temporaryFolder.getRoot(), "track");
+        configuration = new TrackRecorderConfiguration.Builder()
+              .segmentCapacity(SEGMENT_CAPACITY)
+              .commitInterval(10)
+              .build();
+        trackRecorder = TrackRecorder.open(directory, configuration);
+    }
+
+    @After
+    public void tearDown() {
+        trackRecorder.close();
+    }
+
+    @Test
+    public void cursorShouldReadAppendedLocationsInOrder() throws IOException {
+        Location location = createLocation(1000L, 41.5, 29.25);
+        when(location.hasAltitude()).thenReturn(true);
+        when(location.getAltitude()).thenReturn(120.0);
+        when(location.getProvider()).thenReturn(android.location.LocationManager.GPS_PROVIDER);
+        trackRecorder.append(location);
+        trackRecorder.append(createLocation(2000L, 42.0, 30.0));
+
+        TrackCursor cursor = trackRecorder.cursor();
+
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getTime()).isEqualTo(1000L);
+        assertThat(cursor.getLatitude()).isEqualTo(41.5);
+        assertThat(cursor.getLongitude()).isEqualTo(29.25);
+        assertThat(cursor.hasAltitude()).isTrue();
+        assertThat(cursor.getAltitude()).isEqualTo(120.0);
+        assertThat(cursor.getProvider()).isEqualTo(android.location.LocationManager.GPS_PROVIDER);
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getTime()).isEqualTo(2000L);
+        assertThat(cursor.hasAltitude()).isFalse();
+        assertThat(cursor.moveToNext()).isFalse();
+    }
+
+    @Test
+    public void cursorShouldNotIncludeLocationsAppendedAfterItIsCreated() throws IOException {
+        appendLocations(trackRecorder, 0, 2);
+
+        TrackCursor cursor = trackRecorder.cursor();
+        appendLocations(trackRecorder, 2, 1);
+
+        assertThat(countOf(cursor)).isEqualTo(2);
+    }
+
+    @Test
+    public void timeRangeCursorShouldOnlyReadLocationsInRange() throws IOException {
+        appendLocations(trackRecorder, 0, 10);
+
+        TrackCursor cursor = trackRecorder.cursor(3000L, 6000L);
+
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getTime()).isEqualTo(3000L);
+        assertThat(countOf(cursor)).isEqualTo(3);
+    }
+
+    @Test
+    public void gettersShouldThrowExceptionBeforeMovingToRecord() {
+        expectedException.expect(IllegalStateException.class);
+
+        trackRecorder.cursor().getTime();
+    }
+
+    @Test
+    public void reopenedRecorderShouldContinueAfterExistingLocations() throws IOException {
+        appendLocations(trackRecorder, 0, 6);
+        trackRecorder.close();
+
+        trackRecorder = TrackRecorder.open(directory, configuration);
+        appendLocations(trackRecorder, 6, 1);
+
+        TrackCursor cursor = trackRecorder.cursor();
+        long lastTime = -1;
+        int count = 0;
+        while (cursor.moveToNext()) {
+            assertThat(cursor.getTime()).isGreaterThan(lastTime);
+            lastTime = cursor.getTime();
+            count++;
+        }
+        assertThat(count).isEqualTo(7);
+    }
+
+    @Test
+    public void closedRecorderShouldIgnoreLocations() throws IOException {
+        trackRecorder.close();
+
+        appendLocations(trackRecorder, 0, 1);
+
+        assertThat(trackRecorder.getAppendedCount()).isZero();
+        assertThat(trackRecorder.cursor().moveToNext()).isFalse();
+    }
+
+    @Test
+    public void commitShouldCatchUpWithAppendedLocations() {
+        appendLocations(trackRecorder, 0, 3);
+
+        trackRecorder.commit();
+
+        assertThat(trackRecorder.getCommittedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void oldestSegmentsShouldBeDeletedWhenThereAreTooMany() throws IOException {
+        trackRecorder.close();
+        trackRecorder = TrackRecorder.open(directory, configuration.newBuilder().maxSegmentCount(2).build());
+        appendLocations(trackRecorder, 0, SEGMENT_CAPACITY * 3);
+        trackRecorder.close();
+
+        trackRecorder = TrackRecorder.open(directory, configuration);
+        TrackCursor cursor = trackRecorder.cursor();
+
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getTime()).isEqualTo(1000L * SEGMENT_CAPACITY);
+    }
+}
@@ -0,0 +1,124 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import com.yayandroid.locationmanager.constants.ProviderType;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrackSegmentTest {
+
+    private static final int CAPACITY = 8;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(temporaryFolder.getRoot(), "segment-0.trk");
+    }
+
+    @Test
+    public void createShouldAllocateWholeFile() throws IOException {
+        TrackSegment segment = TrackSegment.create(file, 3, CAPACITY);
+
+        assertThat(file.length()).isEqualTo(TrackSegment.HEADER_SIZE + CAPACITY * TrackSegment.RECORD_SIZE);
+        assertThat(segment.index()).isEqualTo(3);
+        assertThat(segment.count()).isZero();
+        assertThat(segment.isSealed()).isFalse();
+    }
+
+    @Test
+    public void appendedRecordsShouldSurviveReopening() throws IOException {
+        TrackSegment segment = TrackSegment.create(file, 0, CAPACITY);
+        append(segment, 1000L);
+        append(segment, 3000L);
+        append(segment, 2000L);
+
+        TrackSegment reopened = TrackSegment.open(file);
+
+        assertThat(reopened.count()).isEqualTo(3);
+        assertThat(reopened.minTime()).isEqualTo(1000L);
+        assertThat(reopened.maxTime()).isEqualTo(3000L);
+        assertThat(reopened.isSealed()).isFalse();
+    }
+
+    @Test
+    public void tornRecordShouldBeCutOffWithEverythingAfterIt() throws IOException {
+        TrackSegment segment = TrackSegment.create(file, 0, CAPACITY);
+        for (int i = 0; i < 4; i++) {
+            append(segment, 1000L + i);
+        }
+        corrupt(1);
+
+        TrackSegment reopened = TrackSegment.open(file);
+        append(reopened, 5000L);
+
+        assertThat(reopened.count()).isEqualTo(2);
+        assertThat(reopened.maxTime()).isEqualTo(5000L);
+        assertThat(TrackSegment.open(file).count()).isEqualTo(2);
+    }
+
+    @Test
+    public void sealedSegmentShouldBeOpenedFromItsHeader() throws IOException {
+        TrackSegment segment = TrackSegment.create(file, 0, CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            append(segment, 1000L + i);
+        }
+        segment.seal();
+
+        TrackSegment reopened = TrackSegment.open(file);
+
+        assertThat(reopened.isSealed()).isTrue();
+        assertThat(reopened.isFull()).isTrue();
+        assertThat(reopened.count()).isEqualTo(CAPACITY);
+        assertThat(reopened.minTime()).isEqualTo(1000L);
+        assertThat(reopened.maxTime()).isEqualTo(1000L + CAPACITY - 1);
+        assertThat(reopened.buffer()).isNull();
+    }
+
+    @Test
+    public void openShouldThrowExceptionForOtherFiles() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(TrackSegment.HEADER_SIZE + TrackSegment.RECORD_SIZE);
+        randomAccessFile.close();
+
+        expectedException.expect(IOException.class);
+        TrackSegment.open(file);
+    }
+
+    @Test
+    public void flagsShouldKeepProviderTypeAndPresence() {
+        int flags = TrackSegment.flagsOf(ProviderType.NETWORK, true, false, true, false);
+
+        assertThat(flags & TrackSegment.PROVIDER_TYPE_MASK).isEqualTo(ProviderType.NETWORK);
+        assertThat(flags & TrackSegment.FLAG_HAS_ALTITUDE).isNotZero();
+        assertThat(flags & TrackSegment.FLAG_HAS_ACCURACY).isZero();
+        assertThat(flags & TrackSegment.FLAG_HAS_SPEED).isNotZero();
+        assertThat(flags & TrackSegment.FLAG_HAS_BEARING).isZero();
+    }
+
+    private void append(TrackSegment segment, long time) {
+        segment.append(ProviderType.GPS, time, 0L, 41.0, 29.0, 0.0, 5f, 0f, 0f);
+    }
+
+    private void corrupt(int position) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(TrackSegment.offsetOf(position) + TrackSegment.LATITUDE);
+            randomAccessFile.writeDouble(-1.0);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
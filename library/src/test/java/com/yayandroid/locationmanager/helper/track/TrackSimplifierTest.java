@@ -0,0 +1,63 @@
+package com.yayandroid.locationmanager.helper.track;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrackSimplifierTest {
+
+    @Test
+    public void straightLineShouldOnlyKeepItsEnds() {
+        double[] latitudes = { 41.0, 41.001, 41.002, 41.003, 41.004 };
+        double[] longitudes = { 29.0, 29.0, 29.0, 29.0, 29.0 };
+        boolean[] keep = new boolean[latitudes.length];
+
+        int kept = TrackSimplifier.simplify(latitudes, longitudes, latitudes.length, 1, keep);
+
+        assertThat(kept).isEqualTo(2);
+        assertThat(keep).containsExactly(true, false, false, false, true);
+    }
+
+    @Test
+    public void pointFartherThanToleranceShouldBeKept() {
+        // Third point is about 84 meters east of the line, the others are less than 40 meters away from the lines
+        // which connect it to the ends
+        double[] latitudes = { 41.0, 41.001, 41.002, 41.003, 41.004 };
+        double[] longitudes = { 29.0, 29.0, 29.001, 29.0, 29.0 };
+        boolean[] keep = new boolean[latitudes.length];
+
+        int kept = TrackSimplifier.simplify(latitudes, longitudes, latitudes.length, 50, keep);
+
+        assertThat(kept).isEqualTo(3);
+        assertThat(keep).containsExactly(true, false, true, false, true);
+    }
+
+    @Test
+    public void pointWithinToleranceShouldBeDropped() {
+        double[] latitudes = { 41.0, 41.002, 41.004 };
+        double[] longitudes = { 29.0, 29.001, 29.0 };
+        boolean[] keep = new boolean[latitudes.length];
+
+        int kept = TrackSimplifier.simplify(latitudes, longitudes, latitudes.length, 100, keep);
+
+        assertThat(kept).isEqualTo(2);
+        assertThat(keep[1]).isFalse();
+    }
+
+    @Test
+    public void shortTracksShouldBeKeptAsTheyAre() {
+        boolean[] keep = new boolean[2];
+
+        int kept = TrackSimplifier.simplify(new double[] { 41.0, 42.0 }, new double[] { 29.0, 30.0 }, 2, 1000, keep);
+
+        assertThat(kept).isEqualTo(2);
+        assertThat(keep).containsExactly(true, true);
+    }
+
+    @Test
+    public void distanceShouldBeMeasuredToClosestPointOfSegment() {
+        double beyondEnd = TrackSimplifier.distanceSquaredToSegment(41.002, 29.0, 41.0, 29.0, 41.001, 29.0);
+
+        assertThat(Math.sqrt(beyondEnd)).isBetween(111.0, 112.0);
+    }
+}
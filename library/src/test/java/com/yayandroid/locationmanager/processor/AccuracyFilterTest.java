@@ -0,0 +1,40 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationWithAccuracy;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccuracyFilterTest {
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void constructorShouldThrowExceptionForNegativeAccuracy() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new AccuracyFilter(-1);
+    }
+
+    @Test
+    public void locationWithinAccuracyShouldBePassed() {
+        Location location = createLocationWithAccuracy(50);
+
+        assertThat(new AccuracyFilter(50).process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void inaccurateLocationShouldBeDropped() {
+        assertThat(new AccuracyFilter(50).process(createLocationWithAccuracy(100))).isNull();
+    }
+
+    @Test
+    public void filtersWithSameAccuracyShouldBeEqual() {
+        assertThat(new AccuracyFilter(50)).isEqualTo(new AccuracyFilter(50)).isEqualTo(new AccuracyFilter(50).copy());
+        assertThat(new AccuracyFilter(50)).isNotEqualTo(new AccuracyFilter(10));
+    }
+}
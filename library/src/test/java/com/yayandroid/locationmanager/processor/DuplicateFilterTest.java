@@ -0,0 +1,62 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DuplicateFilterTest {
+
+    private DuplicateFilter duplicateFilter;
+
+    @Before
+    public void setUp() {
+        duplicateFilter = new DuplicateFilter();
+    }
+
+    @Test
+    public void firstLocationShouldPass() {
+        Location location = createLocation(1000, 41.0, 29.0, 10);
+
+        assertThat(duplicateFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void locationWhichIsNotNewerShouldBeDropped() {
+        duplicateFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        assertThat(duplicateFilter.process(createLocation(1000, 41.1, 29.1, 5))).isNull();
+        assertThat(duplicateFilter.process(createLocation(900, 41.1, 29.1, 5))).isNull();
+    }
+
+    @Test
+    public void locationAtSameCoordinatesShouldOnlyPassWhenMoreAccurate() {
+        duplicateFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        assertThat(duplicateFilter.process(createLocation(2000, 41.0, 29.0, 10))).isNull();
+
+        Location moreAccurate = createLocation(3000, 41.0, 29.0, 5);
+        assertThat(duplicateFilter.process(moreAccurate)).isSameAs(moreAccurate);
+    }
+
+    @Test
+    public void resetShouldForgetLastLocation() {
+        Location location = createLocation(1000, 41.0, 29.0, 10);
+        duplicateFilter.process(location);
+
+        duplicateFilter.reset();
+
+        assertThat(duplicateFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void copyShouldNotCarryState() {
+        duplicateFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        Location location = createLocation(1000, 41.0, 29.0, 10);
+        assertThat(duplicateFilter.copy().process(location)).isSameAs(location);
+    }
+}
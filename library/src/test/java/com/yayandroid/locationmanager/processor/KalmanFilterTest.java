@@ -0,0 +1,97 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class KalmanFilterTest {
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    private double latitude;
+    private double longitude;
+    private float accuracy;
+    private float speed;
+    private KalmanFilter kalmanFilter;
+
+    @Before
+    public void setUp() {
+        kalmanFilter = new KalmanFilter() {
+            @Override
+            Location smooth(Location location, double latitude, double longitude, float accuracy,
+                  float speed, float bearing) {
+                KalmanFilterTest.this.latitude = latitude;
+                KalmanFilterTest.this.longitude = longitude;
+                KalmanFilterTest.this.accuracy = accuracy;
+                KalmanFilterTest.this.speed = speed;
+                return location;
+            }
+        };
+    }
+
+    @Test
+    public void nonPositiveProcessNoiseShouldThrowException() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new KalmanFilter(0);
+    }
+
+    @Test
+    public void firstLocationShouldBeEmittedAsItIs() {
+        Location location = createLocation(0, 41.0, 29.0, 10);
+
+        assertThat(kalmanFilter.process(location)).isSameAs(location);
+        assertThat(latitude).isEqualTo(41.0);
+        assertThat(longitude).isEqualTo(29.0);
+        assertThat(accuracy).isEqualTo(10f);
+    }
+
+    @Test
+    public void inaccurateLocationShouldBarelyMoveTheTrack() {
+        kalmanFilter.process(createLocation(0, 41.0, 29.0, 5));
+        // ~111 meters away, but with 500 meters of accuracy
+        kalmanFilter.process(createLocation(1000, 41.001, 29.0, 500));
+
+        assertThat((latitude - 41.0) * METERS_PER_DEGREE).isLessThan(5);
+        assertThat(accuracy).isLessThan(10f);
+    }
+
+    @Test
+    public void accurateLocationShouldMoveTheTrackCloseToIt() {
+        kalmanFilter.process(createLocation(0, 41.0, 29.0, 50));
+        kalmanFilter.process(createLocation(1000, 41.001, 29.0, 1));
+
+        assertThat((41.001 - latitude) * METERS_PER_DEGREE).isLessThan(1);
+    }
+
+    @Test
+    public void steadyMovementShouldBeTracked() {
+        // ~10 meters per second towards north
+        for (int i = 0; i < 20; i++) {
+            kalmanFilter.process(createLocation(i * 1000, 41.0 + i * 10 / METERS_PER_DEGREE, 29.0, 10));
+        }
+
+        assertThat(speed).isCloseTo(10f, within(1f));
+        assertThat(longitude).isCloseTo(29.0, within(1e-9));
+        assertThat(accuracy).isLessThan(10f);
+    }
+
+    @Test
+    public void resetShouldStartOverFromNextLocation() {
+        kalmanFilter.process(createLocation(0, 41.0, 29.0, 10));
+        kalmanFilter.reset();
+        kalmanFilter.process(createLocation(1000, 42.0, 30.0, 10));
+
+        assertThat(latitude).isEqualTo(42.0);
+        assertThat(longitude).isEqualTo(30.0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LocationProcessorChainTest {
+
+    @Mock LocationProcessor first;
+    @Mock LocationProcessor second;
+    @Mock Location location;
+    @Mock Location modified;
+
+    private LocationProcessorChain chain;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        chain = new LocationProcessorChain(Arrays.asList(first, second));
+    }
+
+    @Test
+    public void emptyChainShouldPassLocationAsItIs() {
+        LocationProcessorChain emptyChain = new LocationProcessorChain(Collections.<LocationProcessor>emptyList());
+
+        assertThat(emptyChain.isEmpty()).isTrue();
+        assertThat(emptyChain.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void processShouldPassOutputOfEachStageToTheNextOne() {
+        when(first.process(location)).thenReturn(modified);
+        when(second.process(modified)).thenReturn(modified);
+
+        assertThat(chain.process(location)).isSameAs(modified);
+    }
+
+    @Test
+    public void processShouldStopWhenAStageDropsLocation() {
+        when(first.process(location)).thenReturn(null);
+
+        assertThat(chain.process(location)).isNull();
+        verify(second, never()).process(any(Location.class));
+    }
+
+    @Test
+    public void resetShouldResetAllStages() {
+        chain.reset();
+
+        verify(first).reset();
+        verify(second).reset();
+    }
+}
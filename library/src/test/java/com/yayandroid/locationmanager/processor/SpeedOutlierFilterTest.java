@@ -0,0 +1,64 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpeedOutlierFilterTest {
+
+    private static final float MAX_SPEED = 50; // m/s
+
+    private SpeedOutlierFilter speedOutlierFilter;
+
+    @Before
+    public void setUp() {
+        speedOutlierFilter = new SpeedOutlierFilter(MAX_SPEED);
+        speedOutlierFilter.process(createLocation(0, 41.0, 29.0, 10));
+    }
+
+    @Test
+    public void locationReachableWithinMaxSpeedShouldPass() {
+        // ~111 meters in 10 seconds
+        Location location = createLocation(10 * 1000, 41.001, 29.0, 10);
+
+        assertThat(speedOutlierFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void impossibleJumpShouldBeDropped() {
+        // ~11 kilometers in 10 seconds
+        assertThat(speedOutlierFilter.process(createLocation(10 * 1000, 41.1, 29.0, 10))).isNull();
+    }
+
+    @Test
+    public void jumpWithinAccuracyShouldPass() {
+        // ~111 meters in a second, but either of them may be 100 meters off
+        Location location = createLocation(1000, 41.001, 29.0, 100);
+
+        assertThat(speedOutlierFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void locationShouldBeAcceptedAfterMaxConsecutiveDrops() {
+        for (int i = 1; i <= SpeedOutlierFilter.MAX_CONSECUTIVE_DROPS; i++) {
+            assertThat(speedOutlierFilter.process(createLocation(i * 1000, 42.0, 29.0, 10))).isNull();
+        }
+
+        Location location = createLocation(10 * 1000, 42.0, 29.0, 10);
+        assertThat(speedOutlierFilter.process(location)).isSameAs(location);
+
+        Location next = createLocation(20 * 1000, 42.001, 29.0, 10);
+        assertThat(speedOutlierFilter.process(next)).isSameAs(next);
+    }
+
+    @Test
+    public void copyShouldNotCarryState() {
+        Location location = createLocation(10 * 1000, 41.1, 29.0, 10);
+
+        assertThat(speedOutlierFilter.copy().process(location)).isSameAs(location);
+    }
+}
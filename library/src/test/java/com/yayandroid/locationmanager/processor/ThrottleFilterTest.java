@@ -0,0 +1,79 @@
+package com.yayandroid.locationmanager.processor;
+
+import android.location.Location;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocation;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThrottleFilterTest {
+
+    // Roughly 111 meters along a meridian
+    private static final double ONE_THOUSANDTH_DEGREE = 0.001;
+
+    @Rule public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void constructorShouldThrowExceptionForNegativeValues() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        new ThrottleFilter(-1, 0);
+    }
+
+    @Test
+    public void locationShouldBeDroppedUntilMinTimePasses() {
+        ThrottleFilter throttleFilter = new ThrottleFilter(1000, 0);
+        throttleFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        assertThat(throttleFilter.process(createLocation(1500, 42.0, 29.0, 10))).isNull();
+
+        Location location = createLocation(2000, 42.0, 29.0, 10);
+        assertThat(throttleFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void locationShouldBeDroppedUntilMinDistanceIsTravelled() {
+        ThrottleFilter throttleFilter = new ThrottleFilter(0, 100);
+        throttleFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        assertThat(throttleFilter.process(createLocation(2000, 41.0005, 29.0, 10))).isNull();
+
+        Location location = createLocation(3000, 41.0 + ONE_THOUSANDTH_DEGREE, 29.0, 10);
+        assertThat(throttleFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void droppedLocationShouldNotBecomeTheReference() {
+        ThrottleFilter throttleFilter = new ThrottleFilter(1000, 0);
+        throttleFilter.process(createLocation(1000, 41.0, 29.0, 10));
+        throttleFilter.process(createLocation(1900, 41.0, 29.0, 10));
+
+        Location location = createLocation(2000, 41.0, 29.0, 10);
+        assertThat(throttleFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void resetShouldForgetLastLocation() {
+        ThrottleFilter throttleFilter = new ThrottleFilter(1000, 100);
+        throttleFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        throttleFilter.reset();
+
+        Location location = createLocation(1000, 41.0, 29.0, 10);
+        assertThat(throttleFilter.process(location)).isSameAs(location);
+    }
+
+    @Test
+    public void copyShouldKeepSettingsButNotState() {
+        ThrottleFilter throttleFilter = new ThrottleFilter(1000, 0);
+        throttleFilter.process(createLocation(1000, 41.0, 29.0, 10));
+
+        LocationProcessor copy = throttleFilter.copy();
+        Location location = createLocation(1500, 41.0, 29.0, 10);
+        assertThat(copy.process(location)).isSameAs(location);
+        assertThat(copy.process(createLocation(2000, 41.0, 29.0, 10))).isNull();
+    }
+}
@@ -6,27 +6,46 @@ import android.content.Context;
 import android.location.Location;
 import android.location.LocationManager;
 
+import com.yayandroid.locationmanager.LocationSample;
+import com.yayandroid.locationmanager.configuration.AdaptiveIntervalConfiguration;
 import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
 import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.configuration.MotionGateConfiguration;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.ProcessType;
 import com.yayandroid.locationmanager.constants.RequestCode;
 import com.yayandroid.locationmanager.helper.UpdateRequest;
+import com.yayandroid.locationmanager.helper.cache.LocationCache;
 import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+import com.yayandroid.locationmanager.helper.motion.MotionGate;
+import com.yayandroid.locationmanager.helper.motion.MotionSensor;
 import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.listener.LocationSampleListener;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.processor.LocationProcessorChain;
 import com.yayandroid.locationmanager.providers.dialogprovider.DialogProvider;
 import com.yayandroid.locationmanager.view.ContextProcessor;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Collections;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,10 +53,12 @@ public class DefaultLocationProviderTest {
 
     private static final String GPS_PROVIDER = LocationManager.GPS_PROVIDER;
     private static final String NETWORK_PROVIDER = LocationManager.NETWORK_PROVIDER;
-    private static final Location DUMMY_LOCATION = new Location("");
+    private static final Location DUMMY_LOCATION = mock(Location.class);
+    private static final long QUIET_PERIOD = 60 * 1000;
 
     @Mock ContextProcessor contextProcessor;
     @Mock LocationListener locationListener;
+    @Mock LocationCache locationCache;
 
     @Mock Activity activity;
     @Mock Context context;
@@ -51,6 +72,8 @@ public class DefaultLocationProviderTest {
     @Mock DialogProvider dialogProvider;
 
     @Mock DefaultLocationSource defaultLocationSource;
+    @Mock MotionSensor motionSensor;
+    @Mock MotionGate motionGate;
 
     private DefaultLocationProvider defaultLocationProvider;
 
@@ -59,6 +82,8 @@ public class DefaultLocationProviderTest {
         MockitoAnnotations.initMocks(this);
 
         when(locationConfiguration.defaultProviderConfiguration()).thenReturn(defaultProviderConfiguration);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.<LocationProcessor>emptyList()));
         when(defaultProviderConfiguration.gpsDialogProvider()).thenReturn(dialogProvider);
         when(dialogProvider.getDialog(any(Context.class))).thenReturn(dialog);
 
@@ -70,6 +95,7 @@ public class DefaultLocationProviderTest {
 
         defaultLocationProvider = spy(new DefaultLocationProvider());
         defaultLocationProvider.setDefaultLocationSource(defaultLocationSource);
+        defaultLocationProvider.setLocationCache(locationCache);
         defaultLocationProvider.configure(contextProcessor, locationConfiguration, locationListener);
     }
 
@@ -223,6 +249,39 @@ public class DefaultLocationProviderTest {
         verify(defaultLocationProvider).getLocationByNetwork();
     }
 
+    @Test
+    public void getShouldAskForLocationOnlyWithFixedProviderWhenItIsEnabled() {
+        defaultLocationProvider.setFixedProvider(NETWORK_PROVIDER);
+        when(defaultLocationSource.isProviderEnabled(NETWORK_PROVIDER)).thenReturn(true);
+
+        defaultLocationProvider.get();
+
+        verify(defaultLocationProvider).askForLocation(NETWORK_PROVIDER);
+        verify(defaultLocationProvider, never()).askForEnableGPS();
+    }
+
+    @Test
+    public void getShouldFailWhenFixedProviderIsNotEnabled() {
+        defaultLocationProvider.setFixedProvider(GPS_PROVIDER);
+        when(defaultLocationSource.isProviderEnabled(GPS_PROVIDER)).thenReturn(false);
+
+        defaultLocationProvider.get();
+
+        verify(defaultLocationProvider, never()).askForEnableGPS();
+        verify(defaultLocationProvider, never()).getLocationByNetwork();
+        verify(locationListener).onLocationFailed(FailType.GPS_NOT_AVAILABLE);
+    }
+
+    @Test
+    public void getShouldFailWithNetworkNotAvailableWhenFixedNetworkProviderIsNotEnabled() {
+        defaultLocationProvider.setFixedProvider(NETWORK_PROVIDER);
+        when(defaultLocationSource.isProviderEnabled(NETWORK_PROVIDER)).thenReturn(false);
+
+        defaultLocationProvider.get();
+
+        verify(locationListener).onLocationFailed(FailType.NETWORK_NOT_AVAILABLE);
+    }
+
     @Test
     public void askForEnableGPSShouldShowDialog() {
         defaultLocationProvider.askForEnableGPS();
@@ -286,7 +345,7 @@ public class DefaultLocationProviderTest {
 
     @Test
     public void askForLocationShouldNotifyProcessChangeAndRequestLocationUpdateWhenKeepTrackingIsTrue() {
-        Location location = new Location(GPS_PROVIDER);
+        Location location = mock(Location.class);
         when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(1F);
         when(defaultProviderConfiguration.acceptableTimePeriod()).thenReturn(1L);
         when(defaultLocationSource.getLastKnownLocation(GPS_PROVIDER)).thenReturn(location);
@@ -307,7 +366,7 @@ public class DefaultLocationProviderTest {
     @Test
     public void checkForLastKnownLocationShouldCallOnLocationReceivedAndReturnTrueWhenSufficient() {
         defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
-        Location location = new Location(GPS_PROVIDER);
+        Location location = mock(Location.class);
         when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(1F);
         when(defaultProviderConfiguration.acceptableTimePeriod()).thenReturn(1L);
         when(defaultLocationSource.getLastKnownLocation(GPS_PROVIDER)).thenReturn(location);
@@ -317,6 +376,21 @@ public class DefaultLocationProviderTest {
         verify(locationListener).onLocationChanged(location);
     }
 
+    @Test
+    public void checkForLastKnownLocationShouldReturnFalseWhenProcessorsDropIt() {
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+        Location location = mock(Location.class);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(mock(LocationProcessor.class))));
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(1F);
+        when(defaultProviderConfiguration.acceptableTimePeriod()).thenReturn(1L);
+        when(defaultLocationSource.getLastKnownLocation(GPS_PROVIDER)).thenReturn(location);
+        when(defaultLocationSource.isLocationSufficient(location, 1L, 1F)).thenReturn(true);
+
+        assertThat(defaultLocationProvider.checkForLastKnowLocation()).isFalse();
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+    }
+
     @Test
     public void notifyProcessChangeShouldNotifyWithCorrespondingTypeForProvider() {
         defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
@@ -341,6 +415,79 @@ public class DefaultLocationProviderTest {
         verify(updateRequest).run(GPS_PROVIDER, timeInterval, distanceInterval);
     }
 
+    @Test
+    public void onIntervalChangedShouldRequestUpdatesAgainWithAdaptedIntervalWhenRunning() {
+        when(defaultProviderConfiguration.requiredTimeInterval()).thenReturn(100L);
+        when(defaultProviderConfiguration.requiredDistanceInterval()).thenReturn(200L);
+        when(updateRequest.isRunning()).thenReturn(true);
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+
+        defaultLocationProvider.onIntervalChanged(5000);
+
+        verify(updateRequest).run(GPS_PROVIDER, 5000, 200);
+    }
+
+    @Test
+    public void onIntervalChangedShouldApplyAdaptedIntervalOnlyOnceUpdatesAreRequestedWhenNotRunning() {
+        when(defaultProviderConfiguration.requiredTimeInterval()).thenReturn(100L);
+        when(defaultProviderConfiguration.requiredDistanceInterval()).thenReturn(200L);
+        when(updateRequest.isRunning()).thenReturn(false);
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+
+        defaultLocationProvider.onIntervalChanged(5000);
+        verify(updateRequest, never()).run(anyString(), anyLong(), anyLong());
+
+        defaultLocationProvider.requestUpdateLocation();
+        verify(updateRequest).run(GPS_PROVIDER, 5000, 200);
+    }
+
+    @Test
+    public void cancelShouldDropAdaptedInterval() {
+        when(defaultProviderConfiguration.requiredTimeInterval()).thenReturn(100L);
+        when(defaultProviderConfiguration.requiredDistanceInterval()).thenReturn(200L);
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+        defaultLocationProvider.onIntervalChanged(5000);
+
+        defaultLocationProvider.cancel();
+        defaultLocationProvider.requestUpdateLocation();
+
+        verify(updateRequest).run(GPS_PROVIDER, 100, 200);
+    }
+
+    @Test
+    public void getShouldDropAdaptedInterval() {
+        when(defaultProviderConfiguration.requiredTimeInterval()).thenReturn(100L);
+        when(defaultProviderConfiguration.requiredDistanceInterval()).thenReturn(200L);
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+        defaultLocationProvider.onIntervalChanged(5000);
+
+        defaultLocationProvider.get();
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+        defaultLocationProvider.requestUpdateLocation();
+
+        verify(updateRequest).run(GPS_PROVIDER, 100, 200);
+    }
+
+    @Test
+    public void getShouldResetSpeedEstimatedForPreviousRequest() {
+        when(locationConfiguration.keepTracking()).thenReturn(true);
+        AdaptiveIntervalConfiguration adaptiveIntervalConfiguration = new AdaptiveIntervalConfiguration.Builder()
+              .addStep(0, 10 * 1000)
+              .addStep(10, 1000)
+              .build();
+        when(locationConfiguration.adaptiveIntervalConfiguration()).thenReturn(adaptiveIntervalConfiguration);
+        Location location = mock(Location.class);
+        when(location.hasSpeed()).thenReturn(true);
+        when(location.getSpeed()).thenReturn(20f);
+
+        defaultLocationProvider.onLocationReceived(location);
+        defaultLocationProvider.get();
+        defaultLocationProvider.onLocationReceived(location);
+
+        // Otherwise the second one would be on the same step, and no change would be notified
+        verify(defaultLocationProvider, times(2)).onIntervalChanged(1000);
+    }
+
     @Test
     public void getWaitPeriodShouldReturnCorrespondingTimeForProvider() {
         long gpsWaitPeriod = 100;
@@ -382,6 +529,67 @@ public class DefaultLocationProviderTest {
         verify(defaultLocationProvider).onLocationReceived(DUMMY_LOCATION);
     }
 
+    @Test
+    public void onLocationReceivedShouldDeliverSampleToSampleListener() {
+        LocationSampleListener sampleListener = mock(LocationSampleListener.class);
+        defaultLocationProvider.configure(contextProcessor, locationConfiguration, sampleListener);
+
+        defaultLocationProvider.onLocationReceived(DUMMY_LOCATION);
+
+        verify(sampleListener).onLocationSample(any(LocationSample.class));
+        verify(sampleListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void onLocationReceivedShouldNotNotifyListenerWhenProcessorsDropLocation() {
+        LocationProcessor dropAll = mock(LocationProcessor.class);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(dropAll)));
+
+        defaultLocationProvider.onLocationReceived(DUMMY_LOCATION);
+
+        verify(dropAll).process(DUMMY_LOCATION);
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void notifyCachedLocationShouldDeliverSampleToSampleListener() {
+        LocationSampleListener sampleListener = mock(LocationSampleListener.class);
+        defaultLocationProvider.configure(contextProcessor, locationConfiguration, sampleListener);
+
+        assertThat(defaultLocationProvider.notifyCachedLocation(DUMMY_LOCATION)).isTrue();
+
+        verify(sampleListener).onLocationSample(any(LocationSample.class));
+        verify(locationCache, never()).put(any(Location.class));
+    }
+
+    @Test
+    public void notifyCachedLocationShouldReturnFalseWhenProcessorsDropIt() {
+        LocationProcessor dropAll = mock(LocationProcessor.class);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(dropAll)));
+
+        assertThat(defaultLocationProvider.notifyCachedLocation(DUMMY_LOCATION)).isFalse();
+
+        verify(dropAll).process(DUMMY_LOCATION);
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void onLocationChangedShouldKeepWaitingWhenProcessorsDropLocation() {
+        when(locationConfiguration.keepTracking()).thenReturn(false);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(mock(LocationProcessor.class))));
+        defaultLocationProvider.setWaiting(true);
+
+        defaultLocationProvider.onLocationChanged(DUMMY_LOCATION);
+
+        assertThat(defaultLocationProvider.isWaiting()).isTrue();
+        verify(continuousTask, never()).stop();
+        verify(updateRequest, never()).release();
+        verify(defaultLocationSource, never()).removeLocationUpdates(defaultLocationProvider);
+    }
+
     @Test
     public void onLocationChangedShouldStopSwitchTask() {
         defaultLocationProvider.onLocationChanged(DUMMY_LOCATION);
@@ -426,6 +634,27 @@ public class DefaultLocationProviderTest {
         verify(updateRequest, never()).release();
     }
 
+    @Test
+    public void stillDeviceShouldReleaseUpdateRequest() {
+        MotionGate.GateListener gateListener = startMotionGate();
+
+        gateListener.onStill();
+
+        verify(updateRequest).release();
+    }
+
+    @Test
+    public void movingDeviceShouldRequestLocationUpdatesAgain() {
+        MotionGate.GateListener gateListener = startMotionGate();
+        gateListener.onStill();
+
+        gateListener.onMoving();
+
+        InOrder inOrder = inOrder(updateRequest, defaultLocationProvider);
+        inOrder.verify(updateRequest).release();
+        inOrder.verify(defaultLocationProvider).requestUpdateLocation();
+    }
+
     @Test
     public void onStatusChangedShouldRedirectToListener() {
         defaultLocationProvider.onStatusChanged(GPS_PROVIDER, 1, null);
@@ -472,6 +701,17 @@ public class DefaultLocationProviderTest {
         verify(locationListener).onLocationFailed(FailType.TIMEOUT);
     }
 
+    @Test
+    public void runScheduledTaskShouldFailWithTimeoutInsteadOfSwitchingWhenProviderIsFixed() {
+        defaultLocationProvider.setFixedProvider(GPS_PROVIDER);
+        defaultLocationProvider.setCurrentProvider(GPS_PROVIDER);
+
+        defaultLocationProvider.runScheduledTask(DefaultLocationSource.PROVIDER_SWITCH_TASK);
+
+        verify(defaultLocationProvider, never()).getLocationByNetwork();
+        verify(locationListener).onLocationFailed(FailType.TIMEOUT);
+    }
+
     @Test
     public void onPositiveButtonClickShouldFailWhenThereIsNoActivityOrFragment() {
         when(contextProcessor.getActivity()).thenReturn(null);
@@ -488,6 +728,23 @@ public class DefaultLocationProviderTest {
         verify(defaultLocationProvider).getLocationByNetwork();
     }
 
+    private MotionGate.GateListener startMotionGate() {
+        when(locationConfiguration.keepTracking()).thenReturn(true);
+        when(locationConfiguration.motionGateConfiguration()).thenReturn(new MotionGateConfiguration.Builder()
+              .quietPeriod(QUIET_PERIOD)
+              .motionSensor(motionSensor)
+              .build());
+        doReturn(motionGate).when(defaultLocationProvider).createMotionGate(eq(motionSensor), eq(QUIET_PERIOD),
+              any(MotionGate.GateListener.class));
+
+        defaultLocationProvider.onLocationChanged(DUMMY_LOCATION);
+
+        verify(motionGate).start();
+        ArgumentCaptor<MotionGate.GateListener> captor = ArgumentCaptor.forClass(MotionGate.GateListener.class);
+        verify(defaultLocationProvider).createMotionGate(eq(motionSensor), eq(QUIET_PERIOD), captor.capture());
+        return captor.getValue();
+    }
+
     private void enableLocationProvider() {
         when(defaultLocationSource.isProviderEnabled(anyString())).thenReturn(true);
     }
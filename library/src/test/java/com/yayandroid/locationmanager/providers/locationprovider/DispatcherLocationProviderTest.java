@@ -6,29 +6,49 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnCancelListener;
 import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
 
 import com.google.android.gms.common.ConnectionResult;
 import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
 import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
 import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.RequestCode;
 import com.yayandroid.locationmanager.helper.continuoustask.ContinuousTask;
+import com.yayandroid.locationmanager.helper.replay.Track;
+import com.yayandroid.locationmanager.helper.replay.TrackPoint;
+import com.yayandroid.locationmanager.helper.track.TrackRecorder;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+import com.yayandroid.locationmanager.listener.FallbackListener;
 import com.yayandroid.locationmanager.listener.LocationListener;
 import com.yayandroid.locationmanager.view.ContextProcessor;
 
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationWithAccuracy;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -52,10 +72,14 @@ public class DispatcherLocationProviderTest {
 
     @Mock DispatcherLocationSource dispatcherLocationSource;
     @Mock DefaultLocationProvider defaultLocationProvider;
+    @Mock DefaultLocationProvider networkLocationProvider;
     @Mock GooglePlayServicesLocationProvider googlePlayServicesLocationProvider;
     @Mock ContinuousTask continuousTask;
 
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private DispatcherLocationProvider dispatcherLocationProvider;
+    private TrackRecorder trackRecorder;
 
     @Before
     public void setUp() {
@@ -78,6 +102,11 @@ public class DispatcherLocationProviderTest {
         when(contextProcessor.getActivity()).thenReturn(activity);
     }
 
+    @After
+    public void tearDown() {
+        if (trackRecorder != null) trackRecorder.close();
+    }
+
     @Test
     public void onPauseShouldRedirectToActiveProvider() {
         dispatcherLocationProvider.setLocationProvider(defaultLocationProvider);
@@ -118,6 +147,15 @@ public class DispatcherLocationProviderTest {
         verify(continuousTask).stop();
     }
 
+    @Test
+    public void flushShouldRedirectToActiveProvider() {
+        dispatcherLocationProvider.setLocationProvider(googlePlayServicesLocationProvider);
+
+        dispatcherLocationProvider.flush();
+
+        verify(googlePlayServicesLocationProvider).flush();
+    }
+
     @Test
     public void isWaitingShouldReturnFalseWhenNoActiveProvider() {
         assertThat(dispatcherLocationProvider.isWaiting()).isFalse();
@@ -418,6 +456,225 @@ public class DispatcherLocationProviderTest {
         verify(googlePlayServicesLocationProvider).configure(dispatcherLocationProvider);
     }
 
+    @Test
+    public void getShouldStartAllProvidersAtOnceWhenRaceIsConfigured() {
+        startRace();
+
+        verify(googlePlayServicesLocationProvider).get();
+        verify(defaultLocationProvider).setFixedProvider(LocationManager.GPS_PROVIDER);
+        verify(defaultLocationProvider).get();
+        verify(networkLocationProvider).setFixedProvider(LocationManager.NETWORK_PROVIDER);
+        verify(networkLocationProvider).get();
+        verify(continuousTask).delayed(GOOGLE_PLAY_SERVICES_SWITCH_PERIOD);
+    }
+
+    @Test
+    public void raceShouldSkipGooglePlayServicesWhenItIsNotAvailable() {
+        when(dispatcherLocationSource.isGoogleApiAvailable(context)).thenReturn(RESOLVABLE_ERROR);
+        when(locationConfiguration.raceProviders()).thenReturn(true);
+        when(dispatcherLocationSource.createDefaultLocationProvider())
+              .thenReturn(defaultLocationProvider, networkLocationProvider);
+
+        dispatcherLocationProvider.get();
+
+        verify(googlePlayServicesLocationProvider, never()).get();
+        verify(dialog, never()).show();
+        verify(defaultLocationProvider).get();
+        verify(networkLocationProvider).get();
+    }
+
+    @Test
+    public void firstAcceptableLocationShouldWinTheRaceAndCancelOthers() {
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(50F);
+        startRace();
+        Location location = createLocationWithAccuracy(20F);
+
+        racerOf(networkLocationProvider).onLocationChanged(location);
+
+        verify(locationListener).onLocationChanged(location);
+        verify(googlePlayServicesLocationProvider).cancel();
+        verify(defaultLocationProvider).cancel();
+        verify(networkLocationProvider, never()).cancel();
+        verify(continuousTask).stop();
+    }
+
+    @Test
+    public void eventsFromLosersShouldBeIgnoredOnceRaceIsWon() {
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(50F);
+        startRace();
+        LocationListener gpsRacer = racerOf(defaultLocationProvider);
+        Location winning = createLocationWithAccuracy(20F);
+        Location losing = createLocationWithAccuracy(5F);
+
+        racerOf(googlePlayServicesLocationProvider).onLocationChanged(winning);
+        gpsRacer.onLocationChanged(losing);
+        gpsRacer.onLocationFailed(FailType.TIMEOUT);
+
+        verify(locationListener).onLocationChanged(winning);
+        verify(locationListener, never()).onLocationChanged(losing);
+        verify(locationListener, never()).onLocationFailed(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void mostAccurateLocationShouldWinWhenNoneIsAcceptableAndAllRacersSettled() {
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(10F);
+        startRace();
+        Location gps = createLocationWithAccuracy(30F);
+        Location network = createLocationWithAccuracy(100F);
+
+        racerOf(networkLocationProvider).onLocationChanged(network);
+        racerOf(defaultLocationProvider).onLocationChanged(gps);
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+
+        racerOf(googlePlayServicesLocationProvider).onLocationFailed(FailType.TIMEOUT);
+
+        verify(locationListener).onLocationChanged(gps);
+        verify(locationListener, never()).onLocationChanged(network);
+    }
+
+    @Test
+    public void raceShouldFailWhenAllRacersFail() {
+        startRace();
+
+        ((FallbackListener) racerOf(googlePlayServicesLocationProvider)).onFallback();
+        racerOf(defaultLocationProvider).onLocationFailed(FailType.NETWORK_NOT_AVAILABLE);
+        verify(locationListener, never()).onLocationFailed(FailType.TIMEOUT);
+
+        racerOf(networkLocationProvider).onLocationFailed(FailType.TIMEOUT);
+
+        verify(locationListener).onLocationFailed(FailType.TIMEOUT);
+    }
+
+    @Test
+    public void failedRacersShouldBeDestroyedWhenAllRacersFail() {
+        startRace();
+
+        racerOf(googlePlayServicesLocationProvider).onLocationFailed(FailType.TIMEOUT);
+        racerOf(defaultLocationProvider).onLocationFailed(FailType.TIMEOUT);
+        verify(defaultLocationProvider, never()).onDestroy();
+
+        racerOf(networkLocationProvider).onLocationFailed(FailType.TIMEOUT);
+
+        verify(googlePlayServicesLocationProvider).cancel();
+        verify(googlePlayServicesLocationProvider).onDestroy();
+        verify(defaultLocationProvider).cancel();
+        verify(defaultLocationProvider).onDestroy();
+        verify(networkLocationProvider).cancel();
+        verify(networkLocationProvider).onDestroy();
+    }
+
+    @Test
+    public void googlePlayServicesSwitchTaskShouldOnlyDropGooglePlayServicesFromTheRace() {
+        startRace();
+
+        dispatcherLocationProvider.runScheduledTask(DispatcherLocationSource.GOOGLE_PLAY_SERVICE_SWITCH_TASK);
+
+        verify(googlePlayServicesLocationProvider).cancel();
+        verify(defaultLocationProvider, never()).cancel();
+        verify(networkLocationProvider, never()).cancel();
+        verify(dispatcherLocationProvider, never()).continueWithDefaultProviders();
+    }
+
+    @Test
+    public void secondRaceShouldDeliverLocationAfterFirstOneIsWon() {
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(50F);
+        startRace();
+        racerOf(networkLocationProvider).onLocationChanged(createLocationWithAccuracy(20F));
+
+        GooglePlayServicesLocationProvider secondGooglePlayServicesProvider =
+              mock(GooglePlayServicesLocationProvider.class);
+        DefaultLocationProvider secondGpsProvider = mock(DefaultLocationProvider.class);
+        DefaultLocationProvider secondNetworkProvider = mock(DefaultLocationProvider.class);
+        when(dispatcherLocationSource.createGooglePlayServicesLocationProvider(any(FallbackListener.class)))
+              .thenReturn(secondGooglePlayServicesProvider);
+        when(dispatcherLocationSource.createDefaultLocationProvider())
+              .thenReturn(secondGpsProvider, secondNetworkProvider);
+        dispatcherLocationProvider.get();
+        Location location = createLocationWithAccuracy(10F);
+
+        racerOf(secondGpsProvider).onLocationChanged(location);
+
+        verify(networkLocationProvider).onDestroy();
+        verify(secondGpsProvider).get();
+        verify(locationListener).onLocationChanged(location);
+        verify(secondNetworkProvider).cancel();
+    }
+
+    @Test
+    public void eventsFromCancelledRaceShouldBeIgnored() {
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(50F);
+        startRace();
+        LocationListener gpsRacer = racerOf(defaultLocationProvider);
+
+        dispatcherLocationProvider.cancel();
+        gpsRacer.onLocationChanged(createLocationWithAccuracy(20F));
+
+        verify(defaultLocationProvider).onDestroy();
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void locationsOfRaceWinnerShouldBeRecorded() throws IOException {
+        openTrackRecorder();
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(50F);
+        startRace();
+
+        racerOf(networkLocationProvider).onLocationChanged(createLocationWithAccuracy(20F));
+        racerOf(networkLocationProvider).onLocationChanged(createLocationWithAccuracy(10F));
+
+        assertThat(trackRecorder.getAppendedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void batchOfRaceWinnerShouldBeRecorded() throws IOException {
+        openTrackRecorder();
+        when(defaultProviderConfiguration.acceptableAccuracy()).thenReturn(50F);
+        startRace();
+        BatchLocationListener winner = (BatchLocationListener) racerOf(networkLocationProvider);
+        winner.onLocationChanged(createLocationWithAccuracy(20F));
+
+        winner.onLocationsChanged(Arrays.asList(createLocationWithAccuracy(10F), createLocationWithAccuracy(15F)));
+
+        assertThat(trackRecorder.getAppendedCount()).isEqualTo(3);
+        verify(locationListener, times(3)).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void activeProviderShouldRecordWithRecorderOfDispatcher() throws IOException {
+        openTrackRecorder();
+        LocationProvider child = new ReplayLocationProvider(
+              new Track(Collections.singletonList(new TrackPoint(0, 52.5, 13.4))));
+
+        dispatcherLocationProvider.setLocationProvider(child);
+        child.deliverLocation(createLocationWithAccuracy(10F));
+
+        assertThat(trackRecorder.getAppendedCount()).isEqualTo(1);
+        verify(locationListener).onLocationChanged(any(Location.class));
+    }
+
+    private void openTrackRecorder() throws IOException {
+        trackRecorder = TrackRecorder.open(temporaryFolder.getRoot(),
+              new TrackRecorderConfiguration.Builder().build());
+        dispatcherLocationProvider.setTrackRecorder(trackRecorder);
+    }
+
+    private void startRace() {
+        when(locationConfiguration.raceProviders()).thenReturn(true);
+        when(dispatcherLocationSource.isGoogleApiAvailable(context)).thenReturn(ConnectionResult.SUCCESS);
+        when(dispatcherLocationSource.createGooglePlayServicesLocationProvider(any(FallbackListener.class)))
+              .thenReturn(googlePlayServicesLocationProvider);
+        when(dispatcherLocationSource.createDefaultLocationProvider())
+              .thenReturn(defaultLocationProvider, networkLocationProvider);
+
+        dispatcherLocationProvider.get();
+    }
+
+    private LocationListener racerOf(LocationProvider provider) {
+        ArgumentCaptor<LocationListener> captor = ArgumentCaptor.forClass(LocationListener.class);
+        verify(provider).configure(eq(dispatcherLocationProvider), captor.capture());
+        return captor.getValue();
+    }
+
     private void showGpServicesDialogShown() {
         when(googlePlayServicesConfiguration.askForGooglePlayServices()).thenReturn(true);
         when(dispatcherLocationSource.isGoogleApiAvailable(context)).thenReturn(RESOLVABLE_ERROR);
@@ -10,39 +10,66 @@ import androidx.annotation.NonNull;
 import com.google.android.gms.common.api.ApiException;
 import com.google.android.gms.common.api.ResolvableApiException;
 import com.google.android.gms.common.api.Status;
+import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationSettingsResponse;
 import com.google.android.gms.location.LocationSettingsResult;
 import com.google.android.gms.location.LocationSettingsStatusCodes;
+import com.yayandroid.locationmanager.configuration.AdaptiveIntervalConfiguration;
 import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
 import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.configuration.MotionGateConfiguration;
+import com.yayandroid.locationmanager.configuration.TrackRecorderConfiguration;
 import com.yayandroid.locationmanager.constants.FailType;
 import com.yayandroid.locationmanager.constants.ProcessType;
 import com.yayandroid.locationmanager.constants.RequestCode;
+import com.yayandroid.locationmanager.helper.cache.LocationCache;
+import com.yayandroid.locationmanager.helper.motion.MotionGate;
+import com.yayandroid.locationmanager.helper.motion.MotionSensor;
+import com.yayandroid.locationmanager.helper.track.TrackRecorder;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
 import com.yayandroid.locationmanager.listener.FallbackListener;
 import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.processor.LocationProcessorChain;
 import com.yayandroid.locationmanager.fakes.FakeSimpleTask;
 import com.yayandroid.locationmanager.view.ContextProcessor;
 
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationWithAccuracy;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class GooglePlayServicesLocationProviderTest {
 
+    private static final long QUIET_PERIOD = 60 * 1000;
+
     @Mock
     GooglePlayServicesLocationSource mockedSource;
 
@@ -64,8 +91,17 @@ public class GooglePlayServicesLocationProviderTest {
     GooglePlayServicesConfiguration googlePlayServicesConfiguration;
     @Mock
     FallbackListener fallbackListener;
+    @Mock
+    MotionSensor motionSensor;
+    @Mock
+    MotionGate motionGate;
+    @Mock
+    LocationCache locationCache;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     private GooglePlayServicesLocationProvider googlePlayServicesLocationProvider;
+    private TrackRecorder trackRecorder;
 
     @Before
     public void setUp() {
@@ -74,12 +110,21 @@ public class GooglePlayServicesLocationProviderTest {
         googlePlayServicesLocationProvider = spy(new GooglePlayServicesLocationProvider(fallbackListener));
         googlePlayServicesLocationProvider.configure(contextProcessor, locationConfiguration, locationListener);
         googlePlayServicesLocationProvider.setDispatcherLocationSource(mockedSource);
+        googlePlayServicesLocationProvider.setLocationCache(locationCache);
 
         when(locationConfiguration.googlePlayServicesConfiguration()).thenReturn(googlePlayServicesConfiguration);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.<LocationProcessor>emptyList()));
+        when(googlePlayServicesConfiguration.maxBatchSize()).thenReturn(Integer.MAX_VALUE);
         when(contextProcessor.getContext()).thenReturn(context);
         when(contextProcessor.getActivity()).thenReturn(activity);
     }
 
+    @After
+    public void tearDown() {
+        if (trackRecorder != null) trackRecorder.close();
+    }
+
     @Test
     public void onResumeShouldNotRequestLocationUpdateWhenSettingsDialogIsOnTrue() {
         makeSettingsDialogIsOnTrue();
@@ -316,6 +361,88 @@ public class GooglePlayServicesLocationProviderTest {
         verify(mockedSource).removeLocationUpdates();
     }
 
+    @Test
+    public void onLocationChangedShouldKeepWaitingWhenProcessorsDropLocation() {
+        when(locationConfiguration.keepTracking()).thenReturn(false);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(mock(LocationProcessor.class))));
+        googlePlayServicesLocationProvider.setWaiting(true);
+
+        googlePlayServicesLocationProvider.onLocationChanged(location);
+
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+        verify(mockedSource, never()).removeLocationUpdates();
+        assertThat(googlePlayServicesLocationProvider.isWaiting()).isTrue();
+    }
+
+    @Test
+    public void onLocationsChangedShouldKeepWaitingWhenProcessorsDropAllLocations() {
+        when(locationConfiguration.keepTracking()).thenReturn(false);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(mock(LocationProcessor.class))));
+        googlePlayServicesLocationProvider.setWaiting(true);
+
+        googlePlayServicesLocationProvider.onLocationsChanged(Arrays.asList(location, location));
+
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+        verify(mockedSource, never()).removeLocationUpdates();
+        assertThat(googlePlayServicesLocationProvider.isWaiting()).isTrue();
+    }
+
+    @Test
+    public void onLastKnowLocationTaskReceivedShouldCallLocationRequiredWhenProcessorsDropLastKnowLocation() {
+        when(locationConfiguration.keepTracking()).thenReturn(false);
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(mock(LocationProcessor.class))));
+        googlePlayServicesLocationProvider.setWaiting(true);
+        FakeSimpleTask<Location> lastLocationTask = new FakeSimpleTask<>();
+        lastLocationTask.success(location);
+
+        googlePlayServicesLocationProvider.onLastKnowLocationTaskReceived(lastLocationTask);
+
+        verify(googlePlayServicesLocationProvider).locationRequired();
+    }
+
+    @Test
+    public void deliveredLocationShouldBeRecorded() throws IOException {
+        openTrackRecorder();
+
+        googlePlayServicesLocationProvider.onLocationChanged(location);
+
+        assertThat(trackRecorder.getAppendedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void deliveredBatchShouldBeRecorded() throws IOException {
+        openTrackRecorder();
+
+        googlePlayServicesLocationProvider.onLocationsChanged(Arrays.asList(location, mock(Location.class)));
+
+        assertThat(trackRecorder.getAppendedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void cachedLocationShouldBeRecorded() throws IOException {
+        openTrackRecorder();
+
+        googlePlayServicesLocationProvider.notifyCachedLocation(location);
+
+        assertThat(trackRecorder.getAppendedCount()).isEqualTo(1);
+        verify(locationListener).onLocationChanged(location);
+    }
+
+    @Test
+    public void locationsDroppedByProcessorsShouldNotBeRecorded() throws IOException {
+        openTrackRecorder();
+        when(locationConfiguration.createProcessorChain())
+              .thenReturn(new LocationProcessorChain(Collections.singletonList(mock(LocationProcessor.class))));
+
+        googlePlayServicesLocationProvider.onLocationChanged(location);
+        googlePlayServicesLocationProvider.onLocationsChanged(Arrays.asList(location, location));
+
+        assertThat(trackRecorder.getAppendedCount()).isZero();
+    }
+
     @Test
     public void onLocationChangedShouldNotRemoveUpdateLocationWhenKeepTrackingIsRequired() {
         when(locationConfiguration.keepTracking()).thenReturn(true);
@@ -329,8 +456,7 @@ public class GooglePlayServicesLocationProviderTest {
     public void onLocationResultShouldCallOnLocationChangedWhenLocationListIsNotEmpty() {
         List<Location> locations = new ArrayList<>();
 
-        locations.add(new Location("1"));
-        locations.add(new Location("2"));
+        locations.add(location);
 
         LocationResult locationResult = LocationResult.create(locations);
 
@@ -341,6 +467,122 @@ public class GooglePlayServicesLocationProviderTest {
         verify(locationListener, atLeastOnce()).onLocationChanged(any(Location.class));
     }
 
+    @Test
+    public void onLocationResultShouldDeliverBatchOneByOneWhenListenerIsNotBatchAware() {
+        Location first = createLocationWithAccuracy(10, 1);
+        Location second = createLocationWithAccuracy(20, 2);
+
+        googlePlayServicesLocationProvider.onLocationResult(LocationResult.create(Arrays.asList(first, second)));
+
+        verify(googlePlayServicesLocationProvider, never()).onLocationChanged(any(Location.class));
+        verify(locationListener).onLocationChanged(first);
+        verify(locationListener).onLocationChanged(second);
+    }
+
+    @Test
+    public void onLocationResultShouldDeliverBatchInSingleCallWhenListenerIsBatchAware() {
+        BatchLocationListener batchLocationListener = mock(BatchLocationListener.class);
+        googlePlayServicesLocationProvider.configure(contextProcessor, locationConfiguration, batchLocationListener);
+        List<Location> locations = Arrays.asList(createLocationWithAccuracy(10, 1), createLocationWithAccuracy(20, 2));
+
+        googlePlayServicesLocationProvider.onLocationResult(LocationResult.create(locations));
+
+        verify(batchLocationListener).onLocationsChanged(locations);
+        verify(batchLocationListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void onLocationResultShouldRemoveLocationUpdatesOncePerBatchWhenNotKeepTracking() {
+        when(locationConfiguration.keepTracking()).thenReturn(false);
+
+        googlePlayServicesLocationProvider.onLocationResult(LocationResult.create(Arrays.asList(
+              createLocationWithAccuracy(10, 1), createLocationWithAccuracy(20, 2),
+              createLocationWithAccuracy(30, 3))));
+
+        verify(mockedSource, times(1)).removeLocationUpdates();
+        assertThat(googlePlayServicesLocationProvider.isWaiting()).isFalse();
+    }
+
+    @Test
+    public void onLocationResultShouldSplitBatchesLargerThanMaxBatchSize() {
+        when(googlePlayServicesConfiguration.maxBatchSize()).thenReturn(2);
+        BatchLocationListener batchLocationListener = mock(BatchLocationListener.class);
+        googlePlayServicesLocationProvider.configure(contextProcessor, locationConfiguration, batchLocationListener);
+        Location first = createLocationWithAccuracy(10, 1);
+        Location second = createLocationWithAccuracy(20, 2);
+        Location third = createLocationWithAccuracy(30, 3);
+
+        googlePlayServicesLocationProvider.onLocationResult(LocationResult.create(Arrays.asList(first, second, third)));
+
+        verify(batchLocationListener).onLocationsChanged(Arrays.asList(first, second));
+        verify(batchLocationListener).onLocationChanged(third);
+        verify(mockedSource, times(1)).removeLocationUpdates();
+    }
+
+    @Test
+    public void flushShouldFlushLocationsOfSource() {
+        googlePlayServicesLocationProvider.flush();
+
+        verify(mockedSource).flushLocations();
+    }
+
+    @Test
+    public void createLocationRequestShouldApplyMaxWaitTimeLimitedByMaxBatchSize() {
+        LocationRequest locationRequest = LocationRequest.create().setInterval(1000);
+        when(googlePlayServicesConfiguration.locationRequest()).thenReturn(locationRequest);
+        when(googlePlayServicesConfiguration.maxWaitTime()).thenReturn(60 * 1000L);
+        when(googlePlayServicesConfiguration.maxBatchSize()).thenReturn(10);
+
+        assertThat(googlePlayServicesLocationProvider.createLocationRequest().getMaxWaitTime())
+              .isEqualTo(10 * 1000L);
+    }
+
+    @Test
+    public void createLocationRequestShouldCopyRequestOfConfiguration() {
+        LocationRequest locationRequest = LocationRequest.create()
+              .setPriority(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY)
+              .setInterval(1000)
+              .setFastestInterval(500)
+              .setSmallestDisplacement(10)
+              .setNumUpdates(3);
+        long maxWaitTime = locationRequest.getMaxWaitTime();
+        when(googlePlayServicesConfiguration.locationRequest()).thenReturn(locationRequest);
+        when(googlePlayServicesConfiguration.maxWaitTime()).thenReturn(60 * 1000L);
+        when(googlePlayServicesConfiguration.maxBatchSize()).thenReturn(10);
+
+        LocationRequest copy = googlePlayServicesLocationProvider.createLocationRequest();
+
+        assertThat(copy).isNotSameAs(locationRequest);
+        assertThat(copy.getPriority()).isEqualTo(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+        assertThat(copy.getInterval()).isEqualTo(1000);
+        assertThat(copy.getFastestInterval()).isEqualTo(500);
+        assertThat(copy.getSmallestDisplacement()).isEqualTo(10);
+        assertThat(copy.getNumUpdates()).isEqualTo(3);
+        assertThat(locationRequest.getMaxWaitTime()).isEqualTo(maxWaitTime);
+    }
+
+    @Test
+    public void createLocationRequestShouldNotTouchMaxWaitTimeWhenBatchingIsNotConfigured() {
+        LocationRequest locationRequest = LocationRequest.create().setInterval(1000);
+        long maxWaitTime = locationRequest.getMaxWaitTime();
+        when(googlePlayServicesConfiguration.locationRequest()).thenReturn(locationRequest);
+
+        assertThat(googlePlayServicesLocationProvider.createLocationRequest().getMaxWaitTime())
+              .isEqualTo(maxWaitTime);
+    }
+
+    @Test
+    public void onLocationResultShouldDeliverOnlyMostAccurateLocationWhenConfigured() {
+        when(googlePlayServicesConfiguration.deliverBestOfBatch()).thenReturn(true);
+        Location accurate = createLocationWithAccuracy(5, 1);
+        Location inaccurate = createLocationWithAccuracy(50, 2);
+
+        googlePlayServicesLocationProvider.onLocationResult(LocationResult.create(Arrays.asList(accurate, inaccurate)));
+
+        verify(locationListener).onLocationChanged(accurate);
+        verify(locationListener, never()).onLocationChanged(inaccurate);
+    }
+
     @Test
     public void onLocationResultShouldNotCallOnLocationChangedWhenLocationListIsEmpty() {
         List<Location> locations = new ArrayList<>();
@@ -451,6 +693,113 @@ public class GooglePlayServicesLocationProviderTest {
         verify(mockedSource).requestLocationUpdate();
     }
 
+    @Test
+    public void onIntervalChangedShouldUpdateIntervalOfSource() {
+        googlePlayServicesLocationProvider.onIntervalChanged(5000);
+
+        verify(mockedSource).updateInterval(5000);
+    }
+
+    @Test
+    public void getShouldResetIntervalOfSource() {
+        googlePlayServicesLocationProvider.get();
+
+        verify(mockedSource).resetInterval();
+    }
+
+    @Test
+    public void cancelShouldResetIntervalOfSource() {
+        googlePlayServicesLocationProvider.cancel();
+
+        verify(mockedSource).resetInterval();
+    }
+
+    @Test
+    public void resumeUpdatesShouldResetIntervalBeforeRequestingUpdates() {
+        googlePlayServicesLocationProvider.resumeUpdates();
+
+        InOrder inOrder = inOrder(mockedSource);
+        inOrder.verify(mockedSource).resetInterval();
+        inOrder.verify(mockedSource).requestLocationUpdate();
+    }
+
+    @Test
+    public void cancelShouldEndTraceSectionsOfRequest() {
+        googlePlayServicesLocationProvider.get();
+        assertThat(googlePlayServicesLocationProvider.openAsyncSection()).isNotNull();
+
+        googlePlayServicesLocationProvider.cancel();
+
+        assertThat(googlePlayServicesLocationProvider.isWaiting()).isFalse();
+        assertThat(googlePlayServicesLocationProvider.openAsyncSection()).isNull();
+    }
+
+    @Test
+    public void onDestroyShouldEndTraceSectionsOfRequest() {
+        when(googlePlayServicesConfiguration.askForSettingsApi()).thenReturn(true);
+        googlePlayServicesLocationProvider.setWaiting(true);
+        googlePlayServicesLocationProvider.locationRequired();
+        assertThat(googlePlayServicesLocationProvider.openAsyncSection()).isNotNull();
+
+        googlePlayServicesLocationProvider.onDestroy();
+
+        assertThat(googlePlayServicesLocationProvider.isWaiting()).isFalse();
+        assertThat(googlePlayServicesLocationProvider.openAsyncSection()).isNull();
+    }
+
+    @Test
+    public void callbackShouldEndTraceSectionWhichIsWaitingForIt() {
+        googlePlayServicesLocationProvider.get();
+        FakeSimpleTask<Location> lastLocationTask = new FakeSimpleTask<>();
+        lastLocationTask.success(null);
+
+        googlePlayServicesLocationProvider.onLastKnowLocationTaskReceived(lastLocationTask);
+
+        assertThat(googlePlayServicesLocationProvider.openAsyncSection()).isNull();
+    }
+
+    @Test
+    public void stillDeviceShouldRemoveLocationUpdates() {
+        MotionGate.GateListener gateListener = startMotionGate();
+
+        gateListener.onStill();
+
+        verify(mockedSource).removeLocationUpdates();
+    }
+
+    @Test
+    public void movingDeviceShouldRequestLocationUpdatesAgain() {
+        MotionGate.GateListener gateListener = startMotionGate();
+        gateListener.onStill();
+
+        gateListener.onMoving();
+
+        InOrder inOrder = inOrder(mockedSource);
+        inOrder.verify(mockedSource).removeLocationUpdates();
+        inOrder.verify(mockedSource).resetInterval();
+        inOrder.verify(mockedSource).requestLocationUpdate();
+    }
+
+    @Test
+    public void getShouldResetSpeedEstimatedForPreviousRequest() {
+        when(locationConfiguration.keepTracking()).thenReturn(true);
+        AdaptiveIntervalConfiguration adaptiveIntervalConfiguration = new AdaptiveIntervalConfiguration.Builder()
+              .addStep(0, 10 * 1000)
+              .addStep(10, 1000)
+              .build();
+        when(locationConfiguration.adaptiveIntervalConfiguration()).thenReturn(adaptiveIntervalConfiguration);
+        Location location = mock(Location.class);
+        when(location.hasSpeed()).thenReturn(true);
+        when(location.getSpeed()).thenReturn(20f);
+
+        googlePlayServicesLocationProvider.onLocationChanged(location);
+        googlePlayServicesLocationProvider.get();
+        googlePlayServicesLocationProvider.onLocationChanged(location);
+
+        // Otherwise the second one would be on the same step, and no change would be notified
+        verify(mockedSource, times(2)).updateInterval(1000);
+    }
+
     @Test
     public void settingsApiFailShouldCallFailWhenConfigurationFailOnSettingsApiSuspendedTrue() {
         when(googlePlayServicesConfiguration.failOnSettingsApiSuspended()).thenReturn(true);
@@ -497,6 +846,30 @@ public class GooglePlayServicesLocationProviderTest {
         assertThat(googlePlayServicesLocationProvider.isWaiting()).isFalse();
     }
 
+    private void openTrackRecorder() throws IOException {
+        trackRecorder = TrackRecorder.open(temporaryFolder.getRoot(),
+              new TrackRecorderConfiguration.Builder().build());
+        googlePlayServicesLocationProvider.setTrackRecorder(trackRecorder);
+    }
+
+    private MotionGate.GateListener startMotionGate() {
+        when(locationConfiguration.keepTracking()).thenReturn(true);
+        when(locationConfiguration.motionGateConfiguration()).thenReturn(new MotionGateConfiguration.Builder()
+              .quietPeriod(QUIET_PERIOD)
+              .motionSensor(motionSensor)
+              .build());
+        doReturn(motionGate).when(googlePlayServicesLocationProvider).createMotionGate(eq(motionSensor),
+              eq(QUIET_PERIOD), any(MotionGate.GateListener.class));
+
+        googlePlayServicesLocationProvider.onLocationChanged(location);
+
+        verify(motionGate).start();
+        ArgumentCaptor<MotionGate.GateListener> captor = ArgumentCaptor.forClass(MotionGate.GateListener.class);
+        verify(googlePlayServicesLocationProvider).createMotionGate(eq(motionSensor), eq(QUIET_PERIOD),
+              captor.capture());
+        return captor.getValue();
+    }
+
     private void makeSettingsDialogIsOnTrue() {
         googlePlayServicesLocationProvider.onFailure(getSettingsResultWithError(LocationSettingsStatusCodes.RESOLUTION_REQUIRED));
     }
@@ -522,4 +895,4 @@ public class GooglePlayServicesLocationProviderTest {
             return new ApiException(status);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,395 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.location.Location;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.location.LocationRequest;
+import com.yayandroid.locationmanager.configuration.AdaptiveIntervalConfiguration;
+import com.yayandroid.locationmanager.configuration.GooglePlayServicesConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.configuration.MotionGateConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.fakes.FakeDroppingProcessor;
+import com.yayandroid.locationmanager.helper.cache.LocationCache;
+import com.yayandroid.locationmanager.listener.BatchLocationListener;
+import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.view.ContextProcessor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationAt;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class LocationHubTest {
+
+    private static final long SECOND = 1000;
+
+    @Mock ContextProcessor contextProcessor;
+    @Mock LocationListener fastListener;
+    @Mock LocationListener slowListener;
+    @Mock LocationCache locationCache;
+    @Mock Looper looper;
+
+    private final List<LocationProvider> createdProviders = new ArrayList<>();
+    private final List<Runnable> postedTasks = new ArrayList<>();
+    private LocationHub locationHub;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        locationHub = new LocationHub() {
+            @Override
+            LocationProvider createProvider() {
+                LocationProvider provider = mock(LocationProvider.class);
+                createdProviders.add(provider);
+                return provider;
+            }
+
+            @Override
+            void post(@NonNull Looper looper, @NonNull Runnable runnable) {
+                synchronized (postedTasks) {
+                    postedTasks.add(runnable);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void requirementsShouldBeMergedIntoFastestAndStrictestRequest() {
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY, 50, true).get();
+        createSubscriber(slowListener, 10 * SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 10, true).get();
+
+        LocationRequest locationRequest = capturePlannedConfiguration(lastProvider())
+              .googlePlayServicesConfiguration().locationRequest();
+        assertThat(locationRequest.getInterval()).isEqualTo(SECOND);
+        assertThat(locationRequest.getPriority()).isEqualTo(LocationRequest.PRIORITY_HIGH_ACCURACY);
+        assertThat(locationRequest.getSmallestDisplacement()).isEqualTo(10f);
+    }
+
+    @Test
+    public void plannedConfigurationShouldKeepTracking() {
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, false).get();
+
+        assertThat(capturePlannedConfiguration(lastProvider()).keepTracking()).isTrue();
+    }
+
+    @Test
+    public void plannedConfigurationShouldNotCarryAnythingButMergedRequirements() {
+        LocationConfiguration configuration = createConfiguration(SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0,
+              true, new FakeDroppingProcessor()).newBuilder()
+              .adaptInterval(new AdaptiveIntervalConfiguration.Builder().build())
+              .gateByMotion(new MotionGateConfiguration.Builder().build())
+              .raceProviders(true)
+              .build();
+        createSubscriber(fastListener, configuration).get();
+
+        LocationConfiguration plannedConfiguration = capturePlannedConfiguration(lastProvider());
+        assertThat(plannedConfiguration.processors()).isEmpty();
+        assertThat(plannedConfiguration.adaptiveIntervalConfiguration()).isNull();
+        assertThat(plannedConfiguration.motionGateConfiguration()).isNull();
+        assertThat(plannedConfiguration.raceProviders()).isFalse();
+    }
+
+    @Test
+    public void providerShouldBeStartedOnItsLooper() {
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+
+        verify(lastProvider(), never()).get();
+
+        runPostedTasks();
+
+        verify(lastProvider()).get();
+    }
+
+    @Test
+    public void providerShouldNotifySubscribersOutsideOfTheLockWhenItDeliversRightAway() {
+        HubLocationProvider subscriber = createSubscriber(fastListener, SECOND,
+              LocationRequest.PRIORITY_HIGH_ACCURACY, 0, false);
+        subscriber.get();
+        final LocationProvider provider = lastProvider();
+        final LocationListener hubListener = captureHubListener(provider);
+        final boolean[] heldLock = new boolean[1];
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                heldLock[0] = Thread.holdsLock(locationHub.subscribers());
+                hubListener.onLocationChanged(createLocationAt(0));
+                // One-shot subscriber is gone, but the provider is not stopped from within its own call
+                verify(provider, never()).cancel();
+                return null;
+            }
+        }).when(provider).get();
+
+        runPostedTasks();
+
+        assertThat(heldLock[0]).isFalse();
+        verify(fastListener).onLocationChanged(any(Location.class));
+        InOrder inOrder = inOrder(provider);
+        inOrder.verify(provider).get();
+        inOrder.verify(provider).cancel();
+        inOrder.verify(provider).onDestroy();
+    }
+
+    @Test
+    public void providerReplacedBeforeStartingShouldNotBeStarted() {
+        createSubscriber(slowListener, 10 * SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        LocationProvider first = lastProvider();
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+
+        runPostedTasks();
+
+        verify(first, never()).get();
+        verify(first).onDestroy();
+        verify(lastProvider()).get();
+    }
+
+    @Test
+    public void joiningWithLooserRequirementsShouldNotRestartProvider() {
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        createSubscriber(slowListener, 10 * SECOND, LocationRequest.PRIORITY_LOW_POWER, 100, true).get();
+        runPostedTasks();
+
+        assertThat(createdProviders).hasSize(1);
+        verify(lastProvider()).get();
+    }
+
+    @Test
+    public void joiningWithStricterRequirementsShouldRestartProvider() {
+        createSubscriber(slowListener, 10 * SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        LocationProvider first = lastProvider();
+        runPostedTasks();
+
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        runPostedTasks();
+
+        assertThat(createdProviders).hasSize(2);
+        verify(first).cancel();
+        verify(first).onDestroy();
+        verify(lastProvider()).get();
+    }
+
+    @Test
+    public void lastSubscriberLeavingShouldStopProvider() {
+        HubLocationProvider subscriber = createSubscriber(fastListener, SECOND,
+              LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true);
+        subscriber.get();
+
+        subscriber.cancel();
+        runPostedTasks();
+
+        verify(lastProvider()).cancel();
+        verify(lastProvider()).onDestroy();
+        assertThat(locationHub.subscribers()).isEmpty();
+    }
+
+    @Test
+    public void locationsShouldBeDeliveredAtEachSubscribersOwnRate() {
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        createSubscriber(slowListener, 10 * SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        LocationListener hubListener = captureHubListener(lastProvider());
+
+        for (int i = 0; i <= 10; i++) {
+            hubListener.onLocationChanged(createLocationAt(i * SECOND));
+        }
+
+        verify(fastListener, times(11)).onLocationChanged(any(Location.class));
+        verify(slowListener, times(2)).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void oneShotSubscriberShouldLeaveAfterFirstLocation() {
+        HubLocationProvider subscriber = createSubscriber(fastListener, SECOND,
+              LocationRequest.PRIORITY_HIGH_ACCURACY, 0, false);
+        subscriber.get();
+        LocationListener hubListener = captureHubListener(lastProvider());
+
+        hubListener.onLocationChanged(createLocationAt(0));
+        runPostedTasks();
+
+        verify(fastListener).onLocationChanged(any(Location.class));
+        assertThat(subscriber.isWaiting()).isFalse();
+        assertThat(locationHub.subscribers()).isEmpty();
+        verify(lastProvider()).cancel();
+    }
+
+    @Test
+    public void oneShotSubscriberShouldStayWhenProcessorsDropLocation() {
+        HubLocationProvider subscriber = createSubscriber(fastListener, SECOND,
+              LocationRequest.PRIORITY_HIGH_ACCURACY, 0, false, new FakeDroppingProcessor());
+        subscriber.get();
+        LocationListener hubListener = captureHubListener(lastProvider());
+
+        hubListener.onLocationChanged(createLocationAt(0));
+
+        verify(fastListener, never()).onLocationChanged(any(Location.class));
+        assertThat(subscriber.isWaiting()).isTrue();
+        assertThat(locationHub.subscribers()).contains(subscriber);
+        verify(lastProvider(), never()).cancel();
+    }
+
+    @Test
+    public void oneShotSubscriberShouldStayWhenProcessorsDropWholeBatch() {
+        HubLocationProvider subscriber = createSubscriber(fastListener, SECOND,
+              LocationRequest.PRIORITY_HIGH_ACCURACY, 0, false, new FakeDroppingProcessor());
+        subscriber.get();
+        BatchLocationListener hubListener = (BatchLocationListener) captureHubListener(lastProvider());
+
+        hubListener.onLocationsChanged(Arrays.asList(createLocationAt(0), createLocationAt(SECOND)));
+
+        verify(fastListener, never()).onLocationChanged(any(Location.class));
+        assertThat(subscriber.isWaiting()).isTrue();
+        assertThat(locationHub.subscribers()).contains(subscriber);
+    }
+
+    @Test
+    public void failureShouldBeDeliveredToEverySubscriber() {
+        createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        createSubscriber(slowListener, 10 * SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        LocationListener hubListener = captureHubListener(lastProvider());
+
+        hubListener.onLocationFailed(FailType.TIMEOUT);
+        runPostedTasks();
+
+        verify(fastListener).onLocationFailed(FailType.TIMEOUT);
+        verify(slowListener).onLocationFailed(FailType.TIMEOUT);
+        verify(lastProvider()).onDestroy();
+        assertThat(locationHub.subscribers()).isEmpty();
+    }
+
+    @Test
+    public void pausedSubscriberShouldNotReceiveLocations() {
+        HubLocationProvider subscriber = createSubscriber(fastListener, SECOND,
+              LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true);
+        createSubscriber(slowListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true).get();
+        subscriber.get();
+        LocationListener hubListener = captureHubListener(lastProvider());
+
+        subscriber.onPause();
+        hubListener.onLocationChanged(createLocationAt(0));
+
+        verify(fastListener, never()).onLocationChanged(any(Location.class));
+        verify(slowListener).onLocationChanged(any(Location.class));
+
+        subscriber.onResume();
+        assertThat(locationHub.subscribers()).contains(subscriber);
+    }
+
+    @Test
+    public void subscribersOfDifferentThreadsShouldBeKeptTrackOfConsistently() throws InterruptedException {
+        final int subscribersPerThread = 50;
+        final HubLocationProvider[] subscribers = new HubLocationProvider[2 * subscribersPerThread];
+        for (int i = 0; i < subscribers.length; i++) {
+            subscribers[i] = createSubscriber(fastListener, SECOND, LocationRequest.PRIORITY_HIGH_ACCURACY, 0, true);
+        }
+
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final int from = t * subscribersPerThread;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = from; i < from + subscribersPerThread; i++) {
+                        subscribers[i].get();
+                        subscribers[i].cancel();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        runPostedTasks();
+
+        assertThat(locationHub.subscribers()).isEmpty();
+        verify(lastProvider()).onDestroy();
+    }
+
+    private HubLocationProvider createSubscriber(LocationListener listener, long interval, int priority,
+          float distance, boolean keepTracking, LocationProcessor... processors) {
+        return createSubscriber(listener, createConfiguration(interval, priority, distance, keepTracking, processors));
+    }
+
+    private HubLocationProvider createSubscriber(LocationListener listener, LocationConfiguration configuration) {
+        HubLocationProvider subscriber = new HubLocationProvider() {
+            @Override
+            LocationHub getHub() {
+                return locationHub;
+            }
+        };
+        subscriber.setLocationCache(locationCache);
+        subscriber.configure(contextProcessor, configuration, listener, looper);
+        return subscriber;
+    }
+
+    private static LocationConfiguration createConfiguration(long interval, int priority, float distance,
+          boolean keepTracking, LocationProcessor... processors) {
+        LocationRequest locationRequest = LocationRequest.create()
+              .setInterval(interval)
+              .setFastestInterval(interval)
+              .setPriority(priority)
+              .setSmallestDisplacement(distance);
+        return new LocationConfiguration.Builder()
+              .keepTracking(keepTracking)
+              .processors(Arrays.asList(processors))
+              .useGooglePlayServices(new GooglePlayServicesConfiguration.Builder()
+                    .locationRequest(locationRequest)
+                    .build())
+              .build();
+    }
+
+    /**
+     * Runs what is posted to the looper of the underlying provider, including what those tasks post
+     */
+    private void runPostedTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (postedTasks) {
+                if (postedTasks.isEmpty()) return;
+                task = postedTasks.remove(0);
+            }
+            task.run();
+        }
+    }
+
+    private LocationProvider lastProvider() {
+        return createdProviders.get(createdProviders.size() - 1);
+    }
+
+    private LocationConfiguration capturePlannedConfiguration(LocationProvider provider) {
+        ArgumentCaptor<LocationConfiguration> captor = ArgumentCaptor.forClass(LocationConfiguration.class);
+        verify(provider).configure(any(ContextProcessor.class), captor.capture(), any(LocationListener.class),
+              eq(looper));
+        return captor.getValue();
+    }
+
+    private LocationListener captureHubListener(LocationProvider provider) {
+        ArgumentCaptor<LocationListener> captor = ArgumentCaptor.forClass(LocationListener.class);
+        verify(provider).configure(any(ContextProcessor.class), any(LocationConfiguration.class), captor.capture(),
+              eq(looper));
+        return captor.getValue();
+    }
+}
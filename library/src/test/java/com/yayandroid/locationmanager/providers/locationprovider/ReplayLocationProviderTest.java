@@ -0,0 +1,147 @@
+package com.yayandroid.locationmanager.providers.locationprovider;
+
+import android.location.Location;
+
+import com.yayandroid.locationmanager.configuration.DefaultProviderConfiguration;
+import com.yayandroid.locationmanager.configuration.LocationConfiguration;
+import com.yayandroid.locationmanager.configuration.ReplayConfiguration;
+import com.yayandroid.locationmanager.constants.FailType;
+import com.yayandroid.locationmanager.constants.ProcessType;
+import com.yayandroid.locationmanager.helper.replay.SyntheticTrack;
+import com.yayandroid.locationmanager.helper.replay.Track;
+import com.yayandroid.locationmanager.helper.replay.TrackPoint;
+import com.yayandroid.locationmanager.fakes.FakeDroppingProcessor;
+import com.yayandroid.locationmanager.helper.cache.LocationCache;
+import com.yayandroid.locationmanager.listener.LocationListener;
+import com.yayandroid.locationmanager.processor.LocationProcessor;
+import com.yayandroid.locationmanager.view.ContextProcessor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+
+import static com.yayandroid.locationmanager.fakes.FakeLocations.createLocationAt;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ReplayLocationProviderTest {
+
+    private static final Track TRACK = new SyntheticTrack.Builder().duration(10 * 1000).interval(100).build();
+    private static final long TIMEOUT = 2000;
+
+    @Mock ContextProcessor contextProcessor;
+    @Mock LocationListener locationListener;
+    @Mock LocationCache locationCache;
+
+    private ReplayLocationProvider replayLocationProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @After
+    public void tearDown() {
+        if (replayLocationProvider != null) replayLocationProvider.cancel();
+    }
+
+    @Test
+    public void getShouldDeliverSingleLocationWhenNotKeepTracking() throws InterruptedException {
+        replay(false, new ReplayConfiguration.Builder().speedUp(100).build());
+
+        replayLocationProvider.get();
+
+        //noinspection WrongConstant
+        verify(locationListener).onProcessTypeChanged(ProcessType.GETTING_LOCATION_FROM_CUSTOM_PROVIDER);
+        verify(locationListener, timeout(TIMEOUT)).onLocationChanged(any(Location.class));
+        Thread.sleep(200);
+        verify(locationListener, times(1)).onLocationChanged(any(Location.class));
+        assertThat(replayLocationProvider.isWaiting()).isFalse();
+    }
+
+    @Test
+    public void getShouldDeliverWholeTrackWhenKeepTracking() {
+        replay(true, new ReplayConfiguration.Builder().rate(500).speedUp(100).build());
+
+        replayLocationProvider.get();
+
+        verify(locationListener, timeout(TIMEOUT).times(51)).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void finishingWithoutAnyLocationShouldFailWithTimeout() {
+        replay(true, new ReplayConfiguration.Builder().speedUp(100).dropoutProbability(1).build());
+
+        replayLocationProvider.get();
+
+        //noinspection WrongConstant
+        verify(locationListener, timeout(TIMEOUT)).onLocationFailed(FailType.TIMEOUT);
+        assertThat(replayLocationProvider.isWaiting()).isFalse();
+    }
+
+    @Test
+    public void droppedLocationsShouldNotFinishOneShotRequest() {
+        replay(false, new ReplayConfiguration.Builder().speedUp(100).build(), new FakeDroppingProcessor());
+
+        replayLocationProvider.get();
+
+        // Whole track is replayed, since none of them reaches the listener
+        //noinspection WrongConstant
+        verify(locationListener, timeout(TIMEOUT)).onLocationFailed(FailType.TIMEOUT);
+        verify(locationListener, never()).onLocationChanged(any(Location.class));
+    }
+
+    @Test
+    public void locationTimesShouldFollowTrackWhateverThePlaybackSpeed() {
+        replay(true, new ReplayConfiguration.Builder().speedUp(100).build());
+        replayLocationProvider.get();
+        TrackPoint first = TRACK.get(0);
+        TrackPoint last = TRACK.get(TRACK.size() - 1);
+
+        long trackDuration = last.getTime() - first.getTime();
+        assertThat(replayLocationProvider.timeOf(last) - replayLocationProvider.timeOf(first))
+              .isEqualTo(trackDuration);
+        assertThat(replayLocationProvider.elapsedRealtimeNanosOf(last)
+              - replayLocationProvider.elapsedRealtimeNanosOf(first)).isEqualTo(trackDuration * 1000000);
+    }
+
+    @Test
+    public void locationTimesShouldNotShiftWhilePaused() throws InterruptedException {
+        replay(true, new ReplayConfiguration.Builder().speedUp(100).build());
+        replayLocationProvider.get();
+        TrackPoint point = TRACK.get(10);
+        long time = replayLocationProvider.timeOf(point);
+
+        replayLocationProvider.onPause();
+        Thread.sleep(50);
+        replayLocationProvider.onResume();
+
+        assertThat(replayLocationProvider.timeOf(point)).isEqualTo(time);
+    }
+
+    private void replay(boolean keepTracking, ReplayConfiguration replayConfiguration,
+          LocationProcessor... processors) {
+        LocationConfiguration configuration = new LocationConfiguration.Builder()
+              .keepTracking(keepTracking)
+              .processors(Arrays.asList(processors))
+              .useDefaultProviders(new DefaultProviderConfiguration.Builder().build())
+              .build();
+
+        replayLocationProvider = new ReplayLocationProvider(TRACK, replayConfiguration) {
+            @Override
+            Location createLocation(TrackPoint point) {
+                return createLocationAt(timeOf(point));
+            }
+        };
+        replayLocationProvider.setLocationCache(locationCache);
+        replayLocationProvider.configure(contextProcessor, configuration, locationListener);
+    }
+}